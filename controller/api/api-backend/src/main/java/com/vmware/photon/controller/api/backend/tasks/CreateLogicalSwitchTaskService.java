@@ -24,7 +24,6 @@ import com.vmware.photon.controller.common.xenon.ServiceUriPaths;
 import com.vmware.photon.controller.common.xenon.ServiceUtils;
 import com.vmware.photon.controller.common.xenon.TaskUtils;
 import com.vmware.photon.controller.common.xenon.ValidationUtils;
-import com.vmware.photon.controller.nsxclient.NsxClient;
 import com.vmware.photon.controller.nsxclient.builders.LogicalSwitchCreateSpecBuilder;
 import com.vmware.photon.controller.nsxclient.datatypes.NsxSwitch;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitch;
@@ -45,8 +44,6 @@ import static com.google.common.base.Preconditions.checkState;
 
 import javax.annotation.Nullable;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * Implements an Xenon service that represents a task to create a logical switch.
  */
@@ -160,48 +157,33 @@ public class CreateLogicalSwitchTaskService extends StatefulService {
   }
 
   private void waitForConfigurationComplete(CreateLogicalSwitchTask currentState) {
-    NsxClient nsxClient = ServiceHostUtils.getNsxClient(
-        getHost(),
-        currentState.nsxAddress,
-        currentState.nsxUsername,
-        currentState.nsxPassword);
-
-    getHost().schedule(() -> {
-      try {
-        ServiceUtils.logInfo(this, "Checking the configuration status of logical switch");
-
-        nsxClient.getLogicalSwitchApi().getLogicalSwitchState(
-            currentState.logicalSwitchId,
-            new FutureCallback<LogicalSwitchState>() {
-              @Override
-              public void onSuccess(@Nullable LogicalSwitchState result) {
-                NsxSwitch.State state = result.getState();
-                switch (state) {
-                  case IN_PROGRESS:
-                  case PENDING:
-                    waitForConfigurationComplete(currentState);
-                    break;
-
-                  case SUCCESS:
-                    finishTask(result.getId());
-                    break;
-
-                  default:
-                    failTask(new CreateLogicalSwitchException("Creating logical switch " +
-                        currentState.logicalSwitchId + " failed with state " + state));
-                }
-              }
+    ServiceUtils.logInfo(this, "Waiting for the configuration of logical switch %s", currentState.logicalSwitchId);
 
-              @Override
-              public void onFailure(Throwable t) {
-                failTask(t);
+    try {
+      ServiceHostUtils.getNsxClient(getHost(), currentState.nsxAddress, currentState.nsxUsername,
+          currentState.nsxPassword).getStatusPoller().waitForLogicalSwitchConfiguration(
+          currentState.logicalSwitchId,
+          new FutureCallback<LogicalSwitchState>() {
+            @Override
+            public void onSuccess(@Nullable LogicalSwitchState result) {
+              NsxSwitch.State state = result.getState();
+              if (state == NsxSwitch.State.SUCCESS) {
+                finishTask(result.getId());
+              } else {
+                failTask(new CreateLogicalSwitchException("Creating logical switch " +
+                    currentState.logicalSwitchId + " failed with state " + state));
               }
             }
-        );
-      } catch (Throwable t) {
-        failTask(t);
-      }
-    }, nsxClient.getCreateLogicalSwitchPollDelay(), TimeUnit.MILLISECONDS);
+
+            @Override
+            public void onFailure(Throwable t) {
+              failTask(t);
+            }
+          }
+      );
+    } catch (Throwable t) {
+      failTask(t);
+    }
   }
 
   private void validateStartState(CreateLogicalSwitchTask startState) {
@@ -268,39 +268,28 @@ public class DeleteLogicalPortsTaskService extends StatefulService {
   }
 
   private void waitDeleteTier1RouterLinkPort(DeleteLogicalPortsTask currentState) {
-    NsxClient nsxClient = ServiceHostUtils.getNsxClient(
-        getHost(),
-        currentState.nsxAddress,
-        currentState.nsxUsername,
-        currentState.nsxPassword);
-
-    getHost().schedule(() -> {
-      try {
-        ServiceUtils.logInfo(this, "Wait for deleting link port %s on tier-1 router %s",
-            currentState.logicalLinkPortOnTier1Router, currentState.logicalTier1RouterId);
+    ServiceUtils.logInfo(this, "Wait for deleting link port %s on tier-1 router %s",
+        currentState.logicalLinkPortOnTier1Router, currentState.logicalTier1RouterId);
 
-        nsxClient.getLogicalRouterApi().checkLogicalRouterPortExistence(
-            currentState.logicalLinkPortOnTier1Router,
-            new FutureCallback<Boolean>() {
-              @Override
-              public void onSuccess(Boolean successful) {
-                if (!successful) {
-                  progressTask(TaskState.SubStage.DELETE_TIER0_ROUTER_LINK_PORT);
-                } else {
-                  waitDeleteTier1RouterLinkPort(currentState);
-                }
-              }
+    try {
+      ServiceHostUtils.getNsxClient(getHost(), currentState.nsxAddress, currentState.nsxUsername,
+          currentState.nsxPassword).getStatusPoller().waitForLogicalRouterPortDeletion(
+          currentState.logicalLinkPortOnTier1Router,
+          new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void v) {
+              progressTask(TaskState.SubStage.DELETE_TIER0_ROUTER_LINK_PORT);
+            }
 
-              @Override
-              public void onFailure(Throwable t) {
-                failTask(t);
-              }
+            @Override
+            public void onFailure(Throwable t) {
+              failTask(t);
             }
-        );
-      } catch (Throwable t) {
-        failTask(t);
-      }
-    }, nsxClient.getDeleteLogicalPortPollDelay(), TimeUnit.MILLISECONDS);
+          }
+      );
+    } catch (Throwable t) {
+      failTask(t);
+    }
   }
 
   private void deleteTier0RouterLinkPort(DeleteLogicalPortsTask currentState) throws Throwable {
@@ -332,39 +321,28 @@ public class DeleteLogicalPortsTaskService extends StatefulService {
   }
 
   private void waitDeleteTier0RouterLinkPort(DeleteLogicalPortsTask currentState) {
-    NsxClient nsxClient = ServiceHostUtils.getNsxClient(
-        getHost(),
-        currentState.nsxAddress,
-        currentState.nsxUsername,
-        currentState.nsxPassword);
-
-    getHost().schedule(() -> {
-      try {
-        ServiceUtils.logInfo(this, "Wait for deleting link port %s on tier-0 router %s",
-            currentState.logicalLinkPortOnTier0Router, currentState.logicalTier0RouterId);
+    ServiceUtils.logInfo(this, "Wait for deleting link port %s on tier-0 router %s",
+        currentState.logicalLinkPortOnTier0Router, currentState.logicalTier0RouterId);
 
-        nsxClient.getLogicalRouterApi().checkLogicalRouterPortExistence(
-            currentState.logicalLinkPortOnTier0Router,
-            new FutureCallback<Boolean>() {
-              @Override
-              public void onSuccess(Boolean successful) {
-                if (!successful) {
-                  progressTask(TaskState.SubStage.DELETE_TIER1_ROUTER_DOWN_LINK_PORT);
-                } else {
-                  waitDeleteTier0RouterLinkPort(currentState);
-                }
-              }
+    try {
+      ServiceHostUtils.getNsxClient(getHost(), currentState.nsxAddress, currentState.nsxUsername,
+          currentState.nsxPassword).getStatusPoller().waitForLogicalRouterPortDeletion(
+          currentState.logicalLinkPortOnTier0Router,
+          new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void v) {
+              progressTask(TaskState.SubStage.DELETE_TIER1_ROUTER_DOWN_LINK_PORT);
+            }
 
-              @Override
-              public void onFailure(Throwable t) {
-                failTask(t);
-              }
+            @Override
+            public void onFailure(Throwable t) {
+              failTask(t);
             }
-        );
-      } catch (Throwable t) {
-        failTask(t);
-      }
-    }, nsxClient.getDeleteLogicalPortPollDelay(), TimeUnit.MILLISECONDS);
+          }
+      );
+    } catch (Throwable t) {
+      failTask(t);
+    }
   }
 
   private void deleteTier1RouterDownLinkPort(DeleteLogicalPortsTask currentState) throws Throwable {
@@ -397,39 +375,28 @@ public class DeleteLogicalPortsTaskService extends StatefulService {
   }
 
   private void waitDeleteTier1RouterDownLinkPort(DeleteLogicalPortsTask currentState) {
-    NsxClient nsxClient = ServiceHostUtils.getNsxClient(
-        getHost(),
-        currentState.nsxAddress,
-        currentState.nsxUsername,
-        currentState.nsxPassword);
+    ServiceUtils.logInfo(this, "Wait for deleting down-link port %s on tier-1 router %s",
+        currentState.logicalDownLinkPortOnTier1Router, currentState.logicalTier1RouterId);
 
-    getHost().schedule(() -> {
-      try {
-        ServiceUtils.logInfo(this, "Wait for deleting down-link port %s on tier-1 router %s",
-            currentState.logicalDownLinkPortOnTier1Router, currentState.logicalTier1RouterId);
-
-        nsxClient.getLogicalRouterApi().checkLogicalRouterPortExistence(
-            currentState.logicalDownLinkPortOnTier1Router,
-            new FutureCallback<Boolean>() {
-              @Override
-              public void onSuccess(Boolean successful) {
-                if (!successful) {
-                  progressTask(TaskState.SubStage.DELETE_SWITCH_PORT);
-                } else {
-                  waitDeleteTier1RouterDownLinkPort(currentState);
-                }
-              }
+    try {
+      ServiceHostUtils.getNsxClient(getHost(), currentState.nsxAddress, currentState.nsxUsername,
+          currentState.nsxPassword).getStatusPoller().waitForLogicalRouterPortDeletion(
+          currentState.logicalDownLinkPortOnTier1Router,
+          new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void v) {
+              progressTask(TaskState.SubStage.DELETE_SWITCH_PORT);
+            }
 
-              @Override
-              public void onFailure(Throwable t) {
-                failTask(t);
-              }
+            @Override
+            public void onFailure(Throwable t) {
+              failTask(t);
             }
-        );
-      } catch (Throwable t) {
-        failTask(t);
-      }
-    }, nsxClient.getDeleteLogicalPortPollDelay(), TimeUnit.MILLISECONDS);
+          }
+      );
+    } catch (Throwable t) {
+      failTask(t);
+    }
   }
 
   private void deleteSwitchPort(DeleteLogicalPortsTask currentState, final List<Integer> retryCount) {
@@ -482,40 +449,29 @@ public class DeleteLogicalPortsTaskService extends StatefulService {
   }
 
   private void waitDeleteSwitchPort(DeleteLogicalPortsTask currentState) {
-    NsxClient nsxClient = ServiceHostUtils.getNsxClient(
-        getHost(),
-        currentState.nsxAddress,
-        currentState.nsxUsername,
-        currentState.nsxPassword);
-
-    getHost().schedule(() -> {
-      try {
-        ServiceUtils.logInfo(this, "Wait for delete port %s on switch %s",
-            currentState.logicalPortOnSwitch,
-            currentState.logicalSwitchId);
+    ServiceUtils.logInfo(this, "Wait for delete port %s on switch %s",
+        currentState.logicalPortOnSwitch,
+        currentState.logicalSwitchId);
 
-        nsxClient.getLogicalSwitchApi().checkLogicalSwitchPortExistence(
-            currentState.logicalPortOnSwitch,
-            new FutureCallback<Boolean>() {
-              @Override
-              public void onSuccess(Boolean successful) {
-                if (!successful) {
-                  finishTask();
-                } else {
-                  waitDeleteSwitchPort(currentState);
-                }
-              }
+    try {
+      ServiceHostUtils.getNsxClient(getHost(), currentState.nsxAddress, currentState.nsxUsername,
+          currentState.nsxPassword).getStatusPoller().waitForLogicalPortDeletion(
+          currentState.logicalPortOnSwitch,
+          new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void v) {
+              finishTask();
+            }
 
-              @Override
-              public void onFailure(Throwable t) {
-                failTask(t);
-              }
+            @Override
+            public void onFailure(Throwable t) {
+              failTask(t);
             }
-        );
-      } catch (Throwable t) {
-        failTask(t);
-      }
-    }, nsxClient.getDeleteLogicalPortPollDelay(), TimeUnit.MILLISECONDS);
+          }
+      );
+    } catch (Throwable t) {
+      failTask(t);
+    }
   }
 
   private void validateStartState(DeleteLogicalPortsTask state) {
@@ -17,6 +17,7 @@ import com.vmware.photon.controller.api.model.Task;
 import com.google.common.util.concurrent.FutureCallback;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Interface for interacting with Tasks API.
@@ -27,4 +28,11 @@ public interface TasksApi {
   Task getTask(String taskId) throws IOException;
 
   void getTaskAsync(String taskId, FutureCallback<Task> responseCallback) throws IOException;
+
+  Task getTask(String taskId, int waitForCompletionSeconds) throws IOException;
+
+  void getTaskAsync(String taskId, int waitForCompletionSeconds, FutureCallback<Task> responseCallback)
+      throws IOException;
+
+  Task waitForTask(String taskId, long timeout, TimeUnit unit) throws IOException;
 }
@@ -25,12 +25,18 @@ import org.apache.http.HttpStatus;
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tasks Api.
  */
 public class TasksRestApi extends ApiBase implements TasksApi {
 
+  /**
+   * The shortest interval between two requests of {@link #waitForTask}, in case the server returns right away.
+   */
+  private static final long MIN_WAIT_REQUEST_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
   public TasksRestApi(RestClient restClient) {
     super(restClient);
   }
@@ -49,7 +55,21 @@ public class TasksRestApi extends ApiBase implements TasksApi {
    */
   @Override
   public Task getTask(final String taskId) throws IOException {
-    String path = getBasePath() + "/" + taskId;
+    return getTask(taskId, 0);
+  }
+
+  /**
+   * Get task details synchronously, once the task completes or fails or once waitForCompletionSeconds
+   * have passed, whichever comes first.
+   *
+   * @param taskId
+   * @param waitForCompletionSeconds
+   * @return
+   * @throws IOException
+   */
+  @Override
+  public Task getTask(final String taskId, final int waitForCompletionSeconds) throws IOException {
+    String path = getTaskPath(taskId, waitForCompletionSeconds);
 
     Future<HttpResponse> response = this.restClient.performAsync(
         Method.GET,
@@ -75,12 +95,73 @@ public class TasksRestApi extends ApiBase implements TasksApi {
    */
   @Override
   public void getTaskAsync(final String taskId, final FutureCallback<Task> responseCallback) throws IOException {
-    String path = getBasePath() + "/" + taskId;
+    getTaskAsync(taskId, 0, responseCallback);
+  }
+
+  /**
+   * Get task details asynchronously, once the task completes or fails or once waitForCompletionSeconds
+   * have passed, whichever comes first.
+   *
+   * @param taskId
+   * @param waitForCompletionSeconds
+   * @param responseCallback
+   * @throws IOException
+   */
+  @Override
+  public void getTaskAsync(final String taskId, final int waitForCompletionSeconds,
+                           final FutureCallback<Task> responseCallback) throws IOException {
+    String path = getTaskPath(taskId, waitForCompletionSeconds);
 
     getObjectByPathAsync(path, responseCallback, new TypeReference<Task>() {
     });
   }
 
+  /**
+   * Waits synchronously for the task to complete or fail, for up to the timeout, and returns it in its
+   * latest state. The server holds each request until the task changes state, so the task is not polled.
+   *
+   * @param taskId
+   * @param timeout
+   * @param unit
+   * @return
+   * @throws IOException
+   */
+  @Override
+  public Task waitForTask(final String taskId, final long timeout, final TimeUnit unit) throws IOException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      long requestStart = System.nanoTime();
+      long remainingSeconds = TimeUnit.NANOSECONDS.toSeconds(deadline - requestStart);
+      Task task = getTask(taskId, (int) Math.max(0, Math.min(remainingSeconds, Task.MAX_WAIT_FOR_COMPLETION_SECONDS)));
+      if (isFinal(task) || System.nanoTime() >= deadline) {
+        return task;
+      }
+
+      // A server which does not support waitForCompletion returns right away
+      long requestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart);
+      if (requestMillis < MIN_WAIT_REQUEST_INTERVAL_MILLIS) {
+        try {
+          Thread.sleep(MIN_WAIT_REQUEST_INTERVAL_MILLIS - requestMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+
+  private String getTaskPath(String taskId, int waitForCompletionSeconds) {
+    String path = getBasePath() + "/" + taskId;
+    if (waitForCompletionSeconds > 0) {
+      path += "?waitForCompletion=" + waitForCompletionSeconds;
+    }
+    return path;
+  }
+
+  private static boolean isFinal(Task task) {
+    return "COMPLETED".equalsIgnoreCase(task.getState()) || "ERROR".equalsIgnoreCase(task.getState());
+  }
+
   private Task parseGetTaskHttpResponse(HttpResponse response) throws IOException {
     restClient.checkResponse(response, HttpStatus.SC_OK);
     return parseTaskFromHttpResponse(response);
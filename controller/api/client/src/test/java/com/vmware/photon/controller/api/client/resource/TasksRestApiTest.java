@@ -29,6 +29,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests {@link TasksRestApi}.
@@ -78,6 +79,54 @@ public class TasksRestApiTest extends ApiTestBase {
     });
   }
 
+  @Test
+  public void testGetTaskWaitingForCompletion() throws Throwable {
+    Task responseTask = new Task();
+    responseTask.setId("12345");
+    responseTask.setState("COMPLETED");
+
+    ObjectMapper mapper = new ObjectMapper();
+    String serializedTask = mapper.writeValueAsString(responseTask);
+
+    setupMocks(serializedTask, HttpStatus.SC_OK);
+    TasksApi tasksApi = new TasksRestApi(this.restClient);
+
+    Task task = tasksApi.getTask("foo", 30);
+    assertEquals(task, responseTask);
+  }
+
+  @Test
+  public void testWaitForTask() throws Throwable {
+    Task responseTask = new Task();
+    responseTask.setId("12345");
+    responseTask.setState("COMPLETED");
+
+    ObjectMapper mapper = new ObjectMapper();
+    String serializedTask = mapper.writeValueAsString(responseTask);
+
+    setupMocks(serializedTask, HttpStatus.SC_OK);
+    TasksApi tasksApi = new TasksRestApi(this.restClient);
+
+    Task task = tasksApi.waitForTask("foo", 1, TimeUnit.MINUTES);
+    assertEquals(task, responseTask);
+  }
+
+  @Test
+  public void testWaitForTaskTimesOut() throws Throwable {
+    Task responseTask = new Task();
+    responseTask.setId("12345");
+    responseTask.setState("QUEUED");
+
+    ObjectMapper mapper = new ObjectMapper();
+    String serializedTask = mapper.writeValueAsString(responseTask);
+
+    setupMocks(serializedTask, HttpStatus.SC_OK);
+    TasksApi tasksApi = new TasksRestApi(this.restClient);
+
+    Task task = tasksApi.waitForTask("foo", 0, TimeUnit.SECONDS);
+    assertEquals(task, responseTask);
+  }
+
   @Test(expectedExceptions = IOException.class)
   public void testGetTaskThrowsException() throws IOException {
     setupMocksToThrow(new IOException());
@@ -47,6 +47,7 @@ import com.vmware.photon.controller.api.frontend.backends.DiskBackend;
 import com.vmware.photon.controller.api.frontend.backends.DiskXenonBackend;
 import com.vmware.photon.controller.api.frontend.backends.EntityLockBackend;
 import com.vmware.photon.controller.api.frontend.backends.EntityLockXenonBackend;
+import com.vmware.photon.controller.api.frontend.backends.FairTaskQueue;
 import com.vmware.photon.controller.api.frontend.backends.FlavorBackend;
 import com.vmware.photon.controller.api.frontend.backends.FlavorXenonBackend;
 import com.vmware.photon.controller.api.frontend.backends.HostBackend;
@@ -110,7 +111,6 @@ import javax.net.ssl.SSLContext;
 
 import java.net.InetSocketAddress;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -185,7 +185,10 @@ public class ApiFeModule extends AbstractModule {
 
     int poolBufferSize =
         Math.max(configuration.getBackgroundWorkersQueueSize(), 1);
-    final ArrayBlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(poolBufferSize);
+    int projectBufferSize =
+        Math.max(configuration.getBackgroundWorkersQueueSizePerProject(), 1);
+    final FairTaskQueue workQueue =
+        new FairTaskQueue(poolBufferSize, projectBufferSize, DefaultMetricRegistry.REGISTRY);
     if (!DefaultMetricRegistry.REGISTRY.getGauges().containsKey(MetricRegistry.name(ApiFeService.class, "work-queue")
     )) {
       DefaultMetricRegistry.REGISTRY.register(MetricRegistry.name(ApiFeService.class, "work-queue"),
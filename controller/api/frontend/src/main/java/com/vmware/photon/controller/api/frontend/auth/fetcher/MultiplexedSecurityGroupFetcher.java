@@ -25,18 +25,24 @@ import java.util.Set;
 
 /**
  * Implements the default system level security group fetcher.
+ *
+ * The resolved security groups are cached in {@link SecurityGroupCache}, so repeated calls on the same object
+ * skip the walk up its parents.
  */
 @Singleton
 public class MultiplexedSecurityGroupFetcher implements SecurityGroupFetcher {
 
   private Map<TransactionAuthorizationObject.Kind, SecurityGroupFetcher> fetcherMap;
 
+  private SecurityGroupCache cache;
+
   /**
    * Default constructor.
    *
    * @param deploymentFetcher
    * @param noneFetcher
    * @param tenantFetcher
+   * @param cache
    */
   @Inject
   public MultiplexedSecurityGroupFetcher(
@@ -48,7 +54,9 @@ public class MultiplexedSecurityGroupFetcher implements SecurityGroupFetcher {
       @Cluster SecurityGroupFetcher clusterFetcher,
       @Disk SecurityGroupFetcher diskFetcher,
       @Vm SecurityGroupFetcher vmFetcher,
-      @Subnet SecurityGroupFetcher subnetFetcher) {
+      @Subnet SecurityGroupFetcher subnetFetcher,
+      SecurityGroupCache cache) {
+    this.cache = cache;
     this.fetcherMap = new HashMap<>();
     this.fetcherMap.put(TransactionAuthorizationObject.Kind.NONE, noneFetcher);
     this.fetcherMap.put(TransactionAuthorizationObject.Kind.DEPLOYMENT, deploymentFetcher);
@@ -68,7 +76,20 @@ public class MultiplexedSecurityGroupFetcher implements SecurityGroupFetcher {
    */
   @VisibleForTesting
   protected MultiplexedSecurityGroupFetcher(Map<TransactionAuthorizationObject.Kind, SecurityGroupFetcher> map) {
+    this(map, new SecurityGroupCache());
+  }
+
+  /**
+   * Constructor used for unit-testing.
+   *
+   * @param map
+   * @param cache
+   */
+  @VisibleForTesting
+  protected MultiplexedSecurityGroupFetcher(Map<TransactionAuthorizationObject.Kind, SecurityGroupFetcher> map,
+                                            SecurityGroupCache cache) {
     this.fetcherMap = map;
+    this.cache = cache;
   }
 
   @Override
@@ -79,7 +100,13 @@ public class MultiplexedSecurityGroupFetcher implements SecurityGroupFetcher {
           String.format("authorizationObject of 'kind' %s is not supported.", authorizationObject.getKind()));
     }
 
-    return fetcher.fetchSecurityGroups(authorizationObject);
+    Set<String> securityGroups = cache.get(authorizationObject);
+    if (securityGroups == null) {
+      securityGroups = fetcher.fetchSecurityGroups(authorizationObject);
+      cache.put(authorizationObject, securityGroups);
+    }
+
+    return securityGroups;
   }
 
   @VisibleForTesting
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.api.frontend.auth.fetcher;
+
+import com.vmware.photon.controller.api.frontend.auth.TransactionAuthorizationObject;
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, time-limited cache of the security groups resolved for an authorization object.
+ *
+ * Resolving the security groups of an object walks its parents (e.g. VM -> project -> tenant) with one cloud-store
+ * lookup per level, on every API call. The result of the whole walk is cached here, keyed by the kind, strategy
+ * and id of the object.
+ *
+ * Since a change to the security groups of a tenant, project or deployment affects every object below it, the
+ * whole cache is invalidated on such a change (see {@link #invalidateAll()}). Changes made through another API
+ * frontend instance are not seen until the entries expire, so the time to live is kept short.
+ */
+@Singleton
+public class SecurityGroupCache {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+  public static final long DEFAULT_EXPIRATION_SECONDS = 30;
+
+  private static final Logger logger = LoggerFactory.getLogger(SecurityGroupCache.class);
+
+  private final Cache<String, Set<String>> cache;
+  private final Meter hits;
+  private final Meter misses;
+
+  public SecurityGroupCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRATION_SECONDS, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  SecurityGroupCache(long maximumSize, long expirationSeconds, Ticker ticker) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS)
+        .ticker(ticker)
+        .build();
+    this.hits = DefaultMetricRegistry.REGISTRY.meter(MetricRegistry.name(SecurityGroupCache.class, "hits"));
+    this.misses = DefaultMetricRegistry.REGISTRY.meter(MetricRegistry.name(SecurityGroupCache.class, "misses"));
+  }
+
+  /**
+   * Returns the cached security groups of the object, or null if they are not cached.
+   */
+  public Set<String> get(TransactionAuthorizationObject authorizationObject) {
+    Set<String> securityGroups = cache.getIfPresent(toKey(authorizationObject));
+    if (securityGroups == null) {
+      misses.mark();
+    } else {
+      hits.mark();
+    }
+    return securityGroups;
+  }
+
+  /**
+   * Caches the security groups of the object. Empty results are not cached: they are returned for objects that
+   * do not exist (yet) or could not be resolved, and caching them would deny access to a newly created object.
+   */
+  public void put(TransactionAuthorizationObject authorizationObject, Set<String> securityGroups) {
+    if (securityGroups == null || securityGroups.isEmpty()) {
+      return;
+    }
+    cache.put(toKey(authorizationObject), ImmutableSet.copyOf(securityGroups));
+  }
+
+  /**
+   * Drops all the cached security groups. This must be called whenever the security groups of a tenant, project
+   * or deployment change.
+   */
+  public void invalidateAll() {
+    logger.info("Invalidating the security group cache");
+    cache.invalidateAll();
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  private static String toKey(TransactionAuthorizationObject authorizationObject) {
+    return authorizationObject.getKind() + ":" + authorizationObject.getStrategy() + ":" + authorizationObject.getId();
+  }
+}
@@ -20,7 +20,10 @@ import com.vmware.photon.controller.api.frontend.entities.VmEntity;
 import com.vmware.photon.controller.api.frontend.exceptions.external.ExternalException;
 import com.vmware.photon.controller.api.model.AttachedDiskCreateSpec;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * AttachedDiskBackend is interface for attached disk backend.
@@ -38,7 +41,17 @@ public interface AttachedDiskBackend {
 
   AttachedDiskEntity findAttachedDisk(BaseDiskEntity diskEntity);
 
+  CompletableFuture<AttachedDiskEntity> findAttachedDiskAsync(BaseDiskEntity diskEntity);
+
   List<AttachedDiskEntity> findByVmId(String vmId);
 
+  CompletableFuture<List<AttachedDiskEntity>> findByVmIdAsync(String vmId);
+
+  /**
+   * Finds the attached disks of several VMs with set-based queries rather than one query per VM.
+   * The result is keyed by VM id; VMs without attached disks have no entry.
+   */
+  CompletableFuture<Map<String, List<AttachedDiskEntity>>> findByVmIdsAsync(Collection<String> vmIds);
+
   void deleteAttachedDiskById(String attachedDiskId);
 }
@@ -34,7 +34,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * AttachedDiskXenonBackend is performing attach disk and detach disk operations.
@@ -113,17 +117,35 @@ public class AttachedDiskXenonBackend implements AttachedDiskBackend {
   }
 
   @Override
-  public List<AttachedDiskEntity> findByVmId(String vmId) {
-    final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
-    termsBuilder.put("vmId", vmId);
+  public CompletableFuture<AttachedDiskEntity> findAttachedDiskAsync(BaseDiskEntity diskEntity) {
+    ImmutableMap<String, String> terms = buildDiskIdTerms(diskEntity.getKind(), diskEntity.getId());
+    return xenonClient.queryDocumentsAsync(AttachedDiskService.State.class, terms)
+        .thenApply(attachedDisks -> toAttachedDiskEntity(getUniqueAttachedDisk(attachedDisks), diskEntity));
+  }
 
+  @Override
+  public List<AttachedDiskEntity> findByVmId(String vmId) {
     List<AttachedDiskService.State> attachedDisks = xenonClient.queryDocuments(
-        AttachedDiskService.State.class, termsBuilder.build());
-    List<AttachedDiskEntity> attachedDiskEntities = new ArrayList<>();
-    for (AttachedDiskService.State state : attachedDisks) {
-      attachedDiskEntities.add(toAttachedDiskEntity(state, null));
-    }
-    return attachedDiskEntities;
+        AttachedDiskService.State.class, buildVmIdTerms(vmId));
+    return toAttachedDiskEntities(attachedDisks);
+  }
+
+  @Override
+  public CompletableFuture<List<AttachedDiskEntity>> findByVmIdAsync(String vmId) {
+    return xenonClient.queryDocumentsAsync(AttachedDiskService.State.class, buildVmIdTerms(vmId))
+        .thenApply(attachedDisks -> toAttachedDiskEntities(attachedDisks));
+  }
+
+  @Override
+  public CompletableFuture<Map<String, List<AttachedDiskEntity>>> findByVmIdsAsync(Collection<String> vmIds) {
+    return xenonClient.queryDocumentsAsync(AttachedDiskService.State.class, null, "vmId", vmIds)
+        .thenApply(attachedDisks -> {
+          Map<String, List<AttachedDiskEntity>> attachedDisksByVmId = new HashMap<>();
+          for (AttachedDiskEntity attachedDisk : toAttachedDiskEntities(attachedDisks)) {
+            attachedDisksByVmId.computeIfAbsent(attachedDisk.getVmId(), vmId -> new ArrayList<>()).add(attachedDisk);
+          }
+          return attachedDisksByVmId;
+        });
   }
 
   @Override
@@ -182,6 +204,18 @@ public class AttachedDiskXenonBackend implements AttachedDiskBackend {
   }
 
   private AttachedDiskService.State findByDiskId(String kind, String diskId) {
+    List<AttachedDiskService.State> attachedDisks = xenonClient.queryDocuments(
+        AttachedDiskService.State.class, buildDiskIdTerms(kind, diskId));
+    return getUniqueAttachedDisk(attachedDisks);
+  }
+
+  private static ImmutableMap<String, String> buildVmIdTerms(String vmId) {
+    final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
+    termsBuilder.put("vmId", vmId);
+    return termsBuilder.build();
+  }
+
+  private static ImmutableMap<String, String> buildDiskIdTerms(String kind, String diskId) {
     final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
     switch (kind) {
       case PersistentDisk.KIND:
@@ -193,10 +227,10 @@ public class AttachedDiskXenonBackend implements AttachedDiskBackend {
       default:
         throw new IllegalArgumentException("Unknown disk kind: " + kind);
     }
+    return termsBuilder.build();
+  }
 
-    List<AttachedDiskService.State> attachedDisks = xenonClient.queryDocuments(
-        AttachedDiskService.State.class, termsBuilder.build());
-
+  private static AttachedDiskService.State getUniqueAttachedDisk(List<AttachedDiskService.State> attachedDisks) {
     if (attachedDisks.isEmpty()) {
       return null;
     }
@@ -204,6 +238,14 @@ public class AttachedDiskXenonBackend implements AttachedDiskBackend {
     return attachedDisks.get(0);
   }
 
+  private List<AttachedDiskEntity> toAttachedDiskEntities(List<AttachedDiskService.State> attachedDisks) {
+    List<AttachedDiskEntity> attachedDiskEntities = new ArrayList<>();
+    for (AttachedDiskService.State state : attachedDisks) {
+      attachedDiskEntities.add(toAttachedDiskEntity(state, null));
+    }
+    return attachedDiskEntities;
+  }
+
   private AttachedDiskEntity toAttachedDiskEntity(AttachedDiskService.State state, BaseDiskEntity diskEntity) {
     if (state == null) {
       return null;
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.backends;
 
+import com.vmware.photon.controller.api.frontend.entities.AttachedDiskEntity;
 import com.vmware.photon.controller.api.frontend.entities.BaseDiskEntity;
 import com.vmware.photon.controller.api.frontend.entities.TaskEntity;
 import com.vmware.photon.controller.api.frontend.exceptions.external.DiskNotFoundException;
@@ -25,6 +26,10 @@ import com.vmware.photon.controller.api.model.ResourceList;
 
 import com.google.common.base.Optional;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The Disk Backend Interface.
  */
@@ -51,6 +56,19 @@ public interface DiskBackend {
 
   BaseDiskEntity find(String kind, String id) throws DiskNotFoundException;
 
+  /**
+   * Non-blocking variant of {@link #find(String, String)}; the future fails with DiskNotFoundException
+   * if the disk does not exist.
+   */
+  CompletableFuture<BaseDiskEntity> findAsync(String kind, String id);
+
+  /**
+   * Finds the underlying disks of the given attached disks with set-based queries rather than one lookup per
+   * disk. The result is keyed by disk id; disks that do not exist have no entry.
+   */
+  Map<String, BaseDiskEntity> findUnderlyingDisks(Collection<AttachedDiskEntity> attachedDisks)
+      throws ExternalException;
+
   ResourceList<PersistentDisk> getDisksPage(String pageLink) throws ExternalException;
 
 }
@@ -50,6 +50,7 @@ import com.vmware.photon.controller.cloudstore.xenon.entity.DiskService;
 import com.vmware.photon.controller.cloudstore.xenon.entity.DiskServiceFactory;
 import com.vmware.photon.controller.common.xenon.ServiceUtils;
 import com.vmware.photon.controller.common.xenon.exceptions.DocumentNotFoundException;
+import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceDocumentQueryResult;
 
 import com.google.common.base.Optional;
@@ -62,8 +63,13 @@ import org.slf4j.LoggerFactory;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -101,7 +107,7 @@ public class DiskXenonBackend implements DiskBackend {
   @Override
   public PersistentDisk toApiRepresentation(String id) throws ExternalException {
     DiskService.State state = findById(id);
-    return toPersistentDisk(state);
+    return toPersistentDisks(ImmutableList.of(state)).get(0);
   }
 
   @Override
@@ -201,6 +207,52 @@ public class DiskXenonBackend implements DiskBackend {
     return toDiskEntity(state, kind);
   }
 
+  @Override
+  public CompletableFuture<BaseDiskEntity> findAsync(String kind, String id) {
+    CompletableFuture<BaseDiskEntity> future = new CompletableFuture<>();
+    xenonClient.getDocumentAsync(DiskServiceFactory.SELF_LINK + "/" + id, DiskService.State.class)
+        .whenComplete((state, failure) -> {
+          if (failure == null) {
+            try {
+              future.complete(toDiskEntity(state, kind));
+            } catch (Throwable t) {
+              future.completeExceptionally(t);
+            }
+            return;
+          }
+
+          Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+          if (cause instanceof DocumentNotFoundException) {
+            future.completeExceptionally(new DiskNotFoundException(id));
+          } else {
+            future.completeExceptionally(cause);
+          }
+        });
+    return future;
+  }
+
+  @Override
+  public Map<String, BaseDiskEntity> findUnderlyingDisks(Collection<AttachedDiskEntity> attachedDisks)
+      throws ExternalException {
+    Map<String, String> kindsByDiskId = new HashMap<>();
+    for (AttachedDiskEntity attachedDisk : attachedDisks) {
+      kindsByDiskId.put(attachedDisk.getUnderlyingDiskId(), attachedDisk.getKind());
+    }
+
+    List<String> diskLinks = kindsByDiskId.keySet().stream()
+        .map(diskId -> DiskServiceFactory.SELF_LINK + "/" + diskId)
+        .collect(Collectors.toList());
+    List<DiskService.State> diskStates = ApiFeXenonRestClient.join(xenonClient.queryDocumentsAsync(
+        DiskService.State.class, null, ServiceDocument.FIELD_NAME_SELF_LINK, diskLinks));
+
+    Map<String, BaseDiskEntity> disksById = new HashMap<>();
+    for (DiskService.State diskState : diskStates) {
+      String diskId = ServiceUtils.getIDFromDocumentSelfLink(diskState.documentSelfLink);
+      disksById.put(diskId, toDiskEntity(diskState, kindsByDiskId.get(diskId)));
+    }
+    return disksById;
+  }
+
   @Override
   public ResourceList<PersistentDisk> getDisksPage(String pageLink) throws ExternalException {
     ServiceDocumentQueryResult queryResult = null;
@@ -214,13 +266,8 @@ public class DiskXenonBackend implements DiskBackend {
         DiskService.State.class,
         queryResult);
 
-    List<PersistentDisk> disks = new ArrayList<>();
-    for (DiskService.State diskState : diskStates.getItems()) {
-      disks.add(toPersistentDisk(diskState));
-    }
-
     ResourceList<PersistentDisk> result = new ResourceList<>();
-    result.setItems(disks);
+    result.setItems(toPersistentDisks(diskStates.getItems()));
     result.setNextPageLink(diskStates.getNextPageLink());
     result.setPreviousPageLink(diskStates.getPreviousPageLink());
 
@@ -325,7 +372,26 @@ public class DiskXenonBackend implements DiskBackend {
     return result.getBody(DiskService.State.class);
   }
 
-  private PersistentDisk toPersistentDisk(DiskService.State diskState) throws ExternalException {
+  /**
+   * Converts the disk documents to their API representation. The attached disk of every disk is looked up
+   * concurrently instead of one disk after the other.
+   */
+  private List<PersistentDisk> toPersistentDisks(List<DiskService.State> diskStates) throws ExternalException {
+    List<CompletableFuture<AttachedDiskEntity>> attachedDiskFutures = new ArrayList<>(diskStates.size());
+    for (DiskService.State diskState : diskStates) {
+      attachedDiskFutures.add(attachedDiskBackend.findAttachedDiskAsync(toPersistentDiskEntity(diskState)));
+    }
+
+    List<PersistentDisk> persistentDisks = new ArrayList<>(diskStates.size());
+    for (int i = 0; i < diskStates.size(); i++) {
+      persistentDisks.add(toPersistentDisk(diskStates.get(i), attachedDiskFutures.get(i)));
+    }
+    return persistentDisks;
+  }
+
+  private PersistentDisk toPersistentDisk(DiskService.State diskState,
+                                          CompletableFuture<AttachedDiskEntity> attachedDiskFuture)
+      throws ExternalException {
     PersistentDisk persistentDisk = new PersistentDisk();
     String id = ServiceUtils.getIDFromDocumentSelfLink(diskState.documentSelfLink);
     persistentDisk.setId(id);
@@ -343,8 +409,7 @@ public class DiskXenonBackend implements DiskBackend {
       persistentDisk.setTags(new HashSet<>(diskState.tags));
     }
 
-    PersistentDiskEntity persistentDiskEntity = toPersistentDiskEntity(diskState);
-    AttachedDiskEntity attachedDiskEntity = attachedDiskBackend.findAttachedDisk(persistentDiskEntity);
+    AttachedDiskEntity attachedDiskEntity = ApiFeXenonRestClient.join(attachedDiskFuture);
     if (attachedDiskEntity != null) {
       persistentDisk.setVms(ImmutableList.of(attachedDiskEntity.getVmId()));
     }
@@ -379,13 +444,7 @@ public class DiskXenonBackend implements DiskBackend {
   private ResourceList<PersistentDisk> toPersistentDiskList(ResourceList<DiskService.State> diskDocuments)
       throws ExternalException {
     ResourceList<PersistentDisk> result = new ResourceList<>();
-
-    List<PersistentDisk> persistentDiskList = new ArrayList<>();
-    for (DiskService.State state : diskDocuments.getItems()) {
-      persistentDiskList.add(toPersistentDisk(state));
-    }
-
-    result.setItems(persistentDiskList);
+    result.setItems(toPersistentDisks(diskDocuments.getItems()));
     result.setNextPageLink(diskDocuments.getNextPageLink());
     result.setPreviousPageLink(diskDocuments.getPreviousPageLink());
     return result;
@@ -0,0 +1,514 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.api.frontend.backends;
+
+import com.vmware.photon.controller.api.frontend.commands.tasks.TaskCommand;
+import com.vmware.photon.controller.api.frontend.entities.TaskEntity;
+import com.vmware.photon.controller.api.model.Operation;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue of the backend task executor which shares the workers fairly between projects.
+ * <p/>
+ * Tasks are queued in two lanes: one for short operations, like powering a VM on, and one for everything else. Within
+ * a lane, each project has its own FIFO queue, and the projects with queued tasks take turns. The lanes themselves
+ * take turns by weight, so that short operations are not stuck behind a flood of VM creations, while long operations
+ * still get their share of the workers. Tasks without a project, like tenant or deployment operations, share the
+ * queue of the system.
+ * <p/>
+ * A task is rejected when its project already has as many tasks queued as one project is allowed, or when the queue
+ * is full. The per-project limit being lower than the capacity, a project flooding the executor only has its own
+ * tasks rejected.
+ * <p/>
+ * The queue depth, the time tasks waited and the rejections are reported per lane.
+ */
+public class FairTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+  /**
+   * The key of the tasks which do not belong to a project.
+   */
+  @VisibleForTesting
+  static final String SYSTEM_KEY = "";
+
+  /**
+   * Operations which complete quickly, and which users wait for interactively.
+   */
+  private static final Set<Operation> SHORT_OPERATIONS = Collections.unmodifiableSet(EnumSet.of(
+      Operation.START_VM,
+      Operation.STOP_VM,
+      Operation.RESTART_VM,
+      Operation.SUSPEND_VM,
+      Operation.RESUME_VM,
+      Operation.GET_MKS_TICKET,
+      Operation.GET_NETWORKS,
+      Operation.GET_VM_IP,
+      Operation.RELEASE_VM_IP,
+      Operation.SET_METADATA,
+      Operation.ADD_TAG,
+      Operation.ATTACH_DISK,
+      Operation.DETACH_DISK,
+      Operation.DETACH_ISO,
+      Operation.SET_PROJECT_SECURITY_GROUPS,
+      Operation.SET_TENANT_SECURITY_GROUPS,
+      Operation.SET_AVAILABILITYZONE,
+      Operation.SET_PORT_GROUPS,
+      Operation.SET_DEFAULT_NETWORK,
+      Operation.PAUSE_SYSTEM,
+      Operation.PAUSE_BACKGROUND_TASKS,
+      Operation.RESUME_SYSTEM));
+
+  /**
+   * The lanes of the queue.
+   */
+  public enum Lane {
+    SHORT(4),
+    LONG(1);
+
+    /**
+     * The number of tasks taken from the lane in a row while the other lane has tasks queued too.
+     */
+    private final int weight;
+
+    Lane(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  private final int capacity;
+  private final int projectCapacity;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+
+  private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+  private final Map<String, Integer> queuedByKey = new HashMap<>();
+  private final Map<Lane, Integer> credits = new EnumMap<>(Lane.class);
+  private int count;
+
+  private final Map<Lane, Timer> waitTimers = new EnumMap<>(Lane.class);
+  private final Map<Lane, Meter> rejectionMeters = new EnumMap<>(Lane.class);
+
+  /**
+   * @param capacity        the number of tasks the queue holds
+   * @param projectCapacity the number of tasks the queue holds for a single project
+   * @param metricRegistry  the registry the metrics of the queue are reported to
+   */
+  public FairTaskQueue(int capacity, int projectCapacity, MetricRegistry metricRegistry) {
+    this.capacity = capacity;
+    this.projectCapacity = Math.min(projectCapacity, capacity);
+
+    for (Lane lane : Lane.values()) {
+      LaneQueue laneQueue = new LaneQueue();
+      lanes.put(lane, laneQueue);
+      credits.put(lane, lane.weight);
+
+      String prefix = MetricRegistry.name(FairTaskQueue.class, lane.name().toLowerCase());
+      waitTimers.put(lane, metricRegistry.timer(MetricRegistry.name(prefix, "wait-time")));
+      rejectionMeters.put(lane, metricRegistry.meter(MetricRegistry.name(prefix, "rejected")));
+
+      // The gauge reports the depth of the last queue created, as there is one backend task executor per process
+      String depthName = MetricRegistry.name(prefix, "depth");
+      metricRegistry.remove(depthName);
+      metricRegistry.register(depthName, (Gauge<Integer>) () -> size(lane));
+    }
+  }
+
+  /**
+   * Returns the number of tasks queued in a lane.
+   */
+  public int size(Lane lane) {
+    lock.lock();
+    try {
+      return lanes.get(lane).size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of tasks queued for a project, or for the system if the project is null.
+   */
+  public int size(String projectId) {
+    lock.lock();
+    try {
+      return queuedByKey.getOrDefault(projectId != null ? projectId : SYSTEM_KEY, 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return capacity - count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Runnable runnable) {
+    Entry entry = classify(runnable);
+    lock.lock();
+    try {
+      if (!hasRoomFor(entry.key)) {
+        rejectionMeters.get(entry.lane).mark();
+        return false;
+      }
+
+      enqueue(entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+    Entry entry = classify(runnable);
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (!hasRoomFor(entry.key)) {
+        if (nanos <= 0) {
+          rejectionMeters.get(entry.lane).mark();
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+
+      enqueue(entry);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(Runnable runnable) throws InterruptedException {
+    Entry entry = classify(runnable);
+    lock.lockInterruptibly();
+    try {
+      while (!hasRoomFor(entry.key)) {
+        notFull.await();
+      }
+
+      enqueue(entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll() {
+    lock.lock();
+    try {
+      return count == 0 ? null : dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        notEmpty.await();
+      }
+
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable peek() {
+    lock.lock();
+    try {
+      if (count == 0) {
+        return null;
+      }
+
+      Lane lane = nextLane(false);
+      return lanes.get(lane).peek().runnable;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object object) {
+    lock.lock();
+    try {
+      for (LaneQueue laneQueue : lanes.values()) {
+        Entry entry = laneQueue.remove(object);
+        if (entry != null) {
+          removed(entry);
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> collection) {
+    return drainTo(collection, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+    lock.lock();
+    try {
+      int drained = 0;
+      while (drained < maxElements && count > 0) {
+        collection.add(dequeue());
+        drained++;
+      }
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the queued tasks, which does not support removal.
+   */
+  @Override
+  public Iterator<Runnable> iterator() {
+    lock.lock();
+    try {
+      List<Runnable> snapshot = new ArrayList<>(count);
+      for (LaneQueue laneQueue : lanes.values()) {
+        for (ArrayDeque<Entry> entries : laneQueue.queues.values()) {
+          for (Entry entry : entries) {
+            snapshot.add(entry.runnable);
+          }
+        }
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the lane of an operation.
+   */
+  @VisibleForTesting
+  static Lane getLane(Operation operation) {
+    return SHORT_OPERATIONS.contains(operation) ? Lane.SHORT : Lane.LONG;
+  }
+
+  private boolean hasRoomFor(String key) {
+    return count < capacity && queuedByKey.getOrDefault(key, 0) < projectCapacity;
+  }
+
+  private void enqueue(Entry entry) {
+    lanes.get(entry.lane).add(entry);
+    queuedByKey.merge(entry.key, 1, Integer::sum);
+    count++;
+    notEmpty.signal();
+  }
+
+  private Runnable dequeue() {
+    Lane lane = nextLane(true);
+    Entry entry = lanes.get(lane).poll();
+    removed(entry);
+    waitTimers.get(lane).update(System.nanoTime() - entry.queuedNanos, TimeUnit.NANOSECONDS);
+    return entry.runnable;
+  }
+
+  private void removed(Entry entry) {
+    if (queuedByKey.merge(entry.key, -1, Integer::sum) == 0) {
+      queuedByKey.remove(entry.key);
+    }
+    count--;
+    notFull.signalAll();
+  }
+
+  /**
+   * Returns the lane to take the next task from, using up a credit of that lane if asked to. A lane with tasks queued
+   * is taken from as long as it has credits left; once all the lanes with tasks queued are out of credits, every lane
+   * gets as many credits as its weight again.
+   */
+  private Lane nextLane(boolean useCredit) {
+    Lane fallback = null;
+    for (Lane lane : Lane.values()) {
+      if (lanes.get(lane).size == 0) {
+        continue;
+      }
+
+      if (credits.get(lane) > 0) {
+        if (useCredit) {
+          credits.put(lane, credits.get(lane) - 1);
+        }
+        return lane;
+      }
+
+      if (fallback == null) {
+        fallback = lane;
+      }
+    }
+
+    if (useCredit) {
+      for (Lane lane : Lane.values()) {
+        credits.put(lane, lane == fallback ? lane.weight - 1 : lane.weight);
+      }
+    }
+    return fallback;
+  }
+
+  private static Entry classify(Runnable runnable) {
+    TaskCommand command = null;
+    if (runnable instanceof TaskCommandExecutorService.TaskCommandFuture) {
+      command = ((TaskCommandExecutorService.TaskCommandFuture<?>) runnable).getCommand();
+    } else if (runnable instanceof TaskCommand) {
+      command = (TaskCommand) runnable;
+    }
+
+    if (command == null) {
+      return new Entry(runnable, SYSTEM_KEY, Lane.LONG);
+    }
+
+    TaskEntity task = command.getTask();
+    return new Entry(runnable,
+        task.getProjectId() != null ? task.getProjectId() : SYSTEM_KEY,
+        getLane(task.getOperation()));
+  }
+
+  /**
+   * A queued task.
+   */
+  private static class Entry {
+    private final Runnable runnable;
+    private final String key;
+    private final Lane lane;
+    private final long queuedNanos = System.nanoTime();
+
+    private Entry(Runnable runnable, String key, Lane lane) {
+      this.runnable = runnable;
+      this.key = key;
+      this.lane = lane;
+    }
+  }
+
+  /**
+   * The tasks of a lane, in a FIFO queue per key. The keys with tasks queued take turns, in the order in which they
+   * got their first task queued.
+   */
+  private static class LaneQueue {
+    private final LinkedHashMap<String, ArrayDeque<Entry>> queues = new LinkedHashMap<>();
+    private int size;
+
+    private void add(Entry entry) {
+      queues.computeIfAbsent(entry.key, key -> new ArrayDeque<>()).add(entry);
+      size++;
+    }
+
+    private Entry peek() {
+      return queues.values().iterator().next().peek();
+    }
+
+    private Entry poll() {
+      Iterator<Map.Entry<String, ArrayDeque<Entry>>> iterator = queues.entrySet().iterator();
+      Map.Entry<String, ArrayDeque<Entry>> first = iterator.next();
+      Entry entry = first.getValue().poll();
+      iterator.remove();
+      if (!first.getValue().isEmpty()) {
+        // The key goes to the back of the line
+        queues.put(first.getKey(), first.getValue());
+      }
+      size--;
+      return entry;
+    }
+
+    private Entry remove(Object runnable) {
+      Iterator<ArrayDeque<Entry>> queueIterator = queues.values().iterator();
+      while (queueIterator.hasNext()) {
+        ArrayDeque<Entry> entries = queueIterator.next();
+        Iterator<Entry> entryIterator = entries.iterator();
+        while (entryIterator.hasNext()) {
+          Entry entry = entryIterator.next();
+          if (entry.runnable.equals(runnable)) {
+            entryIterator.remove();
+            if (entries.isEmpty()) {
+              queueIterator.remove();
+            }
+            size--;
+            return entry;
+          }
+        }
+      }
+      return null;
+    }
+  }
+}
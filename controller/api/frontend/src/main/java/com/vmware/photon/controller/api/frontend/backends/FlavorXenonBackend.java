@@ -355,15 +355,11 @@ public class FlavorXenonBackend implements FlavorBackend {
   }
 
   private FlavorService.State findById(String id) throws ExternalException {
-    com.vmware.xenon.common.Operation result;
-
     try {
-      result = xenonClient.get(FlavorServiceFactory.SELF_LINK + "/" + id);
+      return xenonClient.getCachedDocument(FlavorService.State.class, FlavorServiceFactory.SELF_LINK + "/" + id);
     } catch (DocumentNotFoundException documentNotFoundException) {
       throw new FlavorNotFoundException(id);
     }
-
-    return result.getBody(FlavorService.State.class);
   }
 
   private Optional<FlavorEntity> getByNameAndKind(Optional<String> name, Optional<String> kind)
@@ -51,6 +51,10 @@ public interface ImageBackend {
 
   void updateImageDatastore(String imageId, String imageDatastoreId) throws ExternalException;
 
+  void updateContentDigest(ImageEntity imageEntity, String contentDigest) throws ExternalException;
+
+  Optional<ImageEntity> findByContentDigest(String contentDigest) throws ExternalException;
+
   ResourceList<ImageEntity> getAll(Optional<Integer> pageSize) throws ExternalException;
 
   Image toApiRepresentation(String id) throws ExternalException;
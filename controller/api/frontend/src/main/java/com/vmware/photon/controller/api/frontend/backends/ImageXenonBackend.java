@@ -251,14 +251,14 @@ public class ImageXenonBackend implements ImageBackend {
 
   @Override
   public ImageEntity findById(String id) throws ExternalException {
-    com.vmware.xenon.common.Operation result;
+    ImageService.State state;
     try {
-      result = xenonClient.get(ImageServiceFactory.SELF_LINK + "/" + id);
+      state = xenonClient.getCachedDocument(ImageService.State.class, ImageServiceFactory.SELF_LINK + "/" + id);
     } catch (DocumentNotFoundException documentNotFoundException) {
       throw new ImageNotFoundException(Type.ID, id);
     }
 
-    return convertToEntity(result.getBody(ImageService.State.class));
+    return convertToEntity(state);
   }
 
   @Override
@@ -286,6 +286,27 @@ public class ImageXenonBackend implements ImageBackend {
     updateImageCounts(imageId);
   }
 
+  @Override
+  public void updateContentDigest(ImageEntity imageEntity, String contentDigest) throws ExternalException {
+    ImageService.State imageState = new ImageService.State();
+    imageState.contentDigest = contentDigest;
+    patchImageService(imageEntity.getId(), imageState);
+  }
+
+  @Override
+  public Optional<ImageEntity> findByContentDigest(String contentDigest) throws ExternalException {
+    final ImmutableMap.Builder<String, String> termsBuilder = new ImmutableMap.Builder<>();
+    termsBuilder.put("contentDigest", contentDigest);
+    termsBuilder.put("state", ImageState.READY.name());
+
+    List<ImageService.State> images = xenonClient.queryDocuments(ImageService.State.class, termsBuilder.build());
+    if (images.isEmpty()) {
+      return Optional.absent();
+    }
+
+    return Optional.of(convertToEntity(images.get(0)));
+  }
+
   @Override
   public boolean isImageSeedingDone(String imageId) throws ExternalException {
     try {
@@ -341,6 +362,7 @@ public class ImageXenonBackend implements ImageBackend {
     imageEntity.setTotalImageDatastore(imageState.totalImageDatastore);
     imageEntity.setReplicatedDatastore(imageState.replicatedDatastore);
     imageEntity.setReplicatedImageDatastore(imageState.replicatedImageDatastore);
+    imageEntity.setContentDigest(imageState.contentDigest);
 
     List<ImageSettingsEntity> imageSettingsEntityList = new ArrayList<>();
 
@@ -308,8 +308,7 @@ public class NetworkXenonBackend implements NetworkBackend {
 
   private NetworkService.State getById(String id) throws NetworkNotFoundException {
     try {
-      com.vmware.xenon.common.Operation result = xenonClient.get(NetworkServiceFactory.SELF_LINK + "/" + id);
-      return result.getBody(NetworkService.State.class);
+      return xenonClient.getCachedDocument(NetworkService.State.class, NetworkServiceFactory.SELF_LINK + "/" + id);
     } catch (DocumentNotFoundException exception) {
       throw new NetworkNotFoundException(id);
     }
@@ -172,15 +172,15 @@ public class ProjectXenonBackend implements ProjectBackend {
 
   @Override
   public ProjectEntity findById(String id) throws ProjectNotFoundException {
-    com.vmware.xenon.common.Operation result;
+    ProjectService.State state;
 
     try {
-      result = xenonClient.get(ProjectServiceFactory.SELF_LINK + "/" + id);
+      state = xenonClient.getCachedDocument(ProjectService.State.class, ProjectServiceFactory.SELF_LINK + "/" + id);
     } catch (DocumentNotFoundException documentNotFoundException) {
       throw new ProjectNotFoundException(id);
     }
 
-    return toProjectEntity(result.getBody(ProjectService.State.class));
+    return toProjectEntity(state);
 
   }
 
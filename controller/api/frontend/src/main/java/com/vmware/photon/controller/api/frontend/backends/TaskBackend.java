@@ -27,6 +27,8 @@ import com.vmware.photon.controller.api.model.Task;
 import com.google.common.base.Optional;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Common task operations.
@@ -38,6 +40,12 @@ public interface TaskBackend {
 
   Task getApiRepresentation(TaskEntity task) throws TaskNotFoundException;
 
+  /**
+   * Waits for the task to complete or fail, for up to the timeout, and completes with its API representation.
+   * The future fails with {@link TaskNotFoundException} if the task does not exist.
+   */
+  CompletableFuture<Task> waitForCompletion(String id, long timeout, TimeUnit unit);
+
   ResourceList<Task> filter(String entityId, String entityKind, Optional<String> state,
                             Optional<Integer> pageSize) throws ExternalException;
 
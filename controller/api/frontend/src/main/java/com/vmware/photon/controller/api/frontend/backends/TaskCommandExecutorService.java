@@ -25,7 +25,9 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +35,9 @@ import java.util.concurrent.TimeUnit;
 /**
  * Wraps ThreadPoolExecutor to throttle submission size and log uncaught exceptions.
  * <p/>
+ * Task commands are queued as {@link TaskCommandFuture}s, which keep the command visible to the work queue, so that a
+ * {@link FairTaskQueue} can queue them by project and operation.
+ * <p/>
  * See {@link ThreadPoolExecutor#submit(java.util.concurrent.Callable)}.
  * See {@link ThreadPoolExecutor#afterExecute(Runnable, Throwable)}.
  */
@@ -62,6 +67,14 @@ public class TaskCommandExecutorService extends ThreadPoolExecutor {
     }
   }
 
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    if (runnable instanceof TaskCommand) {
+      return new TaskCommandFuture<>((TaskCommand) runnable, value);
+    }
+    return super.newTaskFor(runnable, value);
+  }
+
   @Override
   protected void afterExecute(Runnable runnable, Throwable throwable) {
     super.afterExecute(runnable, throwable);
@@ -85,4 +98,23 @@ public class TaskCommandExecutorService extends ThreadPoolExecutor {
       logger.error("Uncaught exception", throwable);
     }
   }
+
+  /**
+   * The future of a task command.
+   *
+   * @param <T> the result type
+   */
+  static class TaskCommandFuture<T> extends FutureTask<T> {
+
+    private final TaskCommand command;
+
+    TaskCommandFuture(TaskCommand command, T value) {
+      super(command, value);
+      this.command = command;
+    }
+
+    TaskCommand getCommand() {
+      return command;
+    }
+  }
 }
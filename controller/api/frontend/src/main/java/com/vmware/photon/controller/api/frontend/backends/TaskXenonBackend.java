@@ -47,6 +47,8 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Common task operations using Xenon cloud store.
@@ -87,6 +89,28 @@ public class TaskXenonBackend implements TaskBackend, StepBackend {
     return TaskUtils.convertMiddleEndToFrontEnd(task);
   }
 
+  @Override
+  public CompletableFuture<Task> waitForCompletion(String id, long timeout, TimeUnit unit) {
+    CompletableFuture<Task> future = new CompletableFuture<>();
+    xenonClient.waitForDocumentAsync(
+        TaskServiceFactory.SELF_LINK + "/" + id,
+        TaskService.State.class,
+        (state) -> state.state == TaskService.State.TaskState.COMPLETED
+            || state.state == TaskService.State.TaskState.ERROR,
+        timeout,
+        unit)
+        .whenComplete((state, failure) -> {
+          if (failure instanceof DocumentNotFoundException) {
+            future.completeExceptionally(new TaskNotFoundException(id));
+          } else if (failure != null) {
+            future.completeExceptionally(failure);
+          } else {
+            future.complete(TaskUtils.convertBackEndToFrontEnd(state));
+          }
+        });
+    return future;
+  }
+
   @Override
   public ResourceList<Task> filter(String entityId, String entityKind, Optional<String> state,
                                    Optional<Integer> pageSize) throws ExternalException {
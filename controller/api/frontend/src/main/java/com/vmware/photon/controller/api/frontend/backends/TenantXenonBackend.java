@@ -170,15 +170,15 @@ public class TenantXenonBackend implements TenantBackend {
 
   @Override
   public TenantEntity findById(String id) throws TenantNotFoundException {
-    com.vmware.xenon.common.Operation result;
+    TenantService.State state;
 
     try {
-      result = xenonClient.get(TenantServiceFactory.SELF_LINK + "/" + id);
+      state = xenonClient.getCachedDocument(TenantService.State.class, TenantServiceFactory.SELF_LINK + "/" + id);
     } catch (DocumentNotFoundException documentNotFoundException) {
       throw new TenantNotFoundException(id);
     }
 
-    return toTenantEntity(result.getBody(TenantService.State.class));
+    return toTenantEntity(state);
 
   }
 
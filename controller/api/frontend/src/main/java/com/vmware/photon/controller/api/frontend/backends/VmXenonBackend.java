@@ -90,11 +90,13 @@ import org.slf4j.LoggerFactory;
 import java.io.InputStream;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -214,15 +216,11 @@ public class VmXenonBackend implements VmBackend {
         Optional.<String>absent(),
         Optional.<Integer>absent());
 
-    List<Vm> result = new ArrayList<>();
-
-    if (vms != null) {
-      for (VmEntity vm : vms.getItems()) {
-        result.add(toApiRepresentation(vm));
-      }
+    if (vms == null) {
+      return new ArrayList<>();
     }
 
-    return result;
+    return toApiRepresentation(vms.getItems());
   }
 
   @Override
@@ -237,12 +235,7 @@ public class VmXenonBackend implements VmBackend {
         Optional.<String>absent(),
         Optional.<Integer>absent());
 
-    List<Vm> result = new ArrayList<>();
-    for (VmEntity vm : vms.getItems()) {
-      result.add(toApiRepresentation(vm));
-    }
-
-    return result;
+    return toApiRepresentation(vms.getItems());
   }
 
   @Override
@@ -257,12 +250,7 @@ public class VmXenonBackend implements VmBackend {
         Optional.of(networkId),
         Optional.<Integer>absent());
 
-    List<Vm> result = new ArrayList<>();
-    for (VmEntity vmEntity : vms.getItems()) {
-      result.add(toApiRepresentation(vmEntity));
-    }
-
-    return result;
+    return toApiRepresentation(vms.getItems());
   }
 
   @Override
@@ -277,13 +265,13 @@ public class VmXenonBackend implements VmBackend {
     ResourceList<VmService.State> vmStates = PaginationUtils.xenonQueryResultToResourceList(VmService.State.class,
         queryResult);
 
-    List<Vm> vms = new ArrayList<>();
+    List<VmEntity> vmEntities = new ArrayList<>();
     for (VmService.State vmState : vmStates.getItems()) {
-      vms.add(toApiRepresentation(toVmEntity(vmState)));
+      vmEntities.add(toVmEntity(vmState));
     }
 
     ResourceList<Vm> result = new ResourceList<>();
-    result.setItems(vms);
+    result.setItems(toApiRepresentation(vmEntities));
     result.setNextPageLink(vmStates.getNextPageLink());
     result.setPreviousPageLink(vmStates.getPreviousPageLink());
 
@@ -906,11 +894,75 @@ public class VmXenonBackend implements VmBackend {
   }
 
   private Vm toApiRepresentation(VmEntity vmEntity) throws ExternalException {
+    // Start the attached disk lookup first so it overlaps with the flavor lookup
+    CompletableFuture<List<AttachedDiskEntity>> attachedDisksFuture =
+        attachedDiskBackend.findByVmIdAsync(vmEntity.getId());
+
+    FlavorEntity flavorEntity = flavorBackend.getEntityById(vmEntity.getFlavorId());
+
+    // Look up all the underlying disks concurrently
+    List<AttachedDiskEntity> attachedDisks = ApiFeXenonRestClient.join(attachedDisksFuture);
+    List<CompletableFuture<BaseDiskEntity>> underlyingDiskFutures = new ArrayList<>(attachedDisks.size());
+    for (AttachedDiskEntity attachedDisk : attachedDisks) {
+      underlyingDiskFutures.add(diskBackend.findAsync(attachedDisk.getKind(), attachedDisk.getUnderlyingDiskId()));
+    }
+
+    Map<String, BaseDiskEntity> underlyingDisks = new HashMap<>();
+    for (CompletableFuture<BaseDiskEntity> underlyingDiskFuture : underlyingDiskFutures) {
+      BaseDiskEntity underlyingDisk = ApiFeXenonRestClient.join(underlyingDiskFuture);
+      underlyingDisks.put(underlyingDisk.getId(), underlyingDisk);
+    }
+
+    return toApiRepresentation(vmEntity, flavorEntity, attachedDisks, underlyingDisks);
+  }
+
+  /**
+   * Renders a list of VMs with a fixed number of round trips: the attached disks of all the VMs are fetched with
+   * one set-based query, their underlying disks with another, and each distinct flavor is looked up once.
+   */
+  private List<Vm> toApiRepresentation(List<VmEntity> vmEntities) throws ExternalException {
+    if (vmEntities.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    // Start the attached disk lookup first so it overlaps with the flavor lookups
+    CompletableFuture<Map<String, List<AttachedDiskEntity>>> attachedDisksFuture =
+        attachedDiskBackend.findByVmIdsAsync(vmEntities.stream().map(VmEntity::getId).collect(Collectors.toList()));
+
+    Map<String, FlavorEntity> flavorEntities = new HashMap<>();
+    for (VmEntity vmEntity : vmEntities) {
+      if (!flavorEntities.containsKey(vmEntity.getFlavorId())) {
+        flavorEntities.put(vmEntity.getFlavorId(), flavorBackend.getEntityById(vmEntity.getFlavorId()));
+      }
+    }
+
+    Map<String, List<AttachedDiskEntity>> attachedDisksByVmId = ApiFeXenonRestClient.join(attachedDisksFuture);
+    List<AttachedDiskEntity> allAttachedDisks = new ArrayList<>();
+    for (List<AttachedDiskEntity> attachedDisks : attachedDisksByVmId.values()) {
+      allAttachedDisks.addAll(attachedDisks);
+    }
+    Map<String, BaseDiskEntity> underlyingDisks = diskBackend.findUnderlyingDisks(allAttachedDisks);
+
+    List<Vm> vms = new ArrayList<>(vmEntities.size());
+    for (VmEntity vmEntity : vmEntities) {
+      vms.add(toApiRepresentation(
+          vmEntity,
+          flavorEntities.get(vmEntity.getFlavorId()),
+          attachedDisksByVmId.getOrDefault(vmEntity.getId(), new ArrayList<>()),
+          underlyingDisks));
+    }
+
+    return vms;
+  }
+
+  private Vm toApiRepresentation(VmEntity vmEntity,
+                                 FlavorEntity flavorEntity,
+                                 List<AttachedDiskEntity> attachedDisks,
+                                 Map<String, BaseDiskEntity> underlyingDisks) throws ExternalException {
     Vm vm = new Vm();
 
     vm.setId(vmEntity.getId());
     vm.setName(vmEntity.getName());
-    FlavorEntity flavorEntity = flavorBackend.getEntityById(vmEntity.getFlavorId());
     vm.setFlavor(flavorEntity.getName());
 
     if (StringUtils.isNotBlank(vmEntity.getImageId())) {
@@ -925,12 +977,15 @@ public class VmXenonBackend implements VmBackend {
     List<AttachedDisk> disks = new ArrayList<>();
     Set<String> tags = new HashSet<>();
 
-    for (AttachedDiskEntity attachedDisk : attachedDiskBackend.findByVmId(vmEntity.getId())) {
-      AttachedDisk disk = new AttachedDisk();
+    for (AttachedDiskEntity attachedDisk : attachedDisks) {
+      BaseDiskEntity underlyingDisk = underlyingDisks.get(attachedDisk.getUnderlyingDiskId());
+      if (underlyingDisk == null) {
+        throw new DiskNotFoundException(attachedDisk.getKind(), attachedDisk.getUnderlyingDiskId());
+      }
 
+      AttachedDisk disk = new AttachedDisk();
       disk.setId(attachedDisk.getUnderlyingDiskId());
       disk.setKind(attachedDisk.getKind());
-      BaseDiskEntity underlyingDisk = diskBackend.find(attachedDisk.getKind(), attachedDisk.getUnderlyingDiskId());
       disk.setName(underlyingDisk.getName());
       disk.setFlavor(underlyingDisk.getFlavorId());
       disk.setCapacityGb(underlyingDisk.getCapacityGb());
@@ -961,12 +1016,7 @@ public class VmXenonBackend implements VmBackend {
   private ResourceList<Vm> toApiRepresentation(ResourceList<VmEntity> vmEntities) throws ExternalException {
     ResourceList<Vm> result = new ResourceList<>();
 
-    List<Vm> vms = new ArrayList<>();
-    for (VmEntity vmEntity : vmEntities.getItems()) {
-      vms.add(toApiRepresentation(vmEntity));
-    }
-
-    result.setItems(vms);
+    result.setItems(toApiRepresentation(vmEntities.getItems()));
     result.setNextPageLink(vmEntities.getNextPageLink());
     result.setPreviousPageLink(vmEntities.getPreviousPageLink());
 
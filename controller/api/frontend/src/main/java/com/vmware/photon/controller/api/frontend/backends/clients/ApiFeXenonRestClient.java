@@ -15,6 +15,7 @@ package com.vmware.photon.controller.api.frontend.backends.clients;
 
 import com.vmware.photon.controller.api.frontend.BackendTaskExecutor;
 import com.vmware.photon.controller.api.frontend.ScheduledTaskExecutor;
+import com.vmware.photon.controller.api.frontend.exceptions.external.ExternalException;
 import com.vmware.photon.controller.common.PhotonControllerServerSet;
 import com.vmware.photon.controller.common.thrift.ServerSet;
 import com.vmware.photon.controller.common.xenon.OperationUtils;
@@ -38,6 +39,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeoutException;
@@ -51,12 +55,29 @@ public class ApiFeXenonRestClient extends XenonRestClient {
 
   private static final Logger logger = LoggerFactory.getLogger(ApiFeXenonRestClient.class);
 
+  private final DocumentCache documentCache;
+
   @Inject
   public ApiFeXenonRestClient(@PhotonControllerServerSet ServerSet serverSet,
                               @BackendTaskExecutor ExecutorService executor,
                               @ScheduledTaskExecutor ScheduledExecutorService scheduledExecutorService,
                               ServiceHost serviceHost) {
     super(serverSet, executor, scheduledExecutorService, serviceHost);
+    this.documentCache = new DocumentCache(serviceHost);
+  }
+
+  /**
+   * Gets a document through the {@link DocumentCache}. Use this for the documents which rarely change, like
+   * flavors, when a slightly stale copy is acceptable; documents changed through this client are never stale.
+   */
+  public <T extends ServiceDocument> T getCachedDocument(Class<T> documentType, String documentSelfLink)
+      throws DocumentNotFoundException {
+    return documentCache.get(documentType, documentSelfLink, () -> get(documentSelfLink).getBody(documentType));
+  }
+
+  @VisibleForTesting
+  DocumentCache getDocumentCache() {
+    return documentCache;
   }
 
   @Override
@@ -104,6 +125,8 @@ public class ApiFeXenonRestClient extends XenonRestClient {
       throw new RuntimeException(timeoutException);
     } catch (InterruptedException interruptedException) {
       throw new RuntimeException(interruptedException);
+    } finally {
+      documentCache.invalidate(documentSelfLink);
     }
   }
 
@@ -133,6 +156,8 @@ public class ApiFeXenonRestClient extends XenonRestClient {
       throw new RuntimeException(timeoutException);
     } catch (InterruptedException interruptedException) {
       throw new RuntimeException(interruptedException);
+    } finally {
+      documentCache.invalidate(serviceSelfLink);
     }
   }
 
@@ -147,6 +172,8 @@ public class ApiFeXenonRestClient extends XenonRestClient {
       throw new RuntimeException(timeoutException);
     } catch (InterruptedException interruptedException) {
       throw new RuntimeException(interruptedException);
+    } finally {
+      documentCache.invalidate(serviceSelflink);
     }
   }
 
@@ -247,6 +274,42 @@ public class ApiFeXenonRestClient extends XenonRestClient {
     }
   }
 
+  /**
+   * Waits for the result of one of the async methods, e.g. once all the lookups an API call fans out to have
+   * been started.
+   *
+   * Failures are surfaced like in the synchronous methods of this class: ExternalException (which backends
+   * map DocumentNotFoundException to) is rethrown as is, Xenon errors become XenonRuntimeException, and
+   * timeouts and interruptions become RuntimeException.
+   */
+  public static <T> T join(CompletableFuture<T> future) throws ExternalException {
+    try {
+      return future.get();
+    } catch (InterruptedException interruptedException) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(interruptedException);
+    } catch (ExecutionException executionException) {
+      Throwable cause = executionException.getCause();
+      while (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+
+      if (cause instanceof ExternalException) {
+        throw (ExternalException) cause;
+      } else if (cause instanceof XenonRuntimeException) {
+        throw (XenonRuntimeException) cause;
+      } else if (cause instanceof DocumentNotFoundException) {
+        throw new XenonRuntimeException((DocumentNotFoundException) cause);
+      } else if (cause instanceof BadRequestException) {
+        throw new XenonRuntimeException((BadRequestException) cause);
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new RuntimeException(cause);
+    }
+  }
+
   @VisibleForTesting
   @Override
   protected void handleTimeoutException(Operation operation, TimeoutException timeoutException) {
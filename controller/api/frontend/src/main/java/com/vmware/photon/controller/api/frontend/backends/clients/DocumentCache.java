@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.api.frontend.backends.clients;
+
+import com.vmware.photon.controller.cloudstore.xenon.entity.FlavorService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.ImageService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.NetworkService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.ProjectService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.TenantService;
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
+import com.vmware.photon.controller.common.xenon.ContinuousQuerySubscription;
+import com.vmware.photon.controller.common.xenon.exceptions.DocumentNotFoundException;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.services.common.QueryTask;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded cache of the cloud-store documents which rarely change once created: flavors, images, projects, tenants
+ * and networks. Backends resolve these on every reservation and while listing VMs and disks, so reading them from
+ * memory saves a cloud-store round trip per lookup.
+ *
+ * The cache is kept current in two ways:
+ *
+ * 1. A continuous query over the cached kinds on the local Xenon host. Every update and delete of those documents,
+ *    wherever it was made, is delivered to us as a notification and the cached document is dropped.
+ *
+ * 2. Writes made through {@link ApiFeXenonRestClient} drop the document they touched as soon as they complete, so
+ *    that a backend reading a document right after changing it never sees the old version.
+ *
+ * Nothing is cached until the continuous query is subscribed to, and a document loaded while the same document got
+ * dropped is not cached, as it may predate the change. Entries also expire after a while, which bounds how long a
+ * lost notification can leave a stale document in the cache.
+ *
+ * Documents are shared between the callers and must not be modified.
+ */
+public class DocumentCache {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+  public static final long DEFAULT_EXPIRATION_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+
+  /**
+   * The cached document types, with the name under which their metrics are reported.
+   */
+  public static final Map<Class<? extends ServiceDocument>, String> CACHED_DOCUMENT_TYPES =
+      ImmutableMap.<Class<? extends ServiceDocument>, String>builder()
+          .put(FlavorService.State.class, "flavors")
+          .put(ImageService.State.class, "images")
+          .put(ProjectService.State.class, "projects")
+          .put(TenantService.State.class, "tenants")
+          .put(NetworkService.State.class, "networks")
+          .build();
+
+  private static final Logger logger = LoggerFactory.getLogger(DocumentCache.class);
+
+  private final Cache<String, ServiceDocument> cache;
+  private final Map<Class<? extends ServiceDocument>, Meter> hits = new HashMap<>();
+  private final Map<Class<? extends ServiceDocument>, Meter> misses = new HashMap<>();
+
+  private final ContinuousQuerySubscription subscription;
+  private final AtomicBoolean subscribing = new AtomicBoolean(false);
+  private volatile boolean subscribed;
+
+  private final Object lock = new Object();
+
+  /**
+   * The documents being loaded, so that a load overlapping a change of the same document does not cache the
+   * document it read before the change. Guarded by lock.
+   */
+  private final Map<String, PendingLoad> pendingLoads = new HashMap<>();
+
+  public DocumentCache(ServiceHost xenonHost) {
+    this(xenonHost, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRATION_SECONDS, Ticker.systemTicker(),
+        DefaultMetricRegistry.REGISTRY);
+  }
+
+  @VisibleForTesting
+  DocumentCache(ServiceHost xenonHost, long maximumSize, long expirationSeconds, Ticker ticker,
+                MetricRegistry metricRegistry) {
+    this.subscription = xenonHost == null ? null : new ContinuousQuerySubscription(
+        xenonHost, buildCachedKindsQuery(), false, this::handleNotification);
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS)
+        .ticker(ticker)
+        .build();
+
+    // The gauges report on the last cache created, as there is one API frontend client per process
+    for (Map.Entry<Class<? extends ServiceDocument>, String> type : CACHED_DOCUMENT_TYPES.entrySet()) {
+      Meter typeHits = metricRegistry.meter(MetricRegistry.name(DocumentCache.class, type.getValue(), "hits"));
+      Meter typeMisses = metricRegistry.meter(MetricRegistry.name(DocumentCache.class, type.getValue(), "misses"));
+      hits.put(type.getKey(), typeHits);
+      misses.put(type.getKey(), typeMisses);
+
+      String hitRatioName = MetricRegistry.name(DocumentCache.class, type.getValue(), "hit-ratio");
+      metricRegistry.remove(hitRatioName);
+      metricRegistry.register(hitRatioName, new RatioGauge() {
+        @Override
+        protected Ratio getRatio() {
+          return Ratio.of(typeHits.getOneMinuteRate(), typeHits.getOneMinuteRate() + typeMisses.getOneMinuteRate());
+        }
+      });
+    }
+
+    String sizeName = MetricRegistry.name(DocumentCache.class, "size");
+    metricRegistry.remove(sizeName);
+    metricRegistry.register(sizeName, (Gauge<Long>) () -> cache.size());
+  }
+
+  /**
+   * Loads a document.
+   *
+   * @param <T> the document type
+   */
+  public interface Loader<T> {
+    T load() throws DocumentNotFoundException;
+  }
+
+  /**
+   * Returns the cached document, or loads it with the loader and caches it. Documents of types which are not
+   * cached are always loaded. Documents which are not found are not cached.
+   */
+  public <T extends ServiceDocument> T get(Class<T> documentType, String documentSelfLink, Loader<T> loader)
+      throws DocumentNotFoundException {
+    if (!CACHED_DOCUMENT_TYPES.containsKey(documentType)) {
+      return loader.load();
+    }
+
+    if (!subscribed) {
+      subscribe();
+      return loader.load();
+    }
+
+    ServiceDocument document = cache.getIfPresent(documentSelfLink);
+    if (document != null) {
+      hits.get(documentType).mark();
+      return documentType.cast(document);
+    }
+
+    misses.get(documentType).mark();
+    PendingLoad pendingLoad;
+    long loadGeneration;
+    synchronized (lock) {
+      pendingLoad = pendingLoads.computeIfAbsent(documentSelfLink, link -> new PendingLoad());
+      pendingLoad.loads++;
+      loadGeneration = pendingLoad.generation;
+    }
+
+    T loaded = null;
+    try {
+      loaded = loader.load();
+      return loaded;
+    } finally {
+      synchronized (lock) {
+        if (loaded != null && loadGeneration == pendingLoad.generation) {
+          cache.put(documentSelfLink, loaded);
+        }
+        if (--pendingLoad.loads == 0) {
+          pendingLoads.remove(documentSelfLink);
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops a document from the cache. This must be called whenever the document changes. Documents of any type may
+   * be passed; this is cheap for documents which are not cached.
+   */
+  public void invalidate(String documentSelfLink) {
+    synchronized (lock) {
+      PendingLoad pendingLoad = pendingLoads.get(documentSelfLink);
+      if (pendingLoad != null) {
+        pendingLoad.generation++;
+      }
+      cache.invalidate(documentSelfLink);
+    }
+  }
+
+  @VisibleForTesting
+  boolean isSubscribed() {
+    return subscribed;
+  }
+
+  @VisibleForTesting
+  boolean contains(String documentSelfLink) {
+    return cache.getIfPresent(documentSelfLink) != null;
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * Create the continuous query on the local host and subscribe to its notifications. Only one attempt is made at
+   * a time; a failed attempt is retried on the next lookup.
+   */
+  private void subscribe() {
+    if (subscription == null || !subscribing.compareAndSet(false, true)) {
+      return;
+    }
+
+    subscription.subscribe((op, ex) -> {
+      if (ex != null) {
+        logger.warn("Failed to subscribe to document cache continuous query, will retry on next lookup: {}", ex);
+        subscribing.set(false);
+        return;
+      }
+      subscribed = true;
+      logger.info("Subscribed to document cache continuous query {}", subscription.getQueryLink());
+    });
+  }
+
+  private static QueryTask.Query buildCachedKindsQuery() {
+    QueryTask.Query.Builder query = QueryTask.Query.Builder.create();
+    for (Class<? extends ServiceDocument> documentType : CACHED_DOCUMENT_TYPES.keySet()) {
+      query.addKindFieldClause(documentType, QueryTask.Query.Occurance.SHOULD_OCCUR);
+    }
+    return query.build();
+  }
+
+  /**
+   * Drop the documents reported by a continuous query notification.
+   */
+  private void handleNotification(Operation notification) {
+    notification.complete();
+
+    if (!notification.hasBody()) {
+      return;
+    }
+
+    QueryTask queryTask = notification.getBody(QueryTask.class);
+    if (queryTask.results == null || queryTask.results.documentLinks == null) {
+      return;
+    }
+
+    for (String documentLink : queryTask.results.documentLinks) {
+      invalidate(documentLink);
+    }
+  }
+
+  /**
+   * The loads in flight for a document, and the number of times the document was dropped since the first of them
+   * started.
+   */
+  private static class PendingLoad {
+    private int loads;
+    private long generation;
+  }
+}
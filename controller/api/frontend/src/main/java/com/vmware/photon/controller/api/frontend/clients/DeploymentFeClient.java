@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.api.frontend.clients;
 
 import com.vmware.photon.controller.api.frontend.BackendTaskExecutor;
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.ClusterBackend;
 import com.vmware.photon.controller.api.frontend.backends.DatastoreBackend;
 import com.vmware.photon.controller.api.frontend.backends.DeploymentBackend;
@@ -80,6 +81,7 @@ public class DeploymentFeClient {
 
   private final TaskCommandFactory commandFactory;
   private final ExecutorService executor;
+  private final SecurityGroupCache securityGroupCache;
 
   @Inject
   public DeploymentFeClient(
@@ -93,7 +95,8 @@ public class DeploymentFeClient {
       ClusterBackend clusterBackend,
       AuthConfig authConfig,
       TaskCommandFactory commandFactory,
-      @BackendTaskExecutor ExecutorService executor) {
+      @BackendTaskExecutor ExecutorService executor,
+      SecurityGroupCache securityGroupCache) {
     this.taskBackend = taskBackend;
     this.deploymentBackend = deploymentBackend;
     this.vmBackend = vmBackend;
@@ -105,6 +108,7 @@ public class DeploymentFeClient {
     this.authConfig = authConfig;
     this.commandFactory = commandFactory;
     this.executor = executor;
+    this.securityGroupCache = securityGroupCache;
   }
 
   public Task create(DeploymentCreateSpec deploymentCreateSpec) throws
@@ -179,6 +183,7 @@ public class DeploymentFeClient {
 
   public Task setSecurityGroups(String id, List<String> securityGroups) throws ExternalException {
     TaskEntity taskEntity = deploymentBackend.updateSecurityGroups(id, securityGroups);
+    securityGroupCache.invalidateAll();
     Task task = taskBackend.getApiRepresentation(taskEntity);
 
     TaskCommand command = commandFactory.create(taskEntity);
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.clients;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.ProjectBackend;
 import com.vmware.photon.controller.api.frontend.backends.TaskBackend;
 import com.vmware.photon.controller.api.frontend.config.AuthConfig;
@@ -38,12 +39,15 @@ public class ProjectFeClient {
   private final ProjectBackend projectBackend;
   private final TaskBackend taskBackend;
   private final AuthConfig authConfig;
+  private final SecurityGroupCache securityGroupCache;
 
   @Inject
-  public ProjectFeClient(ProjectBackend projectBackend, TaskBackend taskBackend, AuthConfig authConfig) {
+  public ProjectFeClient(ProjectBackend projectBackend, TaskBackend taskBackend, AuthConfig authConfig,
+                         SecurityGroupCache securityGroupCache) {
     this.projectBackend = projectBackend;
     this.taskBackend = taskBackend;
     this.authConfig = authConfig;
+    this.securityGroupCache = securityGroupCache;
   }
 
   public Project get(String id) throws ExternalException {
@@ -83,6 +87,7 @@ public class ProjectFeClient {
 
   public Task setSecurityGroups(String projectId, List<String> securityGroups) throws ExternalException {
     TaskEntity taskEntity = projectBackend.setSecurityGroups(projectId, securityGroups);
+    securityGroupCache.invalidateAll();
     Task task = taskBackend.getApiRepresentation(taskEntity);
 
     return task;
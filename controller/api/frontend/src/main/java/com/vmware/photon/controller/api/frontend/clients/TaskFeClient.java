@@ -40,6 +40,9 @@ import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Frontend client for task used by {@link com.vmware.photon.controller.api.frontend.resources.tasks.TasksResource}
  * and {@link com.vmware.photon.controller.api.frontend.resources.tasks.TaskResource}.
@@ -88,6 +91,10 @@ public class TaskFeClient {
     return taskBackend.getApiRepresentation(id);
   }
 
+  public CompletableFuture<Task> waitForCompletion(String id, long timeout, TimeUnit unit) {
+    return taskBackend.waitForCompletion(id, timeout, unit);
+  }
+
   public ResourceList<Task> find(Optional<String> entityId, Optional<String> entityKind, Optional<String> state,
                                  Optional<Integer> pageSize)
       throws ExternalException {
@@ -34,6 +34,8 @@ public abstract class BaseCommand implements Runnable {
   private static final Logger logger = LoggerFactory.getLogger(BaseCommand.class);
   protected final String activityId;
   protected final Map<String, String> loggerContextMap;
+  private boolean started;
+  private boolean suspended;
 
   protected BaseCommand(String activityId) {
     this.activityId = checkNotNull(activityId);
@@ -53,10 +55,20 @@ public abstract class BaseCommand implements Runnable {
 
     StopWatch stopwatch = new StopWatch();
     stopwatch.start();
+    boolean suspendedRun = false;
     try {
-      markAsStarted();
+      if (!started) {
+        markAsStarted();
+        started = true;
+      }
+      suspended = false;
       execute();
-      markAsDone();
+      if (suspended) {
+        markAsSuspended();
+        suspendedRun = true;
+      } else {
+        markAsDone();
+      }
     } catch (Throwable t) {
       try {
         logger.error("Command execution failed with exception", t);
@@ -65,17 +77,43 @@ public abstract class BaseCommand implements Runnable {
         logger.warn("Could not find task to mark as failed, TaskId=" + e.getTaskId(), e);
       }
     } finally {
-      try {
-        cleanup();
-      } catch (Throwable t) {
-        logger.warn("Error cleaning up Command", t);
+      // A suspended command keeps its resources until it is resumed and runs to completion. It may already be running
+      // again on another thread, so only local state is used from here on.
+      if (!suspendedRun) {
+        try {
+          cleanup();
+        } catch (Throwable t) {
+          logger.warn("Error cleaning up Command", t);
+        }
       }
 
       stopwatch.stop();
-      logger.info("Processed in {}ms", stopwatch.getTime());
+      logger.info(suspendedRun ? "Suspended after {}ms" : "Processed in {}ms", stopwatch.getTime());
     }
   }
 
+  /**
+   * Returns whether the last call to execute() parked the command instead of running it to completion.
+   */
+  public boolean isSuspended() {
+    return suspended;
+  }
+
+  /**
+   * Called from execute() to park the command on a completion signal: execute() returns right after, the command is
+   * neither marked as done nor cleaned up, and the next call to run() calls execute() again without marking the
+   * command as started a second time.
+   */
+  protected void suspend() {
+    suspended = true;
+  }
+
+  /**
+   * Called once execute() returned with the command suspended.
+   */
+  protected void markAsSuspended() {
+  }
+
   protected abstract void execute() throws ApiFeException, InterruptedException, RpcException;
 
   protected abstract void cleanup();
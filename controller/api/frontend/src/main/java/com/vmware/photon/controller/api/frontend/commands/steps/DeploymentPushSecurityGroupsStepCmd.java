@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.StepBackend;
 import com.vmware.photon.controller.api.frontend.backends.TenantBackend;
 import com.vmware.photon.controller.api.frontend.commands.tasks.TaskCommand;
@@ -41,13 +42,16 @@ public class DeploymentPushSecurityGroupsStepCmd extends StepCommand {
   private static final Logger logger = LoggerFactory.getLogger(DeploymentPushSecurityGroupsStepCmd.class);
 
   private final TenantBackend tenantBackend;
+  private final SecurityGroupCache securityGroupCache;
 
   public DeploymentPushSecurityGroupsStepCmd(TaskCommand taskCommand, StepBackend stepBackend,
-                                             StepEntity stepEntity, TenantBackend tenantBackend) {
+                                             StepEntity stepEntity, TenantBackend tenantBackend,
+                                             SecurityGroupCache securityGroupCache) {
 
     super(taskCommand, stepBackend, stepEntity);
 
     this.tenantBackend = tenantBackend;
+    this.securityGroupCache = securityGroupCache;
   }
 
   @Override
@@ -95,6 +99,7 @@ public class DeploymentPushSecurityGroupsStepCmd extends StepCommand {
 
   @Override
   protected void cleanup() {
-
+    // Runs whether or not execute() succeeded, since a failed push may have updated some of the tenants
+    securityGroupCache.invalidateAll();
   }
 }
@@ -29,6 +29,7 @@ import com.vmware.photon.controller.api.model.ImageState;
 import com.vmware.transfer.streamVmdk.VmdkFormatException;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -75,6 +76,8 @@ public class ImageUploadStepCmd extends StepCommand {
       imageBackend.updateSettings(imageEntity, result.imageSettings);
       imageBackend.updateSize(imageEntity, result.imageSize);
       imageBackend.updateImageDatastore(imageEntity.getId(), imageStore.getDatastore());
+      shareImageFiles(imageEntity, result.contentDigest);
+      imageBackend.updateContentDigest(imageEntity, result.contentDigest);
     } catch (VmdkFormatException e) {
       imageBackend.updateState(imageEntity, ImageState.ERROR);
       throw new InvalidVmdkFormatException(e.getMessage());
@@ -91,6 +94,35 @@ public class ImageUploadStepCmd extends StepCommand {
   protected void cleanup() {
   }
 
+  /**
+   * When a ready image has the same content, give the uploaded image the files of that image on the image datastores
+   * it is on, so that the replicate step does not copy the image there. This is only an optimization: the uploaded
+   * image is complete without it, so failures are logged rather than failing the upload.
+   */
+  private void shareImageFiles(ImageEntity imageEntity, String contentDigest) {
+    try {
+      Optional<ImageEntity> sourceImage = imageBackend.findByContentDigest(contentDigest);
+      if (!sourceImage.isPresent() || sourceImage.get().getId().equals(imageEntity.getId())) {
+        return;
+      }
+
+      String sourceImageId = sourceImage.get().getId();
+      List<String> sharedDatastores = imageStore.shareImageFiles(imageEntity.getId(), sourceImageId,
+          imageBackend.getSeededImageDatastores(sourceImageId));
+      logger.info("Image {} has the same content as image {}, sharing its files on datastores {}",
+          imageEntity.getId(), sourceImageId, sharedDatastores);
+
+      String uploadDatastore = imageStore.getDatastore();
+      for (String datastore : sharedDatastores) {
+        if (!datastore.equals(uploadDatastore)) {
+          imageBackend.updateImageDatastore(imageEntity.getId(), datastore);
+        }
+      }
+    } catch (InternalException | ExternalException e) {
+      logger.warn("Failed to share the files of an image with the same content as image {}", imageEntity.getId(), e);
+    }
+  }
+
   @VisibleForTesting
   protected ImageLoader getImageLoader() throws InternalException {
     return new ImageLoader(imageStore);
@@ -22,6 +22,8 @@ import com.vmware.photon.controller.api.frontend.exceptions.external.TaskNotFoun
 import org.apache.commons.lang3.StringUtils;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This class extends BaseCommand and represents a single activity. Its corresponding DB/API
  * object is a Step.
@@ -59,6 +61,32 @@ public abstract class StepCommand extends BaseCommand {
     return activityId;
   }
 
+  /**
+   * Returns whether the task command running this step can resume it after it suspended itself.
+   */
+  protected boolean canSuspend() {
+    return taskCommand != null && taskCommand.isSuspendable();
+  }
+
+  /**
+   * Parks the step, without holding a worker thread, until the delay elapsed. execute() must return right after, and
+   * is called again once the step is resumed.
+   */
+  protected void suspendFor(long delay, TimeUnit unit) {
+    suspend();
+    taskCommand.scheduleResume(delay, unit);
+  }
+
+  /**
+   * Parks the step, without holding a worker thread, until the returned callback is run, e.g. on the notification of a
+   * Xenon subscription. execute() must return right after, and is called again once the step is resumed. The callback
+   * can be run from any thread, and only its first call has an effect.
+   */
+  protected Runnable suspendUntilResumed() {
+    suspend();
+    return taskCommand.newResumeCallback();
+  }
+
   @Override
   protected void markAsStarted() throws TaskNotFoundException {
     stepBackend.markStepAsStarted(step);
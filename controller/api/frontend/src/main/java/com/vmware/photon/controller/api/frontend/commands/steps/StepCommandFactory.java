@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.AttachedDiskBackend;
 import com.vmware.photon.controller.api.frontend.backends.ClusterBackend;
 import com.vmware.photon.controller.api.frontend.backends.DeploymentXenonBackend;
@@ -65,6 +66,7 @@ public class StepCommandFactory {
   private final ProjectBackend projectBackend;
   private final NetworkHelper networkHelper;
   private final Boolean useVirtualNetwork;
+  private final SecurityGroupCache securityGroupCache;
 
   @Inject
   public StepCommandFactory(StepBackend stepBackend,
@@ -85,7 +87,8 @@ public class StepCommandFactory {
                             TenantBackend tenantBackend,
                             ProjectBackend projectBackend,
                             NetworkHelper networkHelper,
-                            @Named("useVirtualNetwork") Boolean useVirtualNetwork) {
+                            @Named("useVirtualNetwork") Boolean useVirtualNetwork,
+                            SecurityGroupCache securityGroupCache) {
     this.stepBackend = stepBackend;
     this.entityLockBackend = entityLockBackend;
     this.vmBackend = vmBackend;
@@ -105,6 +108,7 @@ public class StepCommandFactory {
     this.projectBackend = projectBackend;
     this.networkHelper = networkHelper;
     this.useVirtualNetwork = useVirtualNetwork;
+    this.securityGroupCache = securityGroupCache;
   }
 
   public StepCommand createCommand(TaskCommand taskCommand, StepEntity stepEntity) throws InternalException {
@@ -215,7 +219,8 @@ public class StepCommandFactory {
         return new DeploymentDeleteStatusStepCmd(taskCommand, stepBackend, stepEntity,
             new DeploymentDeleteStatusStepCmd.DeploymentDeleteStepPoller(taskCommand, taskBackend, deploymentBackend));
       case PUSH_DEPLOYMENT_SECURITY_GROUPS:
-        return new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        return new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
       case CREATE_KUBERNETES_CLUSTER_INITIATE:
         return new KubernetesClusterCreateStepCmd(taskCommand, stepBackend, stepEntity, clusterBackend);
       case CREATE_KUBERNETES_CLUSTER_SETUP_ETCD:
@@ -259,10 +264,11 @@ public class StepCommandFactory {
         return new XenonTaskStatusStepCmd(taskCommand, stepBackend, stepEntity,
             new ClusterDeleteTaskStatusPoller(clusterBackend));
       case SET_TENANT_SECURITY_GROUPS:
-        return new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        return new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
       case PUSH_TENANT_SECURITY_GROUPS:
         return new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity,
-            tenantBackend, projectBackend);
+            tenantBackend, projectBackend, securityGroupCache);
       case PAUSE_SYSTEM:
         return new SystemPauseStepCmd(taskCommand, stepBackend, stepEntity);
       case PAUSE_BACKGROUND_TASKS:
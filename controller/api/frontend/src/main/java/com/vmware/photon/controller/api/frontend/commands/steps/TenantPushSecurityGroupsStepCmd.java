@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.ProjectBackend;
 import com.vmware.photon.controller.api.frontend.backends.StepBackend;
 import com.vmware.photon.controller.api.frontend.backends.TenantBackend;
@@ -46,15 +47,17 @@ public class TenantPushSecurityGroupsStepCmd extends StepCommand {
 
   private final TenantBackend tenantBackend;
   private final ProjectBackend projectBackend;
+  private final SecurityGroupCache securityGroupCache;
 
   public TenantPushSecurityGroupsStepCmd(TaskCommand taskCommand, StepBackend stepBackend,
                                          StepEntity stepEntity, TenantBackend tenantBackend,
-                                         ProjectBackend projectBackend) {
+                                         ProjectBackend projectBackend, SecurityGroupCache securityGroupCache) {
 
     super(taskCommand, stepBackend, stepEntity);
 
     this.tenantBackend = tenantBackend;
     this.projectBackend = projectBackend;
+    this.securityGroupCache = securityGroupCache;
   }
 
   @Override
@@ -101,5 +104,7 @@ public class TenantPushSecurityGroupsStepCmd extends StepCommand {
 
   @Override
   protected void cleanup() {
+    // Runs whether or not execute() succeeded, since a failed push may have updated some of the projects
+    securityGroupCache.invalidateAll();
   }
 }
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.StepBackend;
 import com.vmware.photon.controller.api.frontend.backends.TenantBackend;
 import com.vmware.photon.controller.api.frontend.commands.tasks.TaskCommand;
@@ -34,12 +35,15 @@ public class TenantSetSecurityGroupsStepCmd extends StepCommand {
   private static final Logger logger = LoggerFactory.getLogger(TenantSetSecurityGroupsStepCmd.class);
 
   private final TenantBackend tenantBackend;
+  private final SecurityGroupCache securityGroupCache;
 
   public TenantSetSecurityGroupsStepCmd(TaskCommand taskCommand, StepBackend stepBackend,
-                                        StepEntity stepEntity, TenantBackend tenantBackend) {
+                                        StepEntity stepEntity, TenantBackend tenantBackend,
+                                        SecurityGroupCache securityGroupCache) {
 
     super(taskCommand, stepBackend, stepEntity);
     this.tenantBackend = tenantBackend;
+    this.securityGroupCache = securityGroupCache;
   }
 
   @Override
@@ -57,5 +61,6 @@ public class TenantSetSecurityGroupsStepCmd extends StepCommand {
 
   @Override
   protected void cleanup() {
+    securityGroupCache.invalidateAll();
   }
 }
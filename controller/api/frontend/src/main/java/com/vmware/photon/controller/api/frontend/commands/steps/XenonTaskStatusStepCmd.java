@@ -46,6 +46,7 @@ public class XenonTaskStatusStepCmd extends StepCommand {
   private long pollInterval;
   private long documentNotFoundMaxCount;
   private long documentNotFoundOccurrence;
+  private long startTime;
   private String remoteTaskLink;
   private final int targetSubStage;
   private final XenonTaskStatusPoller xenonTaskStatusPoller;
@@ -100,15 +101,22 @@ public class XenonTaskStatusStepCmd extends StepCommand {
   protected void execute() throws ApiFeException, InterruptedException, RpcException {
     checkNotNull(remoteTaskLink, "remote-task-link is not defined in TransientResource");
 
-    logger.info("XenonTaskStatusStepCmd started, operation={}, remoteTaskLink={}",
-        step.getOperation(), remoteTaskLink);
+    if (startTime == 0) {
+      logger.info("XenonTaskStatusStepCmd started, operation={}, remoteTaskLink={}",
+          step.getOperation(), remoteTaskLink);
+      startTime = System.currentTimeMillis();
+    }
 
     // Poll remote task status until currentSubStage is completed.
-    long startTime = System.currentTimeMillis();
     while (!checkSubStageCompletion()) {
       if (System.currentTimeMillis() - startTime >= timeout) {
         throw new RuntimeException("Xenon task did not complete in timely fashion.");
       }
+      if (canSuspend()) {
+        // Give the worker thread back until the next poll, execute() is called again then.
+        suspendFor(pollInterval, TimeUnit.MILLISECONDS);
+        return;
+      }
       Thread.sleep(pollInterval);
     }
   }
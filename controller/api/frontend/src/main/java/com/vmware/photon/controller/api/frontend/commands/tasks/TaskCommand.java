@@ -13,6 +13,8 @@
 
 package com.vmware.photon.controller.api.frontend.commands.tasks;
 
+import com.vmware.photon.controller.api.frontend.BackendTaskExecutor;
+import com.vmware.photon.controller.api.frontend.ScheduledTaskExecutor;
 import com.vmware.photon.controller.api.frontend.backends.EntityLockBackend;
 import com.vmware.photon.controller.api.frontend.backends.TaskBackend;
 import com.vmware.photon.controller.api.frontend.backends.clients.ApiFeXenonRestClient;
@@ -52,15 +54,26 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class extends BaseCommand and represents a long running activity. Its corresponding DB/API
  * object is a Task.
+ * <p/>
+ * A step waiting on a remote activity can suspend itself rather than block a backend worker thread. The task
+ * command then returns from run() with the step parked, and is submitted again to the backend task executor when the
+ * step is resumed, to carry on with that step and the ones after it.
  */
 public class TaskCommand extends BaseCommand {
 
   private static final Logger logger = LoggerFactory.getLogger(TaskCommand.class);
 
+  private static final long RESUBMIT_RETRY_DELAY = TimeUnit.SECONDS.toMillis(1);
+
   @Inject
   protected TaskBackend taskBackend;
   protected List<StepEntity> steps;
@@ -78,6 +91,16 @@ public class TaskCommand extends BaseCommand {
   private com.vmware.photon.controller.api.frontend.backends.clients.DeployerClient deployerXenonClient;
   private com.vmware.photon.controller.api.frontend.backends.clients.HousekeeperClient housekeeperXenonClient;
   private EntityLockBackend entityLockBackend;
+  private ExecutorService backendTaskExecutor;
+  private ScheduledExecutorService scheduledExecutorService;
+
+  private StepEntity suspendedStep;
+  private StepCommand suspendedStepCommand;
+  // Identifies the resume callbacks of the step being run, so that the callbacks of a step which was already resumed
+  // are ignored.
+  private long resumeGeneration;
+  private boolean parked;
+  private boolean resumeRequested;
 
   @Inject
   public TaskCommand(
@@ -102,21 +125,141 @@ public class TaskCommand extends BaseCommand {
     this.entityLockBackend = entityLockBackend;
   }
 
+  @Inject(optional = true)
+  public void setExecutors(@BackendTaskExecutor ExecutorService backendTaskExecutor,
+                           @ScheduledTaskExecutor ScheduledExecutorService scheduledExecutorService) {
+    this.backendTaskExecutor = backendTaskExecutor;
+    this.scheduledExecutorService = scheduledExecutorService;
+  }
+
   @Override
   protected void execute() throws ApiFeException, InterruptedException, RpcException {
     steps = getTask().getSteps();
+    if (suspendedStepCommand != null) {
+      StepEntity step = suspendedStep;
+      StepCommand cmd = suspendedStepCommand;
+      suspendedStep = null;
+      suspendedStepCommand = null;
+
+      logger.info("Resume step {}", step);
+      if (!runStep(step, cmd)) {
+        return;
+      }
+    }
+
     for (StepEntity step : steps) {
       if (!step.getState().equals(StepEntity.State.QUEUED) || step.isDisabled()) {
         logger.info("Skip running step {}", step);
         continue;
       }
 
-      StepCommand cmd = stepCommandFactory.createCommand(this, step);
-      cmd.run();
+      if (!runStep(step, stepCommandFactory.createCommand(this, step))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns whether the steps of this task can suspend themselves, i.e. whether the task can be submitted again to
+   * the backend task executor to resume them.
+   */
+  public boolean isSuspendable() {
+    return backendTaskExecutor != null && scheduledExecutorService != null;
+  }
+
+  /**
+   * Returns a callback which resumes the step being run, once it suspended itself. The callback can be run from any
+   * thread, even before the step returned, and has no effect once the step was resumed.
+   */
+  public Runnable newResumeCallback() {
+    checkState(isSuspendable(), "Task %s cannot be suspended", getActivityId());
+    long generation;
+    synchronized (this) {
+      generation = resumeGeneration;
+    }
 
-      if (step.getState() != StepEntity.State.COMPLETED) {
-        throw new TaskNotCompletedException(step);
+    AtomicBoolean called = new AtomicBoolean();
+    return () -> {
+      if (called.compareAndSet(false, true)) {
+        resume(generation);
       }
+    };
+  }
+
+  /**
+   * Resumes the step being run, once it suspended itself, after the delay.
+   */
+  public void scheduleResume(long delay, TimeUnit unit) {
+    scheduledExecutorService.schedule(newResumeCallback(), delay, unit);
+  }
+
+  /**
+   * Runs a step, and returns false if the step suspended itself, in which case this task command is suspended too.
+   */
+  private boolean runStep(StepEntity step, StepCommand cmd) throws TaskNotCompletedException {
+    synchronized (this) {
+      resumeGeneration++;
+      resumeRequested = false;
+    }
+
+    cmd.run();
+
+    if (cmd.isSuspended()) {
+      logger.info("Suspend step {}", step);
+      suspendedStep = step;
+      suspendedStepCommand = cmd;
+      suspend();
+      return false;
+    }
+
+    if (step.getState() != StepEntity.State.COMPLETED) {
+      throw new TaskNotCompletedException(step);
+    }
+    return true;
+  }
+
+  @Override
+  protected void markAsSuspended() {
+    boolean resume;
+    synchronized (this) {
+      resume = resumeRequested;
+      resumeRequested = false;
+      parked = !resume;
+      if (resume) {
+        resumeGeneration++;
+      }
+    }
+
+    if (resume) {
+      resubmit();
+    }
+  }
+
+  private void resume(long generation) {
+    synchronized (this) {
+      if (generation != resumeGeneration) {
+        return;
+      }
+      if (!parked) {
+        // The step has not returned yet, markAsSuspended will resubmit the task.
+        resumeRequested = true;
+        return;
+      }
+      parked = false;
+      resumeGeneration++;
+    }
+
+    resubmit();
+  }
+
+  private void resubmit() {
+    try {
+      backendTaskExecutor.submit(this);
+    } catch (RejectedExecutionException e) {
+      // The task already holds its locks and has a step in progress, so it waits for a free worker rather than fail.
+      logger.warn("Fail to acquire ThreadPool worker to resume task {}, retrying in {}ms",
+          getActivityId(), RESUBMIT_RETRY_DELAY);
+      scheduledExecutorService.schedule(this::resubmit, RESUBMIT_RETRY_DELAY, TimeUnit.MILLISECONDS);
     }
   }
 
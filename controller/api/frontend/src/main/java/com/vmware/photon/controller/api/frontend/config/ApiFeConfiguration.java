@@ -32,6 +32,8 @@ public interface ApiFeConfiguration {
 
   public int getBackgroundWorkersQueueSize();
 
+  public int getBackgroundWorkersQueueSizePerProject();
+
   public GraphiteConfig getGraphite();
 
   public ImageConfig getImage();
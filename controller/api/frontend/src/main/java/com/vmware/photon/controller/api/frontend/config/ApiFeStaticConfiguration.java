@@ -45,6 +45,14 @@ public class ApiFeStaticConfiguration extends Configuration implements ApiFeConf
   @JsonProperty("background_workers_queue_size")
   private int backgroundWorkersQueueSize = 512;
 
+  /**
+   * The number of tasks a single project can have queued for the background workers, so that a project flooding them
+   * does not get the tasks of the other projects rejected.
+   */
+  @Range(min = 1, max = 2048)
+  @JsonProperty("background_workers_queue_size_per_project")
+  private int backgroundWorkersQueueSizePerProject = 128;
+
   @JsonProperty
   private boolean useXenonBackend = true;
 
@@ -103,6 +111,11 @@ public class ApiFeStaticConfiguration extends Configuration implements ApiFeConf
     return backgroundWorkersQueueSize;
   }
 
+  @Override
+  public int getBackgroundWorkersQueueSizePerProject() {
+    return backgroundWorkersQueueSizePerProject;
+  }
+
   @Override
   public GraphiteConfig getGraphite() {
     // Turn off graphite for now. Once we are ready to turn it back on, return
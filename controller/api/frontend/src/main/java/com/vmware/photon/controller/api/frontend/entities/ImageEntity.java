@@ -51,6 +51,8 @@ public class ImageEntity extends BaseEntity implements Named {
 
   private ImageReplication replicationType = ImageReplication.EAGER;
 
+  private String contentDigest;
+
   @Override
   public String getKind() {
     return KIND;
@@ -139,6 +141,14 @@ public class ImageEntity extends BaseEntity implements Named {
     this.totalImageDatastore = totalImageDatastore;
   }
 
+  public String getContentDigest() {
+    return contentDigest;
+  }
+
+  public void setContentDigest(String contentDigest) {
+    this.contentDigest = contentDigest;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (super.equals(o) == false) {
@@ -160,7 +170,8 @@ public class ImageEntity extends BaseEntity implements Named {
         .add("totalDatastore", totalDatastore)
         .add("totalImageDatastore", totalImageDatastore)
         .add("replicatedDatastore", replicatedDatastore)
-        .add("replicatedImageDatastore", replicatedImageDatastore);
+        .add("replicatedImageDatastore", replicatedImageDatastore)
+        .add("contentDigest", contentDigest);
   }
 
 }
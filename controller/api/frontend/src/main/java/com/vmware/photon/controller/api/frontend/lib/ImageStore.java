@@ -16,6 +16,8 @@ package com.vmware.photon.controller.api.frontend.lib;
 import com.vmware.photon.controller.api.frontend.exceptions.external.ExternalException;
 import com.vmware.photon.controller.api.frontend.exceptions.internal.InternalException;
 
+import java.util.List;
+
 /**
  * This interface manages image on datastore.
  */
@@ -52,6 +54,18 @@ public interface ImageStore {
    */
   void createImageFromVm(Image image, String vmId) throws ExternalException, InternalException;
 
+  /**
+   * Give an uploaded image the files of an existing image with the same content on the image datastores the existing
+   * image is on, so that they do not have to be replicated there.
+   *
+   * @param imageId               the uploaded image
+   * @param sourceImageId         the existing image
+   * @param sourceImageDatastores the image datastores the existing image is on
+   * @return the image datastores on which the uploaded image now has the files of the existing image
+   */
+  List<String> shareImageFiles(String imageId, String sourceImageId, List<String> sourceImageDatastores)
+      throws InternalException, ExternalException;
+
   /**
    * Delete the entire upload folder on the host.
    */
@@ -20,12 +20,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * This class is to save the image in local file system. It's an interim implementation.
  */
 public class LocalImageStore implements ImageStore {
   private static final Logger logger = LoggerFactory.getLogger(LocalImageStore.class);
+  private static final String LINK_SUFFIX = ".link";
   private final String dir;
   private final String datastore;
 
@@ -65,6 +72,45 @@ public class LocalImageStore implements ImageStore {
         "implemented for class LocalImageStore.");
   }
 
+  /**
+   * Hard links the files of the image to the files of the source image, which frees the space taken by the uploaded
+   * copy. Each file is replaced atomically, so the image stays complete if linking fails half way.
+   */
+  @Override
+  public List<String> shareImageFiles(String imageId, String sourceImageId, List<String> sourceImageDatastores)
+      throws InternalException {
+    File[] imageFiles = new File(dir).listFiles(
+        (folder, name) -> name.startsWith(imageId) && !name.endsWith(LINK_SUFFIX));
+    if (imageFiles == null || imageFiles.length == 0) {
+      return Collections.emptyList();
+    }
+
+    for (File imageFile : imageFiles) {
+      File sourceFile = toSourceFile(imageFile, imageId, sourceImageId);
+      if (!sourceFile.isFile() || sourceFile.length() != imageFile.length()) {
+        logger.info("Image {} does not have a file matching {}, not sharing its files", sourceImageId, imageFile);
+        return Collections.emptyList();
+      }
+    }
+
+    try {
+      for (File imageFile : imageFiles) {
+        Path link = new File(dir, imageFile.getName() + LINK_SUFFIX).toPath();
+        Files.deleteIfExists(link);
+        Files.createLink(link, toSourceFile(imageFile, imageId, sourceImageId).toPath());
+        Files.move(link, imageFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+    } catch (UnsupportedOperationException e) {
+      logger.info("File system of {} does not support hard links, not sharing files of image {}", dir, imageId);
+      return Collections.emptyList();
+    } catch (IOException e) {
+      throw new InternalException(e);
+    }
+
+    logger.info("Image {} shares the files of image {}", imageId, sourceImageId);
+    return Collections.singletonList(datastore);
+  }
+
   @Override
   public boolean isReplicationNeeded() {
     return false;
@@ -74,4 +120,8 @@ public class LocalImageStore implements ImageStore {
   public String getDatastore() {
     return datastore;
   }
+
+  private File toSourceFile(File imageFile, String imageId, String sourceImageId) {
+    return new File(dir, sourceImageId + imageFile.getName().substring(imageId.length()));
+  }
 }
@@ -45,6 +45,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -178,6 +179,39 @@ public class VsphereImageStore implements ImageStore {
     }
   }
 
+  /**
+   * Clones the source image into the uploaded image on each image datastore of the host that already has the source
+   * image. The clone is a copy within the datastore, so the image replicator does not have to transfer the image to
+   * those datastores from another host. Datastores on which cloning fails are left to the replicator.
+   */
+  @Override
+  public List<String> shareImageFiles(String imageId, String sourceImageId, List<String> sourceImageDatastores)
+      throws InternalException, ExternalException {
+    String uploadDatastore = getDatastore();
+    HostClient hostClient = getHostClient();
+    List<String> sharedDatastores = new ArrayList<>();
+    for (HostDatastore datastore : this.host.getDatastores()) {
+      String datastoreId = datastore.getDatastoreId();
+      if (!datastore.isImageDatastore() || datastoreId.equals(uploadDatastore)
+          || !sourceImageDatastores.contains(datastoreId)) {
+        continue;
+      }
+
+      logger.info("Cloning image {} into image {} on datastore {}", sourceImageId, imageId, datastoreId);
+      try {
+        hostClient.copyImage(sourceImageId, datastoreId, imageId, datastoreId);
+        sharedDatastores.add(datastoreId);
+      } catch (RpcException e) {
+        logger.warn("Failed to clone image {} into image {} on datastore {}, leaving it to replication",
+            sourceImageId, imageId, datastoreId, e);
+      } catch (InterruptedException e) {
+        throw new InternalException(e);
+      }
+    }
+
+    return sharedDatastores;
+  }
+
   @Override
   public boolean isReplicationNeeded() {
     return true;
@@ -27,6 +27,7 @@ import com.vmware.transfer.streamVmdk.VmdkFormatException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.BaseEncoding;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +37,9 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -45,6 +49,7 @@ import java.util.Map;
 public class ImageLoader {
   public static final String CONFIG_FILE_SUFFIX = ".ecv";
   public static final String DISK_FILE_SUFFIX = ".vmdk";
+  public static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
   private static final Logger logger = LoggerFactory.getLogger(ImageLoader.class);
   private static final DataField VMDK_SIGNATURE_FIELD = new DataField(0, 3);
   private static final String VMDK_FILE_SIGNATURE = "KDM";
@@ -97,8 +102,12 @@ public class ImageLoader {
   public Result uploadImage(ImageEntity imageEntity, InputStream inputStream)
       throws IOException, InternalException, VmdkFormatException, ExternalException {
 
+    // Digest the content as it is read, so that finding images with the same content takes no second pass. The
+    // digest sits below the buffer, which keeps the file type detection below from counting bytes twice.
+    MessageDigest contentDigest = createContentDigest();
+
     // Detect file type. Stream mark support is required.
-    inputStream = new BufferedInputStream(inputStream);
+    inputStream = new BufferedInputStream(new DigestInputStream(inputStream, contentDigest));
     boolean isVmdkFile = isVmdkFile(inputStream);
     boolean isTarFile = isVmdkFile ? false : isTarFile(inputStream);
 
@@ -133,6 +142,7 @@ public class ImageLoader {
 
       image.close();
       imageStore.finalizeImage(image);
+      result.contentDigest = BaseEncoding.base16().lowerCase().encode(contentDigest.digest());
 
     } catch (Exception e) {
       logger.warn("Upload image {} failed.", e);
@@ -146,6 +156,14 @@ public class ImageLoader {
     return result;
   }
 
+  private MessageDigest createContentDigest() throws InternalException {
+    try {
+      return MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new InternalException("Failure to create the image content digest.", e);
+    }
+  }
+
   private void deleteUploadFolder(Image image) {
     logger.info("Cleaning up partially uploaded files for image {} ...", image.getImageId());
     try {
@@ -231,5 +249,6 @@ public class ImageLoader {
   public class Result {
     public long imageSize = 0;
     public Map<String, String> imageSettings = new HashMap<>();
+    public String contentDigest;
   }
 }
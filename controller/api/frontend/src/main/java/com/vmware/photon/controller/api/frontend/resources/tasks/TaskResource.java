@@ -19,6 +19,7 @@ import com.vmware.photon.controller.api.frontend.resources.routes.TaskResourceRo
 import com.vmware.photon.controller.api.model.Task;
 import static com.vmware.photon.controller.api.frontend.Responses.generateCustomResponse;
 
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
@@ -31,11 +32,15 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
+import java.util.concurrent.TimeUnit;
 
 /**
  * This resource is for task related API.
@@ -53,13 +58,39 @@ public class TaskResource {
     this.taskFeClient = taskFeClient;
   }
 
+  /**
+   * Returns the task. When waitForCompletion is given, the response is held until the task completes or fails,
+   * for up to that many seconds (at most Task.MAX_WAIT_FOR_COMPLETION_SECONDS), and then returns the task in its latest
+   * state. The wait follows the updates of the task document, so a client can wait for a task with one request
+   * instead of polling it.
+   */
   @GET
-  @ApiOperation(value = "Find a task", response = Task.class)
+  @ApiOperation(value = "Find a task. If waitForCompletion is provided, then wait up to that many seconds for " +
+      "the task to complete", response = Task.class)
   @ApiResponses(value = {@ApiResponse(code = 200, message = "Task API representation")})
-  public Response get(@Context Request request, @PathParam("id") String id) throws ExternalException {
-    return generateCustomResponse(Response.Status.OK,
-        taskFeClient.get(id),
-        (ContainerRequest) request,
-        TaskResourceRoutes.TASK_PATH);
+  public void get(@Context Request request,
+                  @PathParam("id") String id,
+                  @QueryParam("waitForCompletion") Optional<Integer> waitForCompletion,
+                  @Suspended AsyncResponse asyncResponse) throws ExternalException {
+    int waitSeconds = Math.min(waitForCompletion.or(0), Task.MAX_WAIT_FOR_COMPLETION_SECONDS);
+    if (waitSeconds <= 0) {
+      asyncResponse.resume(generateCustomResponse(Response.Status.OK,
+          taskFeClient.get(id),
+          (ContainerRequest) request,
+          TaskResourceRoutes.TASK_PATH));
+      return;
+    }
+
+    taskFeClient.waitForCompletion(id, waitSeconds, TimeUnit.SECONDS).whenComplete((task, failure) -> {
+      if (failure != null) {
+        asyncResponse.resume(failure);
+        return;
+      }
+
+      asyncResponse.resume(generateCustomResponse(Response.Status.OK,
+          task,
+          (ContainerRequest) request,
+          TaskResourceRoutes.TASK_PATH));
+    });
   }
 }
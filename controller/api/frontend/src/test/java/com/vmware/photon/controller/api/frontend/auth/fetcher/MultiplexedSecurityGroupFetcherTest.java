@@ -15,6 +15,7 @@ package com.vmware.photon.controller.api.frontend.auth.fetcher;
 
 import com.vmware.photon.controller.api.frontend.auth.TransactionAuthorizationObject;
 
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -22,11 +23,18 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tests {@link MultiplexedSecurityGroupFetcher}.
@@ -61,7 +69,8 @@ public class MultiplexedSecurityGroupFetcherTest {
           mock(ClusterSecurityGroupFetcher.class),
           mock(DiskSecurityGroupFetcher.class),
           mock(VmSecurityGroupFetcher.class),
-          mock(SubnetSecurityGroupFetcher.class));
+          mock(SubnetSecurityGroupFetcher.class),
+          new SecurityGroupCache());
       assertThat(fetcher, notNullValue());
       assertThat(fetcher.getFetcherMap().size(), is(9));
     }
@@ -111,4 +120,94 @@ public class MultiplexedSecurityGroupFetcherTest {
       }
     }
   }
+
+  /**
+   * Tests the caching of the fetched security groups.
+   */
+  public class CacheTest {
+
+    private SecurityGroupFetcher vmFetcher;
+    private SecurityGroupCache cache;
+    private AtomicLong now;
+
+    @BeforeMethod
+    private void setUp() {
+      vmFetcher = mock(SecurityGroupFetcher.class);
+      now = new AtomicLong();
+      cache = new SecurityGroupCache(2, 30, new Ticker() {
+        @Override
+        public long read() {
+          return now.get();
+        }
+      });
+
+      Map<TransactionAuthorizationObject.Kind, SecurityGroupFetcher> map = new HashMap<>();
+      map.put(TransactionAuthorizationObject.Kind.VM, vmFetcher);
+      fetcher = new MultiplexedSecurityGroupFetcher(map, cache);
+    }
+
+    /**
+     * Tests that repeated calls on the same object are served from the cache until it is invalidated.
+     */
+    @Test
+    public void testCachedUntilInvalidated() {
+      when(vmFetcher.fetchSecurityGroups(any(TransactionAuthorizationObject.class)))
+          .thenReturn(ImmutableSet.of("SG1"));
+
+      assertThat(fetcher.fetchSecurityGroups(vm("vm1")), contains("SG1"));
+      assertThat(fetcher.fetchSecurityGroups(vm("vm1")), contains("SG1"));
+      verify(vmFetcher, times(1)).fetchSecurityGroups(any(TransactionAuthorizationObject.class));
+
+      cache.invalidateAll();
+      assertThat(fetcher.fetchSecurityGroups(vm("vm1")), contains("SG1"));
+      verify(vmFetcher, times(2)).fetchSecurityGroups(any(TransactionAuthorizationObject.class));
+    }
+
+    /**
+     * Tests that the cached security groups expire.
+     */
+    @Test
+    public void testExpiration() {
+      when(vmFetcher.fetchSecurityGroups(any(TransactionAuthorizationObject.class)))
+          .thenReturn(ImmutableSet.of("SG1"));
+
+      fetcher.fetchSecurityGroups(vm("vm1"));
+      now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+      fetcher.fetchSecurityGroups(vm("vm1"));
+      verify(vmFetcher, times(2)).fetchSecurityGroups(any(TransactionAuthorizationObject.class));
+    }
+
+    /**
+     * Tests that empty results, e.g. for objects that do not exist yet, are not cached.
+     */
+    @Test
+    public void testEmptyResultNotCached() {
+      when(vmFetcher.fetchSecurityGroups(any(TransactionAuthorizationObject.class)))
+          .thenReturn(new HashSet<>())
+          .thenReturn(ImmutableSet.of("SG1"));
+
+      assertThat(fetcher.fetchSecurityGroups(vm("vm1")).size(), is(0));
+      assertThat(fetcher.fetchSecurityGroups(vm("vm1")), contains("SG1"));
+      assertThat(cache.size(), is(1L));
+    }
+
+    /**
+     * Tests that the cache is bounded.
+     */
+    @Test
+    public void testMaximumSize() {
+      when(vmFetcher.fetchSecurityGroups(any(TransactionAuthorizationObject.class)))
+          .thenReturn(ImmutableSet.of("SG1"));
+
+      fetcher.fetchSecurityGroups(vm("vm1"));
+      fetcher.fetchSecurityGroups(vm("vm2"));
+      fetcher.fetchSecurityGroups(vm("vm3"));
+      assertThat(cache.size(), is(2L));
+    }
+
+    private TransactionAuthorizationObject vm(String id) {
+      return new TransactionAuthorizationObject(
+          TransactionAuthorizationObject.Kind.VM, TransactionAuthorizationObject.Strategy.PARENT, id);
+    }
+  }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.api.frontend.backends;
+
+import com.vmware.photon.controller.api.frontend.commands.tasks.TaskCommand;
+import com.vmware.photon.controller.api.frontend.entities.TaskEntity;
+import com.vmware.photon.controller.api.frontend.exceptions.external.OutOfThreadPoolWorkerException;
+import com.vmware.photon.controller.api.model.Operation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link FairTaskQueue}.
+ */
+public class FairTaskQueueTest {
+
+  private MetricRegistry metricRegistry;
+
+  @BeforeMethod
+  public void setUp() {
+    metricRegistry = new MetricRegistry();
+  }
+
+  @Test
+  public void testProjectsTakeTurns() {
+    FairTaskQueue queue = new FairTaskQueue(10, 10, metricRegistry);
+    queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-1"));
+    queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-2"));
+    queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-3"));
+    queue.offer(buildTask("p2", Operation.CREATE_VM, "p2-1"));
+    queue.offer(buildTask(null, Operation.CREATE_TENANT, "system-1"));
+
+    assertThat(drain(queue), contains("p1-1", "p2-1", "system-1", "p1-2", "p1-3"));
+    assertThat(queue.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testLanesTakeTurnsByWeight() {
+    FairTaskQueue queue = new FairTaskQueue(20, 20, metricRegistry);
+    for (int i = 0; i < 3; i++) {
+      queue.offer(buildTask("p1", Operation.CREATE_VM, "create-" + i));
+    }
+    for (int i = 0; i < 6; i++) {
+      queue.offer(buildTask("p2", Operation.START_VM, "start-" + i));
+    }
+    assertThat(queue.size(FairTaskQueue.Lane.SHORT), is(6));
+    assertThat(queue.size(FairTaskQueue.Lane.LONG), is(3));
+
+    assertThat(drain(queue), contains(
+        "start-0", "start-1", "start-2", "start-3", "create-0",
+        "start-4", "start-5", "create-1", "create-2"));
+  }
+
+  @Test
+  public void testProjectBacklogIsBounded() {
+    FairTaskQueue queue = new FairTaskQueue(10, 2, metricRegistry);
+    assertThat(queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-1")), is(true));
+    assertThat(queue.offer(buildTask("p1", Operation.START_VM, "p1-2")), is(true));
+    assertThat(queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-3")), is(false));
+    assertThat(queue.offer(buildTask("p2", Operation.CREATE_VM, "p2-1")), is(true));
+    assertThat(queue.size("p1"), is(2));
+    assertThat(queue.size("p2"), is(1));
+    assertThat(metricRegistry.getMeters().get(
+        MetricRegistry.name(FairTaskQueue.class, "long", "rejected")).getCount(), is(1L));
+
+    // Taking a task of the project makes room for another one
+    assertThat(name(queue.poll()), is("p1-1"));
+    assertThat(queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-3")), is(true));
+  }
+
+  @Test
+  public void testCapacityIsBounded() {
+    FairTaskQueue queue = new FairTaskQueue(2, 2, metricRegistry);
+    assertThat(queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-1")), is(true));
+    assertThat(queue.offer(buildTask("p2", Operation.CREATE_VM, "p2-1")), is(true));
+    assertThat(queue.offer(buildTask("p3", Operation.CREATE_VM, "p3-1")), is(false));
+    assertThat(queue.remainingCapacity(), is(0));
+  }
+
+  @Test
+  public void testRemove() {
+    FairTaskQueue queue = new FairTaskQueue(10, 10, metricRegistry);
+    Runnable first = buildTask("p1", Operation.CREATE_VM, "p1-1");
+    queue.offer(first);
+    queue.offer(buildTask("p1", Operation.CREATE_VM, "p1-2"));
+
+    assertThat(queue.remove(first), is(true));
+    assertThat(queue.remove(first), is(false));
+    assertThat(queue.size("p1"), is(1));
+    assertThat(drain(queue), contains("p1-2"));
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    FairTaskQueue queue = new FairTaskQueue(10, 10, metricRegistry);
+    queue.offer(buildTask("p1", Operation.START_VM, "p1-1"));
+    String prefix = MetricRegistry.name(FairTaskQueue.class, "short");
+    assertThat(metricRegistry.getGauges().get(MetricRegistry.name(prefix, "depth")).getValue(), is(1));
+
+    queue.take();
+    assertThat(metricRegistry.getGauges().get(MetricRegistry.name(prefix, "depth")).getValue(), is(0));
+    assertThat(metricRegistry.getTimers().get(MetricRegistry.name(prefix, "wait-time")).getCount(), is(1L));
+    assertThat(queue.poll(1, TimeUnit.MILLISECONDS), is(nullValue()));
+  }
+
+  @Test
+  public void testFloodingProjectOnlyHasItsOwnTasksRejected() throws Exception {
+    TaskCommandExecutorService service = new TaskCommandExecutorService(
+        1,
+        1,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new FairTaskQueue(10, 3, metricRegistry),
+        new ThreadFactoryBuilder().setNameFormat("BackendWorker" + "-%d").build());
+    try {
+      CountDownLatch busy = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      service.execute(() -> {
+        busy.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      busy.await();
+
+      for (int i = 0; i < 3; i++) {
+        service.submit(buildCommand("p1", Operation.CREATE_VM));
+      }
+
+      TaskCommand rejected = buildCommand("p1", Operation.CREATE_VM);
+      try {
+        service.submit(rejected);
+        fail("The fourth task of the project should be rejected");
+      } catch (OutOfThreadPoolWorkerException e) {
+        verify(rejected).markAllStepsAsFailed(e);
+      }
+
+      service.submit(buildCommand("p2", Operation.START_VM));
+      release.countDown();
+    } finally {
+      service.shutdown();
+      assertThat(service.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+  }
+
+  @Test
+  public void testGetLane() {
+    assertThat(FairTaskQueue.getLane(Operation.START_VM), is(FairTaskQueue.Lane.SHORT));
+    assertThat(FairTaskQueue.getLane(Operation.SET_METADATA), is(FairTaskQueue.Lane.SHORT));
+    assertThat(FairTaskQueue.getLane(Operation.CREATE_VM), is(FairTaskQueue.Lane.LONG));
+    assertThat(FairTaskQueue.getLane(Operation.DELETE_IMAGE), is(FairTaskQueue.Lane.LONG));
+  }
+
+  private static List<String> drain(FairTaskQueue queue) {
+    List<String> names = new ArrayList<>();
+    Runnable runnable = queue.poll();
+    while (runnable != null) {
+      names.add(name(runnable));
+      runnable = queue.poll();
+    }
+    return names;
+  }
+
+  private static String name(Runnable runnable) {
+    return ((TaskCommandExecutorService.TaskCommandFuture<?>) runnable).getCommand().getActivityId();
+  }
+
+  private static Runnable buildTask(String projectId, Operation operation, String name) {
+    TaskCommand command = buildCommand(projectId, operation);
+    when(command.getActivityId()).thenReturn(name);
+    return new TaskCommandExecutorService.TaskCommandFuture<>(command, null);
+  }
+
+  private static TaskCommand buildCommand(String projectId, Operation operation) {
+    TaskEntity task = new TaskEntity();
+    task.setProjectId(projectId);
+    task.setOperation(operation);
+
+    TaskCommand command = mock(TaskCommand.class);
+    when(command.getTask()).thenReturn(task);
+    return command;
+  }
+}
@@ -54,6 +54,7 @@ import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.mock;
+import static org.testng.Assert.fail;
 
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -61,6 +62,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests {@link TaskXenonBackend}.
@@ -508,6 +512,48 @@ public class TaskXenonBackendTest {
       assertThat(task.getId(), is(createdTask.getId()));
     }
 
+    @Test
+    public void testWaitForCompletionOfCompletedTask() throws Throwable {
+      TaskEntity createdTask = taskBackend.createCompletedTask(vmEntity, Operation.CREATE_VM);
+
+      Task task = taskBackend.waitForCompletion(createdTask.getId(), 30, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+      assertThat(task.getId(), is(createdTask.getId()));
+      assertThat(task.getState(), is(TaskEntity.State.COMPLETED.toString()));
+    }
+
+    @Test
+    public void testWaitForCompletion() throws Throwable {
+      TaskEntity createdTask = taskBackend.createQueuedTask(vmEntity, Operation.CREATE_VM);
+
+      CompletableFuture<Task> future = taskBackend.waitForCompletion(createdTask.getId(), 30, TimeUnit.SECONDS);
+      taskBackend.markTaskAsStarted(createdTask);
+      taskBackend.markTaskAsDone(createdTask);
+
+      Task task = future.get(10, TimeUnit.SECONDS);
+      assertThat(task.getId(), is(createdTask.getId()));
+      assertThat(task.getState(), is(TaskEntity.State.COMPLETED.toString()));
+    }
+
+    @Test
+    public void testWaitForCompletionTimesOut() throws Throwable {
+      TaskEntity createdTask = taskBackend.createQueuedTask(vmEntity, Operation.CREATE_VM);
+
+      Task task = taskBackend.waitForCompletion(createdTask.getId(), 100, TimeUnit.MILLISECONDS)
+          .get(10, TimeUnit.SECONDS);
+      assertThat(task.getId(), is(createdTask.getId()));
+      assertThat(task.getState(), is(TaskEntity.State.QUEUED.toString()));
+    }
+
+    @Test
+    public void testWaitForCompletionOfMissingTask() throws Throwable {
+      try {
+        taskBackend.waitForCompletion(UUID.randomUUID().toString(), 30, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+        fail("waitForCompletion should have failed");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause() instanceof TaskNotFoundException, is(true));
+      }
+    }
+
     @Test
     public void testFilter() throws Throwable {
       List<Task> tasks = taskBackend.filter(Optional.<String>absent(), Optional.<String>absent(),
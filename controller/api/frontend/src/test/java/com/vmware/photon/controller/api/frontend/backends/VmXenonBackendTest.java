@@ -39,10 +39,12 @@ import com.vmware.photon.controller.api.frontend.exceptions.external.NetworkNotF
 import com.vmware.photon.controller.api.frontend.exceptions.external.NotImplementedException;
 import com.vmware.photon.controller.api.frontend.exceptions.external.ProjectNotFoundException;
 import com.vmware.photon.controller.api.frontend.exceptions.external.VmNotFoundException;
+import com.vmware.photon.controller.api.model.AttachedDisk;
 import com.vmware.photon.controller.api.model.AttachedDiskCreateSpec;
 import com.vmware.photon.controller.api.model.DeploymentCreateSpec;
 import com.vmware.photon.controller.api.model.DiskState;
 import com.vmware.photon.controller.api.model.DiskType;
+import com.vmware.photon.controller.api.model.EphemeralDisk;
 import com.vmware.photon.controller.api.model.HostCreateSpec;
 import com.vmware.photon.controller.api.model.HostState;
 import com.vmware.photon.controller.api.model.Image;
@@ -65,6 +67,8 @@ import com.vmware.photon.controller.api.model.VmCreateSpec;
 import com.vmware.photon.controller.api.model.VmOperation;
 import com.vmware.photon.controller.api.model.VmState;
 import com.vmware.photon.controller.api.model.builders.AttachedDiskCreateSpecBuilder;
+import com.vmware.photon.controller.cloudstore.xenon.entity.AttachedDiskService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.AttachedDiskServiceFactory;
 import com.vmware.photon.controller.cloudstore.xenon.entity.DeploymentService;
 import com.vmware.photon.controller.cloudstore.xenon.entity.DeploymentServiceFactory;
 import com.vmware.photon.controller.cloudstore.xenon.entity.DiskService;
@@ -558,6 +562,69 @@ public class VmXenonBackendTest {
       assertThat(foundVms.getItems().get(0).getName(), is(vm.name));
     }
 
+    @Test
+    public void testFindByProjectIdWithAttachedDisks() throws Throwable {
+      VmService.State otherVm = new VmService.State();
+      otherVm.name = UUID.randomUUID().toString();
+      otherVm.flavorId = vm.flavorId;
+      otherVm.imageId = vm.imageId;
+      otherVm.projectId = projectId;
+      otherVm.vmState = VmState.STOPPED;
+      String otherVmId = ServiceUtils.getIDFromDocumentSelfLink(
+          xenonClient.post(VmServiceFactory.SELF_LINK, otherVm).getBody(VmService.State.class).documentSelfLink);
+
+      String bootDiskId = createAttachedDisk(vmId, DiskType.EPHEMERAL, true, 1);
+      String dataDiskId = createAttachedDisk(vmId, DiskType.PERSISTENT, false, 2);
+      String otherDiskId = createAttachedDisk(otherVmId, DiskType.PERSISTENT, false, 3);
+
+      List<Vm> foundVms = vmXenonBackend.filterByProject(vm.projectId,
+          Optional.of(PaginationConfig.DEFAULT_DEFAULT_PAGE_SIZE)).getItems();
+      assertThat(foundVms.size(), is(2));
+
+      Map<String, Vm> vmsById = foundVms.stream().collect(Collectors.toMap(Vm::getId, foundVm -> foundVm));
+      Map<String, AttachedDisk> disksById = vmsById.get(vmId).getAttachedDisks().stream()
+          .collect(Collectors.toMap(AttachedDisk::getId, disk -> disk));
+      assertThat(disksById.keySet(), is(ImmutableSet.of(bootDiskId, dataDiskId)));
+      assertThat(disksById.get(bootDiskId).isBootDisk(), is(true));
+      assertThat(disksById.get(bootDiskId).getKind(), is(EphemeralDisk.KIND));
+      assertThat(disksById.get(bootDiskId).getCapacityGb(), is(1));
+      assertThat(disksById.get(dataDiskId).isBootDisk(), is(false));
+      assertThat(disksById.get(dataDiskId).getKind(), is(PersistentDisk.KIND));
+      assertThat(disksById.get(dataDiskId).getState(), is(DiskState.ATTACHED.toString()));
+
+      List<AttachedDisk> otherDisks = vmsById.get(otherVmId).getAttachedDisks();
+      assertThat(otherDisks.size(), is(1));
+      assertThat(otherDisks.get(0).getId(), is(otherDiskId));
+      assertThat(otherDisks.get(0).getCapacityGb(), is(3));
+      assertThat(vmsById.get(otherVmId).getFlavor(), is(flavorEntity.getName()));
+    }
+
+    private String createAttachedDisk(String vmId, DiskType diskType, boolean bootDisk, int capacityGb)
+        throws Throwable {
+      DiskService.State disk = new DiskService.State();
+      disk.name = UUID.randomUUID().toString();
+      disk.diskType = diskType;
+      disk.flavorId = vm.flavorId;
+      disk.projectId = projectId;
+      disk.state = DiskState.ATTACHED;
+      disk.capacityGb = capacityGb;
+      String diskId = ServiceUtils.getIDFromDocumentSelfLink(
+          xenonClient.post(DiskServiceFactory.SELF_LINK, disk).getBody(DiskService.State.class).documentSelfLink);
+
+      AttachedDiskService.State attachedDisk = new AttachedDiskService.State();
+      attachedDisk.vmId = vmId;
+      attachedDisk.bootDisk = bootDisk;
+      if (diskType == DiskType.EPHEMERAL) {
+        attachedDisk.kind = EphemeralDisk.KIND;
+        attachedDisk.ephemeralDiskId = diskId;
+      } else {
+        attachedDisk.kind = PersistentDisk.KIND;
+        attachedDisk.persistentDiskId = diskId;
+      }
+      xenonClient.post(AttachedDiskServiceFactory.SELF_LINK, attachedDisk);
+      return diskId;
+    }
+
     @Test
     public void testWithNonExistingProjectId() throws Throwable {
       String id = UUID.randomUUID().toString();
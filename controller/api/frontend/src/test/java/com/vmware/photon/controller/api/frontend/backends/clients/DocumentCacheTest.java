@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.api.frontend.backends.clients;
+
+import com.vmware.photon.controller.api.frontend.TestModule;
+import com.vmware.photon.controller.api.frontend.backends.XenonBackendTestModule;
+import com.vmware.photon.controller.api.model.FlavorState;
+import com.vmware.photon.controller.api.model.QuotaUnit;
+import com.vmware.photon.controller.cloudstore.xenon.entity.FlavorService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.FlavorServiceFactory;
+import com.vmware.photon.controller.cloudstore.xenon.entity.VmService;
+import com.vmware.photon.controller.common.xenon.BasicServiceHost;
+import com.vmware.photon.controller.common.xenon.ServiceHostUtils;
+import com.vmware.photon.controller.common.xenon.exceptions.DocumentNotFoundException;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.UriUtils;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.inject.Inject;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Guice;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link DocumentCache}.
+ */
+@Guice(modules = {XenonBackendTestModule.class, TestModule.class})
+public class DocumentCacheTest {
+
+  private static final long EXPIRATION_SECONDS = 60;
+  private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  @Inject
+  private BasicServiceHost host;
+
+  private FakeTicker ticker;
+  private MetricRegistry metricRegistry;
+  private DocumentCache documentCache;
+  private AtomicInteger loads;
+
+  @BeforeMethod
+  public void setUp() throws Throwable {
+    ticker = new FakeTicker();
+    metricRegistry = new MetricRegistry();
+    documentCache = new DocumentCache(host, 2, EXPIRATION_SECONDS, ticker, metricRegistry);
+    loads = new AtomicInteger();
+    waitForSubscription();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Throwable {
+    ServiceHostUtils.deleteAllDocuments(host, "test-host");
+  }
+
+  @Test
+  public void testCachesDocuments() throws Throwable {
+    FlavorService.State first = documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+    FlavorService.State second = documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+
+    assertThat(second, sameInstance(first));
+    assertThat(loads.get(), is(1));
+    assertThat(metricRegistry.getMeters().get(
+        MetricRegistry.name(DocumentCache.class, "flavors", "hits")).getCount(), is(1L));
+    assertThat(metricRegistry.getMeters().get(
+        MetricRegistry.name(DocumentCache.class, "flavors", "misses")).getCount(), is(1L));
+  }
+
+  @Test
+  public void testDoesNotCacheOtherTypes() throws Throwable {
+    documentCache.get(VmService.State.class, "/vms/1", VmService.State::new);
+    assertThat(documentCache.contains("/vms/1"), is(false));
+  }
+
+  @Test
+  public void testDoesNotCacheMissingDocuments() throws Throwable {
+    for (int i = 0; i < 2; i++) {
+      try {
+        documentCache.get(FlavorService.State.class, "/flavors/missing", () -> {
+          loads.incrementAndGet();
+          throw new DocumentNotFoundException(mock(Operation.class), mock(Operation.class));
+        });
+        fail("DocumentNotFoundException expected");
+      } catch (DocumentNotFoundException e) {
+      }
+    }
+
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void testDoesNotCacheBeforeSubscription() throws Throwable {
+    DocumentCache unsubscribedCache = new DocumentCache(null, 2, EXPIRATION_SECONDS, ticker, metricRegistry);
+    unsubscribedCache.get(FlavorService.State.class, "/flavors/1", this::load);
+    unsubscribedCache.get(FlavorService.State.class, "/flavors/1", this::load);
+
+    assertThat(unsubscribedCache.isSubscribed(), is(false));
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void testInvalidate() throws Throwable {
+    documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+    documentCache.invalidate("/flavors/1");
+    documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void testDoesNotCacheDocumentLoadedDuringInvalidation() throws Throwable {
+    documentCache.get(FlavorService.State.class, "/flavors/1", () -> {
+      documentCache.invalidate("/flavors/1");
+      return load();
+    });
+
+    assertThat(documentCache.contains("/flavors/1"), is(false));
+
+    documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+    assertThat(documentCache.contains("/flavors/1"), is(true));
+  }
+
+  @Test
+  public void testCachesDocumentLoadedDuringOtherInvalidation() throws Throwable {
+    documentCache.get(FlavorService.State.class, "/flavors/1", () -> {
+      documentCache.invalidate("/flavors/2");
+      documentCache.invalidate("/vms/1");
+      return load();
+    });
+
+    assertThat(documentCache.contains("/flavors/1"), is(true));
+  }
+
+  @Test
+  public void testDoesNotCacheDocumentLoadedDuringInvalidationByConcurrentLoad() throws Throwable {
+    documentCache.get(FlavorService.State.class, "/flavors/1", () -> {
+      documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+      documentCache.invalidate("/flavors/1");
+      return load();
+    });
+
+    assertThat(documentCache.contains("/flavors/1"), is(false));
+  }
+
+  @Test
+  public void testExpiration() throws Throwable {
+    documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+    ticker.advance(TimeUnit.SECONDS.toNanos(EXPIRATION_SECONDS + 1));
+    documentCache.get(FlavorService.State.class, "/flavors/1", this::load);
+
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void testMaximumSize() throws Throwable {
+    for (int i = 0; i < 4; i++) {
+      documentCache.get(FlavorService.State.class, "/flavors/" + i, this::load);
+    }
+
+    assertThat(documentCache.size(), lessThanOrEqualTo(2L));
+  }
+
+  @Test
+  public void testNotificationDropsDocument() throws Throwable {
+    String flavorLink = createFlavor();
+    FlavorService.State flavor = documentCache.get(FlavorService.State.class, flavorLink,
+        () -> getFlavor(flavorLink));
+    assertThat(flavor.state, is(FlavorState.READY));
+    assertThat(documentCache.contains(flavorLink), is(true));
+
+    // The patch is sent to the host directly, so only the notification drops the cached document
+    FlavorService.State patch = new FlavorService.State();
+    patch.state = FlavorState.PENDING_DELETE;
+    host.sendRequestAndWait(Operation.createPatch(UriUtils.buildUri(host, flavorLink)).setBody(patch));
+
+    long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+    while (documentCache.contains(flavorLink) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    flavor = documentCache.get(FlavorService.State.class, flavorLink, () -> getFlavor(flavorLink));
+    assertThat(flavor.state, is(FlavorState.PENDING_DELETE));
+  }
+
+  private FlavorService.State load() {
+    loads.incrementAndGet();
+    return new FlavorService.State();
+  }
+
+  private void waitForSubscription() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+    while (!documentCache.isSubscribed()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("The document cache did not subscribe to notifications");
+      }
+
+      // Lookups retry the subscription until it succeeds
+      try {
+        documentCache.get(FlavorService.State.class, "/flavors/subscription", FlavorService.State::new);
+      } catch (DocumentNotFoundException e) {
+        throw new IllegalStateException(e);
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private String createFlavor() throws Throwable {
+    FlavorService.State.QuotaLineItem cost = new FlavorService.State.QuotaLineItem();
+    cost.key = "vm.cpu";
+    cost.value = 1.0;
+    cost.unit = QuotaUnit.COUNT;
+
+    FlavorService.State flavor = new FlavorService.State();
+    flavor.name = UUID.randomUUID().toString();
+    flavor.kind = "vm";
+    flavor.cost = new ArrayList<>();
+    flavor.cost.add(cost);
+    flavor.state = FlavorState.READY;
+
+    Operation post = host.sendRequestAndWait(
+        Operation.createPost(UriUtils.buildUri(host, FlavorServiceFactory.SELF_LINK)).setBody(flavor));
+    return post.getBody(FlavorService.State.class).documentSelfLink;
+  }
+
+  private FlavorService.State getFlavor(String flavorLink) {
+    try {
+      return host.sendRequestAndWait(Operation.createGet(UriUtils.buildUri(host, flavorLink)))
+          .getBody(FlavorService.State.class);
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  /**
+   * Ticker which only moves when told to.
+   */
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    private void advance(long deltaNanos) {
+      nanos += deltaNanos;
+    }
+  }
+}
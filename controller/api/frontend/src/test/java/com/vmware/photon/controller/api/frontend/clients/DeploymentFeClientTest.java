@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.clients;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.ClusterBackend;
 import com.vmware.photon.controller.api.frontend.backends.DatastoreBackend;
 import com.vmware.photon.controller.api.frontend.backends.DeploymentBackend;
@@ -100,7 +101,7 @@ public class DeploymentFeClientTest {
 
     feClient = new DeploymentFeClient(
         taskBackend, deploymentBackend, vmBackend, hostBackend, tenantBackend, projectBackend, datastoreBackend,
-        clusterBackend, authConfig, commandFactory, executorService);
+        clusterBackend, authConfig, commandFactory, executorService, new SecurityGroupCache());
   }
 
   /**
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.StepBackend;
 import com.vmware.photon.controller.api.frontend.backends.TenantBackend;
 import com.vmware.photon.controller.api.frontend.commands.tasks.TaskCommand;
@@ -48,6 +49,7 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
   private StepBackend stepBackend;
   private StepEntity stepEntity;
   private TenantBackend tenantBackend;
+  private SecurityGroupCache securityGroupCache;
 
   @BeforeMethod
   public void setup() {
@@ -55,6 +57,7 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
     stepBackend = mock(StepBackend.class);
     stepEntity = mock(StepEntity.class);
     tenantBackend = mock(TenantBackend.class);
+    securityGroupCache = mock(SecurityGroupCache.class);
   }
 
   @Test
@@ -74,7 +77,8 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
         Optional.of(PaginationConfig.DEFAULT_DEFAULT_PAGE_SIZE));
 
     DeploymentPushSecurityGroupsStepCmd cmd =
-        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
 
     verify(tenantBackend, times(1)).setSecurityGroups(eq("id"), anyObject());
@@ -111,7 +115,8 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
     doReturn(tenantsPage2).when(tenantBackend).getPage("nextLink");
 
     DeploymentPushSecurityGroupsStepCmd cmd =
-        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
 
     verify(tenantBackend, times(totalTenants)).setSecurityGroups(anyString(), anyObject());
@@ -135,7 +140,8 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
         Optional.of(PaginationConfig.DEFAULT_DEFAULT_PAGE_SIZE));
 
     DeploymentPushSecurityGroupsStepCmd cmd =
-        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
 
     verify(tenantBackend, times(1)).setSecurityGroups(eq("id"), anyObject());
@@ -147,7 +153,8 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
     doReturn(new ArrayList<DeploymentEntity>()).when(stepEntity).getTransientResourceEntities(null);
 
     DeploymentPushSecurityGroupsStepCmd cmd =
-        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
   }
 
@@ -160,7 +167,8 @@ public class DeploymentPushSecurityGroupsStepCmdTest {
         Optional.of(PaginationConfig.DEFAULT_DEFAULT_PAGE_SIZE));
 
     DeploymentPushSecurityGroupsStepCmd cmd =
-        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new DeploymentPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
 
     verify(tenantBackend, times(0)).setSecurityGroups(anyString(), anyObject());
@@ -31,6 +31,8 @@ import com.vmware.photon.controller.api.model.ImageState;
 import com.vmware.photon.controller.resource.gen.ImageReplication;
 import com.vmware.transfer.streamVmdk.VmdkFormatException;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
@@ -52,6 +54,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -64,6 +67,7 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -127,6 +131,7 @@ public class ImageUploadStepCmdTest extends PowerMockTestCase {
     doNothing().when(imageStore).finalizeImage(anyObject());
     when(imageStore.getDatastore()).thenReturn(datastoreId);
     when(image.addDisk(anyString(), any(InputStream.class))).thenReturn(imageSize);
+    when(imageBackend.findByContentDigest(anyString())).thenReturn(Optional.absent());
   }
 
   @AfterMethod
@@ -172,9 +177,53 @@ public class ImageUploadStepCmdTest extends PowerMockTestCase {
     verify(imageBackend).updateSettings(eq(imageEntity), any(Map.class));
     verify(imageBackend).updateSize(imageEntity, imageSize);
     verify(imageBackend).updateImageDatastore(eq(imageEntity.getId()), anyString());
+    verify(imageBackend).findByContentDigest(anyString());
+    verify(imageBackend).updateContentDigest(eq(imageEntity), anyString());
     verifyNoMoreInteractions(imageStore, imageBackend);
   }
 
+  @Test
+  public void testUploadOfImageWithSameContent() throws Throwable {
+    this.inputStream = ova.getRawVmdkStream();
+    step.createOrUpdateTransientResource(ImageUploadStepCmd.INPUT_STREAM, inputStream);
+
+    ImageEntity sourceImage = new ImageEntity();
+    sourceImage.setId("image-2");
+    List<String> sourceDatastores = ImmutableList.of(datastoreId, "datastore-2", "datastore-3");
+    when(imageBackend.findByContentDigest(anyString())).thenReturn(Optional.of(sourceImage));
+    when(imageBackend.getSeededImageDatastores("image-2")).thenReturn(sourceDatastores);
+    when(imageStore.shareImageFiles(imageId, "image-2", sourceDatastores))
+        .thenReturn(ImmutableList.of(datastoreId, "datastore-2"));
+
+    command.execute();
+
+    verify(imageStore).shareImageFiles(imageId, "image-2", sourceDatastores);
+    verify(imageBackend).updateImageDatastore(imageId, datastoreId);
+    verify(imageBackend).updateImageDatastore(imageId, "datastore-2");
+    verify(imageBackend, never()).updateImageDatastore(imageId, "datastore-3");
+    verify(imageBackend).updateContentDigest(eq(imageEntity), anyString());
+    verify(imageBackend, never()).updateState(imageEntity, ImageState.ERROR);
+  }
+
+  @Test
+  public void testUploadSucceedsWhenSharingFilesFails() throws Throwable {
+    this.inputStream = ova.getRawVmdkStream();
+    step.createOrUpdateTransientResource(ImageUploadStepCmd.INPUT_STREAM, inputStream);
+
+    ImageEntity sourceImage = new ImageEntity();
+    sourceImage.setId("image-2");
+    when(imageBackend.findByContentDigest(anyString())).thenReturn(Optional.of(sourceImage));
+    when(imageBackend.getSeededImageDatastores("image-2")).thenReturn(ImmutableList.of(datastoreId));
+    when(imageStore.shareImageFiles(imageId, "image-2", ImmutableList.of(datastoreId)))
+        .thenThrow(new InternalException("Failed to link image files"));
+
+    command.execute();
+
+    verify(imageBackend).updateImageDatastore(imageId, datastoreId);
+    verify(imageBackend).updateContentDigest(eq(imageEntity), anyString());
+    verify(imageBackend, never()).updateState(imageEntity, ImageState.ERROR);
+  }
+
   @Test(dataProvider = "ImageStreams")
   public void testSuccessfulUploadTwice(InputStream imageStream, ImageReplication replicationType)
       throws Exception {
@@ -206,6 +255,8 @@ public class ImageUploadStepCmdTest extends PowerMockTestCase {
     verify(imageBackend, times(2)).updateSettings(eq(imageEntity), any(Map.class));
     verify(imageBackend, times(2)).updateSize(imageEntity, imageSize);
     verify(imageBackend, times(2)).updateImageDatastore(eq(imageEntity.getId()), anyString());
+    verify(imageBackend, times(2)).findByContentDigest(anyString());
+    verify(imageBackend, times(2)).updateContentDigest(eq(imageEntity), anyString());
 
     verifyNoMoreInteractions(imageStore, imageBackend);
   }
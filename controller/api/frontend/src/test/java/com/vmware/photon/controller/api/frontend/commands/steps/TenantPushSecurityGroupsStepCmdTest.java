@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.ProjectBackend;
 import com.vmware.photon.controller.api.frontend.backends.StepBackend;
 import com.vmware.photon.controller.api.frontend.backends.TenantBackend;
@@ -53,6 +54,7 @@ public class TenantPushSecurityGroupsStepCmdTest {
   private StepEntity stepEntity;
   private TenantBackend tenantBackend;
   private ProjectBackend projectBackend;
+  private SecurityGroupCache securityGroupCache;
 
   @BeforeMethod
   public void setup() {
@@ -61,6 +63,7 @@ public class TenantPushSecurityGroupsStepCmdTest {
     stepEntity = mock(StepEntity.class);
     tenantBackend = mock(TenantBackend.class);
     projectBackend = mock(ProjectBackend.class);
+    securityGroupCache = mock(SecurityGroupCache.class);
   }
 
   @Test
@@ -97,7 +100,8 @@ public class TenantPushSecurityGroupsStepCmdTest {
     doReturn(new ResourceList<>(projects)).when(projectBackend).getProjectsPage(fakePageLink);
 
     TenantPushSecurityGroupsStepCmd cmd =
-        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend);
+        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend,
+            securityGroupCache);
     cmd.execute();
 
     verify(projectBackend, times(1)).replaceSecurityGroups(eq("project-id"), anyListOf(SecurityGroup.class));
@@ -109,7 +113,8 @@ public class TenantPushSecurityGroupsStepCmdTest {
     doReturn(new ArrayList<TenantEntity>()).when(stepEntity).getTransientResourceEntities(null);
 
     TenantPushSecurityGroupsStepCmd cmd =
-        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend);
+        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend,
+            securityGroupCache);
     cmd.execute();
   }
 
@@ -129,7 +134,8 @@ public class TenantPushSecurityGroupsStepCmdTest {
         .filter("id", Optional.<String>absent(), Optional.of(PaginationConfig.DEFAULT_DEFAULT_PAGE_SIZE));
 
     TenantPushSecurityGroupsStepCmd cmd =
-        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend);
+        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend,
+            securityGroupCache);
     cmd.execute();
   }
 
@@ -147,7 +153,8 @@ public class TenantPushSecurityGroupsStepCmdTest {
         Optional.of(PaginationConfig.DEFAULT_DEFAULT_PAGE_SIZE));
 
     TenantPushSecurityGroupsStepCmd cmd =
-        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend);
+        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend,
+            securityGroupCache);
     cmd.execute();
 
     verify(projectBackend, times(0)).replaceSecurityGroups(anyString(), anyListOf(SecurityGroup.class));
@@ -191,7 +198,8 @@ public class TenantPushSecurityGroupsStepCmdTest {
         .replaceSecurityGroups(eq("project-id"), anyListOf(SecurityGroup.class));
 
     TenantPushSecurityGroupsStepCmd cmd =
-        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend);
+        new TenantPushSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend, projectBackend,
+            securityGroupCache);
     cmd.execute();
   }
 }
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.api.frontend.commands.steps;
 
+import com.vmware.photon.controller.api.frontend.auth.fetcher.SecurityGroupCache;
 import com.vmware.photon.controller.api.frontend.backends.StepBackend;
 import com.vmware.photon.controller.api.frontend.backends.TenantBackend;
 import com.vmware.photon.controller.api.frontend.commands.tasks.TaskCommand;
@@ -27,6 +28,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +42,7 @@ public class TenantSetSecurityGroupsStepCmdTest {
   private StepBackend stepBackend;
   private StepEntity stepEntity;
   private TenantBackend tenantBackend;
+  private SecurityGroupCache securityGroupCache;
 
   @BeforeMethod
   public void setUp() {
@@ -47,6 +50,7 @@ public class TenantSetSecurityGroupsStepCmdTest {
     stepBackend = mock(StepBackend.class);
     stepEntity = mock(StepEntity.class);
     tenantBackend = mock(TenantBackend.class);
+    securityGroupCache = mock(SecurityGroupCache.class);
   }
 
   @Test
@@ -58,16 +62,28 @@ public class TenantSetSecurityGroupsStepCmdTest {
     doReturn(tenantEntityList).when(stepEntity).getTransientResourceEntities(null);
 
     TenantSetSecurityGroupsStepCmd cmd =
-        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
   }
 
+  @Test
+  public void testCleanupInvalidatesSecurityGroupCache() throws Exception {
+    TenantSetSecurityGroupsStepCmd cmd =
+        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
+    cmd.cleanup();
+
+    verify(securityGroupCache).invalidateAll();
+  }
+
   @Test(expectedExceptions = IllegalArgumentException.class)
   public void testCheckArgumentFailed() throws Exception {
     doReturn(new ArrayList<TenantEntity>()).when(stepEntity).getTransientResourceEntities(null);
 
     TenantSetSecurityGroupsStepCmd cmd =
-        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
   }
 
@@ -84,7 +100,8 @@ public class TenantSetSecurityGroupsStepCmdTest {
         .setSecurityGroups(anyString(), anyObject());
 
     TenantSetSecurityGroupsStepCmd cmd =
-        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend);
+        new TenantSetSecurityGroupsStepCmd(taskCommand, stepBackend, stepEntity, tenantBackend,
+            securityGroupCache);
     cmd.execute();
   }
 }
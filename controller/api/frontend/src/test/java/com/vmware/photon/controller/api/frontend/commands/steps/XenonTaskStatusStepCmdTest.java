@@ -28,8 +28,11 @@ import org.mockito.stubbing.Answer;
 import org.powermock.modules.testng.PowerMockTestCase;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -38,6 +41,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests {@link XenonTaskStatusStepCmd}.
@@ -210,6 +214,57 @@ public class XenonTaskStatusStepCmdTest extends PowerMockTestCase {
     }
   }
 
+  /**
+   * Tests for polling without blocking the worker thread.
+   */
+  public class SuspendTest {
+
+    @BeforeMethod
+    public void setUp() throws JsonProcessingException {
+      setUpCommon(true, 1);
+      when(taskCommand.isSuspendable()).thenReturn(true);
+    }
+
+    @Test
+    public void testSuspendsUntilNextPoll() throws Throwable {
+      when(xenonTaskStatusPoller.poll(any(String.class)))
+          .thenReturn(buildTaskState(TaskState.TaskStage.STARTED))
+          .thenReturn(buildTaskState(TaskState.TaskStage.FINISHED));
+      when(xenonTaskStatusPoller.getSubStage(any(TaskState.class))).thenReturn(1);
+
+      command.execute();
+      assertThat(command.isSuspended(), is(true));
+      verify(xenonTaskStatusPoller, times(1)).poll(remoteTaskLink);
+      verify(taskCommand).scheduleResume(1, TimeUnit.MILLISECONDS);
+
+      command.execute();
+      verify(xenonTaskStatusPoller, times(2)).poll(remoteTaskLink);
+      verify(xenonTaskStatusPoller).handleDone(any(TaskState.class));
+    }
+
+    @Test
+    public void testCompletesWithoutSuspending() throws Throwable {
+      when(xenonTaskStatusPoller.poll(any(String.class)))
+          .thenReturn(buildTaskState(TaskState.TaskStage.FINISHED));
+
+      command.execute();
+      assertThat(command.isSuspended(), is(false));
+      verify(taskCommand, never()).scheduleResume(any(Long.class), any(TimeUnit.class));
+    }
+
+    @Test(expectedExceptions = RuntimeException.class,
+        expectedExceptionsMessageRegExp = "Xenon task did not complete in timely fashion.")
+    public void testTimeoutAcrossSuspensions() throws Throwable {
+      when(xenonTaskStatusPoller.poll(any(String.class)))
+          .thenReturn(buildTaskState(TaskState.TaskStage.STARTED));
+      command.setTimeout(10);
+
+      command.execute();
+      Thread.sleep(20);
+      command.execute();
+    }
+  }
+
   /**
    * Tests for subStage changes.
    */
@@ -74,9 +74,11 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doThrow;
@@ -86,6 +88,9 @@ import static org.powermock.api.mockito.PowerMockito.verifyNoMoreInteractions;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests {@link TaskCommand}.
@@ -473,6 +478,78 @@ public class TaskCommandTest {
     assertThat(stepCommands[2].performed, is(true));
   }
 
+  @Test
+  public void testRunWithSuspendedStep() throws Throwable {
+    StepEntity[] steps = new StepEntity[]{
+        createStep("step-1", StepEntity.State.QUEUED),
+        createStep("step-2", StepEntity.State.QUEUED)
+    };
+    TestTaskCommand command = new TestTaskCommand(apiFeXenonRestClient, photonControllerXenonRestClient, hostClient,
+        housekeeperClient, taskBackend, stepCommandFactory, task, deployerClient,
+        deployerXenonClient, housekeeperXenonClient);
+    ExecutorService backendTaskExecutor = mock(ExecutorService.class);
+    ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
+    command.setExecutors(backendTaskExecutor, scheduledExecutorService);
+
+    task.addStep(steps[0]);
+    task.addStep(steps[1]);
+    SuspendingStepCommand suspendingStepCommand = new SuspendingStepCommand(command, stepBackend, steps[0], false);
+    TestStepCommand stepCommand = new TestStepCommand(command, stepBackend, steps[1]);
+    doReturn(suspendingStepCommand).when(stepCommandFactory).createCommand(command, steps[0]);
+    doReturn(stepCommand).when(stepCommandFactory).createCommand(command, steps[1]);
+
+    command.run();
+
+    assertThat(command.isSuspended(), is(true));
+    assertThat(command.cleanedUp, is(false));
+    assertThat(steps[0].getState(), is(StepEntity.State.STARTED));
+    assertThat(stepCommand.performed, is(false));
+    assertThat(taskBackend.findById(task.getId()).getState(), is(TaskEntity.State.STARTED));
+
+    ArgumentCaptor<Runnable> resumeCallback = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduledExecutorService).schedule(resumeCallback.capture(), eq(5L), eq(TimeUnit.SECONDS));
+    verify(backendTaskExecutor, never()).submit(command);
+
+    resumeCallback.getValue().run();
+    resumeCallback.getValue().run();
+    verify(backendTaskExecutor, times(1)).submit(command);
+
+    command.run();
+
+    assertThat(command.isSuspended(), is(false));
+    assertThat(command.cleanedUp, is(true));
+    assertThat(suspendingStepCommand.executeCount, is(2));
+    assertThat(steps[0].getState(), is(StepEntity.State.COMPLETED));
+    assertThat(stepCommand.performed, is(true));
+    assertThat(taskBackend.findById(task.getId()).getState(), is(TaskEntity.State.COMPLETED));
+  }
+
+  @Test
+  public void testRunWithStepResumedBeforeSuspending() throws Throwable {
+    StepEntity step = createStep("step-1", StepEntity.State.QUEUED);
+    TestTaskCommand command = new TestTaskCommand(apiFeXenonRestClient, photonControllerXenonRestClient, hostClient,
+        housekeeperClient, taskBackend, stepCommandFactory, task, deployerClient,
+        deployerXenonClient, housekeeperXenonClient);
+    ExecutorService backendTaskExecutor = mock(ExecutorService.class);
+    command.setExecutors(backendTaskExecutor, mock(ScheduledExecutorService.class));
+
+    task.addStep(step);
+    SuspendingStepCommand suspendingStepCommand = new SuspendingStepCommand(command, stepBackend, step, true);
+    doReturn(suspendingStepCommand).when(stepCommandFactory).createCommand(command, step);
+
+    command.run();
+
+    // The task is submitted again once it returned, not while it was running the step
+    assertThat(command.isSuspended(), is(true));
+    verify(backendTaskExecutor, times(1)).submit(command);
+
+    command.run();
+
+    assertThat(command.isSuspended(), is(false));
+    assertThat(step.getState(), is(StepEntity.State.COMPLETED));
+    verify(backendTaskExecutor, times(1)).submit(command);
+  }
+
   @Test
   public void testCleanup() {
     TestTaskCommand command = new TestTaskCommand(apiFeXenonRestClient, photonControllerXenonRestClient, hostClient,
@@ -728,4 +805,33 @@ public class TaskCommandTest {
     protected void cleanup() {
     }
   }
+
+  /**
+   * A step which suspends itself the first time it is executed.
+   */
+  private class SuspendingStepCommand extends TestStepCommand {
+
+    private final boolean resumeImmediately;
+    public int executeCount = 0;
+
+    private SuspendingStepCommand(TaskCommand taskCommand, StepBackend stepBackend, StepEntity step,
+                                  boolean resumeImmediately) {
+      super(taskCommand, stepBackend, step);
+      this.resumeImmediately = resumeImmediately;
+    }
+
+    @Override
+    public void execute() {
+      executeCount++;
+      if (executeCount > 1) {
+        return;
+      }
+
+      if (resumeImmediately) {
+        suspendUntilResumed().run();
+      } else {
+        suspendFor(5, TimeUnit.SECONDS);
+      }
+    }
+  }
 }
@@ -59,6 +59,11 @@ public class ApiFeConfigurationTest {
     assertThat(config.getBackgroundWorkersQueueSize(), is(200));
   }
 
+  @Test
+  public void testGetBackgroundWorkersQueueSizePerProject() throws Exception {
+    assertThat(config.getBackgroundWorkersQueueSizePerProject(), is(50));
+  }
+
   @Test
   public void testBadConfig() {
     try {
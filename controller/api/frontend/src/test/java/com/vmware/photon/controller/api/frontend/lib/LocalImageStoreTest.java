@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.api.frontend.lib;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test {@link LocalImageStore}.
+ */
+public class LocalImageStoreTest {
+
+  private static final String DATASTORE = "datastore";
+
+  private File dir;
+  private LocalImageStore imageStore;
+
+  @BeforeMethod
+  public void setUp() {
+    dir = Files.createTempDir();
+    imageStore = new LocalImageStore(dir.getAbsolutePath(), DATASTORE);
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void testShareImageFiles() throws Throwable {
+    writeImageFile("image-1.vmdk", "disk");
+    writeImageFile("image-1.ecv", "config");
+    writeImageFile("image-2.vmdk", "disk");
+    writeImageFile("image-2.ecv", "config");
+
+    assertThat(imageStore.shareImageFiles("image-2", "image-1", ImmutableList.of(DATASTORE)),
+        contains(DATASTORE));
+
+    // The files now are the same files, so changing one changes the other
+    writeImageFile("image-1.vmdk", "DISK");
+    assertThat(readImageFile("image-2.vmdk"), is("DISK"));
+    assertThat(readImageFile("image-2.ecv"), is("config"));
+    assertThat(new File(dir, DATASTORE).list().length, is(4));
+  }
+
+  @Test
+  public void testShareImageFilesWithMissingSourceFile() throws Throwable {
+    writeImageFile("image-1.vmdk", "disk");
+    writeImageFile("image-2.vmdk", "disk");
+    writeImageFile("image-2.ecv", "config");
+
+    assertThat(imageStore.shareImageFiles("image-2", "image-1", ImmutableList.of(DATASTORE)), is(empty()));
+
+    writeImageFile("image-1.vmdk", "DISK");
+    assertThat(readImageFile("image-2.vmdk"), is("disk"));
+  }
+
+  @Test
+  public void testShareImageFilesWithDifferentSourceFile() throws Throwable {
+    writeImageFile("image-1.vmdk", "other disk");
+    writeImageFile("image-2.vmdk", "disk");
+
+    assertThat(imageStore.shareImageFiles("image-2", "image-1", ImmutableList.of(DATASTORE)), is(empty()));
+    assertThat(readImageFile("image-2.vmdk"), is("disk"));
+  }
+
+  @Test
+  public void testShareImageFilesWithoutImageFiles() throws Throwable {
+    writeImageFile("image-1.vmdk", "disk");
+
+    assertThat(imageStore.shareImageFiles("image-2", "image-1", ImmutableList.of(DATASTORE)), is(empty()));
+  }
+
+  private void writeImageFile(String name, String content) throws IOException {
+    // Rewrite the file in place, so that hard links to it see the new content
+    FileUtils.writeStringToFile(new File(new File(dir, DATASTORE), name), content, StandardCharsets.UTF_8);
+  }
+
+  private String readImageFile(String name) throws IOException {
+    return FileUtils.readFileToString(new File(new File(dir, DATASTORE), name), StandardCharsets.UTF_8);
+  }
+}
@@ -46,6 +46,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -53,6 +54,7 @@ import static org.powermock.api.mockito.PowerMockito.spy;
 import static org.testng.Assert.fail;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Test {@link VsphereImageStore}.
@@ -328,4 +330,57 @@ public class VsphereImageStoreTest extends PowerMockTestCase {
       }
     }
   }
+
+  /**
+   * Tests for sharing the files of an image with the same content.
+   */
+  public class ShareImageFilesTest {
+
+    private static final String SHARED_DATASTORE_ID = "shared-datastore-id";
+    private static final String FAILING_DATASTORE_ID = "failing-datastore-id";
+    private static final String OTHER_DATASTORE_ID = "other-datastore-id";
+    private static final String VM_DATASTORE_ID = "vm-datastore-id";
+
+    @BeforeMethod
+    public void setUp() {
+      imageConfig = new ImageConfig();
+      imageConfig.setEndpoint(HOST_ADDRESS);
+
+      Host host = new Host();
+      host.setAddress(HOST_ADDRESS);
+      host.setDatastores(ImmutableList.of(
+          new HostDatastore(IMAGE_DATASTORE_ID, "datastore-name", true),
+          new HostDatastore(SHARED_DATASTORE_ID, "shared-datastore-name", true),
+          new HostDatastore(FAILING_DATASTORE_ID, "failing-datastore-name", true),
+          new HostDatastore(OTHER_DATASTORE_ID, "other-datastore-name", true),
+          new HostDatastore(VM_DATASTORE_ID, "vm-datastore-name", false)));
+      ResourceList<Host> hostList = new ResourceList<>();
+      hostList.setItems(ImmutableList.of(host));
+
+      hostBackend = mock(HostBackend.class);
+      when(hostBackend.filterByAddress(eq(HOST_ADDRESS), any())).thenReturn(hostList);
+
+      hostClient = mock(HostClient.class);
+      hostClientFactory = mock(HostClientFactory.class);
+      when(hostClientFactory.create()).thenReturn(hostClient);
+
+      imageStore = new VsphereImageStore(hostBackend, hostClientFactory, imageConfig);
+    }
+
+    @Test
+    public void testClonesImageOnDatastoresOfSourceImage() throws Throwable {
+      doThrow(new RpcException("Rpc failed")).when(hostClient)
+          .copyImage("image-1", FAILING_DATASTORE_ID, "image-2", FAILING_DATASTORE_ID);
+
+      List<String> sharedDatastores = imageStore.shareImageFiles("image-2", "image-1",
+          ImmutableList.of(IMAGE_DATASTORE_ID, SHARED_DATASTORE_ID, FAILING_DATASTORE_ID, VM_DATASTORE_ID));
+
+      assertThat(sharedDatastores, equalTo(ImmutableList.of(SHARED_DATASTORE_ID)));
+      verify(hostClient).copyImage("image-1", SHARED_DATASTORE_ID, "image-2", SHARED_DATASTORE_ID);
+      verify(hostClient).copyImage("image-1", FAILING_DATASTORE_ID, "image-2", FAILING_DATASTORE_ID);
+      verify(hostClient, never()).copyImage(anyString(), eq(IMAGE_DATASTORE_ID), anyString(), anyString());
+      verify(hostClient, never()).copyImage(anyString(), eq(OTHER_DATASTORE_ID), anyString(), anyString());
+      verify(hostClient, never()).copyImage(anyString(), eq(VM_DATASTORE_ID), anyString(), anyString());
+    }
+  }
 }
@@ -21,16 +21,19 @@ import com.vmware.photon.controller.api.frontend.lib.ova.OvaTestModule;
 import com.vmware.photon.controller.resource.gen.ImageReplication;
 import com.vmware.transfer.nfc.NfcClient;
 
+import com.google.common.io.BaseEncoding;
 import org.mockito.InOrder;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -43,6 +46,7 @@ import static org.powermock.api.mockito.PowerMockito.spy;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -129,6 +133,34 @@ public class ImageLoaderTest {
       assertThat(result.imageSettings.size(), is(0));
     }
 
+    @Test
+    void loadImageDigestsContentTest() throws Throwable {
+      ova = OvaTestModule.generateOva(OvaTestModule.GOOD_OVF_FILE_CONTENT);
+      inputStream = ova.getRawVmdkStream();
+      doAnswer(invocation -> {
+        OvaTestModule.readStringFromStream((InputStream) invocation.getArguments()[1]);
+        return (long) DISK_SIZE;
+      }).when(image).addDisk(anyString(), any(InputStream.class));
+
+      ImageLoader.Result result = imageLoader.uploadImage(imageEntity, inputStream);
+      MessageDigest expectedDigest = MessageDigest.getInstance(ImageLoader.CONTENT_DIGEST_ALGORITHM);
+      assertThat(result.contentDigest,
+          is(BaseEncoding.base16().lowerCase().encode(expectedDigest.digest(ova.vmdkContent.getBytes()))));
+    }
+
+    @Test
+    void loadSameImageTwiceGivesSameDigestTest() throws Throwable {
+      ova = OvaTestModule.generateOva(OvaTestModule.GOOD_OVF_FILE_CONTENT);
+      inputStream = ova.getOvaStream();
+      String firstDigest = imageLoader.uploadImage(imageEntity, inputStream).contentDigest;
+      inputStream.close();
+
+      inputStream = ova.getOvaStream();
+      String secondDigest = imageLoader.uploadImage(imageEntity, inputStream).contentDigest;
+      assertThat(secondDigest, is(firstDigest));
+      assertThat(imageLoader.uploadImage(imageEntity, ova.getRawVmdkStream()).contentDigest, not(firstDigest));
+    }
+
     @Test(expectedExceptions = UnsupportedDiskControllerException.class)
     void badLoadImageTest() throws Throwable {
       ova = OvaTestModule.generateOva(OvaTestModule.BAD_OVF_UNKNOWN_CONTROLLER);
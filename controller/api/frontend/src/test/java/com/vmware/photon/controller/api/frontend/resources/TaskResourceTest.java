@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.api.frontend.resources;
 
 import com.vmware.photon.controller.api.frontend.clients.TaskFeClient;
+import com.vmware.photon.controller.api.frontend.exceptions.external.TaskNotFoundException;
 import com.vmware.photon.controller.api.frontend.resources.routes.TaskResourceRoutes;
 import com.vmware.photon.controller.api.frontend.resources.tasks.TaskResource;
 import com.vmware.photon.controller.api.model.Task;
@@ -24,12 +25,16 @@ import org.mockito.Mock;
 import org.testng.annotations.Test;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests {@link com.vmware.photon.controller.api.frontend.resources.tasks.TaskResource}.
@@ -63,4 +68,43 @@ public class TaskResourceTest extends ResourceTest {
     assertThat(new URI(responseTask.getSelfLink()).isAbsolute(), CoreMatchers.is(true));
     assertThat(responseTask.getSelfLink().endsWith(taskRoutePath), CoreMatchers.is(true));
   }
+
+  @Test
+  public void testGetTaskWaitingForCompletion() throws Exception {
+    Task task = new Task();
+    task.setId(taskId);
+    task.setState("COMPLETED");
+
+    when(taskFeClient.waitForCompletion(taskId, 30, TimeUnit.SECONDS))
+        .thenReturn(CompletableFuture.completedFuture(task));
+    Response response = client().target(taskRoutePath).queryParam("waitForCompletion", 30).request().get();
+    assertThat(response.getStatus(), is(200));
+
+    Task responseTask = response.readEntity(Task.class);
+    assertThat(responseTask, Matchers.is(task));
+    assertThat(responseTask.getSelfLink().endsWith(taskRoutePath), CoreMatchers.is(true));
+    verify(taskFeClient, never()).get(taskId);
+  }
+
+  @Test
+  public void testGetTaskWaitingForCompletionIsCapped() throws Exception {
+    Task task = new Task();
+    task.setId(taskId);
+
+    when(taskFeClient.waitForCompletion(taskId, Task.MAX_WAIT_FOR_COMPLETION_SECONDS, TimeUnit.SECONDS))
+        .thenReturn(CompletableFuture.completedFuture(task));
+    Response response = client().target(taskRoutePath).queryParam("waitForCompletion", 3600).request().get();
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.readEntity(Task.class), Matchers.is(task));
+  }
+
+  @Test
+  public void testGetMissingTaskWaitingForCompletion() throws Exception {
+    CompletableFuture<Task> future = new CompletableFuture<>();
+    future.completeExceptionally(new TaskNotFoundException(taskId));
+
+    when(taskFeClient.waitForCompletion(taskId, 30, TimeUnit.SECONDS)).thenReturn(future);
+    Response response = client().target(taskRoutePath).queryParam("waitForCompletion", 30).request().get();
+    assertThat(response.getStatus(), is(404));
+  }
 }
@@ -40,6 +40,12 @@ public class Task extends Model {
 
   public static final String KIND = "task";
 
+  /**
+   * The longest the server holds a request waiting for a task to complete, see the waitForCompletion parameter of
+   * the task API.
+   */
+  public static final int MAX_WAIT_FOR_COMPLETION_SECONDS = 60;
+
   @JsonProperty
   @ApiModelProperty(value = "Associated entity")
   private Entity entity;
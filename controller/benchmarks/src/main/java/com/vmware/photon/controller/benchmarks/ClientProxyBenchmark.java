@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.common.thrift.ClientPool;
+import com.vmware.photon.controller.common.thrift.ClientProxyImpl;
+import com.vmware.photon.controller.tracing.gen.TracingInfo;
+
+import com.example.echo.EchoRequest;
+import com.example.echo.Echoer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.TypeLiteral;
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per call overhead of {@link ClientProxyImpl}, from one thread and from several threads sharing the
+ * proxy. The client behind the proxy completes every call right away, so that only the dispatch is measured.
+ *
+ * As a baseline, the same call is also dispatched directly to the client, once reflectively with cached
+ * {@link Method} objects as the proxy used to, and once with the method handles the proxy uses now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientProxyBenchmark {
+
+  private static final int TIMEOUT_MS = 1000;
+
+  private Echoer.AsyncSSLClient client;
+  private Echoer.AsyncSSLClient proxy;
+  private NoopCallback callback;
+
+  private Method method;
+  private Method tracingSetter;
+  private MethodHandle dispatcher;
+  private MethodHandle tracingSetterHandle;
+
+  @Setup
+  public void setUp() throws ReflectiveOperationException {
+    client = new NoopClient();
+    ClientProxyImpl<Echoer.AsyncSSLClient> clientProxy = new ClientProxyImpl<>(
+        MoreExecutors.newDirectExecutorService(),
+        new TypeLiteral<Echoer.AsyncSSLClient>() {
+        },
+        new ImmediateClientPool(client));
+    proxy = clientProxy.get();
+    callback = new NoopCallback();
+
+    method = Echoer.AsyncSSLClient.class.getMethod("tracedEcho", EchoRequest.class, AsyncMethodCallback.class);
+    tracingSetter = EchoRequest.class.getMethod("setTracing_info", TracingInfo.class);
+    dispatcher = MethodHandles.publicLookup()
+        .unreflect(method)
+        .asType(MethodType.genericMethodType(3))
+        .asSpreader(Object[].class, 2);
+    tracingSetterHandle = MethodHandles.publicLookup()
+        .unreflect(tracingSetter)
+        .asType(MethodType.methodType(void.class, Object.class, TracingInfo.class));
+  }
+
+  @Benchmark
+  public Object reflectiveDispatch() throws ReflectiveOperationException {
+    Object[] args = {new EchoRequest("foo"), callback};
+    tracingSetter.invoke(args[0], new TracingInfo());
+    return method.invoke(client, args);
+  }
+
+  @Benchmark
+  public Object methodHandleDispatch() throws Throwable {
+    Object[] args = {new EchoRequest("foo"), callback};
+    tracingSetterHandle.invokeExact(args[0], new TracingInfo());
+    return (Object) dispatcher.invokeExact((Object) client, args);
+  }
+
+  @Benchmark
+  public void call() throws TException {
+    proxy.setTimeout(TIMEOUT_MS);
+    proxy.tracedEcho(new EchoRequest("foo"), callback);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void callFromThreads() throws TException {
+    call();
+  }
+
+  /**
+   * A client which completes every call right away.
+   */
+  private static class NoopClient extends Echoer.AsyncSSLClient {
+
+    NoopClient() {
+      super(null, null, null);
+    }
+
+    @Override
+    public void tracedEcho(EchoRequest request, AsyncMethodCallback<tracedEcho_call> resultHandler) {
+      resultHandler.onComplete(null);
+    }
+  }
+
+  /**
+   * A callback which ignores the completed calls.
+   */
+  private static class NoopCallback implements AsyncMethodCallback<Echoer.AsyncSSLClient.tracedEcho_call> {
+
+    @Override
+    public void onComplete(Echoer.AsyncSSLClient.tracedEcho_call response) {
+    }
+
+    @Override
+    public void onError(Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A pool handing out the same client right away.
+   */
+  private static class ImmediateClientPool implements ClientPool<Echoer.AsyncSSLClient> {
+
+    private final ListenableFuture<Echoer.AsyncSSLClient> client;
+
+    ImmediateClientPool(Echoer.AsyncSSLClient client) {
+      this.client = Futures.immediateFuture(client);
+    }
+
+    @Override
+    public ListenableFuture<Echoer.AsyncSSLClient> acquire() {
+      return client;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void release(Echoer.AsyncSSLClient client, boolean healthy) {
+    }
+
+    @Override
+    public int getWaiters() {
+      return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.api.model.AgentState;
+import com.vmware.photon.controller.api.model.HostState;
+import com.vmware.photon.controller.api.model.UsageTag;
+import com.vmware.photon.controller.cloudstore.xenon.entity.DatastoreService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.DatastoreServiceFactory;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostServiceFactory;
+import com.vmware.photon.controller.cloudstore.xenon.helpers.TestEnvironment;
+import com.vmware.photon.controller.common.xenon.CloudStoreHelper;
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.photon.controller.resource.gen.ResourceConstraint;
+import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
+import com.vmware.photon.controller.scheduler.service.CloudStoreConstraintChecker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CloudStoreConstraintChecker#getCandidates} against a local cloud-store host holding N synthetic
+ * hosts, without constraint and with a datastore or an availability zone constraint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CloudStoreConstraintCheckerBenchmark {
+
+  private static final int DATASTORE_COUNT = 1000;
+  private static final int DATASTORES_PER_HOST = 10;
+  private static final int NETWORK_COUNT = 100;
+  private static final int NETWORKS_PER_HOST = 2;
+  private static final int AVAILABILITY_ZONE_COUNT = 1000;
+  private static final int CANDIDATE_COUNT = 4;
+
+  @Param({"1000", "10000"})
+  private int hostCount;
+
+  @Param({"NONE", "DATASTORE", "AVAILABILITY_ZONE"})
+  private String constraint;
+
+  private TestEnvironment cloudStoreEnvironment;
+  private CloudStoreConstraintChecker checker;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    cloudStoreEnvironment = TestEnvironment.create(1);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+
+    for (int i = 0; i < DATASTORE_COUNT; i++) {
+      DatastoreService.State datastore = new DatastoreService.State();
+      datastore.id = id(i);
+      datastore.name = datastore.id;
+      datastore.type = "SHARED_VMFS";
+      datastore.tags = new HashSet<>();
+      datastore.documentSelfLink = datastore.id;
+      cloudStoreEnvironment.sendPostAndWait(DatastoreServiceFactory.SELF_LINK, datastore);
+    }
+
+    for (int i = 0; i < hostCount; i++) {
+      HostService.State host = new HostService.State();
+      host.hostAddress = "host" + i;
+      host.state = HostState.READY;
+      host.agentState = AgentState.ACTIVE;
+      host.userName = "username";
+      host.password = "password";
+      host.reportedDatastores = new HashSet<>();
+      while (host.reportedDatastores.size() < DATASTORES_PER_HOST) {
+        host.reportedDatastores.add(id(random.nextInt(DATASTORE_COUNT)));
+      }
+      host.reportedNetworks = new HashSet<>();
+      while (host.reportedNetworks.size() < NETWORKS_PER_HOST) {
+        host.reportedNetworks.add(id(random.nextInt(NETWORK_COUNT)));
+      }
+      host.availabilityZoneId = id(random.nextInt(AVAILABILITY_ZONE_COUNT));
+      host.usageTags = new HashSet<>(Collections.singletonList(UsageTag.CLOUD.name()));
+      host.documentSelfLink = id(i);
+      cloudStoreEnvironment.sendPostAndWait(HostServiceFactory.SELF_LINK, host);
+    }
+
+    checker = new CloudStoreConstraintChecker(
+        new CloudStoreHelper(cloudStoreEnvironment.getServerSet()),
+        cloudStoreEnvironment.getHosts()[0]);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Throwable {
+    if (cloudStoreEnvironment != null) {
+      cloudStoreEnvironment.stop();
+      cloudStoreEnvironment = null;
+    }
+  }
+
+  @Benchmark
+  public Map<String, ServerAddress> getCandidates() {
+    return checker.getCandidatesSync(buildConstraints(), CANDIDATE_COUNT);
+  }
+
+  private List<ResourceConstraint> buildConstraints() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    switch (constraint) {
+      case "DATASTORE":
+        return Collections.singletonList(new ResourceConstraint(
+            ResourceConstraintType.DATASTORE, Collections.singletonList(id(random.nextInt(DATASTORE_COUNT)))));
+      case "AVAILABILITY_ZONE":
+        return Collections.singletonList(new ResourceConstraint(
+            ResourceConstraintType.AVAILABILITY_ZONE,
+            Collections.singletonList(id(random.nextInt(AVAILABILITY_ZONE_COUNT)))));
+      default:
+        return Collections.emptyList();
+    }
+  }
+
+  private static String id(int i) {
+    return new UUID(0, i).toString();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.cloudstore.xenon.entity.DhcpSubnetService;
+import com.vmware.photon.controller.cloudstore.xenon.helpers.TestEnvironment;
+import com.vmware.photon.controller.common.IpHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the IP allocation of {@link DhcpSubnetService} on a /16 subnet which already holds a number of
+ * allocations. Each operation allocates an IP and releases it, so that the subnet stays as full as it was set up.
+ * The IPs are allocated either one per patch, or 64 per batch patch. With more than one host, every patch also
+ * replicates the subnet document, allocations included, to the peers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DhcpSubnetServiceBenchmark {
+
+  private static final String CIDR = "10.1.0.0/16";
+  private static final long LOW_IP = IpHelper.ipStringToLong("10.1.0.0");
+  private static final long HIGH_IP = IpHelper.ipStringToLong("10.1.255.255");
+  private static final int SETUP_BATCH_SIZE = 256;
+  private static final int BATCH_SIZE = 64;
+
+  @Param({"0", "30000", "60000"})
+  private int allocatedIpCount;
+
+  @Param({"1", "3"})
+  private int hostCount;
+
+  private TestEnvironment cloudStoreEnvironment;
+  private String subnetLink;
+  private long operationCount;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    cloudStoreEnvironment = TestEnvironment.create(hostCount);
+
+    DhcpSubnetService.State subnet = new DhcpSubnetService.State();
+    subnet.cidr = CIDR;
+    subnet.lowIp = LOW_IP;
+    subnet.highIp = HIGH_IP;
+    subnet.lowIpDynamic = LOW_IP + 1;
+    subnet.highIpDynamic = HIGH_IP - 1;
+    subnet.subnetId = UUID.randomUUID().toString();
+    subnetLink = cloudStoreEnvironment.sendPostAndWait(DhcpSubnetService.FACTORY_LINK, subnet)
+        .getBody(DhcpSubnetService.State.class).documentSelfLink;
+
+    for (int i = 0; i < allocatedIpCount; i += SETUP_BATCH_SIZE) {
+      List<DhcpSubnetService.IpAllocation> allocations = new ArrayList<>(SETUP_BATCH_SIZE);
+      for (int j = i; j < Math.min(i + SETUP_BATCH_SIZE, allocatedIpCount); j++) {
+        allocations.add(new DhcpSubnetService.IpAllocation("vm-" + j, macAddress(j)));
+      }
+      cloudStoreEnvironment.sendPatchAndWait(subnetLink,
+          new DhcpSubnetService.BatchIpOperationPatch(
+              DhcpSubnetService.BatchIpOperationPatch.Kind.AllocateIps, allocations));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Throwable {
+    if (cloudStoreEnvironment != null) {
+      cloudStoreEnvironment.stop();
+      cloudStoreEnvironment = null;
+    }
+  }
+
+  @Benchmark
+  public String allocateAndReleaseIp() throws Throwable {
+    String ownerVmId = "benchmark-vm-" + operationCount;
+    String ipAddress = allocateIp(ownerVmId, allocatedIpCount + (int) (operationCount++ % 1000));
+    cloudStoreEnvironment.sendPatchAndWait(subnetLink,
+        new DhcpSubnetService.IpOperationPatch(
+            DhcpSubnetService.IpOperationPatch.Kind.ReleaseIp, ownerVmId, null, ipAddress));
+    return ipAddress;
+  }
+
+  /**
+   * Allocates a batch of IPs with one patch and releases them again. The score is per IP.
+   */
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<DhcpSubnetService.IpAllocation> allocateAndReleaseIpBatch() throws Throwable {
+    List<DhcpSubnetService.IpAllocation> allocations = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      String ownerVmId = "benchmark-vm-" + operationCount;
+      int macIndex = allocatedIpCount + (int) (operationCount++ % 1000);
+      allocations.add(new DhcpSubnetService.IpAllocation(ownerVmId, macAddress(macIndex)));
+    }
+
+    allocations = cloudStoreEnvironment.sendPatchAndWait(subnetLink,
+        new DhcpSubnetService.BatchIpOperationPatch(
+            DhcpSubnetService.BatchIpOperationPatch.Kind.AllocateIps, allocations))
+        .getBody(DhcpSubnetService.BatchIpOperationPatch.class).allocations;
+    for (DhcpSubnetService.IpAllocation allocation : allocations) {
+      cloudStoreEnvironment.sendPatchAndWait(subnetLink,
+          new DhcpSubnetService.IpOperationPatch(
+              DhcpSubnetService.IpOperationPatch.Kind.ReleaseIp, allocation.ownerVmId, null, allocation.ipAddress));
+    }
+    return allocations;
+  }
+
+  private String allocateIp(String ownerVmId, int macIndex) throws Throwable {
+    return cloudStoreEnvironment.sendPatchAndWait(subnetLink,
+        new DhcpSubnetService.IpOperationPatch(
+            DhcpSubnetService.IpOperationPatch.Kind.AllocateIp, ownerVmId, macAddress(macIndex), null))
+        .getBody(DhcpSubnetService.IpOperationPatch.class).ipAddress;
+  }
+
+  private static String macAddress(int i) {
+    return String.format("08:00:27:%02x:%02x:%02x", (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff);
+  }
+}
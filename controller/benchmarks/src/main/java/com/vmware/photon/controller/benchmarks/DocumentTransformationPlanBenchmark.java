@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.api.model.AgentState;
+import com.vmware.photon.controller.api.model.HostState;
+import com.vmware.photon.controller.api.model.UsageTag;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostServiceFactory;
+import com.vmware.photon.controller.common.xenon.migration.DocumentTransformationPlan;
+import com.vmware.photon.controller.common.xenon.migration.MigrationUtils;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.Utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the transformation of a dump of {@link HostService.State} documents during upgrade and migration, once
+ * the way it used to be done, deserializing each document, applying {@link MigrationUtils#handleRenamedField} and
+ * serializing it again, and once with the cached {@link DocumentTransformationPlan} of the document class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentTransformationPlanBenchmark {
+
+  @Param({"1000"})
+  private int documentCount;
+
+  private List<String> documents;
+
+  @Setup
+  public void setUp() {
+    documents = new ArrayList<>(documentCount);
+    for (int i = 0; i < documentCount; i++) {
+      HostService.State host = new HostService.State();
+      host.documentSelfLink = HostServiceFactory.SELF_LINK + "/" + UUID.randomUUID().toString();
+      host.documentKind = Utils.buildKind(HostService.State.class);
+      host.documentVersion = i % 20;
+      host.documentUpdateTimeMicros = Utils.getNowMicrosUtc();
+      host.state = HostState.READY;
+      host.agentState = AgentState.ACTIVE;
+      host.hostAddress = String.format("10.0.%d.%d", i / 256, i % 256);
+      host.agentPort = 8835;
+      host.userName = "root";
+      host.password = "password";
+      host.availabilityZoneId = "availability-zone-" + (i % 4);
+      host.memoryMb = 131072;
+      host.cpuCount = 32;
+      host.usageTags = ImmutableSet.of(UsageTag.CLOUD.name());
+      host.metadata = ImmutableMap.of(
+          "ALLOWED_DATASTORES", "datastore-1,datastore-2",
+          "ALLOWED_NETWORKS", "VM Network");
+      host.esxVersion = "6.0.0";
+      host.datastoreServiceLinks = ImmutableMap.of(
+          "datastore-1", "/photon/cloudstore/datastores/datastore-1",
+          "datastore-2", "/photon/cloudstore/datastores/datastore-2");
+      host.reportedDatastores = ImmutableSet.of("datastore-1", "datastore-2");
+      host.reportedNetworks = ImmutableSet.of("VM Network");
+      host.reportedImageDatastores = ImmutableSet.of("datastore-1");
+      host.schedulingConstant = (long) i;
+      host.triggerIntervalMillis = 60000L;
+      documents.add(Utils.toJson(false, false, host));
+    }
+  }
+
+  @Benchmark
+  public void reflective(Blackhole blackhole) {
+    for (String document : documents) {
+      ServiceDocument convertedServiceDocument = Utils.fromJson(document, HostService.State.class);
+      MigrationUtils.handleRenamedField(document, convertedServiceDocument);
+      blackhole.consume(Utils.toJson(false, false, convertedServiceDocument));
+    }
+  }
+
+  @Benchmark
+  public void transformationPlan(Blackhole blackhole) {
+    DocumentTransformationPlan transformationPlan = DocumentTransformationPlan.get(HostService.State.class);
+    for (String document : documents) {
+      blackhole.consume(transformationPlan.transformToJson(document));
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.common.xenon.serializer.BitSetTypeAdapter;
+import com.vmware.photon.controller.common.xenon.serializer.KryoSerializerCustomization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures round trips of a {@link BitSet}, the shape of the IP allocations of a DHCP subnet, through the Kryo
+ * instance of {@link KryoSerializerCustomization}, and so through its BitSet serializer, and through the JSON form of
+ * {@link BitSetTypeAdapter}.
+ *
+ * The bits are either set at random, or allocated from the start of the range the way DHCP subnets allocate IPs,
+ * with one in a hundred of the allocated IPs released again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KryoSerializerBenchmark {
+
+  /**
+   * The number of bits, 65536 for the IPs of a /16 subnet.
+   */
+  @Param({"256", "65536"})
+  private int bitCount;
+
+  /**
+   * The percentage of bits set.
+   */
+  @Param({"10", "90"})
+  private int fillPercentage;
+
+  @Param({"random", "allocated"})
+  private String layout;
+
+  private Kryo kryo;
+  private BitSetTypeAdapter typeAdapter;
+  private BitSet bitSet;
+  private Output output;
+  private byte[] serialized;
+  private String json;
+
+  @Setup
+  public void setUp() {
+    kryo = new KryoSerializerCustomization().get();
+    typeAdapter = new BitSetTypeAdapter();
+
+    Random random = new Random(0);
+    bitSet = new BitSet(bitCount);
+    if (layout.equals("random")) {
+      for (int i = 0; i < bitCount; i++) {
+        if (random.nextInt(100) < fillPercentage) {
+          bitSet.set(i);
+        }
+      }
+    } else {
+      int allocatedCount = bitCount * fillPercentage / 100;
+      bitSet.set(0, allocatedCount);
+      for (int i = 0; i < allocatedCount; i++) {
+        if (random.nextInt(100) == 0) {
+          bitSet.clear(i);
+        }
+      }
+    }
+
+    output = new Output(1024, -1);
+    serialized = write();
+    json = writeJson();
+  }
+
+  @Benchmark
+  public byte[] write() {
+    output.clear();
+    kryo.writeObject(output, bitSet);
+    return output.toBytes();
+  }
+
+  @Benchmark
+  public BitSet read() {
+    return kryo.readObject(new Input(serialized), BitSet.class);
+  }
+
+  @Benchmark
+  public BitSet copy() {
+    return kryo.copy(bitSet);
+  }
+
+  @Benchmark
+  public String writeJson() {
+    return typeAdapter.toJson(bitSet);
+  }
+
+  @Benchmark
+  public BitSet readJson() throws IOException {
+    return typeAdapter.fromJson(json);
+  }
+}
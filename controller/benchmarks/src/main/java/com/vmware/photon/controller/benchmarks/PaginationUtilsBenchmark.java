@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.api.frontend.utils.PaginationUtils;
+import com.vmware.photon.controller.api.model.FlavorState;
+import com.vmware.photon.controller.api.model.QuotaUnit;
+import com.vmware.photon.controller.api.model.ResourceList;
+import com.vmware.photon.controller.cloudstore.xenon.entity.FlavorService;
+import com.vmware.xenon.common.ServiceDocumentQueryResult;
+import com.vmware.xenon.common.Utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PaginationUtils#xenonQueryResultToResourceList} on pages of flavor documents, as returned by an
+ * expanded Xenon query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginationUtilsBenchmark {
+
+  @Param({"10", "100", "1000"})
+  private int pageSize;
+
+  private ServiceDocumentQueryResult queryResult;
+
+  @Setup
+  public void setUp() {
+    queryResult = new ServiceDocumentQueryResult();
+    queryResult.documentLinks = new ArrayList<>(pageSize);
+    queryResult.documents = new HashMap<>(pageSize);
+    queryResult.nextPageLink = "/core/query-page/2";
+
+    for (int i = 0; i < pageSize; i++) {
+      FlavorService.State flavor = new FlavorService.State();
+      flavor.name = "flavor-" + i;
+      flavor.kind = "vm";
+      flavor.state = FlavorState.READY;
+      flavor.tags = new HashSet<>(Arrays.asList("tag-1", "tag-2"));
+      flavor.cost = new ArrayList<>();
+      for (String key : new String[]{"vm.cpu", "vm.memory", "vm.cost"}) {
+        FlavorService.State.QuotaLineItem item = new FlavorService.State.QuotaLineItem();
+        item.key = key;
+        item.value = i;
+        item.unit = QuotaUnit.COUNT;
+        flavor.cost.add(item);
+      }
+      flavor.documentSelfLink = "/flavors/" + i;
+
+      // The documents are held as JSON, as in the query results received from a remote host
+      queryResult.documentLinks.add(flavor.documentSelfLink);
+      queryResult.documents.put(flavor.documentSelfLink, Utils.toJson(flavor));
+    }
+  }
+
+  @Benchmark
+  public ResourceList<FlavorService.State> xenonQueryResultToResourceList() {
+    return PaginationUtils.xenonQueryResultToResourceList(FlavorService.State.class, queryResult);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.scheduler.SchedulingConfig;
+import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
+import com.vmware.photon.controller.scheduler.gen.Score;
+import com.vmware.photon.controller.scheduler.service.ScoreCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ScoreCalculator#pickBestResponse} over the responses of a placement fan-out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreCalculatorBenchmark {
+
+  @Param({"4", "32", "256"})
+  private int responseCount;
+
+  private ScoreCalculator scoreCalculator;
+  private Set<PlaceResponse> responses;
+
+  @Setup
+  public void setUp() {
+    SchedulingConfig config = new SchedulingConfig();
+    config.setUtilizationTransferRatio(9);
+    scoreCalculator = new ScoreCalculator(config);
+
+    Random random = new Random(0);
+    responses = new HashSet<>();
+    for (int i = 0; i < responseCount; i++) {
+      PlaceResponse response = new PlaceResponse(PlaceResultCode.OK);
+      response.setScore(new Score(random.nextInt(100), random.nextInt(100)));
+      response.setAgent_id("host" + i);
+      responses.add(response);
+    }
+  }
+
+  @Benchmark
+  public PlaceResponse pickBestResponse() {
+    return scoreCalculator.pickBestResponse(responses);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.transfer.nfc.SparseUtil;
+import com.vmware.transfer.streamVmdk.StreamVmdkReader;
+import com.vmware.transfer.streamVmdk.StreamVmdkWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading a stream-optimized VMDK in memory with {@link StreamVmdkWriter} and
+ * {@link StreamVmdkReader}. The disk holds pseudo-random data which compresses about 2:1, with every fourth grain
+ * full of zeros.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamVmdkBenchmark {
+
+  private static final int ZERO_GRAIN_PERIOD = 4;
+
+  @Param({"256"})
+  private int grainCount;
+
+  private byte[][] grains;
+  private byte[] vmdk;
+  private byte[] grain;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(0);
+    grains = new byte[grainCount][];
+    for (int i = 0; i < grainCount; i++) {
+      grains[i] = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+      if (i % ZERO_GRAIN_PERIOD != 0) {
+        for (int j = 0; j < grains[i].length; j++) {
+          grains[i][j] = (byte) random.nextInt(16);
+        }
+      }
+    }
+
+    vmdk = write();
+    grain = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+  }
+
+  @Benchmark
+  public byte[] write() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StreamVmdkWriter writer = new StreamVmdkWriter(output, (long) grainCount * SparseUtil.DEFAULT_GRAIN_SIZE);
+    writer.writeHeader(1, new LinkedHashMap<>());
+    for (int i = 0; i < grainCount; i++) {
+      writer.writeDataGrain((long) i * SparseUtil.DEFAULT_GRAIN_SIZE, grains[i]);
+    }
+    writer.writeTrailer();
+    writer.close();
+    return output.toByteArray();
+  }
+
+  @Benchmark
+  public long read() throws Exception {
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    long bytes = 0;
+    int grainSize = reader.getNextGrain(grain);
+    while (grainSize >= 0) {
+      bytes += grainSize;
+      grainSize = reader.getNextGrain(grain);
+    }
+    reader.close();
+    return bytes;
+  }
+}
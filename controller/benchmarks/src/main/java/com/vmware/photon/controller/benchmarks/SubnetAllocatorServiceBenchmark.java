@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.benchmarks;
+
+import com.vmware.photon.controller.cloudstore.xenon.entity.SubnetAllocatorService;
+import com.vmware.photon.controller.cloudstore.xenon.helpers.TestEnvironment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the subnet allocation of {@link SubnetAllocatorService} from a /8 root range which already holds a number
+ * of subnets. Each operation allocates a subnet and releases it, so that the free list keeps the shape it was set up
+ * with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubnetAllocatorServiceBenchmark {
+
+  private static final String ROOT_CIDR = "10.0.0.0/8";
+  private static final long SUBNET_SIZE = 16;
+  private static final long STATIC_IP_COUNT = 4;
+
+  @Param({"0", "1000", "10000"})
+  private int allocatedSubnetCount;
+
+  private TestEnvironment cloudStoreEnvironment;
+  private long operationCount;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    cloudStoreEnvironment = TestEnvironment.create(1);
+
+    SubnetAllocatorService.State allocator = new SubnetAllocatorService.State();
+    allocator.rootCidr = ROOT_CIDR;
+    allocator.documentSelfLink = SubnetAllocatorService.SINGLETON_LINK;
+    cloudStoreEnvironment.sendPostAndWait(SubnetAllocatorService.FACTORY_LINK, allocator);
+
+    for (int i = 0; i < allocatedSubnetCount; i++) {
+      allocateSubnet("subnet-" + i);
+    }
+
+    // Release every other subnet, so that the free list is fragmented as it is after networks come and go
+    for (int i = 0; i < allocatedSubnetCount; i += 2) {
+      releaseSubnet("subnet-" + i);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Throwable {
+    if (cloudStoreEnvironment != null) {
+      cloudStoreEnvironment.stop();
+      cloudStoreEnvironment = null;
+    }
+  }
+
+  @Benchmark
+  public void allocateAndReleaseSubnet() throws Throwable {
+    String subnetId = "benchmark-subnet-" + operationCount++;
+    allocateSubnet(subnetId);
+    releaseSubnet(subnetId);
+  }
+
+  private void allocateSubnet(String subnetId) throws Throwable {
+    cloudStoreEnvironment.sendPatchAndWait(SubnetAllocatorService.SINGLETON_LINK,
+        new SubnetAllocatorService.AllocateSubnet(subnetId, SUBNET_SIZE, STATIC_IP_COUNT));
+  }
+
+  private void releaseSubnet(String subnetId) throws Throwable {
+    cloudStoreEnvironment.sendPatchAndWait(SubnetAllocatorService.SINGLETON_LINK,
+        new SubnetAllocatorService.ReleaseSubnet(subnetId));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.dhcpagent.dhcpdrivers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the subnet update rate of {@link DnsmasqDriver} under VM churn, against a fake dnsmasq.
+ *
+ * Each thread churns the leases of its own subnet: every update releases one IP, allocates it to another VM and
+ * reloads the driver, as SubnetIPLeaseService does. The driver writes its files to a temporary directory, and
+ * reloads by running a command which sleeps for {@link #RELOAD_MILLIS}, standing in for dnsmasq being signalled or
+ * restarted. The benchmark runs without a reload window, and with the default one of the DHCP agent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(DnsmasqDriverBenchmark.THREAD_COUNT)
+@Fork(1)
+public class DnsmasqDriverBenchmark {
+
+  static final int THREAD_COUNT = 8;
+
+  private static final int IP_COUNT = 250;
+  private static final long RELOAD_MILLIS = 50;
+
+  @Param({"0", "200"})
+  private long reloadWindowMillis;
+
+  private Path directory;
+  private DnsmasqDriver driver;
+  private final AtomicInteger subnetCount = new AtomicInteger();
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("dnsmasq-benchmark");
+    String reloadCommand = String.format("sleep %.3f", RELOAD_MILLIS / 1000.0);
+    driver = new DnsmasqDriver(
+        directory.resolve("dnsmasq.leases").toString(),
+        directory.resolve("hosts").toString(),
+        directory.resolve("options").toString(),
+        Files.createFile(directory.resolve("dnsmasq.conf")).toString(),
+        reloadCommand,
+        reloadCommand,
+        reloadWindowMillis);
+
+    List<String> leases = new ArrayList<>();
+    for (int subnet = 0; subnet < THREAD_COUNT; subnet++) {
+      for (int i = 0; i < IP_COUNT; i++) {
+        leases.add("1463701168 " + macAddress(subnet, i) + " " + ipAddress(subnet, i) + " * *");
+      }
+    }
+    Files.write(directory.resolve("dnsmasq.leases"), leases, StandardCharsets.UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() {
+    deleteRecursively(directory.toFile());
+  }
+
+  @Benchmark
+  public void updateSubnet(Subnet subnet) throws Exception {
+    // Release one IP and give it to a new VM
+    long update = ++subnet.version;
+    int ip = (int) (update % IP_COUNT);
+    subnet.ipToMac.put(ipAddress(subnet.index, ip), macAddress(subnet.index, (int) (IP_COUNT * update + ip)));
+    if (driver.updateSubnet(subnet.id, subnet.ipToMac, update).exitCode != 0 || !driver.reload()) {
+      throw new IllegalStateException("Failed to update " + subnet.id);
+    }
+  }
+
+  /**
+   * The subnet churned by one thread.
+   */
+  @State(Scope.Thread)
+  public static class Subnet {
+    private int index;
+    private String id;
+    private Map<String, String> ipToMac;
+    private long version;
+
+    @Setup
+    public void setUp(DnsmasqDriverBenchmark benchmark) {
+      index = benchmark.subnetCount.getAndIncrement();
+      id = "subnet" + index;
+      ipToMac = new HashMap<>();
+      for (int i = 0; i < IP_COUNT; i++) {
+        ipToMac.put(ipAddress(index, i), macAddress(index, i));
+      }
+    }
+  }
+
+  private static String ipAddress(int subnet, int i) {
+    return String.format("10.%d.%d.%d", subnet, i / 250, i % 250 + 1);
+  }
+
+  private static String macAddress(int subnet, int i) {
+    return String.format("08:00:%02x:%02x:%02x:%02x", subnet & 0xff, (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff);
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.nsxclient;
+
+import com.vmware.photon.controller.nsxclient.apis.LogicalSwitchApi;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures checking whether N logical switch ports still exist, once with a request per port as the tasks used to
+ * poll, and once with the single paged listing {@link NsxStatusPoller} sends for all the waiting tasks. NSX is
+ * stood in for by an HTTP stub on the loopback interface which lists the N ports in pages of {@link #PAGE_SIZE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NsxStatusPollerBenchmark {
+
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"16", "128"})
+  private int portCount;
+
+  private ExecutorService executor;
+  private HttpServer server;
+  private NsxClient nsxClient;
+  private LogicalSwitchApi logicalSwitchApi;
+  private Set<String> portIds;
+
+  @Setup
+  public void setUp() throws IOException {
+    portIds = new HashSet<>();
+    for (int i = 0; i < portCount; i++) {
+      portIds.add("port-" + i);
+    }
+
+    executor = Executors.newFixedThreadPool(4);
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+
+    // The stub serves plain HTTP, which the public constructor does not accept
+    nsxClient = new NsxClient(
+        new RestClient("http://127.0.0.1:" + server.getAddress().getPort(), "username", "password"));
+    logicalSwitchApi = nsxClient.getLogicalSwitchApi();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    nsxClient.close();
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int checkEachPort() throws Throwable {
+    CountDownLatch latch = new CountDownLatch(portIds.size());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (String portId : portIds) {
+      logicalSwitchApi.checkLogicalSwitchPortExistence(portId, new FutureCallback<Boolean>() {
+        @Override
+        public void onSuccess(Boolean result) {
+          latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          failure.set(t);
+          latch.countDown();
+        }
+      });
+    }
+
+    latch.await();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return portIds.size();
+  }
+
+  @Benchmark
+  public int checkAllPorts() throws Throwable {
+    CountDownLatch latch = new CountDownLatch(1);
+    AtomicReference<Set<String>> existingIds = new AtomicReference<>();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    logicalSwitchApi.checkLogicalSwitchPortsExistence(portIds, new FutureCallback<Set<String>>() {
+      @Override
+      public void onSuccess(Set<String> result) {
+        existingIds.set(result);
+        latch.countDown();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        failure.set(t);
+        latch.countDown();
+      }
+    });
+
+    latch.await();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return existingIds.get().size();
+  }
+
+  /**
+   * Serves a port by id, or a page of the port listing starting at the given cursor.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String query = exchange.getRequestURI().getQuery();
+
+    StringBuilder body = new StringBuilder();
+    if (path.length() > LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH.length()) {
+      String portId = path.substring(path.lastIndexOf('/') + 1);
+      body.append("{\"id\":\"").append(portId).append("\"}");
+    } else {
+      int start = query == null ? 0 : Integer.parseInt(query.substring(query.indexOf('=') + 1));
+      int end = Math.min(start + PAGE_SIZE, portCount);
+      body.append("{\"result_count\":").append(portCount);
+      if (end < portCount) {
+        body.append(",\"cursor\":\"").append(end).append('"');
+      }
+      body.append(",\"results\":[");
+      for (int i = start; i < end; i++) {
+        body.append(i == start ? "" : ",").append("{\"id\":\"port-").append(i).append("\"}");
+      }
+      body.append("]}");
+    }
+
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+}
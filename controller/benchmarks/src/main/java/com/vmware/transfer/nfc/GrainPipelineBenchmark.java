@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.nfc;
+
+import com.vmware.transfer.streamVmdk.StreamVmdkReader;
+import com.vmware.transfer.streamVmdk.StreamVmdkWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the stream-optimized disk upload path without NFC: the grains of an in-memory VMDK are moved to a sink
+ * which scans sectors like the NFC disk writer does, either with the serial read/inflate/write loop or with
+ * {@link GrainPipeline}. The disk holds pseudo-random data which compresses about 2:1, with every fourth grain full
+ * of zeros.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrainPipelineBenchmark {
+
+  private static final int ZERO_GRAIN_PERIOD = 4;
+  private static final int READ_AHEAD_GRAINS = 32;
+
+  @Param({"1024"})
+  private int grainCount;
+
+  /**
+   * The number of inflater threads of the pipeline, or 0 for the serial loop.
+   */
+  @Param({"0", "1", "2", "4"})
+  private int inflaterCount;
+
+  private byte[] vmdk;
+  private byte[] grain;
+  private long sink;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(0);
+    byte[] data = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+    byte[] zeros = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StreamVmdkWriter writer = new StreamVmdkWriter(output, (long) grainCount * SparseUtil.DEFAULT_GRAIN_SIZE);
+    writer.writeHeader(1, new LinkedHashMap<>());
+    for (int i = 0; i < grainCount; i++) {
+      if (i % ZERO_GRAIN_PERIOD == 0) {
+        writer.writeDataGrain((long) i * SparseUtil.DEFAULT_GRAIN_SIZE, zeros);
+      } else {
+        for (int j = 0; j < data.length; j++) {
+          data[j] = (byte) random.nextInt(16);
+        }
+        writer.writeDataGrain((long) i * SparseUtil.DEFAULT_GRAIN_SIZE, data);
+      }
+    }
+    writer.writeTrailer();
+    writer.close();
+
+    vmdk = output.toByteArray();
+    grain = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+  }
+
+  @Benchmark
+  public long transfer() throws Exception {
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    if (inflaterCount == 0) {
+      int grainSize = reader.getNextGrain(grain);
+      while (grainSize >= 0) {
+        long lba = reader.getCurrentLba();
+        for (int offset = 0; offset < grainSize; offset += SparseUtil.DISKLIB_SECTOR_SIZE) {
+          writeSector(lba++, grain, offset);
+        }
+        grainSize = reader.getNextGrain(grain);
+      }
+    } else {
+      try (GrainPipeline pipeline = new GrainPipeline(reader, inflaterCount, READ_AHEAD_GRAINS)) {
+        pipeline.transfer(this::writeSector);
+      }
+    }
+    reader.close();
+    return sink;
+  }
+
+  private void writeSector(long lba, byte[] data, int offset) {
+    if (!SparseUtil.isZero(data, offset, SparseUtil.DISKLIB_SECTOR_SIZE)) {
+      sink += lba + data[offset];
+    }
+  }
+}
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.cloudstore.xenon;
 
+import com.vmware.photon.controller.cloudstore.xenon.entity.AgentLivenessEngine;
 import com.vmware.photon.controller.cloudstore.xenon.entity.AttachedDiskServiceFactory;
 import com.vmware.photon.controller.cloudstore.xenon.entity.AvailabilityZoneServiceFactory;
 import com.vmware.photon.controller.cloudstore.xenon.entity.ClusterConfigurationServiceFactory;
@@ -167,6 +168,8 @@ public class CloudStoreServiceGroup
 
   private PhotonControllerXenonHost photonControllerXenonHost;
 
+  private AgentLivenessEngine agentLivenessEngine;
+
   private boolean isInstaller;
 
   public CloudStoreServiceGroup(boolean isInstaller) {
@@ -193,6 +196,8 @@ public class CloudStoreServiceGroup
     photonControllerXenonHost.registerForServiceAvailability(
         SchedulingConstantGenerator.startSingletonService(photonControllerXenonHost),
         SchedulingConstantGenerator.FACTORY_LINK);
+
+    startAgentLivenessEngine();
   }
 
   @Override
@@ -291,6 +296,13 @@ public class CloudStoreServiceGroup
     photonControllerXenonHost.sendRequest(post);
   }
 
+  private void startAgentLivenessEngine() {
+    agentLivenessEngine = new AgentLivenessEngine(photonControllerXenonHost);
+    photonControllerXenonHost.registerForServiceAvailability(
+        (Operation operation, Throwable throwable) -> agentLivenessEngine.start(),
+        HostServiceFactory.SELF_LINK);
+  }
+
   private void startTaskTriggerServices() {
     photonControllerXenonHost.registerForServiceAvailability((Operation operation, Throwable throwable) -> {
       for (TaskStateBuilder builder : TASK_TRIGGERS) {
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.cloudstore.xenon.entity;
+
+import com.vmware.photon.controller.agent.gen.AgentControl;
+import com.vmware.photon.controller.api.model.AgentState;
+import com.vmware.photon.controller.cloudstore.SystemConfig;
+import com.vmware.photon.controller.common.clients.AgentControlClient;
+import com.vmware.photon.controller.common.clients.AgentControlClientProvider;
+import com.vmware.photon.controller.common.xenon.ServiceUriPaths;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Probes the agents of the hosts owned by this node and records the agentState transitions in their
+ * {@link HostService} documents.
+ *
+ * There is a single engine per node. It replaces the ping that every HostService document used to run from its
+ * periodic maintenance, which cost a timer, a GET of the document and a new agent connection per host and interval.
+ * The engine:
+ *
+ * 1. Reloads, every {@link #DEFAULT_SYNC_INTERVAL_MILLIS}, the hosts whose HostService document is owned by this
+ *    node with a query on the local index. Owner selection spreads the documents across the node group, so every
+ *    host is probed by exactly one node.
+ *
+ * 2. Pings the agents of the due hosts over the pooled agent connections, with at most
+ *    {@link #DEFAULT_MAX_CONCURRENT_PROBES} pings in flight. A completed ping starts the next due one right away.
+ *
+ * 3. Adapts the probe interval of every host. A ping which confirms the known agent state doubles the interval, up
+ *    to {@link #DEFAULT_MAX_PROBE_INTERVAL_MILLIS}, and a ping which changes it resets the interval to
+ *    {@link #DEFAULT_MIN_PROBE_INTERVAL_MILLIS}. Stable hosts are probed rarely, and a host which just went missing
+ *    or came back is watched closely.
+ *
+ * 4. Patches a HostService document only when the agent state of its host changes.
+ */
+public class AgentLivenessEngine {
+
+  /**
+   * The probe interval of a new host, and of a host whose agent state just changed.
+   */
+  public static final long DEFAULT_MIN_PROBE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * The probe interval of a host whose agent state is stable. This bounds the time it takes to detect that an
+   * agent went missing, and matches the interval at which every host used to be pinged.
+   */
+  public static final long DEFAULT_MAX_PROBE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+  public static final int DEFAULT_MAX_CONCURRENT_PROBES = 32;
+
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * How often the engine looks for due hosts when no ping completes.
+   */
+  private static final long TICK_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  private static final Logger logger = LoggerFactory.getLogger(AgentLivenessEngine.class);
+
+  /**
+   * Checks whether the agent of a host is alive, and reports the result to the callback.
+   */
+  interface Prober {
+    void probe(String hostAddress, int agentPort, Consumer<Boolean> callback);
+  }
+
+  /**
+   * Records a new agent state in a HostService document.
+   */
+  interface StateWriter {
+    void write(String hostLink, AgentState agentState);
+  }
+
+  /**
+   * The probe schedule of a host.
+   */
+  private static class ProbeState {
+    private final String hostLink;
+    private String hostAddress;
+    private int agentPort;
+    private AgentState agentState;
+    private long intervalMillis;
+    private long nextProbeMillis;
+    private boolean inFlight;
+
+    private ProbeState(String hostLink) {
+      this.hostLink = hostLink;
+    }
+  }
+
+  private final ServiceHost xenonHost;
+  private final Prober prober;
+  private final StateWriter stateWriter;
+  private final LongSupplier clock;
+  private final Random random;
+  private final int maxConcurrentProbes;
+  private final long minProbeIntervalMillis;
+  private final long maxProbeIntervalMillis;
+  private final long syncIntervalMillis;
+
+  private final Map<String, ProbeState> hosts = new HashMap<>();
+  private int inFlightCount;
+
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final AtomicBoolean syncing = new AtomicBoolean();
+  private final AtomicInteger requestedDispatches = new AtomicInteger();
+  private volatile boolean paused;
+  private volatile long nextSyncMillis;
+
+  public AgentLivenessEngine(ServiceHost xenonHost) {
+    this.xenonHost = xenonHost;
+    this.prober = this::ping;
+    this.stateWriter = this::patchAgentState;
+    this.clock = System::currentTimeMillis;
+    this.random = new Random();
+    this.maxConcurrentProbes = DEFAULT_MAX_CONCURRENT_PROBES;
+    this.minProbeIntervalMillis = DEFAULT_MIN_PROBE_INTERVAL_MILLIS;
+    this.maxProbeIntervalMillis = DEFAULT_MAX_PROBE_INTERVAL_MILLIS;
+    this.syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+  }
+
+  @VisibleForTesting
+  AgentLivenessEngine(Prober prober, StateWriter stateWriter, LongSupplier clock, Random random,
+                      int maxConcurrentProbes, long minProbeIntervalMillis, long maxProbeIntervalMillis) {
+    this.xenonHost = null;
+    this.prober = prober;
+    this.stateWriter = stateWriter;
+    this.clock = clock;
+    this.random = random;
+    this.maxConcurrentProbes = maxConcurrentProbes;
+    this.minProbeIntervalMillis = minProbeIntervalMillis;
+    this.maxProbeIntervalMillis = maxProbeIntervalMillis;
+    this.syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+  }
+
+  /**
+   * Starts probing the hosts owned by this node. This must be called once the HostService factory is available.
+   */
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+
+    logger.info("Starting the agent liveness engine");
+    tick();
+  }
+
+  /**
+   * Returns the number of hosts probed by this node.
+   */
+  public synchronized int getHostCount() {
+    return hosts.size();
+  }
+
+  @VisibleForTesting
+  synchronized int getInFlightCount() {
+    return inFlightCount;
+  }
+
+  @VisibleForTesting
+  synchronized long getProbeIntervalMillis(String hostLink) {
+    ProbeState state = hosts.get(hostLink);
+    return state == null ? -1 : state.intervalMillis;
+  }
+
+  /**
+   * Replaces the set of hosts probed by this node. New hosts are first probed at a random time within the minimum
+   * probe interval, so that the probes of a node which just became the owner of many hosts are spread out.
+   */
+  @VisibleForTesting
+  void sync(Collection<HostService.State> ownedHosts) {
+    long now = clock.getAsLong();
+    synchronized (this) {
+      Set<String> ownedLinks = new HashSet<>();
+      for (HostService.State host : ownedHosts) {
+        if (host.hostAddress == null || host.agentPort == null) {
+          continue;
+        }
+
+        ownedLinks.add(host.documentSelfLink);
+        ProbeState state = hosts.get(host.documentSelfLink);
+        if (state == null) {
+          state = new ProbeState(host.documentSelfLink);
+          state.intervalMillis = minProbeIntervalMillis;
+          state.nextProbeMillis = now + (long) (random.nextDouble() * minProbeIntervalMillis);
+          hosts.put(host.documentSelfLink, state);
+        }
+
+        state.hostAddress = host.hostAddress;
+        state.agentPort = host.agentPort;
+        if (!state.inFlight) {
+          // The document is the reference, for instance when a host config refresh changed the agent state
+          state.agentState = host.agentState;
+        }
+      }
+
+      hosts.keySet().retainAll(ownedLinks);
+    }
+  }
+
+  /**
+   * Pings the due hosts, up to the maximum number of pings in flight. Requests made while a dispatch is running are
+   * coalesced into it, so that pings which complete synchronously do not recurse.
+   */
+  @VisibleForTesting
+  void dispatch() {
+    if (requestedDispatches.getAndIncrement() > 0) {
+      return;
+    }
+
+    int requests;
+    do {
+      requests = requestedDispatches.get();
+      for (ProbeState state : takeDueHosts()) {
+        try {
+          prober.probe(state.hostAddress, state.agentPort, (alive) -> handleProbeResult(state, alive));
+        } catch (Throwable t) {
+          logger.warn("Failed to probe {}", state.hostAddress, t);
+          handleProbeResult(state, false);
+        }
+      }
+    } while (requestedDispatches.addAndGet(-requests) > 0);
+  }
+
+  private synchronized List<ProbeState> takeDueHosts() {
+    List<ProbeState> dueHosts = new ArrayList<>();
+    int available = maxConcurrentProbes - inFlightCount;
+    if (available <= 0) {
+      return dueHosts;
+    }
+
+    long now = clock.getAsLong();
+    for (ProbeState state : hosts.values()) {
+      if (!state.inFlight && state.nextProbeMillis <= now) {
+        dueHosts.add(state);
+      }
+    }
+
+    if (dueHosts.size() > available) {
+      dueHosts.sort(Comparator.comparingLong((ProbeState state) -> state.nextProbeMillis));
+      dueHosts = new ArrayList<>(dueHosts.subList(0, available));
+    }
+
+    for (ProbeState state : dueHosts) {
+      state.inFlight = true;
+    }
+    inFlightCount += dueHosts.size();
+    return dueHosts;
+  }
+
+  private void handleProbeResult(ProbeState state, boolean alive) {
+    AgentState agentState = alive ? AgentState.ACTIVE : AgentState.MISSING;
+    boolean changed;
+    AgentState previousAgentState;
+    synchronized (this) {
+      if (!state.inFlight) {
+        // The prober reported the same probe twice
+        return;
+      }
+
+      state.inFlight = false;
+      inFlightCount--;
+
+      previousAgentState = state.agentState;
+      changed = previousAgentState != agentState;
+      state.agentState = agentState;
+      state.intervalMillis = changed ? minProbeIntervalMillis : Math.min(state.intervalMillis * 2,
+          maxProbeIntervalMillis);
+      // Up to a tenth of jitter keeps the hosts probed together from staying in lockstep
+      state.nextProbeMillis = clock.getAsLong() + state.intervalMillis -
+          (long) (random.nextDouble() * state.intervalMillis / 10);
+
+      // A host which is no longer owned by this node is left to its new owner
+      changed = changed && hosts.get(state.hostLink) == state;
+    }
+
+    if (changed) {
+      logger.info("Agent state for host {} changed from {} -> {}", state.hostAddress, previousAgentState, agentState);
+      stateWriter.write(state.hostLink, agentState);
+    }
+
+    if (!paused) {
+      dispatch();
+    }
+  }
+
+  /**
+   * Forgets the agent state recorded for a host, so that the next probe writes it again.
+   */
+  private synchronized void forgetAgentState(String hostLink) {
+    ProbeState state = hosts.get(hostLink);
+    if (state != null) {
+      state.agentState = null;
+    }
+  }
+
+  private void tick() {
+    if (xenonHost.isStopping()) {
+      return;
+    }
+
+    try {
+      if (!HostService.isInUnitTests()) {
+        if (clock.getAsLong() >= nextSyncMillis && syncing.compareAndSet(false, true)) {
+          nextSyncMillis = clock.getAsLong() + syncIntervalMillis;
+          syncOwnedHosts();
+        }
+
+        if (!paused) {
+          dispatch();
+        }
+      }
+    } catch (Throwable t) {
+      logger.warn("Agent liveness engine tick failed", t);
+    }
+
+    xenonHost.schedule(this::tick, TICK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Reloads the hosts whose HostService document is owned by this node.
+   */
+  private void syncOwnedHosts() {
+    SystemConfig systemConfig = SystemConfig.getInstance();
+    paused = systemConfig != null && systemConfig.isBackgroundPaused();
+    if (paused) {
+      syncing.set(false);
+      return;
+    }
+
+    QueryTask queryTask = QueryTask.Builder.createDirectTask()
+        .setQuery(QueryTask.Query.Builder.create()
+            .addKindFieldClause(HostService.State.class)
+            .addFieldClause(ServiceDocument.FIELD_NAME_OWNER, xenonHost.getId())
+            .build())
+        .addOption(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT)
+        .build();
+
+    Operation query = Operation
+        .createPost(UriUtils.buildUri(xenonHost, ServiceUriPaths.CORE_LOCAL_QUERY_TASKS))
+        .setBody(queryTask)
+        .setReferer(xenonHost.getUri())
+        .setCompletion((op, ex) -> {
+          try {
+            if (ex != null) {
+              logger.warn("Failed to query the hosts owned by this node, keeping the current ones: {}", ex);
+              return;
+            }
+
+            QueryTask result = op.getBody(QueryTask.class);
+            List<HostService.State> ownedHosts = new ArrayList<>();
+            if (result.results != null && result.results.documents != null) {
+              for (Object document : result.results.documents.values()) {
+                ownedHosts.add(Utils.fromJson(document, HostService.State.class));
+              }
+            }
+
+            sync(ownedHosts);
+            logger.debug("Agent liveness engine owns {} host(s)", getHostCount());
+          } catch (Throwable t) {
+            logger.warn("Failed to sync the hosts owned by this node, keeping the current ones", t);
+          } finally {
+            syncing.set(false);
+          }
+        });
+
+    xenonHost.sendRequest(query);
+  }
+
+  private void ping(String hostAddress, int agentPort, Consumer<Boolean> callback) {
+    try {
+      AgentControlClient agentControlClient = ((AgentControlClientProvider) xenonHost).getAgentControlClient();
+      agentControlClient.setIpAndPort(hostAddress, agentPort);
+      agentControlClient.ping(new AsyncMethodCallback<AgentControl.AsyncSSLClient.ping_call>() {
+        @Override
+        public void onComplete(AgentControl.AsyncSSLClient.ping_call pingCall) {
+          callback.accept(true);
+        }
+
+        @Override
+        public void onError(Exception e) {
+          logger.info("Failed to ping {}: {}", hostAddress, e.getMessage());
+          callback.accept(false);
+        }
+      });
+    } catch (Exception e) {
+      logger.warn("Unexpected exception while pinging {}: {}", hostAddress, e.getMessage());
+      callback.accept(false);
+    }
+  }
+
+  private void patchAgentState(String hostLink, AgentState agentState) {
+    HostService.State patchState = new HostService.State();
+    patchState.agentState = agentState;
+
+    Operation patch = Operation
+        .createPatch(UriUtils.buildUri(xenonHost, hostLink))
+        .setBody(patchState)
+        .setReferer(xenonHost.getUri())
+        .setCompletion((op, ex) -> {
+          if (ex != null) {
+            logger.warn("Failed to set the agent state of {} to {}, will retry on the next probe: {}",
+                hostLink, agentState, ex);
+            forgetAgentState(hostLink);
+          }
+        });
+
+    xenonHost.sendRequest(patch);
+  }
+}
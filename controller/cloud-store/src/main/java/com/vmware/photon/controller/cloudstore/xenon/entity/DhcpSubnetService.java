@@ -22,16 +22,17 @@ import com.vmware.photon.controller.common.xenon.ServiceUtils;
 import com.vmware.photon.controller.common.xenon.ValidationUtils;
 import com.vmware.photon.controller.common.xenon.deployment.MigrateDuringDeployment;
 import com.vmware.photon.controller.common.xenon.deployment.NoMigrationDuringDeployment;
-import com.vmware.photon.controller.common.xenon.exceptions.DocumentNotFoundException;
 import com.vmware.photon.controller.common.xenon.migration.MigrateDuringUpgrade;
 import com.vmware.photon.controller.common.xenon.migration.MigrationUtils;
 import com.vmware.photon.controller.common.xenon.migration.NoMigrationDuringUpgrade;
+import com.vmware.photon.controller.common.xenon.serializer.BitSetTypeAdapter;
 import com.vmware.photon.controller.common.xenon.validation.DefaultBoolean;
 import com.vmware.photon.controller.common.xenon.validation.DefaultLong;
 import com.vmware.photon.controller.common.xenon.validation.NotNull;
 import com.vmware.photon.controller.common.xenon.validation.Range;
 import com.vmware.xenon.common.FactoryService;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.OperationJoin;
 import com.vmware.xenon.common.OperationProcessingChain;
 import com.vmware.xenon.common.RequestRouter;
 import com.vmware.xenon.common.ServiceDocument;
@@ -40,10 +41,16 @@ import com.vmware.xenon.common.StatefulService;
 import com.vmware.xenon.common.Utils;
 
 import com.google.common.base.Preconditions;
+import com.google.gson.annotations.JsonAdapter;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Used for allocating IPs from a subnet and also to track ownership of a CIDR range by a network.
@@ -62,6 +69,11 @@ public class DhcpSubnetService extends StatefulService {
   public static final long MAX_IPV4 = 0xFFFFFFFFL; // this represents 255.255.255.255
   public static final String VIRTUAL_NETWORK_SNAT_IP = "virtual-network-snat-ip";
 
+  /**
+   * Maximum number of IP lease operations in flight for a single allocation patch.
+   */
+  public static final int LEASE_OPERATION_BATCH_SIZE = 64;
+
   public DhcpSubnetService() {
     super(State.class);
     super.toggleOption(ServiceOption.PERSISTENCE, true);
@@ -99,6 +111,12 @@ public class DhcpSubnetService extends StatefulService {
             IpOperationPatch.class, "kind", IpOperationPatch.Kind.AllocateIp),
         this::handleAllocateIpToMacPatch, "Allocate IP to MAC address");
 
+    myRouter.register(
+        Action.PATCH,
+        new RequestRouter.RequestBodyMatcher<>(
+            BatchIpOperationPatch.class, "kind", BatchIpOperationPatch.Kind.AllocateIps),
+        this::handleAllocateIpsToMacsPatch, "Allocate IPs to MAC addresses");
+
     myRouter.register(
         Action.PATCH,
         new RequestRouter.RequestBodyMatcher<>(
@@ -127,57 +145,57 @@ public class DhcpSubnetService extends StatefulService {
     ServiceUtils.logInfo(this, "Patching service %s to allocate IP to MAC", getSelfLink());
 
     try {
-      String allocatedIp = null;
       IpOperationPatch ipOperationPatch = patch.getBody(IpOperationPatch.class);
       State currentState = getState(patch);
 
-      ipOperationPatch.ipAddress = null;
-      Long dynamicRangeSize = currentState.highIpDynamic - currentState.lowIpDynamic + 1;
-
-      if (currentState.ipAllocations.length() < dynamicRangeSize) {
-        int cur = currentState.ipAllocations.nextClearBit(0);
-        currentState.ipAllocations.set(cur);
-
-        allocatedIp = IpHelper.longToIpString(cur + currentState.lowIpDynamic);
-
-        IpLeaseService.IpLeaseOperationPatch ipLeaseOperationPatch =
-            new IpLeaseService.IpLeaseOperationPatch(
-                IpLeaseService.IpLeaseOperationPatch.Kind.ACQUIRE,
-                ipOperationPatch.ownerVmId,
-                ipOperationPatch.macAddress);
-
-        Operation patchOperation = Operation
-            .createPatch(this, makeIpLeaseUrl(currentState.isFloatingIpSubnet, currentState.subnetId, allocatedIp))
-            .setBody(ipLeaseOperationPatch);
-
-        try {
-          ServiceUtils.doServiceOperation(this, patchOperation);
-        } catch (DocumentNotFoundException de) {
-          IpLeaseService.State ipLease = new IpLeaseService.State();
-          ipLease.ownerVmId = ipLeaseOperationPatch.ownerVmId;
-          ipLease.macAddress = ipLeaseOperationPatch.macAddress;
-          ipLease.ip = allocatedIp;
-          ipLease.subnetId = currentState.subnetId;
-          ipLease.documentSelfLink =
-              makeIpLeaseUrl(currentState.isFloatingIpSubnet, currentState.subnetId, allocatedIp);
-
-          Operation postOperation = Operation
-              .createPost(this, IpLeaseService.FACTORY_LINK)
-              .setBody(ipLease);
-          ServiceUtils.doServiceOperation(this, postOperation);
-        }
+      IpAllocation allocation = new IpAllocation(ipOperationPatch.ownerVmId, ipOperationPatch.macAddress);
+      List<IpAllocation> allocations = Collections.singletonList(allocation);
 
-        ipOperationPatch.ipAddress = allocatedIp;
-      } else {
+      BitSet ipAllocations = allocateIps(currentState, allocations);
+      if (ipAllocations == null) {
         ServiceUtils.failOperationAsBadRequest(this, patch, new IllegalArgumentException("range is full"),
             new RangeFullyAllocatedError(currentState, ipOperationPatch.ownerVmId));
         return;
       }
 
-      currentState.version++;
-      setState(patch, currentState);
+      acquireIpLeases(patch, currentState, allocations, ipAllocations, () -> {
+        ipOperationPatch.ipAddress = allocation.ipAddress;
+        patch.setBody(ipOperationPatch);
+      });
+    } catch (Throwable t) {
+      ServiceUtils.logSevere(this, t);
+      patch.fail(t);
+    }
+  }
 
-      patch.complete();
+  /**
+   * Allocates one IP to each of the MAC addresses of the patch, in a single state update. Either all the MAC
+   * addresses get an IP, or the patch fails and none is allocated.
+   */
+  public void handleAllocateIpsToMacsPatch(Operation patch) {
+    ServiceUtils.logInfo(this, "Patching service %s to allocate IPs to MACs", getSelfLink());
+
+    try {
+      BatchIpOperationPatch batchIpOperationPatch = patch.getBody(BatchIpOperationPatch.class);
+      try {
+        batchIpOperationPatch.validate();
+      } catch (IllegalArgumentException e) {
+        ServiceUtils.failOperationAsBadRequest(this, patch, e);
+        return;
+      }
+
+      State currentState = getState(patch);
+      List<IpAllocation> allocations = batchIpOperationPatch.allocations;
+
+      BitSet ipAllocations = allocateIps(currentState, allocations);
+      if (ipAllocations == null) {
+        ServiceUtils.failOperationAsBadRequest(this, patch,
+            new IllegalArgumentException("range does not have " + allocations.size() + " free IPs"),
+            new RangeFullyAllocatedError(currentState, getOwnerVmIds(allocations)));
+        return;
+      }
+
+      acquireIpLeases(patch, currentState, allocations, ipAllocations, () -> patch.setBody(batchIpOperationPatch));
     } catch (Throwable t) {
       ServiceUtils.logSevere(this, t);
       patch.fail(t);
@@ -202,20 +220,35 @@ public class DhcpSubnetService extends StatefulService {
               ipOperationPatch.macAddress);
 
       Operation patchOperation = Operation.createPatch(this, ipLeaseLink)
-          .setBody(ipLeaseOperationPatch);
-
-      try {
-        ServiceUtils.doServiceOperation(this, patchOperation);
-      } catch (DocumentNotFoundException de) {
-        ServiceUtils.logWarning(this, "Ignoring error: No lease file found for IP: %s for subnetId: %s",
-            ipOperationPatch.ipAddress, currentState.subnetId);
-      }
-
-      currentState.ipAllocations.clear((int) (ipToRelease - currentState.lowIpDynamic));
-
-      currentState.version++;
-      setState(patch, currentState);
-      patch.complete();
+          .setBody(ipLeaseOperationPatch)
+          .setCompletion((op, ex) -> {
+            if (ex != null) {
+              if (op.getStatusCode() != Operation.STATUS_CODE_NOT_FOUND) {
+                ServiceUtils.logSevere(this, ex);
+                patch.fail(ex);
+                return;
+              }
+              ServiceUtils.logWarning(this, "Ignoring error: No lease file found for IP: %s for subnetId: %s",
+                  ipOperationPatch.ipAddress, currentState.subnetId);
+            }
+
+            try {
+              int releasedIndex = (int) (ipToRelease - currentState.lowIpDynamic);
+              currentState.ipAllocations.clear(releasedIndex);
+              if (currentState.nextFreeIpHint == null || releasedIndex < currentState.nextFreeIpHint) {
+                currentState.nextFreeIpHint = releasedIndex;
+              }
+
+              currentState.version++;
+              setState(patch, currentState);
+              patch.complete();
+            } catch (Throwable t) {
+              ServiceUtils.logSevere(this, t);
+              patch.fail(t);
+            }
+          });
+
+      sendRequest(patchOperation);
     } catch (Throwable t) {
       ServiceUtils.logSevere(this, t);
       patch.fail(t);
@@ -260,6 +293,7 @@ public class DhcpSubnetService extends StatefulService {
 
       Long dynamicRangeSize = startState.highIpDynamic - startState.lowIpDynamic + 1;
       startState.ipAllocations = new BitSet(IpHelper.safeLongToInt(dynamicRangeSize));
+      startState.nextFreeIpHint = 0;
 
       setState(putOperation, startState);
       putOperation.complete();
@@ -311,6 +345,166 @@ public class DhcpSubnetService extends StatefulService {
     }
   }
 
+  /**
+   * Marks the lowest free IPs of the dynamic range as allocated, one per allocation, and records them in the
+   * allocations. The IPs are marked on a copy of the allocation bitmap, which replaces the one of the state once
+   * the leases are acquired, so the state is left as it is if the patch fails.
+   *
+   * The scan starts from nextFreeIpHint rather than from the start of the range: every IP below the hint is
+   * allocated, so the IPs picked are the same as with a scan from the start.
+   *
+   * @return the copy of the allocation bitmap with the IPs marked, or null if there are not enough free IPs
+   */
+  private static BitSet allocateIps(State currentState, List<IpAllocation> allocations) {
+    int dynamicRangeSize = IpHelper.safeLongToInt(currentState.highIpDynamic - currentState.lowIpDynamic + 1);
+    BitSet ipAllocations = (BitSet) currentState.ipAllocations.clone();
+    int next = currentState.nextFreeIpHint == null ? 0 : Math.min(currentState.nextFreeIpHint, dynamicRangeSize);
+    for (IpAllocation allocation : allocations) {
+      next = ipAllocations.nextClearBit(next);
+      if (next >= dynamicRangeSize) {
+        return null;
+      }
+
+      ipAllocations.set(next);
+      allocation.ipAddress = IpHelper.longToIpString(next + currentState.lowIpDynamic);
+      next++;
+    }
+
+    return ipAllocations;
+  }
+
+  /**
+   * Returns the ids of the VMs of the allocations, separated by commas.
+   */
+  private static String getOwnerVmIds(List<IpAllocation> allocations) {
+    return allocations.stream().map(allocation -> allocation.ownerVmId).distinct().collect(Collectors.joining(","));
+  }
+
+  /**
+   * Acquires the leases of the allocated IPs, creating the leases that do not exist yet, then commits the new
+   * state. The lease operations are sent with OperationJoin so the service does not block a thread while
+   * waiting for them. If any of them fails, the leases that were acquired are released and the patch fails without
+   * changing the state.
+   */
+  private void acquireIpLeases(Operation patch, State currentState, List<IpAllocation> allocations,
+                               BitSet ipAllocations, Runnable setResponse) {
+    Map<Long, IpAllocation> leasePatches = new HashMap<>();
+    List<Operation> operations = new ArrayList<>(allocations.size());
+    for (IpAllocation allocation : allocations) {
+      Operation leasePatch = Operation
+          .createPatch(this, makeIpLeaseUrl(currentState.isFloatingIpSubnet, currentState.subnetId,
+              allocation.ipAddress))
+          .setBody(new IpLeaseService.IpLeaseOperationPatch(
+              IpLeaseService.IpLeaseOperationPatch.Kind.ACQUIRE,
+              allocation.ownerVmId,
+              allocation.macAddress));
+      leasePatches.put(leasePatch.getId(), allocation);
+      operations.add(leasePatch);
+    }
+
+    OperationJoin
+        .create(operations)
+        .setCompletion((ops, failures) -> {
+          List<IpAllocation> acquired = new ArrayList<>(allocations.size());
+          Map<Long, IpAllocation> leasePosts = new HashMap<>();
+          List<Operation> postOperations = new ArrayList<>();
+          Throwable failure = null;
+          for (Map.Entry<Long, IpAllocation> entry : leasePatches.entrySet()) {
+            Throwable t = failures == null ? null : failures.get(entry.getKey());
+            if (t == null) {
+              acquired.add(entry.getValue());
+            } else if (ops.get(entry.getKey()).getStatusCode() == Operation.STATUS_CODE_NOT_FOUND) {
+              Operation leasePost = createIpLeasePost(currentState, entry.getValue());
+              leasePosts.put(leasePost.getId(), entry.getValue());
+              postOperations.add(leasePost);
+            } else {
+              failure = t;
+            }
+          }
+
+          if (failure != null) {
+            releaseIpLeases(patch, currentState, acquired, failure);
+            return;
+          }
+
+          if (leasePosts.isEmpty()) {
+            commitIpAllocations(patch, currentState, ipAllocations, setResponse);
+            return;
+          }
+
+          OperationJoin
+              .create(postOperations)
+              .setCompletion((postOps, postFailures) -> {
+                Throwable postFailure = null;
+                for (Map.Entry<Long, IpAllocation> entry : leasePosts.entrySet()) {
+                  Throwable t = postFailures == null ? null : postFailures.get(entry.getKey());
+                  if (t == null) {
+                    acquired.add(entry.getValue());
+                  } else {
+                    postFailure = t;
+                  }
+                }
+
+                if (postFailure != null) {
+                  releaseIpLeases(patch, currentState, acquired, postFailure);
+                  return;
+                }
+
+                commitIpAllocations(patch, currentState, ipAllocations, setResponse);
+              })
+              .sendWith(this, LEASE_OPERATION_BATCH_SIZE);
+        })
+        .sendWith(this, LEASE_OPERATION_BATCH_SIZE);
+  }
+
+  private Operation createIpLeasePost(State currentState, IpAllocation allocation) {
+    IpLeaseService.State ipLease = new IpLeaseService.State();
+    ipLease.ownerVmId = allocation.ownerVmId;
+    ipLease.macAddress = allocation.macAddress;
+    ipLease.ip = allocation.ipAddress;
+    ipLease.subnetId = currentState.subnetId;
+    ipLease.documentSelfLink =
+        makeIpLeaseUrl(currentState.isFloatingIpSubnet, currentState.subnetId, allocation.ipAddress);
+
+    return Operation
+        .createPost(this, IpLeaseService.FACTORY_LINK)
+        .setBody(ipLease);
+  }
+
+  private void commitIpAllocations(Operation patch, State currentState, BitSet ipAllocations,
+                                   Runnable setResponse) {
+    try {
+      Integer previousHint = currentState.nextFreeIpHint;
+      currentState.ipAllocations = ipAllocations;
+      currentState.nextFreeIpHint = ipAllocations.nextClearBit(previousHint == null ? 0 : previousHint);
+      currentState.version++;
+      setState(patch, currentState);
+      setResponse.run();
+      patch.complete();
+    } catch (Throwable t) {
+      ServiceUtils.logSevere(this, t);
+      patch.fail(t);
+    }
+  }
+
+  private void releaseIpLeases(Operation patch, State currentState, List<IpAllocation> acquired, Throwable failure) {
+    ServiceUtils.logSevere(this, failure);
+
+    // Best effort: the leases acquired for this patch are freed again, a failure only leaves a lease owned by a
+    // VM which did not get its IP
+    for (IpAllocation allocation : acquired) {
+      sendRequest(Operation
+          .createPatch(this, makeIpLeaseUrl(currentState.isFloatingIpSubnet, currentState.subnetId,
+              allocation.ipAddress))
+          .setBody(new IpLeaseService.IpLeaseOperationPatch(
+              IpLeaseService.IpLeaseOperationPatch.Kind.RELEASE,
+              allocation.ownerVmId,
+              allocation.macAddress)));
+    }
+
+    patch.fail(failure);
+  }
+
   @Override
   public void handleDelete(Operation deleteOperation) {
     ServiceUtils.logInfo(this, "Deleting service %s", getSelfLink());
@@ -390,6 +584,74 @@ public class DhcpSubnetService extends StatefulService {
     }
   }
 
+  /**
+   * Class for allocating one available IP to each of the provided MAC addresses in a single patch.
+   */
+  @NoMigrationDuringUpgrade
+  @NoMigrationDuringDeployment
+  public static class BatchIpOperationPatch extends ServiceDocument {
+    public final Kind kind;
+    public List<IpAllocation> allocations;
+
+    private BatchIpOperationPatch() {
+      kind = null;
+    }
+
+    public BatchIpOperationPatch(Kind kind, List<IpAllocation> allocations) {
+      if (kind == null) {
+        throw new IllegalArgumentException("kind cannot be null");
+      }
+
+      this.kind = kind;
+      this.allocations = allocations;
+      validate();
+    }
+
+    /**
+     * Checks the allocations of the patch. Patches received by the service are deserialized without going through
+     * the constructor, so the service checks them again with this method.
+     */
+    public void validate() {
+      if (allocations == null || allocations.isEmpty()) {
+        throw new IllegalArgumentException("allocations cannot be empty for allocate ips operation");
+      }
+
+      for (IpAllocation allocation : allocations) {
+        if (allocation == null || StringUtils.isBlank(allocation.ownerVmId)) {
+          throw new IllegalArgumentException("ownerVmId cannot be blank for allocate ips operation");
+        }
+
+        if (StringUtils.isBlank(allocation.macAddress)) {
+          throw new IllegalArgumentException("macAddress cannot be blank for allocate ips operation");
+        }
+      }
+    }
+
+    /**
+     * Defines type of batch IP operations that are supported.
+     */
+    public enum Kind {
+      AllocateIps
+    }
+  }
+
+  /**
+   * One MAC address of a {@link BatchIpOperationPatch}, and the IP allocated to it.
+   */
+  public static class IpAllocation {
+    public String ownerVmId;
+    public String macAddress;
+    public String ipAddress;
+
+    private IpAllocation() {
+    }
+
+    public IpAllocation(String ownerVmId, String macAddress) {
+      this.ownerVmId = ownerVmId;
+      this.macAddress = macAddress;
+    }
+  }
+
   /**
    * Class for patching staged and pushed versions.
    */
@@ -546,8 +808,16 @@ public class DhcpSubnetService extends StatefulService {
      * An unset bit indicates the mapping IP address is available for allocation.
      * The lowest IP address in the range is mapped to bit index 0.
      */
+    @JsonAdapter(BitSetTypeAdapter.class)
     public BitSet ipAllocations;
 
+    /**
+     * Index of the bit in ipAllocations from which to look for a free IP. All the IPs below it are allocated.
+     * It saves rescanning the allocated start of the range on each allocation. Documents created before this
+     * field was added do not have it, in which case the scan starts from the start of the range.
+     */
+    public Integer nextFreeIpHint;
+
     /**
      * This flag indicates if the subnet range is being used to manage the floating IP addresses or not.
      */
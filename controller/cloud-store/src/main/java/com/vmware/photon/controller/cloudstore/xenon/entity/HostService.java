@@ -87,16 +87,14 @@ public class HostService extends StatefulService {
    * All the default values specified below are just good starting points. We might
    * need to adjust them after scale testing.
    *
-   * DEFAULT_MAINTENANCE_INTERVAL = DEFAULT_MAX_PING_WAIT_TIME + MAX_TIME_TO_PING + BUFFER = 50 + 5 + 5 = 60s
-   *
-   * At DEFAULT_MAX_PING_WAIT_TIME of 50 seconds, we will send 20 pings every second if we have 1000 hosts and 200
-   * pings every second if we have 10,000 hosts. The actual ping, get and post are all asynchronous. So we should be
-   * able to scale to 1000 hosts without issues and 10,000 hosts depending on the load on cloud store by other services.
+   * The agents are pinged by the {@link AgentLivenessEngine} of the node owning the host document, which updates
+   * agentState. The periodic maintenance of the host service only refreshes the host configuration once every
+   * UPDATE_HOST_METADATA_INTERVAL, at a random time within DEFAULT_MAX_PING_WAIT_TIME to spread the calls.
    */
 
   /**
-   * The default maintenance interval controls how often we poll the agent for its
-   * state (60 seconds).
+   * The default maintenance interval controls how often we check whether the host
+   * configuration should be refreshed (60 seconds).
    */
   public static final long DEFAULT_MAINTENANCE_INTERVAL_MILLIS = 60 * 1000;
 
@@ -108,7 +106,7 @@ public class HostService extends StatefulService {
 
   /**
    * This value represents the upper bound of the wait time in milliseconds for a host
-   * service instance to ping the agent within its polling interval (10 seconds).
+   * service instance to call the agent within its maintenance interval (50 seconds).
    */
   public static final int DEFAULT_MAX_PING_WAIT_TIME_MILLIS = 50 * 1000;
 
@@ -317,9 +315,14 @@ public class HostService extends StatefulService {
     HostService.inUnitTests = inUnitTests;
   }
 
+  static boolean isInUnitTests() {
+    return inUnitTests;
+  }
+
   /**
-   * Handle periodic maintenance calls for all host service instances. We will be using this to ping all the hosts
-   * periodically to check if they are alive.
+   * Handle periodic maintenance calls for all host service instances. We will be using this to refresh the host
+   * configuration once the metadata update interval has elapsed. The agents are pinged by the
+   * {@link AgentLivenessEngine}.
    *
    * @param maintenance
    */
@@ -333,24 +336,22 @@ public class HostService extends StatefulService {
       maintenance.complete();
       return;
     }
+    if (System.currentTimeMillis() - lastHostMetadataUpdateTime < UPDATE_HOST_METADATA_INTERVAL) {
+      maintenance.complete();
+      return;
+    }
     try {
       getHost().schedule(() -> {
         Operation getOperation = Operation.createGet(this, maintenance.getUri().getPath())
             .setCompletion((op, ex) -> {
               if (ex != null) {
-                ServiceUtils.logWarning(this, "Get request failed on Host Service to ping agent " + ex.getMessage());
+                ServiceUtils.logWarning(this, "Get request failed on Host Service to get host config " +
+                    ex.getMessage());
                 maintenance.fail(ex);
                 return;
               }
 
-              State hostState = op.getBody(State.class);
-              // Retrieve host metadata if the interval has elapsed. Otherwise, just ping the
-              // host to perform a health-check.
-              if (System.currentTimeMillis() - lastHostMetadataUpdateTime >= UPDATE_HOST_METADATA_INTERVAL) {
-                getHostConfig(maintenance, hostState);
-              } else {
-                pingHost(maintenance, hostState);
-              }
+              getHostConfig(maintenance, op.getBody(State.class));
             });
         sendRequest(getOperation);
       }, ThreadLocalRandom.current().nextInt(1, DEFAULT_MAX_PING_WAIT_TIME_MILLIS), TimeUnit.MILLISECONDS);
@@ -360,46 +361,10 @@ public class HostService extends StatefulService {
     }
   }
 
-  /**
-   * This method pings the agent on the host identified by the host document and updates the agent state in the host
-   * document if it determines a change in agent state.
-   * The thrift call to ping the agent is implemented as a runnable, which will be scheduled to run in the future.
-   * The time after which it runs is determined by a random integer between 1 and maxPingWaitTimeMillis. This is needed
-   * to achieve a randomized distribution of the polling task so that we reduce the number of concurrent connections.
-   *
-   * @param maintenance
-   * @param hostState
-   */
-  private void pingHost(Operation maintenance, State hostState) {
-    final Service service = this;
-    try {
-      AgentControlClient agentControlClient = ((AgentControlClientProvider) getHost()).getAgentControlClient();
-      agentControlClient.setIpAndPort(hostState.hostAddress, hostState.agentPort);
-      agentControlClient.ping(new AsyncMethodCallback<AgentControl.AsyncSSLClient.ping_call>() {
-        @Override
-        public void onComplete(AgentControl.AsyncSSLClient.ping_call pingCall) {
-          updateHostState(maintenance, hostState, AgentState.ACTIVE);
-        }
-
-        @Override
-        public void onError(Exception e) {
-          ServiceUtils.logInfo(service, "Failed to ping " + hostState.hostAddress + ", will be marked as missing:" +
-              e.getMessage());
-          updateHostState(maintenance, hostState, AgentState.MISSING);
-        }
-      });
-    } catch (Exception ex) {
-      ServiceUtils.logWarning(this, "Unexpected exception while pinging " + hostState.hostAddress + ", will be " +
-          "marked as missing:" + ex.getMessage());
-      updateHostState(maintenance, hostState, AgentState.MISSING);
-    }
-  }
-
   /**
    * This method gets the host config (datastores, networks, etc.) from agent.
    * It also sets the agentState to ACTIVE or MISSING, depending on the result
-   * of the getHostConfig call. Because this updates agentState, handlePeriodicMaintenance
-   * does not call pingHost when host configuration is updated.
+   * of the getHostConfig call.
    * <p>
    * The operation parameter is null when executed by handlePatch. But it
    * is set for handlePeriodicMaintenance.
@@ -25,6 +25,7 @@ import com.vmware.photon.controller.common.xenon.migration.MigrationUtils;
 import com.vmware.photon.controller.common.xenon.validation.DefaultInteger;
 import com.vmware.photon.controller.common.xenon.validation.Immutable;
 import com.vmware.photon.controller.common.xenon.validation.NotNull;
+import com.vmware.photon.controller.common.xenon.validation.WriteOnce;
 import com.vmware.photon.controller.resource.gen.ImageReplication;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.OperationProcessingChain;
@@ -265,6 +266,12 @@ public class ImageService extends StatefulService {
     @DefaultInteger(value = 0)
     public Integer replicatedImageDatastore;
 
+    /**
+     * Hex encoded SHA-256 digest of the uploaded image content, used to find images with identical content.
+     */
+    @WriteOnce
+    public String contentDigest;
+
     /**
      * Data object for additional image configuration settings.
      */
@@ -42,9 +42,7 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
 
 
 /**
@@ -61,6 +59,9 @@ public class SubnetAllocatorService extends StatefulService {
    */
   public static final String SINGLETON_LINK = FACTORY_LINK + "/root-subnet";
 
+  private SubnetRangeAllocator cachedAllocator;
+  private long cachedAllocatorDocumentVersion;
+
   public static FactoryService createFactory() {
     return FactoryService.create(SubnetAllocatorService.class, SubnetAllocatorService.State.class);
   }
@@ -204,64 +205,24 @@ public class SubnetAllocatorService extends StatefulService {
     }
 
     try {
-      Long requestedSize = allocateSubnetPatch.numberOfAllIpAddresses;
-      List<IpV4Range> candidateRanges = currentState.freeList.stream()
-          .filter(ipV4Range -> (ipV4Range.high - ipV4Range.low) >= requestedSize - 1)
-          .sorted((left, right) -> Long.compare(left.low, right.low))
-          .collect(Collectors.toList());
-      int inverseSubnetMask = IpHelper.safeLongToInt(requestedSize - 1);
-      int subnetMask = ~(inverseSubnetMask);
-
       if (allocateSubnetPatch.verbose) {
         currentState.freeList.stream().forEach(
             range -> ServiceUtils.logInfo(this, "Free range before allocation: %d to %d", range.low, range.high));
-        candidateRanges.stream().forEach(
-            range -> ServiceUtils.logInfo(this, "Candidate free range: %d to %d", range.low, range.high));
       }
 
-      IpV4Range createdIpv4Range = null;
-      IpV4Range selectedIpv4Range = null;
-
-      for (IpV4Range ipV4Range : candidateRanges) {
-        long currentLow = ipV4Range.low;
-
-        while ((currentLow & subnetMask) != currentLow) {
-          currentLow++;
-        }
-
-        long currentHigh = currentLow + inverseSubnetMask;
-
-        if (currentHigh <= ipV4Range.high) {
-          createdIpv4Range = new IpV4Range(currentLow, currentHigh);
-          selectedIpv4Range = ipV4Range;
-          break;
-        }
-      }
+      SubnetRangeAllocator allocator = getAllocator(currentState);
+      // The allocator is updated in place, drop it unless the patch completes
+      cachedAllocator = null;
+      IpV4Range createdIpv4Range = allocator.allocate(allocateSubnetPatch.numberOfAllIpAddresses);
 
       if (createdIpv4Range == null) {
+        cacheAllocator(allocator, currentState.documentVersion);
         patch.fail(new IllegalArgumentException("Could not find any IP range big enough to allocate"));
         return;
       }
 
       if (allocateSubnetPatch.verbose) {
-        ServiceUtils.logInfo(this, "Selected range: %d to %d", selectedIpv4Range.low, selectedIpv4Range.high);
-      }
-
-      currentState.freeList.remove(selectedIpv4Range);
-      if (createdIpv4Range.low > selectedIpv4Range.low) {
-        IpV4Range lowRange = new IpV4Range(selectedIpv4Range.low, createdIpv4Range.low - 1);
-        if (allocateSubnetPatch.verbose) {
-          ServiceUtils.logInfo(this, "Insert low free range: %d to %d", lowRange.low, lowRange.high);
-        }
-        currentState.freeList.add(lowRange);
-      }
-
-      if (createdIpv4Range.high < selectedIpv4Range.high) {
-        IpV4Range highRange = new IpV4Range(createdIpv4Range.high + 1, selectedIpv4Range.high);
-        if (allocateSubnetPatch.verbose) {
-          ServiceUtils.logInfo(this, "Insert high free range: %d to %d", highRange.low, highRange.high);
-        }
-        currentState.freeList.add(highRange);
+        ServiceUtils.logInfo(this, "Selected range: %d to %d", createdIpv4Range.low, createdIpv4Range.high);
       }
 
       DhcpSubnetService.State subnet = new DhcpSubnetService.State();
@@ -292,7 +253,10 @@ public class SubnetAllocatorService extends StatefulService {
           .setBody(subnet);
       ServiceUtils.doServiceOperation(this, postOperation);
 
+      currentState.freeList = allocator.getFreeList();
       setState(patch, currentState);
+      // Completing the update bumps the version of the document
+      cacheAllocator(allocator, currentState.documentVersion + 1);
 
       if (allocateSubnetPatch.verbose) {
         currentState.freeList.stream().forEach(
@@ -331,27 +295,12 @@ public class SubnetAllocatorService extends StatefulService {
             range -> ServiceUtils.logInfo(this, "Free range before release: %d to %d", range.low, range.high));
       }
 
-      IpV4Range targetRange = new IpV4Range(subnetState.lowIp, subnetState.highIp);
-      List<IpV4Range> currentFreeList = currentState.freeList
-          .stream()
-          .sorted((left, right) -> Long.compare(left.low, right.low))
-          .collect(Collectors.toList());
-      List<IpV4Range> newFreeList = new ArrayList<>();
-      // Merge range
-      for (IpV4Range freeRange : currentFreeList) {
-        if (freeRange.high < targetRange.low - 1) {
-          newFreeList.add(freeRange);
-        } else if (freeRange.low > targetRange.high + 1) {
-          newFreeList.add(targetRange);
-          targetRange = freeRange;
-        } else {
-          targetRange =
-              new IpV4Range(Math.min(targetRange.low, freeRange.low), Math.max(targetRange.high, freeRange.high));
-        }
-      }
-
-      newFreeList.add(targetRange);
-      currentState.freeList = newFreeList;
+      SubnetRangeAllocator allocator = getAllocator(currentState);
+      cachedAllocator = null;
+      allocator.release(subnetState.lowIp, subnetState.highIp);
+      currentState.freeList = allocator.getFreeList();
+      setState(patch, currentState);
+      cacheAllocator(allocator, currentState.documentVersion + 1);
 
       if (releaseSubnetPatch.verbose) {
         currentState.freeList.stream().forEach(
@@ -373,7 +322,13 @@ public class SubnetAllocatorService extends StatefulService {
       InitializationUtils.initialize(startState);
       ValidationUtils.validateState(startState);
 
-      seedWithOneAvailableSubnet(startState.rootCidr, startState);
+      if (startState.freeList == null) {
+        seedWithOneAvailableSubnet(startState.rootCidr, startState);
+      } else {
+        // The document is being migrated from another deployment, possibly of an older version whose free
+        // lists were not kept sorted, so normalize it
+        startState.freeList = new SubnetRangeAllocator(startState.freeList).getFreeList();
+      }
 
       createOperation.complete();
     } catch (IllegalStateException t) {
@@ -384,6 +339,25 @@ public class SubnetAllocatorService extends StatefulService {
     }
   }
 
+  /**
+   * Returns the allocator for the free list of the current state. The allocator built for the previous update is
+   * reused when the document has not been changed since, which saves rebuilding its index on each patch.
+   */
+  private SubnetRangeAllocator getAllocator(State currentState) {
+    if (cachedAllocator != null
+        && cachedAllocatorDocumentVersion == currentState.documentVersion
+        && cachedAllocator.size() == currentState.freeList.size()) {
+      return cachedAllocator;
+    }
+
+    return new SubnetRangeAllocator(currentState.freeList);
+  }
+
+  private void cacheAllocator(SubnetRangeAllocator allocator, long documentVersion) {
+    cachedAllocator = allocator;
+    cachedAllocatorDocumentVersion = documentVersion;
+  }
+
   @Override
   public void handleDelete(Operation deleteOperation) {
     ServiceUtils.logInfo(this, "Deleting service %s", getSelfLink());
@@ -410,7 +384,8 @@ public class SubnetAllocatorService extends StatefulService {
     public String rootCidr;
 
     /**
-     * This is the list of free ranges available for subnet allocation.
+     * This is the list of free ranges available for subnet allocation, sorted by IP and with adjacent ranges
+     * merged.
      * We should not index this otherwise we hit lucene limit of field size that will limit
      * us to around 300 items in the free list.
      */
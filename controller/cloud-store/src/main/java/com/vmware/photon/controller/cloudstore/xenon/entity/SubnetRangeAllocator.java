@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.cloudstore.xenon.entity;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of the free IPv4 ranges of a {@link SubnetAllocatorService}.
+ *
+ * The free ranges are kept coalesced in an interval map keyed by their low IP. Next to it, for each block order k,
+ * a sorted set holds the low IP of every free range which contains a 2^k aligned block. Allocating a block of order
+ * k takes the lowest range of set k, so the first fit is found in O(log n) instead of scanning and sorting the whole
+ * free list, and the aligned block in that range is computed directly rather than stepping to it one IP at a time.
+ * Releasing a range coalesces it with its free neighbours in O(log n).
+ *
+ * A range belongs to the sets of all the orders up to the largest aligned block it contains, so each update touches
+ * at most {@link #MAX_BLOCK_ORDER} + 1 sets.
+ */
+class SubnetRangeAllocator {
+
+  /**
+   * Order of the largest block, i.e. the whole IPv4 space.
+   */
+  static final int MAX_BLOCK_ORDER = 32;
+
+  private final TreeMap<Long, Long> freeRanges = new TreeMap<>();
+  private final List<TreeSet<Long>> freeRangesByBlockOrder = new ArrayList<>(MAX_BLOCK_ORDER + 1);
+
+  SubnetRangeAllocator(Collection<SubnetAllocatorService.IpV4Range> freeList) {
+    for (int i = 0; i <= MAX_BLOCK_ORDER; i++) {
+      freeRangesByBlockOrder.add(new TreeSet<>());
+    }
+
+    if (freeList != null) {
+      for (SubnetAllocatorService.IpV4Range range : freeList) {
+        release(range.low, range.high);
+      }
+    }
+  }
+
+  /**
+   * Allocates the aligned block with the lowest IP among the blocks of the requested size. A size which is not a
+   * power of 2 is rounded up to the next power of 2, since subnets are CIDR blocks.
+   *
+   * @return the allocated range, or null if no free range holds a block of the requested size
+   */
+  SubnetAllocatorService.IpV4Range allocate(long size) {
+    Preconditions.checkArgument(size > 0, "size should be positive, size=%s", size);
+
+    int order = 64 - Long.numberOfLeadingZeros(size - 1);
+    if (order > MAX_BLOCK_ORDER || freeRangesByBlockOrder.get(order).isEmpty()) {
+      return null;
+    }
+
+    long blockSize = 1L << order;
+    long low = freeRangesByBlockOrder.get(order).first();
+    long high = freeRanges.get(low);
+    long blockLow = alignUp(low, blockSize);
+    long blockHigh = blockLow + blockSize - 1;
+
+    removeRange(low, high);
+    if (blockLow > low) {
+      addRange(low, blockLow - 1);
+    }
+    if (blockHigh < high) {
+      addRange(blockHigh + 1, high);
+    }
+
+    return new SubnetAllocatorService.IpV4Range(blockLow, blockHigh);
+  }
+
+  /**
+   * Returns a range to the free space, merging it with the free ranges it overlaps or is adjacent to.
+   */
+  void release(long low, long high) {
+    Preconditions.checkArgument(low <= high, "low should be less than or equal to high, low=%s, high=%s", low, high);
+
+    Map.Entry<Long, Long> lower = freeRanges.floorEntry(low);
+    if (lower != null && lower.getValue() >= low - 1) {
+      low = lower.getKey();
+      high = Math.max(high, lower.getValue());
+      removeRange(lower.getKey(), lower.getValue());
+    }
+
+    Map.Entry<Long, Long> higher = freeRanges.ceilingEntry(low);
+    while (higher != null && higher.getKey() <= high + 1) {
+      high = Math.max(high, higher.getValue());
+      removeRange(higher.getKey(), higher.getValue());
+      higher = freeRanges.ceilingEntry(low);
+    }
+
+    addRange(low, high);
+  }
+
+  /**
+   * Returns the free ranges, sorted by IP.
+   */
+  List<SubnetAllocatorService.IpV4Range> getFreeList() {
+    List<SubnetAllocatorService.IpV4Range> freeList = new ArrayList<>(freeRanges.size());
+    for (Map.Entry<Long, Long> range : freeRanges.entrySet()) {
+      freeList.add(new SubnetAllocatorService.IpV4Range(range.getKey(), range.getValue()));
+    }
+    return freeList;
+  }
+
+  int size() {
+    return freeRanges.size();
+  }
+
+  private void addRange(long low, long high) {
+    freeRanges.put(low, high);
+    int maxOrder = getMaxBlockOrder(low, high);
+    for (int order = 0; order <= maxOrder; order++) {
+      freeRangesByBlockOrder.get(order).add(low);
+    }
+  }
+
+  private void removeRange(long low, long high) {
+    freeRanges.remove(low);
+    int maxOrder = getMaxBlockOrder(low, high);
+    for (int order = 0; order <= maxOrder; order++) {
+      freeRangesByBlockOrder.get(order).remove(low);
+    }
+  }
+
+  /**
+   * Returns the order of the largest aligned block within the range. A range holding an aligned block of order k
+   * also holds one of every lower order, starting at the same IP.
+   */
+  private static int getMaxBlockOrder(long low, long high) {
+    int order = 0;
+    while (order < MAX_BLOCK_ORDER) {
+      long blockSize = 1L << (order + 1);
+      if (alignUp(low, blockSize) + blockSize - 1 > high) {
+        break;
+      }
+      order++;
+    }
+    return order;
+  }
+
+  private static long alignUp(long ip, long blockSize) {
+    return (ip + blockSize - 1) & ~(blockSize - 1);
+  }
+}
@@ -31,6 +31,7 @@ import com.vmware.photon.controller.common.xenon.validation.Positive;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.OperationJoin;
 import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceDocumentDescription;
 import com.vmware.xenon.common.StatefulService;
 import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.UriUtils;
@@ -38,6 +39,8 @@ import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.NodeGroupBroadcastResponse;
 import com.vmware.xenon.services.common.QueryTask;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import java.net.URI;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -64,8 +67,20 @@ import java.util.Set;
  *
  * The TombstoneCleanerService keeps the tasks for five hours so that audits can be done or problems debugged after the
  * object has been deleted.
+ *
+ * The stale tombstones are processed in batches of the oldest batchSize tombstones. The tasks of a batch are found with
+ * a single broadcast query, then deleted, then the tombstones of the batch, with at most deleteConcurrency deletes in
+ * flight. The progress is checkpointed with a self patch after each full batch, and since the tombstones of a batch
+ * are deleted before the next one is queried, the next batch is simply the oldest stale tombstones left. A run so never
+ * holds more than one batch in memory, and can be picked up where it stopped.
  */
 public class TombstoneCleanerService extends StatefulService {
+
+  /**
+   * Maximum number of tombstones per batch, so that the task query stays below the boolean clause limit of the index.
+   */
+  public static final int MAX_BATCH_SIZE = 1000;
+
   public TombstoneCleanerService() {
     super(State.class);
     super.toggleOption(ServiceOption.PERSISTENCE, true);
@@ -133,6 +148,7 @@ public class TombstoneCleanerService extends StatefulService {
    */
   private void validateState(State current) {
     ValidationUtils.validateState(current);
+    checkState(current.batchSize <= MAX_BATCH_SIZE, "batchSize must not be greater than " + MAX_BATCH_SIZE);
   }
 
   /**
@@ -181,8 +197,7 @@ public class TombstoneCleanerService extends StatefulService {
     try {
       switch (current.taskState.stage) {
         case STARTED:
-          final State finishPatch = new State();
-          this.queryStaleTombstones(current, finishPatch);
+          this.queryStaleTombstones(current, buildProgressPatch(current));
           break;
 
         case FAILED:
@@ -202,7 +217,7 @@ public class TombstoneCleanerService extends StatefulService {
   }
 
   /**
-   * Retrieves the stale tombstones and kicks of the subsequent processing.
+   * Retrieves the next batch of stale tombstones and kicks of the subsequent processing.
    *
    * @param current
    * @param finishPatch
@@ -226,9 +241,9 @@ public class TombstoneCleanerService extends StatefulService {
           }
 
           ServiceUtils.logInfo(TombstoneCleanerService.this,
-              "Count of stale tombstones found = " + tombstoneList.size());
-          finishPatch.staleTombstones = tombstoneList.size();
-          queryStaleTasks(finishPatch, tombstoneList);
+              "Count of stale tombstones found in batch %d = %d", current.completedBatches, tombstoneList.size());
+          finishPatch.staleTombstones += tombstoneList.size();
+          queryStaleTasks(current, finishPatch, tombstoneList);
         } catch (Throwable ex) {
           failTask(ex);
         }
@@ -244,12 +259,14 @@ public class TombstoneCleanerService extends StatefulService {
   }
 
   /**
-   * Retrieves the list of stale tasks.
+   * Retrieves the list of stale tasks of a batch of tombstones, with a single broadcast query.
    *
+   * @param current
    * @param finishPatch
    * @param tombstoneList
    */
-  private void queryStaleTasks(final State finishPatch,
+  private void queryStaleTasks(final State current,
+                               final State finishPatch,
                                List<TombstoneService.State> tombstoneList) {
     OperationJoin.JoinedCompletionHandler handler = new OperationJoin.JoinedCompletionHandler() {
       @Override
@@ -278,11 +295,11 @@ public class TombstoneCleanerService extends StatefulService {
             }
           }
 
-          finishPatch.staleTasks = taskSet.size();
+          finishPatch.staleTasks += taskSet.size();
           if (taskSet.size() == 0) {
-            deleteTombstones(finishPatch, tombstoneList);
+            deleteTombstones(current, finishPatch, tombstoneList);
           } else {
-            deleteTasks(finishPatch, tombstoneList, taskSet);
+            deleteTasks(current, finishPatch, tombstoneList, taskSet);
           }
         } catch (Throwable ex) {
           failTask(ex);
@@ -294,18 +311,13 @@ public class TombstoneCleanerService extends StatefulService {
         UriUtils.buildUri(getHost(), com.vmware.xenon.services.common.ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
         ServiceUriPaths.DEFAULT_NODE_SELECTOR);
 
-    Collection<Operation> posts = new LinkedList<>();
-    for (TombstoneService.State tombstone : tombstoneList) {
-      Operation post = Operation
-          .createPost(queryUri)
-          .setBody(buildTaskQuery(tombstone))
-          .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
-          .forceRemote();
+    Operation post = Operation
+        .createPost(queryUri)
+        .setBody(buildTaskQuery(tombstoneList))
+        .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
+        .forceRemote();
 
-      posts.add(post);
-    }
-
-    OperationJoin join = OperationJoin.create(posts);
+    OperationJoin join = OperationJoin.create(post);
     join.setCompletion(handler);
     join.sendWith(this);
   }
@@ -313,11 +325,13 @@ public class TombstoneCleanerService extends StatefulService {
   /**
    * Deletes the stale task documents.
    *
+   * @param current
    * @param finishPatch
    * @param tombstoneList
    * @param taskSet
    */
-  private void deleteTasks(final State finishPatch, List<TombstoneService.State> tombstoneList, Set<String> taskSet) {
+  private void deleteTasks(final State current, final State finishPatch, List<TombstoneService.State> tombstoneList,
+                           Set<String> taskSet) {
     OperationJoin.JoinedCompletionHandler handler = new OperationJoin.JoinedCompletionHandler() {
       @Override
       public void handle(Map<Long, Operation> ops, Map<Long, Throwable> failures) {
@@ -326,8 +340,8 @@ public class TombstoneCleanerService extends StatefulService {
           return;
         }
 
-        finishPatch.deletedTasks = taskSet.size();
-        deleteTombstones(finishPatch, tombstoneList);
+        finishPatch.deletedTasks += taskSet.size();
+        deleteTombstones(current, finishPatch, tombstoneList);
       }
     };
 
@@ -344,16 +358,19 @@ public class TombstoneCleanerService extends StatefulService {
 
     OperationJoin join = OperationJoin.create(deletes);
     join.setCompletion(handler);
-    join.sendWith(this);
+    join.sendWith(this, current.deleteConcurrency);
   }
 
   /**
-   * Deletes the the stale tombstone entities.
+   * Deletes the the stale tombstone entities, then moves on to the next batch, or finishes the task if this batch was
+   * the last one.
    *
+   * @param current
    * @param finishPatch
    * @param tombstoneList
    */
-  private void deleteTombstones(final State finishPatch, List<TombstoneService.State> tombstoneList) {
+  private void deleteTombstones(final State current, final State finishPatch,
+                                List<TombstoneService.State> tombstoneList) {
     OperationJoin.JoinedCompletionHandler handler = new OperationJoin.JoinedCompletionHandler() {
       @Override
       public void handle(Map<Long, Operation> ops, Map<Long, Throwable> failures) {
@@ -362,8 +379,18 @@ public class TombstoneCleanerService extends StatefulService {
           return;
         }
 
-        finishPatch.deletedTombstones = tombstoneList.size();
-        finishTask(finishPatch);
+        finishPatch.deletedTombstones += tombstoneList.size();
+        if (tombstoneList.size() < current.batchSize) {
+          finishTask(finishPatch);
+          return;
+        }
+
+        // The batch was full, so more stale tombstones may be left: checkpoint the progress, which also triggers
+        // the processing of the next batch.
+        finishPatch.taskState = new TaskState();
+        finishPatch.taskState.stage = TaskState.TaskStage.STARTED;
+        finishPatch.completedBatches = current.completedBatches + 1;
+        sendSelfPatch(finishPatch);
       }
     };
 
@@ -380,7 +407,7 @@ public class TombstoneCleanerService extends StatefulService {
 
     OperationJoin join = OperationJoin.create(deletes);
     join.setCompletion(handler);
-    join.sendWith(this);
+    join.sendWith(this, current.deleteConcurrency);
   }
 
   private List<TombstoneService.State> parseTombstoneQueryResults(QueryTask result) {
@@ -426,6 +453,22 @@ public class TombstoneCleanerService extends StatefulService {
     this.sendSelfPatch(buildPatch(TaskState.TaskStage.FAILED, e));
   }
 
+  /**
+   * Build a patch carrying the progress made by the previous batches, to which the progress of the next batch is
+   * added.
+   *
+   * @param current
+   * @return
+   */
+  private State buildProgressPatch(State current) {
+    State s = new State();
+    s.staleTombstones = current.staleTombstones;
+    s.staleTasks = current.staleTasks;
+    s.deletedTombstones = current.deletedTombstones;
+    s.deletedTasks = current.deletedTasks;
+    return s;
+  }
+
   /**
    * Send a patch message to ourselves to update the execution stage.
    *
@@ -472,7 +515,7 @@ public class TombstoneCleanerService extends StatefulService {
   }
 
   /**
-   * Builds the query spec to retrieve all expired tombstones.
+   * Builds the query spec to retrieve the oldest batch of expired tombstones.
    *
    * @param current
    * @return
@@ -489,8 +532,18 @@ public class TombstoneCleanerService extends StatefulService {
         .setTermPropertyName(TombstoneService.State.FIELD_NAME_TOMBSTONE_TIME)
         .setNumericRange(range);
 
+    QueryTask.QueryTerm sortTerm = new QueryTask.QueryTerm();
+    sortTerm.propertyName = TombstoneService.State.FIELD_NAME_TOMBSTONE_TIME;
+    sortTerm.propertyType = ServiceDocumentDescription.TypeName.LONG;
+
     QueryTask.QuerySpecification spec = new QueryTask.QuerySpecification();
-    spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+    spec.options = EnumSet.of(
+        QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT,
+        QueryTask.QuerySpecification.QueryOption.TOP_RESULTS,
+        QueryTask.QuerySpecification.QueryOption.SORT);
+    spec.sortTerm = sortTerm;
+    spec.sortOrder = QueryTask.QuerySpecification.SortOrder.ASC;
+    spec.resultLimit = current.batchSize;
     spec.query
         .addBooleanClause(kindClause)
         .addBooleanClause(ageClause);
@@ -501,24 +554,38 @@ public class TombstoneCleanerService extends StatefulService {
     return task;
   }
 
-  private QueryTask buildTaskQuery(final TombstoneService.State tombstone) {
+  /**
+   * Builds the query spec to retrieve the tasks of any of the entities of a batch of tombstones.
+   *
+   * @param tombstoneList
+   * @return
+   */
+  private QueryTask buildTaskQuery(final List<TombstoneService.State> tombstoneList) {
     QueryTask.Query kindClause = new QueryTask.Query()
         .setTermPropertyName(ServiceDocument.FIELD_NAME_KIND)
         .setTermMatchValue(Utils.buildKind(TaskService.State.class));
 
-    QueryTask.Query entityIdClause = new QueryTask.Query()
-        .setTermPropertyName(TaskService.State.FIELD_NAME_ENTITY_ID)
-        .setTermMatchValue(tombstone.entityId);
-
-    QueryTask.Query entityKindClause = new QueryTask.Query()
-        .setTermPropertyName(TaskService.State.FIELD_NAME_ENTITY_KIND)
-        .setTermMatchValue(tombstone.entityKind);
+    QueryTask.Query entitiesClause = new QueryTask.Query();
+    for (TombstoneService.State tombstone : tombstoneList) {
+      QueryTask.Query entityIdClause = new QueryTask.Query()
+          .setTermPropertyName(TaskService.State.FIELD_NAME_ENTITY_ID)
+          .setTermMatchValue(tombstone.entityId);
+
+      QueryTask.Query entityKindClause = new QueryTask.Query()
+          .setTermPropertyName(TaskService.State.FIELD_NAME_ENTITY_KIND)
+          .setTermMatchValue(tombstone.entityKind);
+
+      QueryTask.Query entityClause = new QueryTask.Query()
+          .addBooleanClause(entityIdClause)
+          .addBooleanClause(entityKindClause);
+      entityClause.occurance = QueryTask.Query.Occurance.SHOULD_OCCUR;
+      entitiesClause.addBooleanClause(entityClause);
+    }
 
     QueryTask.QuerySpecification spec = new QueryTask.QuerySpecification();
     spec.query
         .addBooleanClause(kindClause)
-        .addBooleanClause(entityIdClause)
-        .addBooleanClause(entityKindClause);
+        .addBooleanClause(entitiesClause);
 
     QueryTask task = QueryTask.create(spec)
         .setDirect(true);
@@ -576,5 +643,27 @@ public class TombstoneCleanerService extends StatefulService {
      */
     @DefaultInteger(value = 0)
     public Integer deletedTasks;
+
+    /**
+     * The number of stale tombstones processed per batch.
+     */
+    @Immutable
+    @DefaultInteger(value = 100)
+    @Positive
+    public Integer batchSize;
+
+    /**
+     * The maximum number of deletes in flight.
+     */
+    @Immutable
+    @DefaultInteger(value = 16)
+    @Positive
+    public Integer deleteConcurrency;
+
+    /**
+     * The number of full batches processed, for which the progress was checkpointed.
+     */
+    @DefaultInteger(value = 0)
+    public Integer completedBatches;
   }
 }
@@ -15,14 +15,16 @@ package com.vmware.photon.controller.cloudstore.xenon.upgrade;
 import com.vmware.photon.controller.api.model.UsageTag;
 import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
 import com.vmware.photon.controller.common.xenon.ServiceUriPaths;
-import com.vmware.photon.controller.common.xenon.migration.MigrationUtils;
+import com.vmware.photon.controller.common.xenon.migration.DocumentTransformationPlan;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.Utils;
 
-import java.util.Arrays;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 
 /**
@@ -44,14 +46,16 @@ public class HostTransformationService extends StatelessService {
           String factoryPath = Utils.fromJson(entry.getValue(), String.class);
 
           // perform field renames
-          HostService.State convertedServiceDocument = Utils.fromJson(entry.getKey(), HostService.State.class);
-          MigrationUtils.handleRenamedField(entry.getKey(), convertedServiceDocument);
+          JsonObject convertedServiceDocument =
+              DocumentTransformationPlan.get(HostService.State.class).transform(entry.getKey());
 
           // change usage tags to be cloud only, this will allow us to use the old management hosts
           // for future place requests.
-          convertedServiceDocument.usageTags = new HashSet<>(Arrays.asList(UsageTag.CLOUD.name()));
+          JsonArray usageTags = new JsonArray();
+          usageTags.add(new JsonPrimitive(UsageTag.CLOUD.name()));
+          convertedServiceDocument.add(HostService.State.FIELD_NAME_USAGE_TAGS, usageTags);
 
-          results.put(Utils.toJson(false, false, convertedServiceDocument), factoryPath);
+          results.put(convertedServiceDocument.toString(), factoryPath);
         }
       }
 
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.cloudstore.xenon.entity;
+
+import com.vmware.photon.controller.api.model.AgentState;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Tests {@link AgentLivenessEngine}.
+ */
+public class AgentLivenessEngineTest {
+
+  private static final long MIN_INTERVAL = 10;
+  private static final long MAX_INTERVAL = 60;
+
+  private long now;
+  private Map<String, Consumer<Boolean>> probes;
+  private List<String> writes;
+
+  @BeforeMethod
+  public void setUp() {
+    now = 1000;
+    probes = new LinkedHashMap<>();
+    writes = new ArrayList<>();
+  }
+
+  @Test
+  public void testNewHostsAreProbedWithinMinimumInterval() {
+    AgentLivenessEngine engine = createEngine(10);
+    engine.sync(Arrays.asList(buildHost("h1", null), buildHost("h2", null)));
+    assertThat(engine.getHostCount(), is(2));
+
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    assertThat(probes.keySet(), containsInAnyOrder("h1", "h2"));
+    assertThat(engine.getInFlightCount(), is(2));
+
+    probes.remove("h1").accept(true);
+    probes.remove("h2").accept(false);
+    assertThat(writes, contains("h1:ACTIVE", "h2:MISSING"));
+    assertThat(engine.getInFlightCount(), is(0));
+  }
+
+  @Test
+  public void testStableHostBacksOffAndIsNotWritten() {
+    AgentLivenessEngine engine = createEngine(10);
+    engine.sync(Collections.singletonList(buildHost("h1", AgentState.ACTIVE)));
+
+    long[] expectedIntervals = {20, 40, 60, 60};
+    for (long expectedInterval : expectedIntervals) {
+      now += MAX_INTERVAL;
+      engine.dispatch();
+      probes.remove("h1").accept(true);
+      assertThat(engine.getProbeIntervalMillis("/hosts/h1"), is(expectedInterval));
+    }
+
+    assertThat(writes, is(empty()));
+  }
+
+  @Test
+  public void testTransitionIsWrittenOnceAndProbedFaster() {
+    AgentLivenessEngine engine = createEngine(10);
+    engine.sync(Collections.singletonList(buildHost("h1", AgentState.ACTIVE)));
+
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    probes.remove("h1").accept(true);
+    now += 2 * MIN_INTERVAL;
+    engine.dispatch();
+    probes.remove("h1").accept(true);
+    assertThat(engine.getProbeIntervalMillis("/hosts/h1"), is(40L));
+
+    // The agent goes missing
+    now += 40;
+    engine.dispatch();
+    probes.remove("h1").accept(false);
+    assertThat(writes, contains("h1:MISSING"));
+    assertThat(engine.getProbeIntervalMillis("/hosts/h1"), is(MIN_INTERVAL));
+
+    // The next probe is due after the minimum interval, and confirms the state without writing it again
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    probes.remove("h1").accept(false);
+    assertThat(writes, contains("h1:MISSING"));
+  }
+
+  @Test
+  public void testConcurrencyIsBounded() {
+    AgentLivenessEngine engine = createEngine(2);
+    engine.sync(Arrays.asList(
+        buildHost("h1", AgentState.ACTIVE),
+        buildHost("h2", AgentState.ACTIVE),
+        buildHost("h3", AgentState.ACTIVE),
+        buildHost("h4", AgentState.ACTIVE)));
+
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    assertThat(probes.size(), is(2));
+    assertThat(engine.getInFlightCount(), is(2));
+
+    // A completed probe starts the next due one
+    String first = probes.keySet().iterator().next();
+    probes.remove(first).accept(true);
+    assertThat(probes.size(), is(2));
+    assertThat(engine.getInFlightCount(), is(2));
+
+    while (!probes.isEmpty()) {
+      probes.remove(probes.keySet().iterator().next()).accept(true);
+    }
+    assertThat(engine.getInFlightCount(), is(0));
+    assertThat(writes, is(empty()));
+  }
+
+  @Test
+  public void testSynchronousProbesDoNotRecurse() {
+    AgentLivenessEngine engine = new AgentLivenessEngine(
+        (hostAddress, agentPort, callback) -> callback.accept(true),
+        (hostLink, agentState) -> writes.add(hostLink),
+        () -> now, new Random(0), 1, MIN_INTERVAL, MAX_INTERVAL);
+
+    List<HostService.State> hosts = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      hosts.add(buildHost("h" + i, null));
+    }
+    engine.sync(hosts);
+
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    assertThat(writes.size(), is(1000));
+    assertThat(engine.getInFlightCount(), is(0));
+  }
+
+  @Test
+  public void testHostsNoLongerOwnedAreDropped() {
+    AgentLivenessEngine engine = createEngine(10);
+    engine.sync(Arrays.asList(buildHost("h1", AgentState.ACTIVE), buildHost("h2", AgentState.ACTIVE)));
+
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    engine.sync(Collections.singletonList(buildHost("h2", AgentState.ACTIVE)));
+    assertThat(engine.getHostCount(), is(1));
+
+    // The result of a probe of a host which moved to another owner is not written
+    probes.remove("h1").accept(false);
+    probes.remove("h2").accept(false);
+    assertThat(writes, contains("h2:MISSING"));
+    assertThat(engine.getInFlightCount(), is(0));
+  }
+
+  @Test
+  public void testDocumentStateIsTheReference() {
+    AgentLivenessEngine engine = createEngine(10);
+    engine.sync(Collections.singletonList(buildHost("h1", AgentState.ACTIVE)));
+
+    // A host config refresh marked the agent as missing
+    engine.sync(Collections.singletonList(buildHost("h1", AgentState.MISSING)));
+
+    now += MIN_INTERVAL;
+    engine.dispatch();
+    probes.remove("h1").accept(true);
+    assertThat(writes, contains("h1:ACTIVE"));
+  }
+
+  private AgentLivenessEngine createEngine(int maxConcurrentProbes) {
+    return new AgentLivenessEngine(
+        (hostAddress, agentPort, callback) -> probes.put(hostAddress, callback),
+        (hostLink, agentState) -> writes.add(hostLink.substring("/hosts/".length()) + ":" + agentState),
+        () -> now, new Random(0), maxConcurrentProbes, MIN_INTERVAL, MAX_INTERVAL);
+  }
+
+  private static HostService.State buildHost(String name, AgentState agentState) {
+    HostService.State host = new HostService.State();
+    host.documentSelfLink = "/hosts/" + name;
+    host.hostAddress = name;
+    host.agentPort = 8835;
+    host.agentState = agentState;
+    return host;
+  }
+}
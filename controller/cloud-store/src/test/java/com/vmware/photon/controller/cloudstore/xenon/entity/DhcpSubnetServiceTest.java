@@ -31,12 +31,15 @@ import org.apache.http.HttpStatus;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -378,6 +381,201 @@ public class DhcpSubnetServiceTest {
       assertThat(currentState.ipAllocations.nextClearBit(0), is(0));
     }
 
+    @Test
+    public void testAllocateIpsToMacs() throws Throwable {
+      DhcpSubnetService.BatchIpOperationPatch batchIpOperationPatch = createBatchIpOperationPatch(5);
+      Operation patchOperation = new Operation()
+          .setAction(Service.Action.PATCH)
+          .setBody(batchIpOperationPatch)
+          .setReferer("test-host")
+          .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+      Operation completedOperation = host.sendRequestAndWait(patchOperation);
+
+      DhcpSubnetService.BatchIpOperationPatch operationResult =
+          completedOperation.getBody(DhcpSubnetService.BatchIpOperationPatch.class);
+
+      DhcpSubnetService.State currentState = host.getServiceState(DhcpSubnetService.State.class,
+          startState.documentSelfLink);
+
+      assertThat(currentState.version, is(startState.version + 1));
+      assertThat(currentState.ipAllocations.cardinality(), is(5));
+      assertThat(currentState.ipAllocations.nextClearBit(0), is(5));
+      assertThat(currentState.nextFreeIpHint, is(5));
+
+      assertThat(operationResult.allocations.size(), is(5));
+      for (int i = 0; i < 5; i++) {
+        DhcpSubnetService.IpAllocation allocation = operationResult.allocations.get(i);
+        assertThat(allocation.ipAddress, is(IpHelper.longToIpString(startState.lowIpDynamic + i)));
+
+        IpLeaseService.State ipLease = host.getServiceState(IpLeaseService.State.class,
+            DhcpSubnetService.makeIpLeaseUrl(false, startState.subnetId, allocation.ipAddress));
+        assertThat(ipLease.ownerVmId, is("vm-id-" + i));
+        assertThat(ipLease.macAddress, is(allocation.macAddress));
+      }
+    }
+
+    @Test
+    public void testAllocateIpsToMacsWhenRangeIsTooSmall() throws Throwable {
+      long dynamicRangeSize = startState.highIpDynamic - startState.lowIpDynamic + 1;
+      DhcpSubnetService.BatchIpOperationPatch batchIpOperationPatch =
+          createBatchIpOperationPatch((int) dynamicRangeSize + 1);
+      Operation patchOperation = new Operation()
+          .setAction(Service.Action.PATCH)
+          .setBody(batchIpOperationPatch)
+          .setReferer("test-host")
+          .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+
+      try {
+        host.sendRequestAndWait(patchOperation);
+        Assert.fail("Allocation request larger than the free range should have failed");
+      } catch (BadRequestException be) {
+        DhcpSubnetService.RangeFullyAllocatedError error = be.getCompletedOperation()
+            .getBody(DhcpSubnetService.RangeFullyAllocatedError.class);
+        assertThat(error, is(notNullValue()));
+      }
+
+      DhcpSubnetService.State currentState = host.getServiceState(DhcpSubnetService.State.class,
+          startState.documentSelfLink);
+
+      assertThat(currentState.version, is(startState.version));
+      assertThat(currentState.ipAllocations.length(), is(0));
+      assertThat(currentState.nextFreeIpHint, is(0));
+    }
+
+    @DataProvider(name = "InvalidBatchIpOperationPatches")
+    public Object[][] getInvalidBatchIpOperationPatches() {
+      DhcpSubnetService.BatchIpOperationPatch nullAllocations = createBatchIpOperationPatch(2);
+      nullAllocations.allocations = null;
+      DhcpSubnetService.BatchIpOperationPatch noAllocations = createBatchIpOperationPatch(2);
+      noAllocations.allocations = new ArrayList<>();
+      DhcpSubnetService.BatchIpOperationPatch blankOwner = createBatchIpOperationPatch(2);
+      blankOwner.allocations.get(1).ownerVmId = " ";
+      DhcpSubnetService.BatchIpOperationPatch blankMacAddress = createBatchIpOperationPatch(2);
+      blankMacAddress.allocations.get(1).macAddress = "";
+
+      return new Object[][]{
+          {nullAllocations},
+          {noAllocations},
+          {blankOwner},
+          {blankMacAddress}
+      };
+    }
+
+    @Test(dataProvider = "InvalidBatchIpOperationPatches")
+    public void testAllocateIpsToMacsWithInvalidPatch(DhcpSubnetService.BatchIpOperationPatch batchIpOperationPatch)
+        throws Throwable {
+      Operation patchOperation = new Operation()
+          .setAction(Service.Action.PATCH)
+          .setBody(batchIpOperationPatch)
+          .setReferer("test-host")
+          .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+
+      try {
+        host.sendRequestAndWait(patchOperation);
+        Assert.fail("Allocation request with invalid allocations should have failed");
+      } catch (BadRequestException be) {
+      }
+
+      DhcpSubnetService.State currentState = host.getServiceState(DhcpSubnetService.State.class,
+          startState.documentSelfLink);
+
+      assertThat(currentState.version, is(startState.version));
+      assertThat(currentState.ipAllocations.length(), is(0));
+    }
+
+    @Test
+    public void testAllocateIpsToMacsWhenLeaseIsOwnedByAnotherVm() throws Throwable {
+      IpLeaseService.State ipLease = new IpLeaseService.State();
+      ipLease.ownerVmId = "other-vm-id";
+      ipLease.macAddress = macAddress;
+      ipLease.ip = IpHelper.longToIpString(startState.lowIpDynamic + 1);
+      ipLease.subnetId = startState.subnetId;
+      ipLease.documentSelfLink = DhcpSubnetService.makeIpLeaseUrl(false, startState.subnetId, ipLease.ip);
+      Operation result = xenonClient.post(IpLeaseService.FACTORY_LINK, ipLease);
+      assertThat(result.getStatusCode(), is(HttpStatus.SC_OK));
+
+      DhcpSubnetService.BatchIpOperationPatch batchIpOperationPatch = createBatchIpOperationPatch(3);
+      Operation patchOperation = new Operation()
+          .setAction(Service.Action.PATCH)
+          .setBody(batchIpOperationPatch)
+          .setReferer("test-host")
+          .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+
+      try {
+        host.sendRequestAndWait(patchOperation);
+        Assert.fail("Allocation request should have failed when one of the leases is owned by another VM");
+      } catch (BadRequestException be) {
+      }
+
+      DhcpSubnetService.State currentState = host.getServiceState(DhcpSubnetService.State.class,
+          startState.documentSelfLink);
+
+      assertThat(currentState.version, is(startState.version));
+      assertThat(currentState.ipAllocations.length(), is(0));
+      assertThat(currentState.nextFreeIpHint, is(0));
+
+      ipLease = host.getServiceState(IpLeaseService.State.class, ipLease.documentSelfLink);
+      assertThat(ipLease.ownerVmId, is("other-vm-id"));
+    }
+
+    @Test
+    public void testAllocateIpToMacReusesLowestReleasedIp() throws Throwable {
+      Operation patchOperation = new Operation()
+          .setAction(Service.Action.PATCH)
+          .setBody(createBatchIpOperationPatch(6))
+          .setReferer("test-host")
+          .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+      host.sendRequestAndWait(patchOperation);
+
+      for (int i : new int[]{4, 1}) {
+        DhcpSubnetService.IpOperationPatch ipOperationPatch =
+            new DhcpSubnetService.IpOperationPatch(
+                DhcpSubnetService.IpOperationPatch.Kind.ReleaseIp,
+                "vm-id-" + i, null, IpHelper.longToIpString(startState.lowIpDynamic + i));
+        patchOperation = new Operation()
+            .setAction(Service.Action.PATCH)
+            .setBody(ipOperationPatch)
+            .setReferer("test-host")
+            .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+        host.sendRequestAndWait(patchOperation);
+      }
+
+      DhcpSubnetService.State currentState = host.getServiceState(DhcpSubnetService.State.class,
+          startState.documentSelfLink);
+      assertThat(currentState.nextFreeIpHint, is(1));
+
+      for (int expectedIndex : new int[]{1, 4, 6}) {
+        DhcpSubnetService.IpOperationPatch ipOperationPatch =
+            new DhcpSubnetService.IpOperationPatch(
+                DhcpSubnetService.IpOperationPatch.Kind.AllocateIp,
+                "vm-id", macAddress, null);
+        patchOperation = new Operation()
+            .setAction(Service.Action.PATCH)
+            .setBody(ipOperationPatch)
+            .setReferer("test-host")
+            .setUri(UriUtils.buildUri(host, startState.documentSelfLink));
+        Operation completedOperation = host.sendRequestAndWait(patchOperation);
+
+        DhcpSubnetService.IpOperationPatch operationResult =
+            completedOperation.getBody(DhcpSubnetService.IpOperationPatch.class);
+        assertThat(operationResult.ipAddress, is(IpHelper.longToIpString(startState.lowIpDynamic + expectedIndex)));
+      }
+
+      currentState = host.getServiceState(DhcpSubnetService.State.class,
+          startState.documentSelfLink);
+      assertThat(currentState.ipAllocations.nextClearBit(0), is(7));
+      assertThat(currentState.nextFreeIpHint, is(7));
+    }
+
+    private DhcpSubnetService.BatchIpOperationPatch createBatchIpOperationPatch(int count) {
+      List<DhcpSubnetService.IpAllocation> allocations = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        allocations.add(new DhcpSubnetService.IpAllocation("vm-id-" + i, String.format("08:00:27:d8:7d:%02x", i)));
+      }
+      return new DhcpSubnetService.BatchIpOperationPatch(
+          DhcpSubnetService.BatchIpOperationPatch.Kind.AllocateIps, allocations);
+    }
+
   }
 
   private static DhcpSubnetService.State createInitialState() {
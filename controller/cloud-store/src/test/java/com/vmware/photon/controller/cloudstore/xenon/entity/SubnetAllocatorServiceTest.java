@@ -45,6 +45,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Executors;
@@ -128,6 +129,31 @@ public class SubnetAllocatorServiceTest {
       assertThat(lowAddress.getHostAddress(), is("192.168.0.0"));
       assertThat(highAddress.getHostAddress(), is("192.168.255.255"));
     }
+
+    @Test
+    public void testCreationWithExistingFreeList() throws Throwable {
+      SubnetAllocatorService.State startState = createInitialState();
+      startState.freeList = new ArrayList<>();
+      startState.freeList.add(new SubnetAllocatorService.IpV4Range(
+          IpHelper.ipStringToLong("192.168.0.64"), IpHelper.ipStringToLong("192.168.255.255")));
+      startState.freeList.add(new SubnetAllocatorService.IpV4Range(
+          IpHelper.ipStringToLong("192.168.0.16"), IpHelper.ipStringToLong("192.168.0.31")));
+      startState.freeList.add(new SubnetAllocatorService.IpV4Range(
+          IpHelper.ipStringToLong("192.168.0.0"), IpHelper.ipStringToLong("192.168.0.15")));
+
+      Operation result = xenonClient.post(SubnetAllocatorService.FACTORY_LINK, startState);
+      assertThat(result.getStatusCode(), is(HttpStatus.SC_OK));
+
+      SubnetAllocatorService.State savedState = host.getServiceState(SubnetAllocatorService.State.class,
+          result.getBody(SubnetAllocatorService.State.class).documentSelfLink);
+
+      List<SubnetAllocatorService.IpV4Range> freeList = new ArrayList<>(savedState.freeList);
+      assertThat(freeList.size(), is(2));
+      assertThat(IpHelper.longToIpString(freeList.get(0).low), is("192.168.0.0"));
+      assertThat(IpHelper.longToIpString(freeList.get(0).high), is("192.168.0.31"));
+      assertThat(IpHelper.longToIpString(freeList.get(1).low), is("192.168.0.64"));
+      assertThat(IpHelper.longToIpString(freeList.get(1).high), is("192.168.255.255"));
+    }
   }
 
   /**
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.cloudstore.xenon.entity;
+
+import com.vmware.photon.controller.common.IpHelper;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests {@link SubnetRangeAllocator}.
+ */
+public class SubnetRangeAllocatorTest {
+
+  private static final long ROOT_LOW = IpHelper.ipStringToLong("192.168.0.0");
+  private static final long ROOT_HIGH = IpHelper.ipStringToLong("192.168.255.255");
+
+  @Test
+  public void testAllocateLowestAlignedBlock() {
+    SubnetRangeAllocator allocator = createAllocator();
+
+    assertRange(allocator.allocate(16), "192.168.0.0", "192.168.0.15");
+    assertRange(allocator.allocate(8), "192.168.0.16", "192.168.0.23");
+    assertRange(allocator.allocate(32), "192.168.0.32", "192.168.0.63");
+    assertRange(allocator.allocate(8), "192.168.0.24", "192.168.0.31");
+
+    List<SubnetAllocatorService.IpV4Range> freeList = allocator.getFreeList();
+    assertThat(freeList.size(), is(1));
+    assertRange(freeList.get(0), "192.168.0.64", "192.168.255.255");
+  }
+
+  @Test
+  public void testAllocateRoundsUpToPowerOfTwo() {
+    SubnetRangeAllocator allocator = createAllocator();
+
+    assertRange(allocator.allocate(24), "192.168.0.0", "192.168.0.31");
+  }
+
+  @Test
+  public void testAllocateTooLarge() {
+    SubnetRangeAllocator allocator = createAllocator();
+
+    assertThat(allocator.allocate(ROOT_HIGH - ROOT_LOW + 2), is(nullValue()));
+    assertThat(allocator.allocate(Integer.MAX_VALUE), is(nullValue()));
+    assertThat(allocator.getFreeList().size(), is(1));
+  }
+
+  @Test
+  public void testAllocateSkipsRangesWithoutAlignedBlock() {
+    SubnetRangeAllocator allocator = new SubnetRangeAllocator(Arrays.asList(
+        new SubnetAllocatorService.IpV4Range(ROOT_LOW + 8, ROOT_LOW + 23),
+        new SubnetAllocatorService.IpV4Range(ROOT_LOW + 32, ROOT_LOW + 47)));
+
+    assertRange(allocator.allocate(16), "192.168.0.32", "192.168.0.47");
+    assertRange(allocator.allocate(8), "192.168.0.8", "192.168.0.15");
+  }
+
+  @Test
+  public void testReleaseCoalesces() {
+    SubnetRangeAllocator allocator = createAllocator();
+    SubnetAllocatorService.IpV4Range first = allocator.allocate(16);
+    SubnetAllocatorService.IpV4Range second = allocator.allocate(16);
+    SubnetAllocatorService.IpV4Range third = allocator.allocate(16);
+
+    allocator.release(first.low, first.high);
+    assertThat(allocator.getFreeList().size(), is(2));
+
+    allocator.release(third.low, third.high);
+    assertThat(allocator.getFreeList().size(), is(2));
+
+    allocator.release(second.low, second.high);
+    List<SubnetAllocatorService.IpV4Range> freeList = allocator.getFreeList();
+    assertThat(freeList.size(), is(1));
+    assertRange(freeList.get(0), "192.168.0.0", "192.168.255.255");
+  }
+
+  @Test
+  public void testNormalizesUnsortedFreeList() {
+    SubnetRangeAllocator allocator = new SubnetRangeAllocator(Arrays.asList(
+        new SubnetAllocatorService.IpV4Range(ROOT_LOW + 64, ROOT_HIGH),
+        new SubnetAllocatorService.IpV4Range(ROOT_LOW, ROOT_LOW + 15),
+        new SubnetAllocatorService.IpV4Range(ROOT_LOW + 16, ROOT_LOW + 31)));
+
+    List<SubnetAllocatorService.IpV4Range> freeList = allocator.getFreeList();
+    assertThat(freeList.size(), is(2));
+    assertRange(freeList.get(0), "192.168.0.0", "192.168.0.31");
+    assertRange(freeList.get(1), "192.168.0.64", "192.168.255.255");
+  }
+
+  @Test
+  public void testAllocateAndReleaseEverything() {
+    SubnetRangeAllocator allocator = createAllocator();
+    Random random = new Random(42);
+    List<SubnetAllocatorService.IpV4Range> allocated = new ArrayList<>();
+    SubnetAllocatorService.IpV4Range range = allocator.allocate(1L << random.nextInt(8));
+    while (range != null) {
+      allocated.add(range);
+      range = allocator.allocate(1L << random.nextInt(8));
+    }
+
+    for (SubnetAllocatorService.IpV4Range block : allocated) {
+      assertThat(block.low % (block.high - block.low + 1), is(0L));
+    }
+
+    while (!allocated.isEmpty()) {
+      range = allocated.remove(random.nextInt(allocated.size()));
+      allocator.release(range.low, range.high);
+    }
+
+    List<SubnetAllocatorService.IpV4Range> freeList = allocator.getFreeList();
+    assertThat(freeList.size(), is(1));
+    assertRange(freeList.get(0), "192.168.0.0", "192.168.255.255");
+  }
+
+  private static SubnetRangeAllocator createAllocator() {
+    return new SubnetRangeAllocator(Arrays.asList(new SubnetAllocatorService.IpV4Range(ROOT_LOW, ROOT_HIGH)));
+  }
+
+  private static void assertRange(SubnetAllocatorService.IpV4Range range, String low, String high) {
+    assertThat(IpHelper.longToIpString(range.low), is(low));
+    assertThat(IpHelper.longToIpString(range.high), is(high));
+  }
+}
@@ -164,7 +164,9 @@ public class TombstoneCleanerServiceTest {
     public Object[][] getPositiveFieldsParams() {
       return new Object[][]{
           {"tombstoneExpirationAgeMillis", 0L},
-          {"tombstoneExpirationAgeMillis", -1L}
+          {"tombstoneExpirationAgeMillis", -1L},
+          {"batchSize", 0},
+          {"deleteConcurrency", 0}
       };
     }
 
@@ -203,7 +205,10 @@ public class TombstoneCleanerServiceTest {
           {"staleTombstones", 0},
           {"staleTasks", 0},
           {"deletedTombstones", 0},
-          {"deletedTasks", 0}
+          {"deletedTasks", 0},
+          {"batchSize", 100},
+          {"deleteConcurrency", 16},
+          {"completedBatches", 0}
       };
     }
 
@@ -406,6 +411,50 @@ public class TombstoneCleanerServiceTest {
           TaskServiceFactory.SELF_LINK);
     }
 
+    /**
+     * Tests that stale tombstones are processed in batches, checkpointing the progress after each full batch.
+     *
+     * @throws Throwable
+     */
+    @Test(dataProvider = "SuccessInBatches")
+    public void testSuccessInBatches(int totalTombstones, int staleTombstones, int tasksPerTombstone, int hostCount)
+        throws Throwable {
+      request.batchSize = 2;
+      request.deleteConcurrency = 3;
+
+      TombstoneCleanerService.State response = machine.callServiceAndWaitForState(
+          TombstoneCleanerFactoryService.SELF_LINK,
+          request,
+          TombstoneCleanerService.State.class,
+          (TombstoneCleanerService.State state) -> state.taskState.stage == TaskState.TaskStage.FINISHED);
+
+      assertThat(response.staleTombstones, is(staleTombstones));
+      assertThat(response.staleTasks, is(tasksPerTombstone * staleTombstones));
+      assertThat(response.deletedTombstones, is(staleTombstones));
+      assertThat(response.deletedTasks, is(tasksPerTombstone * staleTombstones));
+      assertThat(response.completedBatches, is(staleTombstones / 2));
+
+      // One checkpoint patch per full batch, besides the start and finish patches.
+      ServiceStats stats = machine.getOwnerServiceStats(response);
+      assertThat(
+          stats.entries.get(Service.Action.PATCH + Service.STAT_NAME_REQUEST_COUNT).latestValue,
+          is(2.0 + staleTombstones / 2)
+      );
+
+      waitForReplication(machine, totalTombstones - staleTombstones, TombstoneServiceFactory.SELF_LINK);
+      waitForReplication(machine, (totalTombstones - staleTombstones) * tasksPerTombstone,
+          TaskServiceFactory.SELF_LINK);
+    }
+
+    @DataProvider(name = "SuccessInBatches")
+    public Object[][] getSuccessInBatchesData() {
+      return new Object[][]{
+          {7, 4, 3, 1},
+          {7, 5, 3, 1},
+          {7, 5, 3, TestEnvironment.DEFAULT_MULTI_HOST_COUNT}
+      };
+    }
+
     @DataProvider(name = "Success")
     public Object[][] getSuccessData() {
       return new Object[][]{
@@ -26,18 +26,34 @@ import com.vmware.identity.openidconnect.client.TokenValidationException;
 import com.vmware.identity.openidconnect.common.Issuer;
 import com.vmware.identity.openidconnect.common.TokenType;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
 import java.security.interfaces.RSAPublicKey;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Authorization token retrieval logic.
  */
 public class AuthTokenHandler {
 
+  private static final long MAX_CACHED_ACCESS_TOKENS = 10000;
+  private static final long MAX_ACCESS_TOKEN_CACHE_MINUTES = 10;
+
   private final OIDCClient oidcClient;
   private final RSAPublicKey providerPublicKey;
   private final Issuer issuer;
 
+  /**
+   * Access tokens that passed validation, keyed by the hash of the serialized token. Callers typically present the
+   * same token on every request until it expires, so this saves verifying its signature again each time.
+   */
+  private final Cache<String, ResourceServerAccessToken> accessTokenCache;
+
   /**
    * Constructor.
    */
@@ -45,6 +61,10 @@ public class AuthTokenHandler {
     this.oidcClient = oidcClient;
     this.providerPublicKey = providerPublickKey;
     this.issuer = issuer;
+    this.accessTokenCache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_CACHED_ACCESS_TOKENS)
+        .expireAfterWrite(MAX_ACCESS_TOKEN_CACHE_MINUTES, TimeUnit.MINUTES)
+        .build();
   }
 
   /**
@@ -118,17 +138,36 @@ public class AuthTokenHandler {
   /**
    * Checks if the passed accessToken is valid. If not, throws the AuthException.
    *
+   * Tokens that were already validated are returned from a cache until they expire; an expired token is validated
+   * again so that the caller gets the same EXPIRED_TOKEN error as before.
+   *
    * @param accessToken
    * @return ResourceServerAccessToken
    * @throws TokenValidationException
    */
   public ResourceServerAccessToken parseAccessToken(String accessToken)
       throws TokenValidationException {
-    return ResourceServerAccessToken.build(
+    String tokenHash = Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString();
+    ResourceServerAccessToken token = accessTokenCache.getIfPresent(tokenHash);
+    if (token != null) {
+      if (!isExpired(token)) {
+        return token;
+      }
+      accessTokenCache.invalidate(tokenHash);
+    }
+
+    token = ResourceServerAccessToken.build(
         accessToken,
         providerPublicKey,
         issuer,
         AuthOIDCClient.ResourceServer.rs_esxcloud.toString(),
         0);
+    accessTokenCache.put(tokenHash, token);
+    return token;
+  }
+
+  private static boolean isExpired(ResourceServerAccessToken token) {
+    Date expirationTime = token.getExpirationTime();
+    return expirationTime == null || !expirationTime.after(new Date());
   }
 }
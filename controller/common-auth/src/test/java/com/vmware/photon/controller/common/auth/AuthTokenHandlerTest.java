@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.auth;
+
+import com.vmware.identity.openidconnect.client.JWTBuilder;
+import com.vmware.identity.openidconnect.client.ResourceServerAccessToken;
+import com.vmware.identity.openidconnect.client.TokenValidationException;
+import com.vmware.identity.openidconnect.common.ClientID;
+import com.vmware.identity.openidconnect.common.Issuer;
+import com.vmware.identity.openidconnect.common.JWTID;
+import com.vmware.identity.openidconnect.common.Nonce;
+import com.vmware.identity.openidconnect.common.Scope;
+import com.vmware.identity.openidconnect.common.SessionID;
+import com.vmware.identity.openidconnect.common.Subject;
+import com.vmware.identity.openidconnect.common.TokenType;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.testng.Assert.fail;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link AuthTokenHandler}.
+ */
+public class AuthTokenHandlerTest {
+
+  private static final String ISSUER = "iss";
+
+  private AuthTokenHandler handler;
+
+  @BeforeMethod
+  public void setUp() {
+    handler = new AuthTokenHandler(null, AuthTestHelper.publicKey, new Issuer(ISSUER));
+  }
+
+  @Test
+  public void testParseAccessTokenReusesCachedToken() throws Exception {
+    String accessToken = buildAccessToken("sub", AuthTestHelper.expirationTime);
+
+    ResourceServerAccessToken first = handler.parseAccessToken(accessToken);
+    ResourceServerAccessToken second = handler.parseAccessToken(accessToken);
+
+    assertThat(second, is(sameInstance(first)));
+  }
+
+  @Test
+  public void testParseAccessTokenMissesForDifferentToken() throws Exception {
+    ResourceServerAccessToken first = handler.parseAccessToken(
+        buildAccessToken("sub", AuthTestHelper.expirationTime));
+    ResourceServerAccessToken second = handler.parseAccessToken(
+        buildAccessToken("other-sub", AuthTestHelper.expirationTime));
+
+    assertThat(second, is(not(sameInstance(first))));
+  }
+
+  /**
+   * A token which expires while it is cached must be validated again, which fails, instead of being served from
+   * the cache.
+   */
+  @Test
+  public void testParseAccessTokenDoesNotServeExpiredTokenFromCache() throws Exception {
+    Date expirationTime = new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(2));
+    String accessToken = buildAccessToken("sub", expirationTime);
+    handler.parseAccessToken(accessToken);
+
+    // The JWT expiration time has a resolution of seconds.
+    Thread.sleep(expirationTime.getTime() + TimeUnit.SECONDS.toMillis(1) - System.currentTimeMillis());
+
+    try {
+      handler.parseAccessToken(accessToken);
+      fail("Parsing an expired access token should fail");
+    } catch (TokenValidationException e) {
+      // Expected
+    }
+  }
+
+  private static String buildAccessToken(String subject, Date expirationTime) throws Exception {
+    return JWTBuilder.accessTokenBuilder(AuthTestHelper.privateKey).
+        tokenType(TokenType.BEARER).
+        jwtId(new JWTID()).
+        issuer(new Issuer(ISSUER)).
+        subject(new Subject(subject)).
+        audience(Collections.singletonList(AuthOIDCClient.ResourceServer.rs_esxcloud.toString())).
+        issueTime(AuthTestHelper.issueTime).
+        expirationTime(expirationTime).
+        scope(Scope.OPENID).
+        tenant(AuthTestHelper.TENANT).
+        clientId((ClientID) null).
+        sessionId((SessionID) null).
+        holderOfKey(null).
+        actAs((Subject) null).
+        nonce((Nonce) null).
+        groups(Collections.<String>emptySet()).build();
+  }
+}
@@ -53,9 +53,11 @@ import com.vmware.photon.controller.nsxclient.models.TransportNodeState;
 import com.vmware.photon.controller.nsxclient.models.TransportZone;
 import com.vmware.photon.controller.nsxclient.models.TransportZoneCreateSpec;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.FutureCallback;
 import org.apache.commons.lang3.ArrayUtils;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -63,9 +65,12 @@ import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 /**
  * This class implements a mock {@link NsxClientMock} object for use in testing.
@@ -426,6 +431,16 @@ public class NsxClientMock extends NsxClient {
           return null;
         }).when(mockLogicalSwitchApi).getLogicalSwitchState(any(String.class),
             any(FutureCallback.class));
+
+        doAnswer(invocation -> {
+          ((FutureCallback<Map<String, LogicalSwitchState>>) invocation.getArguments()[1])
+              .onSuccess(ImmutableMap.of(logicalSwitchId, inProgressState));
+          return null;
+        }).doAnswer(invocation -> {
+          ((FutureCallback<Map<String, LogicalSwitchState>>) invocation.getArguments()[1])
+              .onSuccess(ImmutableMap.of(logicalSwitchId, successState));
+          return null;
+        }).when(mockLogicalSwitchApi).getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
       } else {
         RuntimeException error = new RuntimeException("getLogicalSwitchState failed");
         doAnswer(invocation -> {
@@ -434,6 +449,12 @@ public class NsxClientMock extends NsxClient {
           return null;
         }).when(mockLogicalSwitchApi).getLogicalSwitchState(any(String.class),
             any(FutureCallback.class));
+
+        doAnswer(invocation -> {
+          ((FutureCallback<Map<String, LogicalSwitchState>>) invocation.getArguments()[1])
+              .onFailure(error);
+          return null;
+        }).when(mockLogicalSwitchApi).getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
       }
 
       return this;
@@ -697,6 +718,31 @@ public class NsxClientMock extends NsxClient {
         return null;
       }).when(mockLogicalRouterApi).checkLogicalRouterPortExistence(anyString(), any(FutureCallback.class));
 
+      // The batched check answers from the same states, as the status poller checks one port at a time in the tests
+      doAnswer(invocation -> {
+        if (!statesList.isEmpty()) {
+          if (statesList.size() == 1) {
+            statesList.add(statesList.peek());
+          }
+          Set<String> ids = (Set<String>) invocation.getArguments()[0];
+          switch (statesList.poll()) {
+            case EXIST:
+              ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onSuccess(ids);
+              break;
+
+            case NOTEXIST:
+              ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onSuccess(new HashSet<>());
+              break;
+
+            case ERROR:
+              RuntimeException e = new RuntimeException("checkLogicalRouterPortExistence failed");
+              ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onFailure(e);
+          }
+        }
+        return null;
+      }).when(mockLogicalRouterApi).checkLogicalRouterPortsExistence(anySetOf(String.class),
+          any(FutureCallback.class));
+
       return this;
     }
 
@@ -709,12 +755,28 @@ public class NsxClientMock extends NsxClient {
           ((FutureCallback<Boolean>) invocation.getArguments()[1]).onSuccess(false);
           return null;
         }).when(mockLogicalSwitchApi).checkLogicalSwitchPortExistence(anyString(), any(FutureCallback.class));
+
+        doAnswer(invocation -> {
+          ((FutureCallback<Set<String>>) invocation.getArguments()[1])
+              .onSuccess((Set<String>) invocation.getArguments()[0]);
+          return null;
+        }).doAnswer(invocation -> {
+          ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onSuccess(new HashSet<>());
+          return null;
+        }).when(mockLogicalSwitchApi).checkLogicalSwitchPortsExistence(anySetOf(String.class),
+            any(FutureCallback.class));
       } else {
         RuntimeException e = new RuntimeException("checkLogicalSwitchPortExistence failed");
         doAnswer(invocation -> {
           ((FutureCallback<Boolean>) invocation.getArguments()[1]).onFailure(e);
            return null;
         }).when(mockLogicalSwitchApi).checkLogicalSwitchPortExistence(anyString(), any(FutureCallback.class));
+
+        doAnswer(invocation -> {
+          ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onFailure(e);
+          return null;
+        }).when(mockLogicalSwitchApi).checkLogicalSwitchPortsExistence(anySetOf(String.class),
+            any(FutureCallback.class));
       }
 
       return this;
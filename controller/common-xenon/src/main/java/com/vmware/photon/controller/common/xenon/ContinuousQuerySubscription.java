@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon;
+
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A continuous query on the local Xenon host and the subscription to its notifications.
+ *
+ * {@link #subscribe} creates the query task and subscribes to it. If the subscription fails, the query task is
+ * deleted again, so that retrying does not leave unused query tasks behind. {@link #unsubscribe} stops the
+ * notifications and deletes the query task.
+ *
+ * The class does not guard against concurrent calls; callers keep track of whether they are subscribed.
+ */
+public class ContinuousQuerySubscription {
+
+  /**
+   * Continuous query tasks expire like any other query task, so they are created with a long lifetime. Callers
+   * re-subscribe if the query task is ever gone.
+   */
+  public static final long EXPIRATION_MICROS = TimeUnit.DAYS.toMicros(365);
+
+  private final ServiceHost host;
+  private final QueryTask.Query query;
+  private final boolean expandContent;
+  private final Consumer<Operation> notificationHandler;
+
+  private volatile String queryLink;
+  private volatile URI subscriptionUri;
+
+  /**
+   * @param host                the host which runs the query and receives the notifications
+   * @param query               the query; deleted documents are always included
+   * @param expandContent       whether the notifications carry the documents or only their links
+   * @param notificationHandler the handler of the notifications, which must complete them
+   */
+  public ContinuousQuerySubscription(ServiceHost host, QueryTask.Query query, boolean expandContent,
+                                     Consumer<Operation> notificationHandler) {
+    this.host = host;
+    this.query = query;
+    this.expandContent = expandContent;
+    this.notificationHandler = notificationHandler;
+  }
+
+  /**
+   * Returns the link of the query task, or null if no query task was created.
+   */
+  public String getQueryLink() {
+    return queryLink;
+  }
+
+  /**
+   * Creates the query task and subscribes to it. The completion is called with the failure if either step failed,
+   * in which case nothing is left behind.
+   */
+  public void subscribe(Operation.CompletionHandler completion) {
+    QueryTask.Builder builder = QueryTask.Builder.create()
+        .setQuery(query)
+        .addOption(QueryTask.QuerySpecification.QueryOption.CONTINUOUS)
+        .addOption(QueryTask.QuerySpecification.QueryOption.INCLUDE_DELETED);
+    if (expandContent) {
+      builder.addOption(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+    }
+    QueryTask queryTask = builder.build();
+    queryTask.documentExpirationTimeMicros = Utils.getNowMicrosUtc() + EXPIRATION_MICROS;
+
+    Operation createQuery = Operation
+        .createPost(UriUtils.buildUri(host, ServiceUriPaths.CORE_LOCAL_QUERY_TASKS))
+        .setBody(queryTask)
+        .setReferer(host.getUri())
+        .setCompletion((op, ex) -> {
+          if (ex != null) {
+            completion.handle(op, ex);
+            return;
+          }
+
+          queryLink = op.getBody(QueryTask.class).documentSelfLink;
+          Operation subscribe = Operation
+              .createPost(UriUtils.buildUri(host, queryLink))
+              .setReferer(host.getUri())
+              .setCompletion((subscribeOp, subscribeEx) -> {
+                if (subscribeEx != null) {
+                  unsubscribe();
+                }
+                completion.handle(subscribeOp, subscribeEx);
+              });
+
+          subscriptionUri = host.startSubscriptionService(subscribe, notificationHandler);
+        });
+
+    host.sendRequest(createQuery);
+  }
+
+  /**
+   * Stops the notifications and deletes the query task. Does nothing if there is no query task.
+   */
+  public void unsubscribe() {
+    String link = queryLink;
+    URI target = subscriptionUri;
+    queryLink = null;
+    subscriptionUri = null;
+
+    if (link == null) {
+      return;
+    }
+
+    if (target != null) {
+      host.stopSubscriptionService(
+          Operation.createDelete(UriUtils.buildUri(host, link)).setReferer(host.getUri()), target);
+    }
+    host.sendRequest(Operation.createDelete(UriUtils.buildUri(host, link)).setReferer(host.getUri()));
+  }
+}
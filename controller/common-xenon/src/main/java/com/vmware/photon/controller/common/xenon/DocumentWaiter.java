@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon;
+
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceHost;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Waits for a document to reach a state accepted by a predicate, and completes with the last state seen. This is how
+ * {@link XenonRestClient#waitForDocumentAsync} long-polls a document and how {@link TaskUtils#startTaskAsync} waits
+ * for a task.
+ *
+ * The document is read once right away, so a task which completes synchronously costs a single read. If its state is
+ * not accepted, the waiter subscribes to the notifications of the document service, reads the state again once the
+ * subscription is active to catch a change made in between, and then reads it only when notified of a change. This
+ * reacts to a change as soon as it happens and does not load the host with reads while the document does not change.
+ * Reads requested while one is in flight are coalesced into a single read.
+ *
+ * Nothing is polled: if the subscription cannot be created, or the timeout expires, the waiter completes with the
+ * last state it read, and the caller decides whether to wait again or to poll.
+ */
+class DocumentWaiter<T extends ServiceDocument> {
+
+  /**
+   * Number of waiters currently subscribed to a document service.
+   */
+  static final Counter ACTIVE_WAITERS =
+      DefaultMetricRegistry.REGISTRY.counter(MetricRegistry.name(DocumentWaiter.class, "active-waiters"));
+
+  private static final Logger logger = LoggerFactory.getLogger(DocumentWaiter.class);
+
+  private final ServiceHost serviceHost;
+  private final URI documentUri;
+  private final Supplier<CompletableFuture<Operation>> reader;
+  private final Class<T> documentType;
+  private final Predicate<T> predicate;
+
+  private final CompletableFuture<T> result = new CompletableFuture<>();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private final AtomicBoolean timedOut = new AtomicBoolean();
+  private final AtomicReference<URI> subscriptionUri = new AtomicReference<>();
+  private final AtomicReference<T> lastState = new AtomicReference<>();
+  private final AtomicInteger requestedReads = new AtomicInteger();
+
+  /**
+   * @param reader reads the document, failing with the exceptions of {@link XenonRestClient#getAsync}
+   */
+  DocumentWaiter(ServiceHost serviceHost, URI documentUri, Supplier<CompletableFuture<Operation>> reader,
+                 Class<T> documentType, Predicate<T> predicate) {
+    this.serviceHost = serviceHost;
+    this.documentUri = documentUri;
+    this.reader = reader;
+    this.documentType = documentType;
+    this.predicate = predicate;
+  }
+
+  /**
+   * Starts waiting, with no timeout.
+   */
+  CompletableFuture<T> start() {
+    result.whenComplete((state, failure) -> stopSubscription());
+
+    requestRead();
+    return result;
+  }
+
+  /**
+   * Starts waiting, for up to the timeout.
+   */
+  CompletableFuture<T> start(long timeout, TimeUnit unit, ScheduledExecutorService scheduledExecutorService) {
+    ScheduledFuture<?> timer = scheduledExecutorService.schedule(this::handleTimeout, timeout, unit);
+    result.whenComplete((state, failure) -> timer.cancel(false));
+    return start();
+  }
+
+  private void subscribe() {
+    Operation subscribe = Operation
+        .createPost(documentUri)
+        .setReferer(serviceHost.getUri())
+        .setCompletion((op, failure) -> {
+          if (failure != null) {
+            logger.warn("Failed to subscribe to [{}], returning its current state: {}", documentUri, failure);
+            completeWithLastState();
+            return;
+          }
+
+          requestRead();
+        });
+
+    URI uri;
+    try {
+      uri = serviceHost.startSubscriptionService(subscribe, this::handleNotification);
+    } catch (RuntimeException e) {
+      logger.warn("Failed to subscribe to [{}], returning its current state: {}", documentUri, e);
+      completeWithLastState();
+      return;
+    }
+
+    // Counted only once the subscription exists, since stopSubscription() uncounts it
+    ACTIVE_WAITERS.inc();
+    subscriptionUri.set(uri);
+    if (result.isDone()) {
+      // The waiter completed before the subscription URI was known
+      stopSubscription();
+    }
+  }
+
+  private void handleNotification(Operation notification) {
+    // The notification may carry a partial patch rather than the document, so the document is read again
+    notification.complete();
+    requestRead();
+  }
+
+  private void requestRead() {
+    if (requestedReads.getAndIncrement() == 0) {
+      read();
+    }
+  }
+
+  private void read() {
+    int reads = requestedReads.get();
+    reader.get().whenComplete((op, failure) -> {
+      if (failure != null) {
+        result.completeExceptionally(
+            failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+        return;
+      }
+
+      handleState(op.getBody(documentType));
+      if (subscribed.compareAndSet(false, true) && !result.isDone()) {
+        subscribe();
+      }
+
+      if (requestedReads.addAndGet(-reads) > 0 && !result.isDone()) {
+        read();
+      }
+    });
+  }
+
+  private void handleState(T state) {
+    lastState.set(state);
+
+    if (predicate.test(state)) {
+      result.complete(state);
+    } else if (timedOut.get()) {
+      completeWithLastState();
+    }
+  }
+
+  private void handleTimeout() {
+    timedOut.set(true);
+    completeWithLastState();
+  }
+
+  private void completeWithLastState() {
+    T state = lastState.get();
+    if (state != null) {
+      result.complete(state);
+    }
+  }
+
+  private void stopSubscription() {
+    URI uri = subscriptionUri.getAndSet(null);
+    if (uri != null) {
+      ACTIVE_WAITERS.dec();
+      serviceHost.stopSubscriptionService(
+          Operation.createDelete(documentUri).setReferer(serviceHost.getUri()),
+          uri);
+    }
+  }
+}
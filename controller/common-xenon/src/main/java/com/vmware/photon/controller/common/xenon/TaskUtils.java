@@ -13,28 +13,46 @@
 
 package com.vmware.photon.controller.common.xenon;
 
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.UriUtils;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.FutureCallback;
 
+import java.net.URI;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * This class implements utility functions for tasks.
  */
 public class TaskUtils {
 
+  /**
+   * Number of task waits which fell back to polling because the subscription failed.
+   */
+  static final Counter FALLBACK_POLLS =
+      DefaultMetricRegistry.REGISTRY.counter(MetricRegistry.name(TaskUtils.class, "task-waiter-fallback-polls"));
+
   public static Set<TaskState.TaskStage> finalTaskStages =
       ImmutableSet.of(TaskState.TaskStage.CANCELLED, TaskState.TaskStage.FINISHED, TaskState.TaskStage.FAILED);
 
+  /**
+   * This function creates a task service and waits for its state to be accepted by the predicate. The task state is
+   * read again each time the task service notifies a change; if the notifications cannot be subscribed to, the task
+   * state is polled every taskPollDelay milliseconds instead.
+   */
   public static <T extends ServiceDocument> void startTaskAsync(
       final Service service,
       String factoryLink,
@@ -55,7 +73,7 @@ public class TaskUtils {
         }
 
         String serviceLink = operation.getBody(ServiceDocument.class).documentSelfLink;
-        checkProgress(service, serviceLink, predicate, type, taskPollDelay, callback);
+        waitForTaskAsync(service, serviceLink, predicate, type, taskPollDelay, callback);
       }
     };
 
@@ -66,6 +84,70 @@ public class TaskUtils {
     service.sendRequest(post);
   }
 
+  /**
+   * This function waits for the state of a task service to be accepted by the predicate, see
+   * {@link DocumentWaiter}. If the notifications cannot be subscribed to, the task state is polled every
+   * taskPollDelay milliseconds instead.
+   */
+  @VisibleForTesting
+  static <T extends ServiceDocument> void waitForTaskAsync(
+      final Service service,
+      final String serviceLink,
+      final Predicate<T> predicate,
+      final Class<T> type,
+      final int taskPollDelay,
+      final FutureCallback<T> callback) {
+
+    URI serviceUri = UriUtils.buildUri(service.getHost(), serviceLink);
+    Supplier<CompletableFuture<Operation>> reader = () -> {
+      CompletableFuture<Operation> future = new CompletableFuture<>();
+      service.sendRequest(Operation
+          .createGet(serviceUri)
+          .setCompletion((op, failure) -> {
+            if (failure != null) {
+              future.completeExceptionally(failure);
+            } else {
+              future.complete(op);
+            }
+          }));
+      return future;
+    };
+
+    new DocumentWaiter<>(service.getHost(), serviceUri, reader, type, predicate::apply)
+        .start()
+        .whenComplete((state, failure) -> {
+          if (failure != null) {
+            ServiceUtils.logSevere(service, "error when contacting [" + serviceLink + "] " + failure.getMessage());
+            ServiceUtils.logSevere(service, failure);
+            callback.onFailure(failure);
+            return;
+          }
+
+          if (predicate.apply(state)) {
+            callback.onSuccess(state);
+            return;
+          }
+
+          FALLBACK_POLLS.inc();
+          ServiceUtils.logWarning(service, "Failed to subscribe to [%s], polling it instead", serviceLink);
+          service.getHost().schedule(
+              () -> {
+                try {
+                  checkProgress(service, serviceLink, predicate, type, taskPollDelay, callback);
+                } catch (Throwable t) {
+                  ServiceUtils.logSevere(service, "error when contacting [" + serviceLink + "]" + t.getMessage());
+                  ServiceUtils.logSevere(service, t);
+                  callback.onFailure(t);
+                }
+              },
+              taskPollDelay, TimeUnit.MILLISECONDS);
+        });
+  }
+
+  /**
+   * This function polls the state of a service every taskPollDelay milliseconds until it is accepted by the
+   * predicate.
+   */
   public static <T extends ServiceDocument> void checkProgress(
       final Service service,
       final String serviceLink,
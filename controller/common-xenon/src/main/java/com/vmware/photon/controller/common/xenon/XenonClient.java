@@ -28,7 +28,10 @@ import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 /**
  * REST client API to access Xenon services.
@@ -125,4 +128,49 @@ public interface XenonClient {
   <T extends ServiceDocument> List<String> queryDocumentsForLinks(Class<T> documentType,
                                                                   ImmutableMap<String, String> terms)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException;
+
+  /*
+   * Non-blocking variants of the methods above.
+   *
+   * The returned future completes once Xenon completes the operation, without parking the calling thread.
+   * Failures are reported by completing the future exceptionally with the same exceptions the synchronous
+   * methods throw (BadRequestException, DocumentNotFoundException, TimeoutException, XenonRuntimeException).
+   *
+   * Dependent stages attached with the non-async CompletableFuture methods run on a Xenon host thread and
+   * must not block.
+   */
+
+  CompletableFuture<Operation> postAsync(String serviceSelfLink, ServiceDocument body);
+
+  CompletableFuture<Operation> putAsync(String serviceSelfLink, ServiceDocument body);
+
+  CompletableFuture<Operation> getAsync(String documentSelfLink);
+
+  CompletableFuture<Operation> deleteAsync(String documentSelfLink, ServiceDocument body);
+
+  CompletableFuture<Operation> patchAsync(String serviceSelfLink, Object body);
+
+  CompletableFuture<Operation> queryAsync(QueryTask queryTask);
+
+  CompletableFuture<Operation> postToBroadcastQueryServiceAsync(QueryTask.QuerySpecification spec);
+
+  <T extends ServiceDocument> CompletableFuture<T> getDocumentAsync(String documentSelfLink, Class<T> documentType);
+
+  <T extends ServiceDocument> CompletableFuture<T> waitForDocumentAsync(String documentSelfLink,
+                                                                      Class<T> documentType,
+                                                                      Predicate<T> predicate,
+                                                                      long timeout,
+                                                                      TimeUnit unit);
+
+  <T extends ServiceDocument> CompletableFuture<List<T>> queryDocumentsAsync(Class<T> documentType,
+                                                                            ImmutableMap<String, String> terms);
+
+  <T extends ServiceDocument> CompletableFuture<List<T>> queryDocumentsAsync(Class<T> documentType,
+                                                                            ImmutableMap<String, String> terms,
+                                                                            String inClauseFieldName,
+                                                                            Collection<String> inClauseValues);
+
+  <T extends ServiceDocument> CompletableFuture<List<String>> queryDocumentsForLinksAsync(
+      Class<T> documentType,
+      ImmutableMap<String, String> terms);
 }
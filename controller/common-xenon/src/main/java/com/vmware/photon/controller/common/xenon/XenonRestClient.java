@@ -42,6 +42,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -49,10 +50,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 /**
  * REST client to access Xenon services.
@@ -71,6 +74,8 @@ public class XenonRestClient implements XenonClient {
   private long deleteOperationExpirationMicros = DELETE_OPERATION_EXPIRATION_MICROS;
   private static final long PATCH_OPERATION_EXPIRATION_MICROS = TimeUnit.SECONDS.toMicros(60);
   private long patchOperationExpirationMicros = PATCH_OPERATION_EXPIRATION_MICROS;
+  // Upper bound on the values of a single IN clause, to stay well below the boolean clause limit of the index
+  private static final int IN_CLAUSE_BATCH_SIZE = 256;
   private static final long DEFAULT_OPERATION_LATCH_TIMEOUT_MICROS = TimeUnit.SECONDS.toMicros(90);
   private static final long SERVICE_DOCUMENT_STATUS_CHECK_INTERVAL_MILLIS = 100L;
   private long serviceDocumentStatusCheckIntervalMillis = SERVICE_DOCUMENT_STATUS_CHECK_INTERVAL_MILLIS;
@@ -144,66 +149,25 @@ public class XenonRestClient implements XenonClient {
   @Override
   public Operation post(Boolean forceIndexUpdate, String serviceSelfLink, ServiceDocument body, long timeOutInMicros)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = getServiceUri(serviceSelfLink);
-
-    Operation postOperation = Operation
-        .createPost(serviceUri)
-        .setUri(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + timeOutInMicros)
-        .setBody(body)
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    if (forceIndexUpdate) {
-      // this pragma will allow POST to a previously deleted service.
-      postOperation.addPragmaDirective(Operation.PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE);
-    }
-
-    return send(postOperation);
+    return send(buildPostOperation(forceIndexUpdate, serviceSelfLink, body, timeOutInMicros));
   }
 
   @Override
   public Operation put(String serviceSelfLink, ServiceDocument body)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = getServiceUri(serviceSelfLink);
-
-    Operation putOperation = Operation
-        .createPut(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getPutOperationExpirationMicros())
-        .setBody(body)
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    return send(putOperation);
+    return send(buildPutOperation(serviceSelfLink, body));
   }
 
   @Override
   public Operation get(String documentSelfLink)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = getServiceUri(documentSelfLink);
-
-    Operation getOperation = Operation
-        .createGet(serviceUri)
-        .setUri(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getGetOperationExpirationMicros())
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    return send(getOperation);
+    return send(buildGetOperation(getServiceUri(documentSelfLink)));
   }
 
   @Override
   public Operation get(URI documentServiceUri)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-
-    Operation getOperation = Operation
-        .createGet(documentServiceUri)
-        .setUri(documentServiceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getGetOperationExpirationMicros())
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    return send(getOperation);
+    return send(buildGetOperation(documentServiceUri));
   }
 
   @Override
@@ -241,17 +205,7 @@ public class XenonRestClient implements XenonClient {
   @Override
   public Operation delete(String documentSelfLink, ServiceDocument body)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-    URI serviceUri = getServiceUri(documentSelfLink);
-
-    Operation deleteOperation = Operation
-        .createDelete(serviceUri)
-        .setUri(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getDeleteOperationExpirationMicros())
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId())
-        .setBody(body);
-
-    return send(deleteOperation);
+    return send(buildDeleteOperation(documentSelfLink, body));
   }
 
   @Override
@@ -280,25 +234,7 @@ public class XenonRestClient implements XenonClient {
       DocumentNotFoundException,
       TimeoutException,
       InterruptedException {
-
-    // Build the URI that will broadcast. The base URI is something like /core-node-selectors/default/forwarding
-    // (which is the node selector's forwarder that will pick all nodes), and there is a query term to
-    // tell it where to forward the query to on each node (for us it's /core/local-query-tasks)
-    URI serviceUri = UriUtils.buildBroadcastRequestUri(
-        getServiceUri(ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
-        ServiceUriPaths.DEFAULT_NODE_SELECTOR);
-
-    query.setDirect(true);
-
-    Operation queryOperation = Operation
-        .createPost(serviceUri)
-        .setUri(serviceUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
-        .setBody(query)
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    return send(queryOperation);
+    return send(buildBroadcastQueryOperation(query));
   }
 
   @Override
@@ -310,16 +246,7 @@ public class XenonRestClient implements XenonClient {
   @Override
   public Operation patch(String serviceSelfLink, Object body, EnumSet<HeaderOption> headerOptions)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-
-    Operation patchOperation = Operation
-        .createPatch(getServiceUri(serviceSelfLink))
-        .setExpiration(Utils.getNowMicrosUtc() + getPatchOperationExpirationMicros())
-        .setBody(body)
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    addRequestHeaders(patchOperation, headerOptions);
-    return send(patchOperation);
+    return send(buildPatchOperation(serviceSelfLink, body, headerOptions));
   }
 
   @Override
@@ -331,18 +258,7 @@ public class XenonRestClient implements XenonClient {
   @Override
   public Operation query(QueryTask queryTask)
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
-
-    URI queryFactoryUri = getServiceUri(ServiceUriPaths.CORE_QUERY_TASKS);
-
-    Operation queryOperation = Operation
-        .createPost(queryFactoryUri)
-        .setUri(queryFactoryUri)
-        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
-        .setBody(queryTask)
-        .setReferer(this.localHostUri)
-        .setContextId(LoggingUtils.getRequestId());
-
-    return send(queryOperation);
+    return send(buildQueryOperation(queryTask));
   }
 
   /**
@@ -361,9 +277,7 @@ public class XenonRestClient implements XenonClient {
       throws BadRequestException, DocumentNotFoundException, TimeoutException, InterruptedException {
     checkNotNull(documentType, "Cannot query documents with null documentType");
 
-    QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(documentType, terms);
-    spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
-    Operation result = postToBroadcastQueryService(spec);
+    Operation result = postToBroadcastQueryService(buildExpandedQuerySpec(documentType, terms));
 
     return QueryTaskUtils.getBroadcastQueryDocuments(documentType, result);
   }
@@ -508,6 +422,154 @@ public class XenonRestClient implements XenonClient {
     return ImmutableList.copyOf(documentLinks);
   }
 
+  @Override
+  public CompletableFuture<Operation> postAsync(String serviceSelfLink, ServiceDocument body) {
+    return sendAsync(buildPostOperation(false, serviceSelfLink, body, getPostOperationExpirationMicros()));
+  }
+
+  @Override
+  public CompletableFuture<Operation> putAsync(String serviceSelfLink, ServiceDocument body) {
+    return sendAsync(buildPutOperation(serviceSelfLink, body));
+  }
+
+  @Override
+  public CompletableFuture<Operation> getAsync(String documentSelfLink) {
+    return sendAsync(buildGetOperation(getServiceUri(documentSelfLink)));
+  }
+
+  @Override
+  public CompletableFuture<Operation> deleteAsync(String documentSelfLink, ServiceDocument body) {
+    return sendAsync(buildDeleteOperation(documentSelfLink, body));
+  }
+
+  @Override
+  public CompletableFuture<Operation> patchAsync(String serviceSelfLink, Object body) {
+    return sendAsync(buildPatchOperation(serviceSelfLink, body, null));
+  }
+
+  @Override
+  public CompletableFuture<Operation> queryAsync(QueryTask queryTask) {
+    return sendAsync(buildQueryOperation(queryTask));
+  }
+
+  @Override
+  public CompletableFuture<Operation> postToBroadcastQueryServiceAsync(QueryTask.QuerySpecification spec) {
+    return sendAsync(buildBroadcastQueryOperation(QueryTask.create(spec)));
+  }
+
+  @Override
+  public <T extends ServiceDocument> CompletableFuture<T> getDocumentAsync(String documentSelfLink,
+                                                                           Class<T> documentType) {
+    return getAsync(documentSelfLink).thenApply(operation -> operation.getBody(documentType));
+  }
+
+  /**
+   * Waits for the document to reach a state accepted by the predicate, for up to the timeout, and completes with
+   * that state, or with the last state read when the timeout expires. The wait is driven by the notifications of
+   * the document service rather than by polling it, see {@link DocumentWaiter}.
+   *
+   * @param documentSelfLink
+   * @param documentType
+   * @param predicate
+   * @param timeout
+   * @param unit
+   * @param <T>
+   * @return
+   */
+  @Override
+  public <T extends ServiceDocument> CompletableFuture<T> waitForDocumentAsync(String documentSelfLink,
+                                                                             Class<T> documentType,
+                                                                             Predicate<T> predicate,
+                                                                             long timeout,
+                                                                             TimeUnit unit) {
+    checkNotNull(documentType, "Cannot wait for a document with null documentType");
+    checkNotNull(predicate, "Cannot wait for a document with null predicate");
+
+    URI documentUri = getServiceUri(documentSelfLink);
+    return new DocumentWaiter<>(serviceHost, documentUri, () -> sendAsync(buildGetOperation(documentUri)),
+        documentType, predicate)
+        .start(timeout, unit, scheduledExecutorService);
+  }
+
+  /**
+   * Non-blocking variant of {@link #queryDocuments(Class, ImmutableMap)}.
+   *
+   * @param documentType
+   * @param terms
+   * @param <T>
+   * @return
+   */
+  @Override
+  public <T extends ServiceDocument> CompletableFuture<List<T>> queryDocumentsAsync(
+      Class<T> documentType,
+      ImmutableMap<String, String> terms) {
+    checkNotNull(documentType, "Cannot query documents with null documentType");
+
+    return postToBroadcastQueryServiceAsync(buildExpandedQuerySpec(documentType, terms))
+        .thenApply(result -> QueryTaskUtils.getBroadcastQueryDocuments(documentType, result));
+  }
+
+  /**
+   * Queries for the documents of type T matching the terms whose inClauseFieldName field has one of the given
+   * values, e.g. all the documents of a set of ids. This replaces one query per value with a handful of set-based
+   * queries: the values are split into batches of IN_CLAUSE_BATCH_SIZE that are queried concurrently, and the
+   * documents of all the batches are merged in no particular order.
+   *
+   * @param documentType
+   * @param terms
+   * @param inClauseFieldName
+   * @param inClauseValues
+   * @param <T>
+   * @return
+   */
+  @Override
+  public <T extends ServiceDocument> CompletableFuture<List<T>> queryDocumentsAsync(
+      Class<T> documentType,
+      ImmutableMap<String, String> terms,
+      String inClauseFieldName,
+      Collection<String> inClauseValues) {
+    checkNotNull(documentType, "Cannot query documents with null documentType");
+    checkNotNull(inClauseFieldName, "Cannot query documents with null inClauseFieldName");
+
+    List<String> values = ImmutableList.copyOf(inClauseValues);
+    List<CompletableFuture<List<T>>> batches = new ArrayList<>();
+    for (int i = 0; i < values.size(); i += IN_CLAUSE_BATCH_SIZE) {
+      List<String> batch = values.subList(i, Math.min(i + IN_CLAUSE_BATCH_SIZE, values.size()));
+      QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(documentType, terms,
+          ImmutableMap.of(inClauseFieldName, batch));
+      spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+      batches.add(postToBroadcastQueryServiceAsync(spec)
+          .thenApply(result -> QueryTaskUtils.getBroadcastQueryDocuments(documentType, result)));
+    }
+
+    return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[batches.size()]))
+        .thenApply(ignore -> {
+          List<T> documents = new ArrayList<>();
+          for (CompletableFuture<List<T>> batch : batches) {
+            documents.addAll(batch.join());
+          }
+          return documents;
+        });
+  }
+
+  /**
+   * Non-blocking variant of {@link #queryDocumentsForLinks(Class, ImmutableMap)}.
+   *
+   * @param documentType
+   * @param terms
+   * @param <T>
+   * @return
+   */
+  @Override
+  public <T extends ServiceDocument> CompletableFuture<List<String>> queryDocumentsForLinksAsync(
+      Class<T> documentType,
+      ImmutableMap<String, String> terms) {
+    checkNotNull(documentType, "Cannot query documents with null documentType");
+
+    return postToBroadcastQueryServiceAsync(QueryTaskUtils.buildQuerySpec(documentType, terms))
+        .thenApply(result -> ImmutableList.copyOf(QueryTaskUtils.getBroadcastQueryDocumentLinks(result)));
+  }
+
   /**
    * This method sifts through errors from Xenon operations into checked and unchecked(RuntimeExceptions) This is the
    * default handling but it can be overridden by different clients based on their needs.
@@ -596,6 +658,29 @@ public class XenonRestClient implements XenonClient {
     return completedOperation;
   }
 
+  /**
+   * Sends the operation without waiting for it to complete. The result is checked with the same
+   * {@link #handleOperationResult} as {@link #send(Operation)}, and the future fails with the exception
+   * it raises.
+   */
+  @VisibleForTesting
+  protected CompletableFuture<Operation> sendAsync(Operation requestedOperation) {
+    logger.debug("sendAsync: STARTED {}", OperationUtils.createLogMessage(requestedOperation));
+    CompletableFuture<Operation> future = new CompletableFuture<>();
+    requestedOperation.setCompletion((completedOperation, failure) -> {
+      try {
+        logCompletedOperation(completedOperation);
+        handleOperationResult(requestedOperation, completedOperation);
+        future.complete(completedOperation);
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+
+    serviceHost.sendRequest(requestedOperation);
+    return future;
+  }
+
   @VisibleForTesting
   protected Map<String, Operation> send(Map<Long, Operation> requestedOperations,
                                         Map<Long, String> sourceLinks,
@@ -777,6 +862,107 @@ public class XenonRestClient implements XenonClient {
     }
   }
 
+  private Operation buildPostOperation(Boolean forceIndexUpdate, String serviceSelfLink, ServiceDocument body,
+                                       long timeOutInMicros) {
+    URI serviceUri = getServiceUri(serviceSelfLink);
+
+    Operation postOperation = Operation
+        .createPost(serviceUri)
+        .setUri(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + timeOutInMicros)
+        .setBody(body)
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId());
+
+    if (forceIndexUpdate) {
+      // this pragma will allow POST to a previously deleted service.
+      postOperation.addPragmaDirective(Operation.PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE);
+    }
+
+    return postOperation;
+  }
+
+  private Operation buildPutOperation(String serviceSelfLink, ServiceDocument body) {
+    URI serviceUri = getServiceUri(serviceSelfLink);
+
+    return Operation
+        .createPut(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getPutOperationExpirationMicros())
+        .setBody(body)
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId());
+  }
+
+  private Operation buildGetOperation(URI serviceUri) {
+    return Operation
+        .createGet(serviceUri)
+        .setUri(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getGetOperationExpirationMicros())
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId());
+  }
+
+  private Operation buildDeleteOperation(String documentSelfLink, ServiceDocument body) {
+    URI serviceUri = getServiceUri(documentSelfLink);
+
+    return Operation
+        .createDelete(serviceUri)
+        .setUri(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getDeleteOperationExpirationMicros())
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId())
+        .setBody(body);
+  }
+
+  private Operation buildPatchOperation(String serviceSelfLink, Object body, EnumSet<HeaderOption> headerOptions) {
+    Operation patchOperation = Operation
+        .createPatch(getServiceUri(serviceSelfLink))
+        .setExpiration(Utils.getNowMicrosUtc() + getPatchOperationExpirationMicros())
+        .setBody(body)
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId());
+
+    return addRequestHeaders(patchOperation, headerOptions);
+  }
+
+  private Operation buildQueryOperation(QueryTask queryTask) {
+    URI queryFactoryUri = getServiceUri(ServiceUriPaths.CORE_QUERY_TASKS);
+
+    return Operation
+        .createPost(queryFactoryUri)
+        .setUri(queryFactoryUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
+        .setBody(queryTask)
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId());
+  }
+
+  private Operation buildBroadcastQueryOperation(QueryTask query) {
+    // Build the URI that will broadcast. The base URI is something like /core-node-selectors/default/forwarding
+    // (which is the node selector's forwarder that will pick all nodes), and there is a query term to
+    // tell it where to forward the query to on each node (for us it's /core/local-query-tasks)
+    URI serviceUri = UriUtils.buildBroadcastRequestUri(
+        getServiceUri(ServiceUriPaths.CORE_LOCAL_QUERY_TASKS),
+        ServiceUriPaths.DEFAULT_NODE_SELECTOR);
+
+    query.setDirect(true);
+
+    return Operation
+        .createPost(serviceUri)
+        .setUri(serviceUri)
+        .setExpiration(Utils.getNowMicrosUtc() + getQueryOperationExpirationMicros())
+        .setBody(query)
+        .setReferer(this.localHostUri)
+        .setContextId(LoggingUtils.getRequestId());
+  }
+
+  private static QueryTask.QuerySpecification buildExpandedQuerySpec(Class<?> documentType,
+                                                                     ImmutableMap<String, String> terms) {
+    QueryTask.QuerySpecification spec = QueryTaskUtils.buildQuerySpec(documentType, terms);
+    spec.options = EnumSet.of(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT);
+    return spec;
+  }
+
   private Operation addRequestHeaders(Operation operation, EnumSet<HeaderOption> headerOptions) {
 
     if (headerOptions != null) {
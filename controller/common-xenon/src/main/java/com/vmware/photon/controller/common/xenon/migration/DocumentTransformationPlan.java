@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon.migration;
+
+import com.vmware.photon.controller.common.xenon.validation.RenamedField;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.Utils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class transforms documents copied from another deployment into documents of a service document class, the
+ * way deserializing them into the class, applying {@link MigrationUtils#handleRenamedField} and serializing them
+ * again does:
+ * - the values of the properties named in {@link RenamedField} annotations are moved to the annotated fields, and
+ *   win over values already under the field name,
+ * - number and boolean values are converted to the type of their field,
+ * - properties the class does not have and null properties are dropped.
+ *
+ * The fields and annotations of a class are looked up once, when its plan is built, and the plans are cached. Each
+ * document is then transformed with one pass over the properties of its JSON tree.
+ */
+public class DocumentTransformationPlan {
+
+  private static final ConcurrentMap<Class<?>, DocumentTransformationPlan> plans = new ConcurrentHashMap<>();
+
+  private final Class<? extends ServiceDocument> documentType;
+
+  /**
+   * The conversion of the value of each field, by field name.
+   */
+  private final Map<String, UnaryOperator<JsonElement>> fields;
+
+  /**
+   * The names of the renamed fields, by their original names.
+   */
+  private final Map<String, String> renamedFields;
+
+  private DocumentTransformationPlan(Class<? extends ServiceDocument> documentType) {
+    Map<String, UnaryOperator<JsonElement>> fields = new HashMap<>();
+    Map<String, String> renamedFields = new HashMap<>();
+    for (Class<?> type = documentType; type != null && type != Object.class; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (field.isSynthetic() || Modifier.isStatic(field.getModifiers())
+            || Modifier.isTransient(field.getModifiers())) {
+          continue;
+        }
+
+        // Fields of a subclass hide the fields of its superclasses with the same name
+        fields.putIfAbsent(field.getName(), getConversion(field.getType()));
+        RenamedField renamedField = field.getAnnotation(RenamedField.class);
+        if (renamedField != null) {
+          renamedFields.putIfAbsent(renamedField.originalName(), field.getName());
+        }
+      }
+    }
+
+    this.documentType = documentType;
+    this.fields = ImmutableMap.copyOf(fields);
+    this.renamedFields = ImmutableMap.copyOf(renamedFields);
+  }
+
+  /**
+   * Returns the plan of a service document class, which is built on the first call.
+   */
+  @SuppressWarnings("unchecked")
+  public static DocumentTransformationPlan get(Class<? extends ServiceDocument> documentType) {
+    return plans.computeIfAbsent(documentType,
+        type -> new DocumentTransformationPlan((Class<? extends ServiceDocument>) type));
+  }
+
+  public Class<? extends ServiceDocument> getDocumentType() {
+    return documentType;
+  }
+
+  /**
+   * Transforms a document, given as a JSON string, a JSON tree or an object to serialize, into a new JSON tree.
+   */
+  public JsonObject transform(Object document) {
+    JsonObject source = toJsonObject(document);
+    JsonObject result = new JsonObject();
+    for (Map.Entry<String, JsonElement> property : source.entrySet()) {
+      UnaryOperator<JsonElement> conversion = fields.get(property.getKey());
+      if (conversion != null && !property.getValue().isJsonNull()) {
+        result.add(property.getKey(), conversion.apply(property.getValue()));
+      }
+    }
+
+    for (Map.Entry<String, String> renamedField : renamedFields.entrySet()) {
+      JsonElement value = source.get(renamedField.getKey());
+      if (value != null && !value.isJsonNull()) {
+        result.add(renamedField.getValue(), fields.get(renamedField.getValue()).apply(value));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Transforms a document into a JSON string.
+   */
+  public String transformToJson(Object document) {
+    return transform(document).toString();
+  }
+
+  private static JsonObject toJsonObject(Object document) {
+    if (document instanceof JsonObject) {
+      return (JsonObject) document;
+    }
+
+    String json = document instanceof String ? (String) document : Utils.toJson(false, false, document);
+    return new JsonParser().parse(json).getAsJsonObject();
+  }
+
+  private static UnaryOperator<JsonElement> getConversion(Class<?> fieldType) {
+    if (fieldType == Long.class || fieldType == long.class
+        || fieldType == Integer.class || fieldType == int.class
+        || fieldType == Short.class || fieldType == short.class
+        || fieldType == Byte.class || fieldType == byte.class) {
+      return DocumentTransformationPlan::toIntegral;
+    }
+
+    if (fieldType == Double.class || fieldType == double.class
+        || fieldType == Float.class || fieldType == float.class) {
+      return DocumentTransformationPlan::toDecimal;
+    }
+
+    if (fieldType == Boolean.class || fieldType == boolean.class) {
+      return DocumentTransformationPlan::toBoolean;
+    }
+
+    return UnaryOperator.identity();
+  }
+
+  /**
+   * Converts numbers written as decimals, such as 1.0, and numeric strings to integral numbers. Other values are
+   * left for the destination to reject.
+   */
+  private static JsonElement toIntegral(JsonElement value) {
+    if (value.isJsonPrimitive() && !value.getAsJsonPrimitive().isBoolean()) {
+      try {
+        return new JsonPrimitive(value.getAsBigDecimal().longValueExact());
+      } catch (NumberFormatException | ArithmeticException e) {
+        // Not an integral number
+      }
+    }
+    return value;
+  }
+
+  private static JsonElement toDecimal(JsonElement value) {
+    if (value.isJsonPrimitive() && !value.getAsJsonPrimitive().isBoolean()) {
+      try {
+        return new JsonPrimitive(value.getAsBigDecimal().doubleValue());
+      } catch (NumberFormatException e) {
+        // Not a number
+      }
+    }
+    return value;
+  }
+
+  private static JsonElement toBoolean(JsonElement value) {
+    if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+      return new JsonPrimitive(Boolean.parseBoolean(value.getAsString()));
+    }
+    return value;
+  }
+}
@@ -13,6 +13,7 @@
 
 package com.vmware.photon.controller.common.xenon.scheduler;
 
+import com.vmware.photon.controller.common.xenon.ContinuousQuerySubscription;
 import com.vmware.photon.controller.common.xenon.InitializationUtils;
 import com.vmware.photon.controller.common.xenon.OperationUtils;
 import com.vmware.photon.controller.common.xenon.PatchUtils;
@@ -21,11 +22,13 @@ import com.vmware.photon.controller.common.xenon.ServiceUtils;
 import com.vmware.photon.controller.common.xenon.ValidationUtils;
 import com.vmware.photon.controller.common.xenon.deployment.NoMigrationDuringDeployment;
 import com.vmware.photon.controller.common.xenon.migration.NoMigrationDuringUpgrade;
+import com.vmware.photon.controller.common.xenon.validation.DefaultBoolean;
 import com.vmware.photon.controller.common.xenon.validation.NotBlank;
 import com.vmware.photon.controller.common.xenon.validation.NotNull;
 import com.vmware.photon.controller.common.xenon.validation.Positive;
 import com.vmware.xenon.common.NodeSelectorService;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceDocumentQueryResult;
 import com.vmware.xenon.common.StatefulService;
@@ -35,12 +38,39 @@ import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.QueryTask;
 import com.vmware.xenon.services.common.ServiceUriPaths;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Class TaskSchedulerService: periodically starts new services based on the threshold of how many services
  * can be running simultaneously.
+ *
+ * When {@link State#eventDriven} is set, the owner of the scheduler does not query the index on every trigger
+ * interval. Instead it subscribes to a continuous query on the scheduled service kind and keeps the sets of
+ * CREATED and STARTED services in memory, so a service is started as soon as a slot frees up. The query based
+ * sweep is still run every {@link TaskSchedulerServiceStateBuilder#safetyNetInterval} (and whenever the node
+ * becomes the owner) to reseed the sets and recover from missed notifications.
  */
 public class TaskSchedulerService extends StatefulService {
 
+  /**
+   * The in-memory view of the scheduled services, only used in event driven mode. Guarded by this.
+   */
+  private final Set<String> runningServices = new HashSet<>();
+  private final Set<String> pendingServices = new LinkedHashSet<>();
+  private State cachedState;
+  private boolean isOwner;
+  private boolean subscribed;
+  private boolean subscriptionActive;
+  private long lastSweepMicros;
+  private ContinuousQuerySubscription subscription;
+  private Field stageField;
+
   /**
    * Default constructor.
    */
@@ -59,6 +89,7 @@ public class TaskSchedulerService extends StatefulService {
       State s = start.getBody(State.class);
       this.initializeState(s);
       this.validateState(s);
+      setCachedState(s);
 
       start.complete();
     } catch (Throwable e) {
@@ -81,6 +112,7 @@ public class TaskSchedulerService extends StatefulService {
       this.validatePatch(currentState, patchState);
       this.applyPatch(currentState, patchState);
       this.validateState(currentState);
+      setCachedState(currentState);
 
       patch.complete();
 
@@ -112,6 +144,17 @@ public class TaskSchedulerService extends StatefulService {
         ServiceUtils.logInfo(TaskSchedulerService.this,
             "Host[%s]: Not owner of scheduler [%s] (Owner Info [%s])",
             getHost().getId(), getSelfLink(), Utils.toJson(false, false, rsp));
+        setOwner(false);
+        return;
+      }
+
+      State current = getCachedState();
+      if (current != null && current.eventDriven) {
+        setOwner(true);
+        subscribe(current);
+        if (isSubscriptionActive() && isSweepDue()) {
+          sweep(current);
+        }
         return;
       }
 
@@ -126,6 +169,24 @@ public class TaskSchedulerService extends StatefulService {
     getHost().selectOwner(null, getSelfLink(), selectOwnerOp);
   }
 
+  @Override
+  public void handleStop(Operation delete) {
+    synchronized (this) {
+      isOwner = false;
+      subscribed = false;
+      subscriptionActive = false;
+      runningServices.clear();
+      pendingServices.clear();
+    }
+
+    if (subscription != null) {
+      subscription.unsubscribe();
+      subscription = null;
+    }
+
+    super.handleStop(delete);
+  }
+
   /**
    * Initialize state with defaults.
    *
@@ -171,6 +232,22 @@ public class TaskSchedulerService extends StatefulService {
    * reached the threshold.
    */
   private void processPatch(final State current) {
+    if (current.eventDriven) {
+      // Patches from other services are hints that a slot may have been freed; the in-memory sets are only
+      // rebuilt from the index when they have never been seeded or the safety net sweep is due. Until the
+      // maintenance has found this node to be the owner there is nothing to do.
+      if (!isOwner() || !isSubscriptionActive()) {
+        return;
+      }
+
+      if (isSweepDue()) {
+        sweep(current);
+      } else {
+        startPendingServices(current);
+      }
+      return;
+    }
+
     Operation.CompletionHandler handler = new Operation.CompletionHandler() {
       @Override
       public void handle(Operation completedOp, Throwable failure) {
@@ -229,20 +306,270 @@ public class TaskSchedulerService extends StatefulService {
    * @param docSelfLink
    */
   private void sendStartPatch(final State current, String docSelfLink) {
+    sendStartPatch(current, docSelfLink, null);
+  }
+
+  private void sendStartPatch(final State current, String docSelfLink, Operation.CompletionHandler handler) {
     try {
       ServiceDocument startedPatch =
           TaskSchedulerServiceStateBuilder
               .getStartPatch(Class.forName(current.schedulerServiceClassName));
       Operation patch = Operation.createPatch(UriUtils.buildUri(getHost(), docSelfLink))
           .setBody(startedPatch)
-          .setReferer(UriUtils.buildUri(getHost(), getSelfLink()));
+          .setReferer(UriUtils.buildUri(getHost(), getSelfLink()))
+          .setCompletion(handler);
       sendRequest(patch);
 
       ServiceUtils.logInfo(this,
           "Host[%s]: TaskSchedulerService moving service %s from CREATED to STARTED", getHost().getId(), docSelfLink);
     } catch (Exception e) {
       logFailure(e);
+      if (handler != null) {
+        handler.handle(null, e);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the in-memory sets of STARTED and CREATED services from the index, then starts pending services
+   * up to the limit.
+   */
+  private void sweep(final State current) {
+    synchronized (this) {
+      lastSweepMicros = Utils.getNowMicrosUtc();
+    }
+
+    sendTaskStateQuery(current, TaskState.TaskStage.STARTED, (startedOp, startedFailure) -> {
+      if (startedFailure != null) {
+        logFailure(startedFailure);
+        resetSweep();
+        return;
+      }
+
+      List<String> started = startedOp.getBody(QueryTask.class).results.documentLinks;
+      sendTaskStateQuery(current, TaskState.TaskStage.CREATED, (createdOp, createdFailure) -> {
+        if (createdFailure != null) {
+          logFailure(createdFailure);
+          resetSweep();
+          return;
+        }
+
+        List<String> created = createdOp.getBody(QueryTask.class).results.documentLinks;
+        synchronized (TaskSchedulerService.this) {
+          runningServices.clear();
+          runningServices.addAll(started);
+          pendingServices.clear();
+          pendingServices.addAll(created);
+        }
+
+        startPendingServices(current);
+      });
+    });
+  }
+
+  /**
+   * Moves pending services to STARTED while there are free slots. Services are counted as running as soon as
+   * their start patch is sent; if the patch fails they are dropped, and the next sweep picks them up again.
+   */
+  private void startPendingServices(final State current) {
+    List<String> toStart = new ArrayList<>();
+    synchronized (this) {
+      if (!isOwner) {
+        return;
+      }
+
+      Iterator<String> iterator = pendingServices.iterator();
+      while (iterator.hasNext() && runningServices.size() < current.tasksLimits) {
+        String docLink = iterator.next();
+        iterator.remove();
+        runningServices.add(docLink);
+        toStart.add(docLink);
+      }
+    }
+
+    for (String docLink : toStart) {
+      sendStartPatch(current, docLink, (op, failure) -> {
+        if (failure != null) {
+          synchronized (TaskSchedulerService.this) {
+            runningServices.remove(docLink);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Creates the continuous query on the scheduled service kind and subscribes to its notifications, unless
+   * this was already done.
+   */
+  private void subscribe(final State current) {
+    synchronized (this) {
+      if (subscribed) {
+        return;
+      }
+      subscribed = true;
+    }
+
+    QueryTask.Query query;
+    try {
+      query = QueryTask.Query.Builder.create()
+          .addKindFieldClause(getDocumentClass(current))
+          .build();
+    } catch (ClassNotFoundException e) {
+      logFailure(e);
+      resetSubscription();
+      return;
     }
+
+    subscription = new ContinuousQuerySubscription(getHost(), query, true, this::handleNotification);
+    subscription.subscribe((op, failure) -> {
+      if (failure != null) {
+        // retried on the next maintenance
+        logFailure(failure);
+        resetSubscription();
+        return;
+      }
+
+      ServiceUtils.logInfo(TaskSchedulerService.this,
+          "Host[%s]: Subscribed to continuous query %s", getHost().getId(), subscription.getQueryLink());
+
+      // the sets are seeded once the subscription is active so that no change is missed in between
+      synchronized (TaskSchedulerService.this) {
+        subscriptionActive = true;
+      }
+      if (isOwner()) {
+        sweep(current);
+      }
+    });
+  }
+
+  /**
+   * Applies the stage changes reported by the continuous query to the in-memory sets, then starts pending
+   * services if slots were freed.
+   */
+  private void handleNotification(Operation notification) {
+    notification.complete();
+
+    State current = getCachedState();
+    if (current == null || !notification.hasBody()) {
+      return;
+    }
+
+    QueryTask queryTask = notification.getBody(QueryTask.class);
+    if (queryTask.results == null || queryTask.results.documents == null) {
+      return;
+    }
+
+    synchronized (this) {
+      if (!isOwner) {
+        return;
+      }
+
+      for (Object document : queryTask.results.documents.values()) {
+        try {
+          applyDocument(current, document);
+        } catch (Throwable t) {
+          logFailure(t);
+        }
+      }
+    }
+
+    startPendingServices(current);
+  }
+
+  private void applyDocument(State current, Object document) throws Exception {
+    ServiceDocument header = Utils.fromJson(document, ServiceDocument.class);
+    String docLink = header.documentSelfLink;
+    if (Service.Action.DELETE.toString().equals(header.documentUpdateAction)) {
+      runningServices.remove(docLink);
+      pendingServices.remove(docLink);
+      return;
+    }
+
+    TaskState.TaskStage stage = getStage(current, document);
+    if (stage == null) {
+      return;
+    }
+
+    switch (stage) {
+      case CREATED:
+        // A service never goes back to CREATED, so a late notification for a service this scheduler already
+        // started is ignored.
+        if (!runningServices.contains(docLink)) {
+          pendingServices.add(docLink);
+        }
+        break;
+      case STARTED:
+        pendingServices.remove(docLink);
+        runningServices.add(docLink);
+        break;
+      default:
+        runningServices.remove(docLink);
+        pendingServices.remove(docLink);
+        break;
+    }
+  }
+
+  private TaskState.TaskStage getStage(State current, Object document) throws Exception {
+    Class<? extends ServiceDocument> documentClass = getDocumentClass(current);
+    if (stageField == null) {
+      for (Field field : documentClass.getFields()) {
+        if (TaskState.class.isAssignableFrom(field.getType())) {
+          stageField = field;
+          break;
+        }
+      }
+      if (stageField == null) {
+        throw new IllegalArgumentException(
+            String.format("%s does not have a member of type %s", documentClass, TaskState.class));
+      }
+    }
+
+    TaskState taskState = (TaskState) stageField.get(Utils.fromJson(document, documentClass));
+    return taskState == null ? null : taskState.stage;
+  }
+
+  private static Class<? extends ServiceDocument> getDocumentClass(State current) throws ClassNotFoundException {
+    return Class.forName(current.schedulerServiceClassName).getDeclaredClasses()[0]
+        .asSubclass(ServiceDocument.class);
+  }
+
+  private synchronized void setOwner(boolean owner) {
+    if (owner && !isOwner) {
+      // the sets may be stale if another node owned the scheduler in the meantime
+      lastSweepMicros = 0;
+    }
+    isOwner = owner;
+  }
+
+  private synchronized boolean isOwner() {
+    return isOwner;
+  }
+
+  private synchronized boolean isSweepDue() {
+    return lastSweepMicros == 0
+        || Utils.getNowMicrosUtc() - lastSweepMicros >= TaskSchedulerServiceStateBuilder.safetyNetInterval;
+  }
+
+  private synchronized void resetSweep() {
+    lastSweepMicros = 0;
+  }
+
+  private synchronized boolean isSubscriptionActive() {
+    return subscriptionActive;
+  }
+
+  private synchronized void resetSubscription() {
+    subscribed = false;
+    subscriptionActive = false;
+  }
+
+  private synchronized State getCachedState() {
+    return cachedState;
+  }
+
+  private synchronized void setCachedState(State state) {
+    cachedState = Utils.clone(state);
   }
 
   /**
@@ -306,5 +633,12 @@ public class TaskSchedulerService extends StatefulService {
     @NotNull
     @Positive
     public Integer tasksLimits;
+
+    /**
+     * Whether services are started as soon as a slot frees up, based on continuous query notifications,
+     * instead of by a query on every trigger interval.
+     */
+    @DefaultBoolean(value = false)
+    public Boolean eventDriven;
   }
 }
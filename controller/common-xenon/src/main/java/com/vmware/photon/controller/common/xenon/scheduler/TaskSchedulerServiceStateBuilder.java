@@ -34,6 +34,11 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
    */
   public static long triggerInterval = TimeUnit.SECONDS.toMicros(60); // 1 min
 
+  /**
+   * Interval of the query based sweep of event driven schedulers.
+   */
+  public static long safetyNetInterval = TimeUnit.MINUTES.toMicros(10);
+
   /**
    * Class of the service to be triggered.
    */
@@ -44,9 +49,20 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
    */
   private int maxRunningTasks;
 
+  /**
+   * Whether the scheduler starts tasks from continuous query notifications.
+   */
+  private boolean eventDriven;
+
   public TaskSchedulerServiceStateBuilder(Class<? extends StatefulService> service, int maxRunningTasks) {
+    this(service, maxRunningTasks, false);
+  }
+
+  public TaskSchedulerServiceStateBuilder(Class<? extends StatefulService> service, int maxRunningTasks,
+                                          boolean eventDriven) {
     this.serviceClass = service;
     this.maxRunningTasks = maxRunningTasks;
+    this.eventDriven = eventDriven;
   }
 
   @Override
@@ -55,6 +71,7 @@ public class TaskSchedulerServiceStateBuilder implements TaskStateBuilder {
     TaskSchedulerService.State state = new TaskSchedulerService.State();
     state.schedulerServiceClassName = this.serviceClass.getName();
     state.tasksLimits = this.maxRunningTasks;
+    state.eventDriven = this.eventDriven;
 
     return state;
   }
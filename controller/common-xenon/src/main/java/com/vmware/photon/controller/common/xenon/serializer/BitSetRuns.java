@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon.serializer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Run-length form of a {@link BitSet}, shared by its Kryo and JSON serialization. The runs alternate between clear
+ * and set bits, starting with a (possibly empty) run of clear bits, so a bit set which is mostly empty or mostly
+ * full takes a few runs where its words would take one long per 64 bits.
+ */
+class BitSetRuns {
+
+  /**
+   * Returns the runs of the bit set, or null if there are more than maxRuns of them, in which case the words of the
+   * bit set are the smaller form.
+   */
+  static int[] toRuns(BitSet bitSet, int maxRuns) {
+    int[] runs = new int[Math.min(maxRuns, 16)];
+    int runCount = 0;
+    int clearStart = 0;
+    int setStart = bitSet.nextSetBit(0);
+    while (setStart >= 0) {
+      if (runCount + 2 > maxRuns) {
+        return null;
+      }
+      if (runCount + 2 > runs.length) {
+        runs = Arrays.copyOf(runs, Math.min(maxRuns, runs.length * 2 + 2));
+      }
+
+      int setEnd = bitSet.nextClearBit(setStart);
+      runs[runCount++] = setStart - clearStart;
+      runs[runCount++] = setEnd - setStart;
+      clearStart = setEnd;
+      setStart = bitSet.nextSetBit(setEnd);
+    }
+
+    return runCount == runs.length ? runs : Arrays.copyOf(runs, runCount);
+  }
+
+  /**
+   * Returns the bit set of the given runs.
+   */
+  static BitSet fromRuns(int[] runs) {
+    if (runs.length % 2 != 0) {
+      throw new IllegalArgumentException("BitSet runs must come in pairs, got " + runs.length + " runs");
+    }
+
+    BitSet bitSet = new BitSet();
+    int index = 0;
+    for (int i = 0; i < runs.length; i += 2) {
+      index += runs[i];
+      bitSet.set(index, index + runs[i + 1]);
+      index += runs[i + 1];
+    }
+    return bitSet;
+  }
+
+  /**
+   * The most runs for which the run-length form is used. A run takes at most about half the space of a word, in
+   * Kryo varints as in JSON digits, so the runs are used when there are fewer than two per word.
+   */
+  static int maxRuns(long[] words) {
+    return words.length * 2;
+  }
+}
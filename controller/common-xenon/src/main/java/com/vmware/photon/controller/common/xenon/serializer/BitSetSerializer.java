@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.common.xenon.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
@@ -22,58 +23,80 @@ import java.util.BitSet;
 
 /**
  * This class implements a customized BitSet serializer for Kryo.
+ *
+ * A bit set is written either as its runs of clear and set bits or as its words, whichever is smaller, after a
+ * negative format tag. Documents written before the tag was introduced start with the non-negative length of the
+ * bit set followed by its words, and are still read.
  */
 public class BitSetSerializer extends Serializer<BitSet> {
 
+  /**
+   * Tag of a bit set written as the runs of {@link BitSetRuns}.
+   */
+  public static final int RUNS_FORMAT = -1;
+
+  /**
+   * Tag of a bit set written as its words.
+   */
+  public static final int WORDS_FORMAT = -2;
+
   @Override
   public BitSet copy(final Kryo kryo, final BitSet original) {
-    final BitSet result = new BitSet();
-    final int length = original.length();
-    for (int i = 0; i < length; i++) {
-      result.set(i, original.get(i));
-    }
-    return result;
+    return (BitSet) original.clone();
   }
 
   @Override
   public void write(final Kryo kryo, final Output output, final BitSet bitSet) {
-    final int bitLen = bitSet.length();
-    output.writeInt(bitLen, true);
-
-    int wordNum = bitLen / Long.SIZE;
-    if (bitLen % Long.SIZE > 0) {
-      ++wordNum;
-    }
-
-    long[] words = new long[wordNum];
-    for (int i = 0; i < bitLen; ++i) {
-      if (bitSet.get(i)) {
-        words[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+    final long[] words = bitSet.toLongArray();
+    final int[] runs = BitSetRuns.toRuns(bitSet, BitSetRuns.maxRuns(words));
+    if (runs != null) {
+      output.writeInt(RUNS_FORMAT, true);
+      output.writeInt(runs.length, true);
+      for (int run : runs) {
+        output.writeInt(run, true);
       }
+    } else {
+      output.writeInt(WORDS_FORMAT, true);
+      output.writeInt(words.length, true);
+      output.writeLongs(words);
     }
-
-    output.writeLongs(words);
   }
 
   @Override
   public BitSet read(final Kryo kryo, final Input input, final Class<BitSet> bitSetClass) {
-    final int bitLen = input.readInt(true);
-    final BitSet bitSet = new BitSet(bitLen);
+    final int format = input.readInt(true);
+    switch (format) {
+      case RUNS_FORMAT:
+        final int[] runs = new int[input.readInt(true)];
+        for (int i = 0; i < runs.length; i++) {
+          runs[i] = input.readInt(true);
+        }
+        return BitSetRuns.fromRuns(runs);
+
+      case WORDS_FORMAT:
+        return BitSet.valueOf(input.readLongs(input.readInt(true)));
+
+      default:
+        if (format < 0) {
+          throw new KryoException("Unknown BitSet format " + format);
+        }
+        return readLegacy(input, format);
+    }
+  }
 
+  /**
+   * Reads a bit set written before the format tag, as its length in bits followed by its words.
+   */
+  private static BitSet readLegacy(final Input input, final int bitLen) {
     int wordNum = bitLen / Long.SIZE;
     if (bitLen % Long.SIZE > 0) {
       ++wordNum;
     }
 
-    long[] words = input.readLongs(wordNum);
-    for (int i = 0; i < bitLen; ++i) {
-      if ((words[i / Long.SIZE] & (1L << (i % Long.SIZE))) != 0L) {
-        bitSet.set(i, true);
-      } else {
-        bitSet.set(i, false);
-      }
+    final BitSet bitSet = BitSet.valueOf(input.readLongs(wordNum));
+    if (bitSet.length() > bitLen) {
+      bitSet.clear(bitLen, bitSet.length());
     }
-
     return bitSet;
   }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon.serializer;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class implements the JSON form of a BitSet, for document fields annotated with
+ * {@code @JsonAdapter(BitSetTypeAdapter.class)}.
+ *
+ * Like {@link BitSetSerializer}, a bit set is written either as {"runs": [...]} or as {"words": [...]}, whichever is
+ * smaller. The words form is the one Gson gives a BitSet by reflection, so documents written before the adapter was
+ * introduced are still read.
+ */
+public class BitSetTypeAdapter extends TypeAdapter<BitSet> {
+
+  private static final String RUNS_NAME = "runs";
+  private static final String WORDS_NAME = "words";
+
+  @Override
+  public void write(JsonWriter out, BitSet bitSet) throws IOException {
+    if (bitSet == null) {
+      out.nullValue();
+      return;
+    }
+
+    long[] words = bitSet.toLongArray();
+    int[] runs = BitSetRuns.toRuns(bitSet, BitSetRuns.maxRuns(words));
+    out.beginObject();
+    if (runs != null) {
+      out.name(RUNS_NAME).beginArray();
+      for (int run : runs) {
+        out.value(run);
+      }
+    } else {
+      out.name(WORDS_NAME).beginArray();
+      for (long word : words) {
+        out.value(word);
+      }
+    }
+    out.endArray();
+    out.endObject();
+  }
+
+  @Override
+  public BitSet read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    BitSet bitSet = new BitSet();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case RUNS_NAME:
+          List<Integer> runs = new ArrayList<>();
+          in.beginArray();
+          while (in.hasNext()) {
+            runs.add(in.nextInt());
+          }
+          in.endArray();
+          bitSet = BitSetRuns.fromRuns(runs.stream().mapToInt(Integer::intValue).toArray());
+          break;
+
+        case WORDS_NAME:
+          List<Long> words = new ArrayList<>();
+          in.beginArray();
+          while (in.hasNext()) {
+            words.add(in.nextLong());
+          }
+          in.endArray();
+          bitSet = BitSet.valueOf(words.stream().mapToLong(Long::longValue).toArray());
+          break;
+
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return bitSet;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon;
+
+import com.vmware.photon.controller.common.xenon.exceptions.DocumentNotFoundException;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.UriUtils;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tests {@link DocumentWaiter}.
+ */
+public class DocumentWaiterTest {
+
+  private static final URI DOCUMENT_URI = UriUtils.buildUri("http://localhost:0/test/task");
+  private static final URI SUBSCRIPTION_URI = UriUtils.buildUri("http://localhost:0/test/task/subscription");
+
+  private ServiceHost host;
+  private ScheduledExecutorService scheduledExecutorService;
+  private Queue<TaskServiceState> states;
+  private int readCount;
+
+  @BeforeMethod
+  public void setUp() {
+    host = mock(ServiceHost.class);
+    when(host.getUri()).thenReturn(UriUtils.buildUri("http://localhost:0/mock"));
+    when(host.startSubscriptionService(any(Operation.class), any(Consumer.class))).thenReturn(SUBSCRIPTION_URI);
+    scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    states = new ArrayDeque<>();
+    readCount = 0;
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    scheduledExecutorService.shutdownNow();
+  }
+
+  @Test
+  public void testAcceptedDocumentDoesNotSubscribe() throws Exception {
+    states.add(buildState(TaskState.TaskStage.FINISHED));
+
+    CompletableFuture<TaskServiceState> future = start(1, TimeUnit.MINUTES);
+
+    assertThat(future.isDone(), is(true));
+    assertThat(future.get().taskState.stage, is(TaskState.TaskStage.FINISHED));
+    assertThat(readCount, is(1));
+    verify(host, never()).startSubscriptionService(any(Operation.class), any(Consumer.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCompletesOnNotification() throws Exception {
+    states.add(buildState(TaskState.TaskStage.STARTED));
+    states.add(buildState(TaskState.TaskStage.STARTED));
+    states.add(buildState(TaskState.TaskStage.FINISHED));
+
+    CompletableFuture<TaskServiceState> future = start(1, TimeUnit.MINUTES);
+
+    ArgumentCaptor<Operation> subscribe = ArgumentCaptor.forClass(Operation.class);
+    ArgumentCaptor<Consumer> notificationConsumer = ArgumentCaptor.forClass(Consumer.class);
+    verify(host).startSubscriptionService(subscribe.capture(), notificationConsumer.capture());
+    assertThat(subscribe.getValue().getUri(), is(DOCUMENT_URI));
+
+    // The document is read again once subscribed, in case it changed in between
+    subscribe.getValue().getCompletion().handle(subscribe.getValue(), null);
+    assertThat(future.isDone(), is(false));
+    assertThat(readCount, is(2));
+
+    Operation notification = mock(Operation.class);
+    notificationConsumer.getValue().accept(notification);
+    verify(notification).complete();
+
+    assertThat(future.get().taskState.stage, is(TaskState.TaskStage.FINISHED));
+    assertThat(readCount, is(3));
+    verify(host).stopSubscriptionService(any(Operation.class), eq(SUBSCRIPTION_URI));
+  }
+
+  @Test
+  public void testTimeoutCompletesWithLastState() throws Exception {
+    states.add(buildState(TaskState.TaskStage.STARTED));
+
+    CompletableFuture<TaskServiceState> future = start(10, TimeUnit.MILLISECONDS);
+
+    assertThat(future.get(10, TimeUnit.SECONDS).taskState.stage, is(TaskState.TaskStage.STARTED));
+    assertThat(readCount, is(1));
+    verify(host).stopSubscriptionService(any(Operation.class), eq(SUBSCRIPTION_URI));
+  }
+
+  @Test
+  public void testSubscriptionFailureCompletesWithLastState() throws Exception {
+    states.add(buildState(TaskState.TaskStage.STARTED));
+
+    CompletableFuture<TaskServiceState> future = start(1, TimeUnit.MINUTES);
+
+    ArgumentCaptor<Operation> subscribe = ArgumentCaptor.forClass(Operation.class);
+    verify(host).startSubscriptionService(subscribe.capture(), any(Consumer.class));
+    subscribe.getValue().getCompletion().handle(subscribe.getValue(), new IllegalStateException("no subscription"));
+
+    assertThat(future.isDone(), is(true));
+    assertThat(future.get().taskState.stage, is(TaskState.TaskStage.STARTED));
+    assertThat(readCount, is(1));
+  }
+
+  @Test
+  public void testSubscriptionThrowingCompletesWithLastState() throws Exception {
+    when(host.startSubscriptionService(any(Operation.class), any(Consumer.class)))
+        .thenThrow(new IllegalStateException("host stopping"));
+    states.add(buildState(TaskState.TaskStage.STARTED));
+    long activeWaiters = DocumentWaiter.ACTIVE_WAITERS.getCount();
+
+    CompletableFuture<TaskServiceState> future = start(1, TimeUnit.MINUTES);
+
+    assertThat(future.isDone(), is(true));
+    assertThat(future.get().taskState.stage, is(TaskState.TaskStage.STARTED));
+    assertThat(DocumentWaiter.ACTIVE_WAITERS.getCount(), is(activeWaiters));
+    verify(host, never()).stopSubscriptionService(any(Operation.class), any(URI.class));
+  }
+
+  @Test
+  public void testFailsWhenDocumentCannotBeRead() throws Exception {
+    CompletableFuture<TaskServiceState> future = start(1, TimeUnit.MINUTES);
+
+    try {
+      future.get();
+      fail("Waiting for a missing document should fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(DocumentNotFoundException.class)));
+    }
+    verify(host, never()).startSubscriptionService(any(Operation.class), any(Consumer.class));
+  }
+
+  private CompletableFuture<TaskServiceState> start(long timeout, TimeUnit unit) {
+    return new DocumentWaiter<>(host, DOCUMENT_URI, this::read, TaskServiceState.class,
+        (state) -> state.taskState.stage == TaskState.TaskStage.FINISHED)
+        .start(timeout, unit, scheduledExecutorService);
+  }
+
+  private CompletableFuture<Operation> read() {
+    readCount++;
+    CompletableFuture<Operation> future = new CompletableFuture<>();
+    Operation get = Operation.createGet(DOCUMENT_URI);
+    TaskServiceState state = states.poll();
+    if (state == null) {
+      future.completeExceptionally(new DocumentNotFoundException(get, null));
+    } else {
+      future.complete(get.setBody(state));
+    }
+    return future;
+  }
+
+  private static TaskServiceState buildState(TaskState.TaskStage stage) {
+    TaskServiceState state = new TaskServiceState();
+    state.taskState = new TaskState();
+    state.taskState.stage = stage;
+    return state;
+  }
+}
@@ -17,24 +17,35 @@ import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.UriUtils;
 
 import com.google.common.util.concurrent.FutureCallback;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.fail;
 
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * This class implements tests for {@link TaskUtilsTest}.
@@ -247,4 +258,154 @@ public class TaskUtilsTest {
       assertThat(count.get(), is(1));
     }
   }
+
+  /**
+   * This class tests the waitForTaskAsync method.
+   */
+  public class WaitForTaskAsync {
+
+    private static final String SERVICE_LINK = "/test/task";
+
+    private final URI subscriptionUri = UriUtils.buildUri("http://localhost:0/test/task/subscription");
+
+    private Queue<TaskServiceState> states;
+    private TaskServiceState result;
+    private Throwable failure;
+    private int callbackCount;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+      service = mock(Service.class);
+      host = mock(ServiceHost.class);
+      when(host.getUri()).thenReturn(UriUtils.buildUri("http://localhost:0/mock"));
+      when(service.getHost()).thenReturn(host);
+      when(host.startSubscriptionService(any(Operation.class), any(Consumer.class))).thenReturn(subscriptionUri);
+
+      states = new ArrayDeque<>();
+      doAnswer(invocation -> {
+        Operation get = (Operation) invocation.getArguments()[0];
+        TaskServiceState state = states.poll();
+        if (state == null) {
+          get.getCompletion().handle(get, new IllegalStateException("not found"));
+        } else {
+          get.getCompletion().handle(get.setBody(state), null);
+        }
+        return null;
+      }).when(service).sendRequest(any(Operation.class));
+
+      result = null;
+      failure = null;
+      callbackCount = 0;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void completedTaskDoesNotSubscribe() {
+      states.add(buildState(TaskState.TaskStage.FINISHED));
+
+      waitForTask();
+
+      assertThat(callbackCount, is(1));
+      assertThat(result.taskState.stage, is(TaskState.TaskStage.FINISHED));
+      verify(service, times(1)).sendRequest(any(Operation.class));
+      verify(host, never()).startSubscriptionService(any(Operation.class), any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void completesOnNotification() {
+      long activeWaiters = DocumentWaiter.ACTIVE_WAITERS.getCount();
+      states.add(buildState(TaskState.TaskStage.STARTED));
+      states.add(buildState(TaskState.TaskStage.STARTED));
+      states.add(buildState(TaskState.TaskStage.FINISHED));
+
+      waitForTask();
+
+      ArgumentCaptor<Operation> subscribe = ArgumentCaptor.forClass(Operation.class);
+      ArgumentCaptor<Consumer> notificationConsumer = ArgumentCaptor.forClass(Consumer.class);
+      verify(host).startSubscriptionService(subscribe.capture(), notificationConsumer.capture());
+      assertThat(subscribe.getValue().getUri().getPath(), is(SERVICE_LINK));
+      assertThat(DocumentWaiter.ACTIVE_WAITERS.getCount(), is(activeWaiters + 1));
+
+      // The state is read again once subscribed, in case it changed in between
+      subscribe.getValue().getCompletion().handle(subscribe.getValue(), null);
+      assertThat(callbackCount, is(0));
+      verify(service, times(2)).sendRequest(any(Operation.class));
+
+      Operation notification = mock(Operation.class);
+      notificationConsumer.getValue().accept(notification);
+      verify(notification).complete();
+
+      assertThat(callbackCount, is(1));
+      assertThat(result.taskState.stage, is(TaskState.TaskStage.FINISHED));
+      verify(service, times(3)).sendRequest(any(Operation.class));
+      verify(host).stopSubscriptionService(any(Operation.class), eq(subscriptionUri));
+      assertThat(DocumentWaiter.ACTIVE_WAITERS.getCount(), is(activeWaiters));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failsWhenTaskCannotBeRead() {
+      states.add(buildState(TaskState.TaskStage.STARTED));
+
+      waitForTask();
+
+      ArgumentCaptor<Consumer> notificationConsumer = ArgumentCaptor.forClass(Consumer.class);
+      verify(host).startSubscriptionService(any(Operation.class), notificationConsumer.capture());
+      notificationConsumer.getValue().accept(mock(Operation.class));
+
+      assertThat(callbackCount, is(1));
+      assertThat(result, is(nullValue()));
+      assertThat(failure, is(notNullValue()));
+      verify(host).stopSubscriptionService(any(Operation.class), eq(subscriptionUri));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void fallsBackToPollingWhenSubscriptionFails() {
+      long activeWaiters = DocumentWaiter.ACTIVE_WAITERS.getCount();
+      long fallbackPolls = TaskUtils.FALLBACK_POLLS.getCount();
+      states.add(buildState(TaskState.TaskStage.STARTED));
+
+      waitForTask();
+
+      ArgumentCaptor<Operation> subscribe = ArgumentCaptor.forClass(Operation.class);
+      verify(host).startSubscriptionService(subscribe.capture(), any(Consumer.class));
+      subscribe.getValue().getCompletion().handle(subscribe.getValue(), new IllegalStateException("no subscription"));
+
+      assertThat(callbackCount, is(0));
+      assertThat(DocumentWaiter.ACTIVE_WAITERS.getCount(), is(activeWaiters));
+      assertThat(TaskUtils.FALLBACK_POLLS.getCount(), is(fallbackPolls + 1));
+      verify(host).schedule(any(Runnable.class), eq(10L), eq(TimeUnit.MILLISECONDS));
+      verify(host).stopSubscriptionService(any(Operation.class), eq(subscriptionUri));
+    }
+
+    private void waitForTask() {
+      TaskUtils.waitForTaskAsync(service, SERVICE_LINK,
+          (state) -> state.taskState.stage == TaskState.TaskStage.FINISHED,
+          TaskServiceState.class,
+          10,
+          new FutureCallback<TaskServiceState>() {
+            @Override
+            public void onSuccess(TaskServiceState state) {
+              callbackCount++;
+              result = state;
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              callbackCount++;
+              failure = t;
+            }
+          });
+    }
+
+    private TaskServiceState buildState(TaskState.TaskStage stage) {
+      TaskServiceState state = new TaskServiceState();
+      state.taskState = new TaskState();
+      state.taskState.stage = stage;
+      return state;
+    }
+  }
 }
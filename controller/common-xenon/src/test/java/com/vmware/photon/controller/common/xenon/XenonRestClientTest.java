@@ -54,6 +54,7 @@ import static org.testng.Assert.fail;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -63,7 +64,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -358,6 +361,96 @@ public class XenonRestClientTest {
     }
   }
 
+  /**
+   * Tests for the non-blocking operations.
+   */
+  public class AsyncTest {
+
+    @BeforeMethod
+    public void setUp() throws Throwable {
+      setUpHostAndClient();
+      xenonRestClient.start();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Throwable {
+      if (host != null) {
+        host.destroy();
+      }
+
+      if (xenonRestClient != null) {
+        xenonRestClient.stop();
+      }
+    }
+
+    @Test
+    public void testConcurrentGetsOfCreatedDocuments() throws Throwable {
+      List<String> names = new ArrayList<>();
+      List<CompletableFuture<Operation>> posts = new ArrayList<>();
+      for (int i = 0; i < MAX_ITERATIONS; i++) {
+        ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+        exampleServiceState.name = UUID.randomUUID().toString();
+        names.add(exampleServiceState.name);
+        posts.add(xenonRestClient.postAsync(ExampleService.FACTORY_LINK, exampleServiceState));
+      }
+
+      List<CompletableFuture<ExampleService.ExampleServiceState>> gets = new ArrayList<>();
+      for (CompletableFuture<Operation> post : posts) {
+        String documentSelfLink = post.get().getBody(ExampleService.ExampleServiceState.class).documentSelfLink;
+        gets.add(xenonRestClient.getDocumentAsync(documentSelfLink, ExampleService.ExampleServiceState.class));
+      }
+
+      for (int i = 0; i < MAX_ITERATIONS; i++) {
+        assertThat(gets.get(i).get().name, is(names.get(i)));
+      }
+    }
+
+    @Test
+    public void testGetOfNonExistingDocument() throws Throwable {
+      CompletableFuture<Operation> future =
+          xenonRestClient.getAsync(ExampleService.FACTORY_LINK + "/" + UUID.randomUUID().toString());
+
+      try {
+        future.get();
+        fail("get of a non existing document should fail");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause() instanceof DocumentNotFoundException, is(true));
+      }
+    }
+
+    @Test
+    public void testQueryDocuments() throws Throwable {
+      ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+      exampleServiceState.name = UUID.randomUUID().toString();
+      String documentSelfLink = createDocument(exampleServiceState);
+
+      List<ExampleService.ExampleServiceState> documents = xenonRestClient.queryDocumentsAsync(
+          ExampleService.ExampleServiceState.class,
+          ImmutableMap.of("name", exampleServiceState.name)).get();
+      assertThat(documents.size(), is(1));
+      assertThat(documents.get(0).documentSelfLink, is(documentSelfLink));
+
+      List<String> documentLinks = xenonRestClient.queryDocumentsForLinksAsync(
+          ExampleService.ExampleServiceState.class,
+          ImmutableMap.of("name", exampleServiceState.name)).get();
+      assertThat(documentLinks, is(Arrays.asList(documentSelfLink)));
+    }
+
+    @Test
+    public void testPatch() throws Throwable {
+      ExampleService.ExampleServiceState exampleServiceState = new ExampleService.ExampleServiceState();
+      exampleServiceState.name = UUID.randomUUID().toString();
+      String documentSelfLink = createDocument(exampleServiceState);
+
+      ExampleService.ExampleServiceState patchState = new ExampleService.ExampleServiceState();
+      patchState.name = UUID.randomUUID().toString();
+      xenonRestClient.patchAsync(documentSelfLink, patchState).get();
+
+      assertThat(xenonRestClient.get(documentSelfLink).getBody(ExampleService.ExampleServiceState.class).name,
+          is(patchState.name));
+    }
+  }
+
   /**
    * Tests for the send operation.
    */
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon.migration;
+
+import com.vmware.photon.controller.common.xenon.validation.RenamedField;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.Utils;
+
+import com.google.gson.JsonObject;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests {@link DocumentTransformationPlan}.
+ */
+public class DocumentTransformationPlanTest {
+
+  @Test
+  public void testCachesPlans() {
+    assertThat(DocumentTransformationPlan.get(Destination.class),
+        is(sameInstance(DocumentTransformationPlan.get(Destination.class))));
+    assertThat(DocumentTransformationPlan.get(Destination.class).getDocumentType(), is(Destination.class));
+  }
+
+  @Test
+  public void testRenamesFields() {
+    Source source = new Source();
+    source.documentSelfLink = "/sources/1";
+    source.uuid = "uuid123";
+    source.tags = new HashSet<>(Arrays.asList("a", "b"));
+    source.count = 3L;
+    source.state = new TaskState();
+    source.state.stage = TaskState.TaskStage.FINISHED;
+
+    Destination destination = Utils.fromJson(
+        DocumentTransformationPlan.get(Destination.class).transformToJson(Utils.toJson(false, false, source)),
+        Destination.class);
+
+    assertThat(destination.documentSelfLink, is("/sources/1"));
+    assertThat(destination.guid, is("uuid123"));
+    assertThat(destination.labels, containsInAnyOrder("a", "b"));
+    assertThat(destination.count, is(3L));
+    assertThat(destination.state.stage, is(TaskState.TaskStage.FINISHED));
+  }
+
+  @Test
+  public void testRenamedFieldWinsOverField() {
+    JsonObject destination = DocumentTransformationPlan.get(Destination.class)
+        .transform("{\"uuid\":\"original\",\"guid\":\"current\"}");
+
+    assertThat(destination.get("guid").getAsString(), is("original"));
+    assertThat(destination.has("uuid"), is(false));
+  }
+
+  @Test
+  public void testConvertsValues() {
+    JsonObject destination = DocumentTransformationPlan.get(Destination.class)
+        .transform("{\"count\":5.0,\"enabled\":\"true\",\"ratio\":\"0.5\",\"unknown\":1,\"guid\":null}");
+
+    assertThat(destination.toString(), is("{\"count\":5,\"enabled\":true,\"ratio\":0.5}"));
+  }
+
+  @Test
+  public void testMatchesReflectiveTransformation() {
+    Source source = new Source();
+    source.documentSelfLink = "/sources/1";
+    source.documentVersion = 7;
+    source.uuid = "uuid123";
+    source.count = 11L;
+    source.enabled = false;
+    String json = Utils.toJson(false, false, source);
+
+    Destination expected = Utils.fromJson(json, Destination.class);
+    MigrationUtils.handleRenamedField(json, expected);
+    Destination actual = Utils.fromJson(
+        DocumentTransformationPlan.get(Destination.class).transformToJson(json), Destination.class);
+
+    assertThat(Utils.toJson(false, false, actual), is(Utils.toJson(false, false, expected)));
+    assertThat(actual.labels, is(nullValue()));
+  }
+
+  /**
+   * Test service document of an older release.
+   */
+  public static class Source extends ServiceDocument {
+    public String uuid;
+    public Set<String> tags;
+    public Long count;
+    public Boolean enabled;
+    public TaskState state;
+  }
+
+  /**
+   * Test service document with renamed fields.
+   */
+  public static class Destination extends ServiceDocument {
+    @RenamedField(originalName = "uuid")
+    public String guid;
+
+    @RenamedField(originalName = "tags")
+    public Set<String> labels;
+
+    public Long count;
+    public Boolean enabled;
+    public Double ratio;
+    public TaskState state;
+  }
+}
@@ -61,6 +61,20 @@ public class TaskSchedulerServiceStateBuilderTest {
       TaskSchedulerService.State state = builder.build();
       assertThat(state.schedulerServiceClassName, is(TestServiceWithStage.class.getTypeName()));
       assertThat(state.tasksLimits, is(10));
+      assertThat(state.eventDriven, is(false));
+    }
+
+    /**
+     * Tests building the state of an event driven scheduler.
+     *
+     * @throws Throwable
+     */
+    @Test
+    public void testEventDriven() throws Throwable {
+      TaskSchedulerService.State state =
+          new TaskSchedulerServiceStateBuilder(TestServiceWithStage.class, 10, true).build();
+      assertThat(state.tasksLimits, is(10));
+      assertThat(state.eventDriven, is(true));
     }
   }
 }
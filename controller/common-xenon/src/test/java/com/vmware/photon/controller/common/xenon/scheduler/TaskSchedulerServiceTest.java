@@ -35,7 +35,9 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
@@ -51,6 +53,12 @@ public class TaskSchedulerServiceTest {
   private long testInterval = TimeUnit.SECONDS.toMicros(1);
   private int tasksLimit = 5;
 
+  private TaskSchedulerService.State buildValidStartupState(boolean eventDriven) {
+    TaskSchedulerService.State state = buildValidStartupState();
+    state.eventDriven = eventDriven;
+    return state;
+  }
+
   private TaskSchedulerService.State buildValidStartupState() {
     TestServiceWithStage.State nestedState = new TestServiceWithStage.State();
     nestedState.taskInfo = new TaskState();
@@ -278,7 +286,46 @@ public class TaskSchedulerServiceTest {
       assertThat(response.results.documentLinks.size(), is(tasksLimit + 3));
     }
 
+    @Test(dataProvider = "hostCount")
+    public void testEventDrivenStartsTaskWhenSlotIsFreed(int count) throws Throwable {
+      long safetyNetInterval = TaskSchedulerServiceStateBuilder.safetyNetInterval;
+      try {
+        // only the initial sweep runs, further tasks are started from notifications
+        TaskSchedulerServiceStateBuilder.safetyNetInterval = TimeUnit.HOURS.toMicros(1);
+        initEnvironment(count, true);
+
+        List<String> startedLinks = startDummyServices(tasksLimit, TaskState.TaskStage.STARTED);
+        startDummyServices(2, TaskState.TaskStage.CREATED);
+
+        QueryTask query = QueryTask.create(
+            QueryTaskUtils.buildTaskStatusQuerySpec(
+                TestServiceWithStage.State.class,
+                TaskState.TaskStage.CREATED))
+            .setDirect(true);
+
+        // the scheduler is full so nothing is started
+        Thread.sleep(TimeUnit.MICROSECONDS.toMillis(testInterval * 3));
+        assertThat(environment.sendQueryAndWait(query).results.documentLinks.size(), is(2));
+
+        // finishing a task frees a slot for exactly one of the created tasks
+        TestServiceWithStage.State finishedPatch = new TestServiceWithStage.State();
+        finishedPatch.taskInfo = new TaskState();
+        finishedPatch.taskInfo.stage = TaskState.TaskStage.FINISHED;
+        environment.sendPatchAndWait(startedLinks.get(0), finishedPatch);
+
+        QueryTask response = environment.waitForQuery(query,
+            queryTask -> queryTask.results.documentLinks.size() <= 1);
+        assertThat(response.results.documentLinks.size(), is(1));
+      } finally {
+        TaskSchedulerServiceStateBuilder.safetyNetInterval = safetyNetInterval;
+      }
+    }
+
     private void initEnvironment(int count) throws Throwable {
+      initEnvironment(count, false);
+    }
+
+    private void initEnvironment(int count, boolean eventDriven) throws Throwable {
       BasicServiceHost[] hosts = new BasicServiceHost[count];
       for (int i = 0; i < count; i++) {
         hosts[i] = BasicServiceHost.create();
@@ -295,7 +342,7 @@ public class TaskSchedulerServiceTest {
       for (BasicServiceHost host : hosts) {
         service = new TaskSchedulerService();
         service.setMaintenanceIntervalMicros(testInterval);
-        host.startServiceSynchronously(service, buildValidStartupState(), selfLink, false);
+        host.startServiceSynchronously(service, buildValidStartupState(eventDriven), selfLink, false);
       }
     }
 
@@ -304,15 +351,18 @@ public class TaskSchedulerServiceTest {
       startDummyServices(countInCreated, TaskState.TaskStage.CREATED);
     }
 
-    private void startDummyServices(int countInCreated, TaskState.TaskStage stage)
+    private List<String> startDummyServices(int countInCreated, TaskState.TaskStage stage)
         throws Throwable {
       TestServiceWithStage.State startState = new TestServiceWithStage.State();
       startState.taskInfo = new TaskState();
       startState.taskInfo.stage = stage;
+      List<String> documentLinks = new ArrayList<>();
       for (int i = 0; i < countInCreated; i++) {
         Operation resultOp = environment.sendPostAndWait(TestServiceWithStageFactory.SELF_LINK, startState);
         assertThat(resultOp.getStatusCode(), is(200));
+        documentLinks.add(resultOp.getBody(TestServiceWithStage.State.class).documentSelfLink);
       }
+      return documentLinks;
     }
   }
 }
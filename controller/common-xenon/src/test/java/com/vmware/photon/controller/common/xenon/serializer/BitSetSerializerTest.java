@@ -14,13 +14,18 @@
 package com.vmware.photon.controller.common.xenon.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.fail;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Random;
 
@@ -30,12 +35,68 @@ import java.util.Random;
 public class BitSetSerializerTest {
 
   @Test(dataProvider = "bitSetData")
-  public void testWrite(BitSet bitSet) {
-    MockKryoOutput output = new MockKryoOutput();
+  public void testWriteAndRead(BitSet bitSet) {
+    Output output = new Output(16, -1);
     BitSetSerializer serializer = new BitSetSerializer();
     serializer.write(mock(Kryo.class), output, bitSet);
 
-    verify(bitSet, output.len, output.values);
+    Input input = new Input(output.toBytes());
+    assertThat(serializer.read(mock(Kryo.class), input, BitSet.class), is(bitSet));
+    assertThat(input.eof(), is(true));
+  }
+
+  @Test
+  public void testWriteRuns() {
+    // The allocations of a /16 subnet which is half full, with a few IPs released
+    BitSet bitSet = new BitSet();
+    bitSet.set(0, 32768);
+    bitSet.clear(100);
+    bitSet.clear(20000);
+
+    Output output = new Output(16, -1);
+    new BitSetSerializer().write(mock(Kryo.class), output, bitSet);
+
+    Input input = new Input(output.toBytes());
+    assertThat(input.readInt(true), is(BitSetSerializer.RUNS_FORMAT));
+    assertThat(input.readInt(true), is(6));
+    assertThat(output.toBytes().length, lessThan(32));
+  }
+
+  @Test
+  public void testWriteWords() {
+    BitSet bitSet = new BitSet();
+    for (int i = 0; i < Long.SIZE * 4; i += 2) {
+      bitSet.set(i);
+    }
+
+    Output output = new Output(16, -1);
+    new BitSetSerializer().write(mock(Kryo.class), output, bitSet);
+
+    Input input = new Input(output.toBytes());
+    assertThat(input.readInt(true), is(BitSetSerializer.WORDS_FORMAT));
+    assertThat(input.readInt(true), is(4));
+    assertThat(input.readLongs(4), is(bitSet.toLongArray()));
+  }
+
+  @Test(expectedExceptions = KryoException.class)
+  public void testReadUnknownFormat() {
+    Output output = new Output(16, -1);
+    output.writeInt(-100, true);
+
+    new BitSetSerializer().read(mock(Kryo.class), new Input(output.toBytes()), BitSet.class);
+  }
+
+  @Test
+  public void testCopy() {
+    BitSet bitSet = new BitSet();
+    bitSet.set(3);
+    bitSet.set(70, 90);
+
+    BitSet copy = new BitSetSerializer().copy(mock(Kryo.class), bitSet);
+    assertThat(copy, is(bitSet));
+
+    copy.set(4);
+    assertThat(bitSet.get(4), is(false));
   }
 
   @DataProvider(name = "bitSetData")
@@ -66,9 +127,23 @@ public class BitSetSerializerTest {
       results[i][0] = bitSet;
     }
 
+    // Sparse and dense bit sets, which are written as runs
+    BitSet sparse = new BitSet();
+    sparse.set(7);
+    sparse.set(65000);
+    BitSet dense = new BitSet();
+    dense.set(0, 65536);
+    dense.clear(1000);
+
+    results = Arrays.copyOf(results, results.length + 2);
+    results[results.length - 2] = new Object[] {sparse};
+    results[results.length - 1] = new Object[] {dense};
     return results;
   }
 
+  /**
+   * Reads bit sets written before the format tag was introduced.
+   */
   @Test(dataProvider = "longValuesData")
   public void testRead(int len, long[] values) {
     MockKryoInput input = new MockKryoInput(len, values);
@@ -115,25 +190,6 @@ public class BitSetSerializerTest {
     return results;
   }
 
-  /**
-   * Mocking Kryo output class.
-   */
-  public static class MockKryoOutput extends Output {
-    public int len;
-    public long[] values;
-
-    @Override
-    public int writeInt(int value, boolean optimize) {
-      this.len = value;
-      return 0;
-    }
-
-    @Override
-    public void writeLongs(long[] values) {
-      this.values = values;
-    }
-  }
-
   /**
    * Mocking Kryo input class.
    */
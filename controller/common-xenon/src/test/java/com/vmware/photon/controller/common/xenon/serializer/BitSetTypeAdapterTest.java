@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.xenon.serializer;
+
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.Utils;
+
+import com.google.gson.annotations.JsonAdapter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Tests {@link BitSetTypeAdapter}.
+ */
+public class BitSetTypeAdapterTest {
+
+  @Test(dataProvider = "bitSetData")
+  public void testWriteAndRead(BitSet bitSet, String json) throws Throwable {
+    BitSetTypeAdapter adapter = new BitSetTypeAdapter();
+    if (json != null) {
+      assertThat(adapter.toJson(bitSet), is(json));
+    }
+    assertThat(adapter.fromJson(adapter.toJson(bitSet)), is(bitSet));
+  }
+
+  @DataProvider(name = "bitSetData")
+  public Object[][] getBitSetData() {
+    BitSet empty = new BitSet();
+
+    BitSet dense = new BitSet();
+    dense.set(0, 65536);
+    dense.clear(10);
+
+    BitSet sparse = new BitSet();
+    sparse.set(64);
+
+    BitSet random = new BitSet();
+    Random rand = new Random(0);
+    for (int i = 0; i < 1000; i++) {
+      random.set(i, rand.nextBoolean());
+    }
+
+    return new Object[][] {
+        {empty, "{\"runs\":[]}"},
+        {dense, "{\"runs\":[0,10,1,65525]}"},
+        {sparse, "{\"runs\":[64,1]}"},
+        {random, null},
+    };
+  }
+
+  @Test
+  public void testReadLegacyWords() throws Throwable {
+    // Gson writes the words of a BitSet, trailing empty words included, when it is not told how to write it
+    BitSet bitSet = new BitSetTypeAdapter().fromJson("{\"words\":[5,-9223372036854775808,0,0]}");
+
+    BitSet expected = new BitSet();
+    expected.set(0);
+    expected.set(2);
+    expected.set(127);
+    assertThat(bitSet, is(expected));
+  }
+
+  @Test
+  public void testNull() throws Throwable {
+    BitSetTypeAdapter adapter = new BitSetTypeAdapter();
+    assertThat(adapter.toJson(null), is("null"));
+    assertThat(adapter.fromJson("null"), is(nullValue()));
+  }
+
+  @Test
+  public void testDocumentField() {
+    TestDocument document = new TestDocument();
+    document.bitSet = new BitSet();
+    document.bitSet.set(3, 6);
+
+    String json = Utils.toJson(document);
+    assertThat(json.contains("\"runs\""), is(true));
+    assertThat(Utils.fromJson(json, TestDocument.class).bitSet, is(document.bitSet));
+  }
+
+  /**
+   * A test document with an annotated bit set.
+   */
+  public static class TestDocument extends ServiceDocument {
+    @JsonAdapter(BitSetTypeAdapter.class)
+    public BitSet bitSet;
+  }
+}
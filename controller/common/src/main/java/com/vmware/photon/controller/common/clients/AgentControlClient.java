@@ -26,6 +26,7 @@ import com.vmware.photon.controller.common.clients.exceptions.InvalidAgentConfig
 import com.vmware.photon.controller.common.clients.exceptions.InvalidAgentStateException;
 import com.vmware.photon.controller.common.clients.exceptions.RpcException;
 import com.vmware.photon.controller.common.clients.exceptions.SystemErrorException;
+import com.vmware.photon.controller.common.thrift.AgentConnectionManager;
 import com.vmware.photon.controller.common.thrift.ClientPool;
 import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
 import com.vmware.photon.controller.common.thrift.ClientPoolOptions;
@@ -53,8 +54,10 @@ import java.util.concurrent.TimeUnit;
 /**
  * Client for Agent's control service.
  * <p>
- * Note that this class is not thread safe, because thrift's TAsyncSSLClient is not thread
- * safe and only allows one method call at a time.
+ * Once the agent address is set, calls may be made concurrently from several threads: the client proxy
+ * acquires a TAsyncSSLClient from the pool for every call, as thrift's TAsyncSSLClient only allows one
+ * method call at a time, and every call carries its own timeout. The address must not be changed while
+ * calls are being made.
  * <p>
  * Instances of AgentControlClient, HostClient and SchedulerClient reuses and
  * shares global TAsyncSSLClientManager and ClientProxyExecutor, so it is fairly
@@ -79,10 +82,15 @@ public class AgentControlClient {
   private static final long PING_TIMEOUT_MS = 5000;
   private final ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory;
   private final ClientPoolFactory<AgentControl.AsyncSSLClient> clientPoolFactory;
+  /**
+   * When set, the connections to the agent are shared with every other client talking to the same agent and
+   * stay open between calls. Otherwise a new connection is opened for every call.
+   */
+  private final AgentConnectionManager<AgentControl.AsyncSSLClient> connectionManager;
   /**
    * clientProxy acquires a new client from ClientPool for every thrift call.
    */
-  private AgentControl.AsyncSSLClient clientProxy;
+  private volatile AgentControl.AsyncSSLClient clientProxy;
   private String hostIp;
   private int port;
   private ClientPool<AgentControl.AsyncSSLClient> clientPool;
@@ -90,8 +98,15 @@ public class AgentControlClient {
   @Inject
   public AgentControlClient(ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory,
                             ClientPoolFactory<AgentControl.AsyncSSLClient> clientPoolFactory) {
+    this(clientProxyFactory, clientPoolFactory, null);
+  }
+
+  public AgentControlClient(ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory,
+                            ClientPoolFactory<AgentControl.AsyncSSLClient> clientPoolFactory,
+                            AgentConnectionManager<AgentControl.AsyncSSLClient> connectionManager) {
     this.clientProxyFactory = clientProxyFactory;
     this.clientPoolFactory = clientPoolFactory;
+    this.connectionManager = connectionManager;
   }
 
   public String getHostIp() {
@@ -106,7 +121,7 @@ public class AgentControlClient {
     return port;
   }
 
-  public void setIpAndPort(String ip, int port) {
+  public synchronized void setIpAndPort(String ip, int port) {
     checkNotNull(ip, "IP can not be null");
     checkArgument(port > MAX_RESERVED_PORT_NUMBER,
         "Please set port above %s", MAX_RESERVED_PORT_NUMBER);
@@ -120,7 +135,7 @@ public class AgentControlClient {
     this.port = port;
   }
 
-  public void close() {
+  public synchronized void close() {
     clientProxy = null;
 
     if (clientPool != null) {
@@ -130,7 +145,7 @@ public class AgentControlClient {
   }
 
   @VisibleForTesting
-  protected void ensureClient() {
+  protected synchronized void ensureClient() {
     if (clientProxy != null) {
       return;
     }
@@ -152,9 +167,12 @@ public class AgentControlClient {
 
   private void createClientProxyWithIpAndPort() {
     logger.debug("Creating host async client of hostIp {} and port {}", this.getHostIp(), this.getPort());
-    this.clientPool = this.clientPoolFactory.create(
-        ImmutableSet.of(new InetSocketAddress(this.getHostIp(), this.getPort())),
-        CLIENT_POOL_OPTIONS);
+    InetSocketAddress address = new InetSocketAddress(this.getHostIp(), this.getPort());
+    if (this.connectionManager != null) {
+      this.clientPool = this.connectionManager.getClientPool(address);
+    } else {
+      this.clientPool = this.clientPoolFactory.create(ImmutableSet.of(address), CLIENT_POOL_OPTIONS);
+    }
     this.clientProxy = clientProxyFactory.create(clientPool).get();
   }
 
@@ -34,6 +34,7 @@ import com.vmware.photon.controller.common.clients.exceptions.SweepInProgressExc
 import com.vmware.photon.controller.common.clients.exceptions.SystemErrorException;
 import com.vmware.photon.controller.common.clients.exceptions.VmNotFoundException;
 import com.vmware.photon.controller.common.clients.exceptions.VmNotPoweredOffException;
+import com.vmware.photon.controller.common.thrift.AgentConnectionManager;
 import com.vmware.photon.controller.common.thrift.ClientPool;
 import com.vmware.photon.controller.common.thrift.ClientPoolFactory;
 import com.vmware.photon.controller.common.thrift.ClientPoolOptions;
@@ -121,7 +122,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Host Client Facade that hides the zookeeper/async interactions.
- * Note that this class is not thread safe.
+ * Once the agent address is set, calls may be made concurrently from several threads, as the client proxy is thread
+ * safe and every call carries its own timeout. The address must not be changed while calls are being made.
  */
 @RpcClient
 public class HostClient {
@@ -137,6 +139,7 @@ public class HostClient {
   private static final Logger logger = LoggerFactory.getLogger(HostClient.class);
   private static final long ATTACH_DISKS_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
   private static final long ATTACH_ISO_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+  private static final long COPY_IMAGE_TIMEOUT_MS = TimeUnit.HOURS.toMillis(2);
   private static final long CREATE_DISKS_TIMEOUT_MS = TimeUnit.HOURS.toMillis(1);
   private static final long CREATE_VM_TIMEOUT_MS = TimeUnit.HOURS.toMillis(2);
   private static final long DELETE_DISK_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
@@ -158,14 +161,20 @@ public class HostClient {
   private static final long POWER_VM_OP_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
   private static final long PLACE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(90);
   private static final long RESERVE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+  private static final long SET_HOST_MODE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
   private static final long TRANSFER_IMAGE_TIMEOUT_MS = TimeUnit.HOURS.toMillis(2);
   private final ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory;
   private final ClientPoolFactory<Host.AsyncSSLClient> clientPoolFactory;
+  /**
+   * When set, the connections to the agent are shared with every other client talking to the same agent and
+   * stay open between calls. Otherwise a new connection is opened for every call.
+   */
+  private final AgentConnectionManager<Host.AsyncSSLClient> connectionManager;
   /**
    * clientProxy acquires a new client from ClientPool for every thrift call.
    * Reference: {@link ClientProxyImpl#createMethodHandler() createMethodHandler}.
    */
-  private Host.AsyncSSLClient clientProxy;
+  private volatile Host.AsyncSSLClient clientProxy;
   private String hostIp;
   private int port;
   private ClientPool<Host.AsyncSSLClient> clientPool;
@@ -173,8 +182,15 @@ public class HostClient {
   @Inject
   public HostClient(ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory,
                     ClientPoolFactory<Host.AsyncSSLClient> clientPoolFactory) {
+    this(clientProxyFactory, clientPoolFactory, null);
+  }
+
+  public HostClient(ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory,
+                    ClientPoolFactory<Host.AsyncSSLClient> clientPoolFactory,
+                    AgentConnectionManager<Host.AsyncSSLClient> connectionManager) {
     this.clientProxyFactory = clientProxyFactory;
     this.clientPoolFactory = clientPoolFactory;
+    this.connectionManager = connectionManager;
   }
 
   public String getHostIp() {
@@ -189,7 +205,7 @@ public class HostClient {
     return port;
   }
 
-  public void setIpAndPort(String ip, int port) {
+  public synchronized void setIpAndPort(String ip, int port) {
     checkNotNull(ip, "IP can not be null");
     checkArgument(port > MAX_RESERVED_PORT_NUMBER,
         "Please set port above %s", MAX_RESERVED_PORT_NUMBER);
@@ -319,11 +335,31 @@ public class HostClient {
   public void copyImage(String imageId, String source, String destination,
                         AsyncMethodCallback<Host.AsyncSSLClient.copy_image_call> handler)
       throws RpcException {
+    copyImage(imageId, source, imageId, destination, handler);
+  }
+
+  /**
+   * This method performs an asynchronous Thrift call to copy an image to a
+   * new image, which can be on the same data store. On completion, the
+   * specified handler is invoked.
+   *
+   * @param sourceImageId      Supplies the ID of the image to copy.
+   * @param source             Supplies the source data store for the copy operation.
+   * @param destinationImageId Supplies the ID of the new image.
+   * @param destination        Supplies the destination data store for the copy
+   *                           operation.
+   * @param handler            Supplies a handler object to be invoked on completion.
+   * @throws RpcException
+   */
+  @RpcMethod
+  public void copyImage(String sourceImageId, String source, String destinationImageId, String destination,
+                        AsyncMethodCallback<Host.AsyncSSLClient.copy_image_call> handler)
+      throws RpcException {
     ensureClient();
     CopyImageRequest copyImageRequest = new CopyImageRequest();
-    copyImageRequest.setSource(Util.constructImage(source, imageId));
-    copyImageRequest.setDestination(Util.constructImage(destination, imageId));
-    // N.B. No timeout was specified here. This may be a bug.
+    copyImageRequest.setSource(Util.constructImage(source, sourceImageId));
+    copyImageRequest.setDestination(Util.constructImage(destination, destinationImageId));
+    clientProxy.setTimeout(COPY_IMAGE_TIMEOUT_MS);
     logger.info("copy_image target {}, request {}", getHostIp(), copyImageRequest);
 
     try {
@@ -355,6 +391,30 @@ public class HostClient {
     return ResponseValidator.checkCopyImageResponse(syncHandler.getResponse());
   }
 
+  /**
+   * This method performs a synchronous operation to copy an image to a new
+   * image, which can be on the same data store.
+   *
+   * @param sourceImageId      Supplies the ID of the image to copy.
+   * @param source             Supplies the source data store for the copy operation.
+   * @param destinationImageId Supplies the ID of the new image.
+   * @param destination        Supplies the destination data store for the copy
+   *                           operation.
+   * @return On success, the return value is the CopyImageResponse object
+   * generated by the Thrift call.
+   * @throws InterruptedException
+   * @throws RpcException
+   */
+  @RpcMethod
+  public CopyImageResponse copyImage(String sourceImageId, String source, String destinationImageId,
+                                     String destination)
+      throws InterruptedException, RpcException {
+    SyncHandler<CopyImageResponse, Host.AsyncSSLClient.copy_image_call> syncHandler = new SyncHandler<>();
+    copyImage(sourceImageId, source, destinationImageId, destination, syncHandler);
+    syncHandler.await();
+    return ResponseValidator.checkCopyImageResponse(syncHandler.getResponse());
+  }
+
 
   /**
    * This method performs an asynchronous Thrift call to copy an image from one
@@ -1365,13 +1425,14 @@ public class HostClient {
 
     try {
       SetHostModeRequest setHostModeRequest = new SetHostModeRequest(hostMode);
+      clientProxy.setTimeout(SET_HOST_MODE_TIMEOUT_MS);
       clientProxy.set_host_mode(setHostModeRequest, handler);
     } catch (TException e) {
       throw new RpcException(e.getMessage());
     }
   }
 
-  public void close() {
+  public synchronized void close() {
     clientProxy = null;
 
     if (clientPool != null) {
@@ -1381,7 +1442,7 @@ public class HostClient {
   }
 
   @VisibleForTesting
-  protected void ensureClient() {
+  protected synchronized void ensureClient() {
     if (clientProxy != null) {
       return;
     }
@@ -1403,9 +1464,12 @@ public class HostClient {
 
   private void createClientProxyWithIpAndPort() {
     logger.debug("Creating host async client of hostIp {} and port {}", this.getHostIp(), this.getPort());
-    this.clientPool = this.clientPoolFactory.create(
-        ImmutableSet.of(new InetSocketAddress(this.getHostIp(), this.getPort())),
-        CLIENT_POOL_OPTIONS);
+    InetSocketAddress address = new InetSocketAddress(this.getHostIp(), this.getPort());
+    if (this.connectionManager != null) {
+      this.clientPool = this.connectionManager.getClientPool(address);
+    } else {
+      this.clientPool = this.clientPoolFactory.create(ImmutableSet.of(address), CLIENT_POOL_OPTIONS);
+    }
     this.clientProxy = clientProxyFactory.create(clientPool).get();
   }
 
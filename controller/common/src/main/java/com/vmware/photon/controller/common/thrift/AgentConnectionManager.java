@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import org.apache.thrift.async.TAsyncSSLClient;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSSLTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide manager of the Thrift connections to the agents, keyed by host:port.
+ *
+ * There is one manager per Thrift client type (Host, AgentControl), created by {@link ThriftModule}. It hands out
+ * a {@link PersistentClientPool} per agent endpoint; all the clients talking to the same agent share that pool,
+ * so TLS connections stay warm across calls and several calls to the same agent can be in flight at once.
+ *
+ * Idle connections are closed by a periodic sweep once they exceed the idle timeout.
+ *
+ * The manager publishes the following metrics to {@link DefaultMetricRegistry}, under
+ * AgentConnectionManager.[service name]:
+ * - hits: acquires served by an already open connection
+ * - misses: acquires that needed a new connection
+ * - handshakes: time spent opening new connections
+ * - wait-time: time spent waiting for a connection
+ * - evictions: idle connections closed by the sweep
+ * - pools: number of agent endpoints with a pool
+ *
+ * @param <C> thrift async client type
+ */
+public class AgentConnectionManager<C extends TAsyncSSLClient> {
+
+  public static final int DEFAULT_MAX_CLIENTS_PER_AGENT = 8;
+  public static final int DEFAULT_MAX_WAITERS_PER_AGENT = 100;
+  public static final long DEFAULT_ACQUIRE_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+  public static final long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private static final Logger logger = LoggerFactory.getLogger(AgentConnectionManager.class);
+
+  /**
+   * Opens a new connection to an agent, and records its transport in clientTransportMap.
+   */
+  interface ClientConnector<C extends TAsyncSSLClient> {
+    C connect(InetSocketAddress address, ClientPoolOptions options, Map<C, TNonblockingSSLTransport> clientTransportMap)
+        throws IOException, TTransportException;
+  }
+
+  /**
+   * The metrics shared by all the pools of a manager.
+   */
+  static class PoolMetrics {
+    final Meter hits;
+    final Meter misses;
+    final Meter evictions;
+    final Timer handshakes;
+    final Timer waitTime;
+
+    PoolMetrics(MetricRegistry registry, String serviceName) {
+      this.hits = registry.meter(metricName(serviceName, "hits"));
+      this.misses = registry.meter(metricName(serviceName, "misses"));
+      this.evictions = registry.meter(metricName(serviceName, "evictions"));
+      this.handshakes = registry.timer(metricName(serviceName, "handshakes"));
+      this.waitTime = registry.timer(metricName(serviceName, "wait-time"));
+    }
+  }
+
+  private final ClientPoolOptions options;
+  private final long idleTimeoutMs;
+  private final ClientConnector<C> connector;
+  private final ScheduledExecutorService scheduledExecutor;
+  private final Ticker ticker;
+  private final PoolMetrics metrics;
+  private final ConcurrentMap<InetSocketAddress, PersistentClientPool<C>> pools;
+  private final ScheduledFuture<?> evictionTask;
+
+  public AgentConnectionManager(final TAsyncSSLClientFactory<C> clientFactory,
+                                final SSLContext sslContext,
+                                final TProtocolFactory protocolFactory,
+                                final ThriftFactory thriftFactory,
+                                final ScheduledExecutorService scheduledExecutor,
+                                ClientPoolOptions options,
+                                long idleTimeoutMs) {
+    this(
+        (address, poolOptions, clientTransportMap) -> ClientPoolUtils.createNewClient(
+            address,
+            protocolFactory,
+            poolOptions,
+            thriftFactory,
+            clientFactory,
+            clientTransportMap,
+            sslContext),
+        scheduledExecutor,
+        options,
+        idleTimeoutMs,
+        Ticker.systemTicker(),
+        DefaultMetricRegistry.REGISTRY);
+  }
+
+  @VisibleForTesting
+  AgentConnectionManager(ClientConnector<C> connector,
+                         ScheduledExecutorService scheduledExecutor,
+                         ClientPoolOptions options,
+                         long idleTimeoutMs,
+                         Ticker ticker,
+                         MetricRegistry registry) {
+    this.connector = connector;
+    this.scheduledExecutor = scheduledExecutor;
+    this.options = new ClientPoolOptions(options);
+    this.idleTimeoutMs = idleTimeoutMs;
+    this.ticker = ticker;
+    this.metrics = new PoolMetrics(registry, options.getServiceName());
+    this.pools = new ConcurrentHashMap<>();
+
+    String poolsGauge = metricName(options.getServiceName(), "pools");
+    registry.remove(poolsGauge);
+    registry.register(poolsGauge, (Gauge<Integer>) pools::size);
+
+    long sweepIntervalMs = Math.max(1, idleTimeoutMs / 2);
+    this.evictionTask = scheduledExecutor.scheduleWithFixedDelay(
+        this::evictIdleClients, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the shared pool for the agent at the given address, creating it if needed.
+   */
+  public ClientPool<C> getClientPool(InetSocketAddress address) {
+    return pools.computeIfAbsent(address,
+        key -> new PersistentClientPool<>(key, options, idleTimeoutMs, connector, metrics, scheduledExecutor, ticker));
+  }
+
+  /**
+   * Returns the shared pool for the agent at the given host and port, creating it if needed.
+   */
+  public ClientPool<C> getClientPool(String host, int port) {
+    return getClientPool(new InetSocketAddress(host, port));
+  }
+
+  /**
+   * Close all the connections managed by this manager and stop the idle sweep.
+   */
+  public void shutdown() {
+    logger.info("{}, shutting down agent connection manager", options.getServiceName());
+    evictionTask.cancel(false);
+    for (PersistentClientPool<C> pool : pools.values()) {
+      pool.shutdown();
+    }
+    pools.clear();
+  }
+
+  @VisibleForTesting
+  void evictIdleClients() {
+    try {
+      for (PersistentClientPool<C> pool : pools.values()) {
+        pool.evictIdleClients();
+      }
+    } catch (Throwable t) {
+      // Never let the exception escape, or the scheduled sweep would stop
+      logger.error("{}, failed to evict idle agent connections", options.getServiceName(), t);
+    }
+  }
+
+  @VisibleForTesting
+  int getPoolCount() {
+    return pools.size();
+  }
+
+  private static String metricName(String serviceName, String name) {
+    return MetricRegistry.name(AgentConnectionManager.class, serviceName, name);
+  }
+}
@@ -36,14 +36,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import javax.inject.Named;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 
 /**
  * Implementation of {@link ClientProxy}.
- * It's NOT thread-safe (as we don't provide atomicity for setting timeout and using that same timeout in the client
- * acquired from the pool).
+ * It's thread-safe: the proxy can be shared, and every call carries the timeout set by the calling thread.
  *
  * @param <C> async thrift client type
  */
@@ -51,10 +55,42 @@ public class ClientProxyImpl<C extends TAsyncSSLClient> implements ClientProxy<C
 
   private static final Logger logger = LoggerFactory.getLogger(ClientProxyImpl.class);
 
+  /**
+   * Method handles invoking the proxied methods on a client, with the type (Object, Object[])Object. They are
+   * resolved once per method and shared by all the proxies, so that calls do not go through reflection.
+   */
+  private static final ConcurrentMap<Method, MethodHandle> DISPATCHERS = new ConcurrentHashMap<>();
+
+  /**
+   * Method handles setting the tracing info of a request type, with the type (Object, TracingInfo)void, or
+   * nothing for request types without tracing info.
+   */
+  private static final ClassValue<Optional<MethodHandle>> TRACING_SETTERS = new ClassValue<Optional<MethodHandle>>() {
+    @Override
+    protected Optional<MethodHandle> computeValue(Class<?> type) {
+      try {
+        return Optional.of(MethodHandles.publicLookup()
+            .unreflect(type.getMethod("setTracing_info", TracingInfo.class))
+            .asType(MethodType.methodType(void.class, Object.class, TracingInfo.class)));
+      } catch (NoSuchMethodException e) {
+        // This particular request type doesn't have TracingInfo field
+        return Optional.empty();
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  };
+
   private final ExecutorService executor;
   private final ClientPool<C> clientPool;
   private final Enhancer enhancer;
-  private long timeout;
+
+  /**
+   * The timeout of the calls made by each thread, set through the 'setTimeout' method of the proxy.
+   */
+  private final ThreadLocal<Long> timeout = ThreadLocal.withInitial(() -> 0L);
+
+  private C proxy;
 
   @Inject
   public ClientProxyImpl(@Named("ClientProxyExecutor") ExecutorService executor,
@@ -62,7 +98,6 @@ public class ClientProxyImpl<C extends TAsyncSSLClient> implements ClientProxy<C
                          @Assisted final ClientPool<C> clientPool) {
     this.executor = new ClientProxyExecutor(executor);
     this.clientPool = clientPool;
-    this.timeout = 0;
 
     this.enhancer = new Enhancer();
     this.enhancer.setSuperclass(type.getRawType());
@@ -82,17 +117,23 @@ public class ClientProxyImpl<C extends TAsyncSSLClient> implements ClientProxy<C
    * any additional context that needs to be operated on when original callback is fired (e.g. releasing client
    * back to the pool).
    * <p>
-   * If the original method is 'setTimeout', ClientProxyImpl just saves timeout in its own state and applies it
-   * to the actual client before performing any subsequent calls.
+   * If the original method is 'setTimeout', ClientProxyImpl saves the timeout for the calling thread. Every
+   * subsequent call made by that thread captures the timeout when it is made, and applies it to the actual client
+   * acquired for it, so threads sharing the proxy do not see each other's timeouts.
+   * <p>
+   * The proxy object is created once and shared, as it holds no state of its own.
    *
    * @return C
    */
   @Override
   @SuppressWarnings("unchecked")
   public synchronized C get() {
-    return (C) this.enhancer.create(
-        new Class[]{TProtocolFactory.class, TAsyncSSLClientManager.class, TNonblockingSSLTransport.class},
-        new Object[]{null, null, null});
+    if (proxy == null) {
+      proxy = (C) this.enhancer.create(
+          new Class[]{TProtocolFactory.class, TAsyncSSLClientManager.class, TNonblockingSSLTransport.class},
+          new Object[]{null, null, null});
+    }
+    return proxy;
   }
 
   private MethodInterceptor createMethodInterceptor() {
@@ -105,26 +146,28 @@ public class ClientProxyImpl<C extends TAsyncSSLClient> implements ClientProxy<C
       // hence the special handling below.
       final String methodName = method.getName();
       if (methodName.equals("setTimeout") && args.length == 1) {
-        timeout = (long) args[0];
-        logger.debug("Timeout acquired for the client {}", timeout);
+        timeout.set((long) args[0]);
+        logger.debug("Timeout acquired for the client {}", args[0]);
         return null;
       }
 
       final AsyncMethodCallback<Object> callback = getCallback(args);
+      final long callTimeout = timeout.get();
+      final MethodHandle dispatcher = getDispatcher(method);
       ListenableFuture<C> futureClient = clientPool.acquire();
 
       Futures.addCallback(futureClient, new FutureCallback<C>() {
         @Override
         public void onSuccess(C client) {
-          client.setTimeout(timeout);
-          logger.debug("Timeout set for the client {}", timeout);
+          client.setTimeout(callTimeout);
+          logger.debug("Timeout set for the client {}", callTimeout);
 
           AsyncMethodCallback<Object> wrappedCallback = wrapCallback(client, callback);
           args[args.length - 1] = wrappedCallback;
-          setupTracing(method, args);
 
           try {
-            method.invoke(client, args);
+            setupTracing(args);
+            Object ignored = (Object) dispatcher.invokeExact((Object) client, args);
           } catch (Throwable e) {
             logger.error("Error invoking method {}", methodName, e);
             handleException(wrappedCallback, e);
@@ -159,35 +202,38 @@ public class ClientProxyImpl<C extends TAsyncSSLClient> implements ClientProxy<C
   /**
    * Sets up Thrift request tracing if method supports it.
    *
-   * @param method Method being called
-   * @param args   Method arguments
+   * @param args Method arguments
    */
-  private void setupTracing(Method method, Object[] args) {
-    Method tracingMethod = extractTracingMethod(args);
-
-    if (tracingMethod == null) {
+  private void setupTracing(Object[] args) throws Throwable {
+    if (args.length < 1 || !(args[0] instanceof TBase)) {
+      // No tracing possible, no request provided
       return;
     }
 
-    try {
-      tracingMethod.invoke(args[0], getRequestTracingInfo());
-    } catch (IllegalAccessException | InvocationTargetException e) {
-      throw new RuntimeException(e);
+    Optional<MethodHandle> tracingSetter = TRACING_SETTERS.get(args[0].getClass());
+    if (tracingSetter.isPresent()) {
+      tracingSetter.get().invokeExact(args[0], getRequestTracingInfo());
     }
   }
 
-  private Method extractTracingMethod(Object[] args) {
-    if (args.length < 1 || !(args[0] instanceof TBase)) {
-      // No tracing possible, no request provided
-      return null;
-    }
-
-    try {
-      return args[0].getClass().getMethod("setTracing_info", TracingInfo.class);
-    } catch (NoSuchMethodException e) {
-      // This particular request type doesn't have TracingInfo field
-      return null;
+  /**
+   * Returns the method handle invoking a proxied method on a client.
+   */
+  private static MethodHandle getDispatcher(Method method) {
+    MethodHandle dispatcher = DISPATCHERS.get(method);
+    if (dispatcher == null) {
+      try {
+        int parameterCount = method.getParameterCount();
+        dispatcher = MethodHandles.publicLookup()
+            .unreflect(method)
+            .asType(MethodType.genericMethodType(parameterCount + 1))
+            .asSpreader(Object[].class, parameterCount);
+      } catch (IllegalAccessException e) {
+        throw new IllegalArgumentException("ClientProxy cannot access method " + method, e);
+      }
+      DISPATCHERS.putIfAbsent(method, dispatcher);
     }
+    return dispatcher;
   }
 
   private void handleException(AsyncMethodCallback<Object> callback, Throwable cause) {
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import static com.vmware.photon.controller.common.Constants.VOID;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.apache.thrift.async.TAsyncSSLClient;
+import org.apache.thrift.transport.TNonblockingSSLTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ClientPool} for a single agent endpoint that keeps its connections open between calls.
+ *
+ * Unlike {@link BasicClientPool}, which opens a new TLS connection for every acquire and closes it on release,
+ * healthy clients are returned to an idle list and handed out again to the next caller. Up to
+ * {@link ClientPoolOptions#getMaxClients()} clients can be in flight at the same time; further callers wait
+ * (up to {@link ClientPoolOptions#getMaxWaiters()} of them) until a client is released.
+ *
+ * Idle clients are health checked when they are reused (a client with an error or a closed transport is
+ * discarded) and are closed by {@link #evictIdleClients()} once they have been idle for longer than the idle
+ * timeout.
+ *
+ * Instances are owned by an {@link AgentConnectionManager}; they are shared by all the callers talking to the
+ * same endpoint, so {@link #close()} is a no-op for callers and only {@link #shutdown()} releases the connections.
+ *
+ * @param <C> thrift async client type
+ */
+public class PersistentClientPool<C extends TAsyncSSLClient> implements ClientPool<C> {
+
+  private static final Logger logger = LoggerFactory.getLogger(PersistentClientPool.class);
+
+  /**
+   * An idle client along with the time it was returned to the pool.
+   */
+  private static class IdleClient<C> {
+    final C client;
+    final long idleSinceNanos;
+
+    IdleClient(C client, long idleSinceNanos) {
+      this.client = client;
+      this.idleSinceNanos = idleSinceNanos;
+    }
+  }
+
+  /**
+   * A waiting caller along with the time it started waiting.
+   */
+  private static class Waiter<C extends TAsyncSSLClient> {
+    final Promise<C> promise;
+    final long waitStartNanos;
+
+    Waiter(Promise<C> promise, long waitStartNanos) {
+      this.promise = promise;
+      this.waitStartNanos = waitStartNanos;
+    }
+  }
+
+  private final InetSocketAddress address;
+  private final ClientPoolOptions options;
+  private final long idleTimeoutNanos;
+  private final AgentConnectionManager.ClientConnector<C> connector;
+  private final AgentConnectionManager.PoolMetrics metrics;
+  private final ScheduledExecutorService scheduledExecutor;
+  private final Ticker ticker;
+
+  private final Deque<IdleClient<C>> idleClients;
+  private final Map<C, TNonblockingSSLTransport> clientTransportMap;
+  private final Queue<Waiter<C>> waiters;
+  /**
+   * Clients handed out to callers, including the ones still being connected outside the lock.
+   */
+  private int acquiredCount;
+  private boolean shutdown;
+
+  PersistentClientPool(InetSocketAddress address,
+                       ClientPoolOptions options,
+                       long idleTimeoutMs,
+                       AgentConnectionManager.ClientConnector<C> connector,
+                       AgentConnectionManager.PoolMetrics metrics,
+                       ScheduledExecutorService scheduledExecutor,
+                       Ticker ticker) {
+    this.address = address;
+    this.options = new ClientPoolOptions(options);
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+    this.connector = connector;
+    this.metrics = metrics;
+    this.scheduledExecutor = scheduledExecutor;
+    this.ticker = ticker;
+    this.idleClients = new ArrayDeque<>();
+    this.clientTransportMap = new HashMap<>();
+    this.waiters = new LinkedList<>();
+    this.acquiredCount = 0;
+    this.shutdown = false;
+  }
+
+  public InetSocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Hands out an idle client, or connects a new one if the pool is below its client limit, or queues the caller.
+   * New connections are made outside the pool lock, so that a slow or unreachable agent does not block the other
+   * callers of the pool: the slot is reserved under the lock, and the client is added to the pool once connected.
+   */
+  @Override
+  public ListenableFuture<C> acquire() {
+    synchronized (this) {
+      if (shutdown) {
+        return Futures.immediateFailedFuture(new ClientPoolException("Client pool is shut down: " + address));
+      }
+
+      C client = reserveIdleClient();
+      if (client != null) {
+        metrics.hits.mark();
+        metrics.waitTime.update(0, TimeUnit.NANOSECONDS);
+        return Futures.immediateFuture(client);
+      }
+
+      if (!canCreateClient()) {
+        if (waiters.size() >= options.getMaxWaiters()) {
+          return Futures.immediateFailedFuture(new ClientPoolException("Too many waiters"));
+        }
+
+        SettableFuture<C> future = SettableFuture.create();
+        Waiter<C> waiter = new Waiter<>(new Promise<>(future), ticker.read());
+        waiters.add(waiter);
+        if (options.getTimeoutMs() > 0) {
+          setTimeout(waiter.promise);
+        }
+
+        logger.debug("{}, {} client(s) in use for {}, request queued ({} waiting)",
+            options.getServiceName(), acquiredCount, address, waiters.size());
+        return future;
+      }
+
+      metrics.misses.mark();
+      metrics.waitTime.update(0, TimeUnit.NANOSECONDS);
+      acquiredCount++;
+    }
+
+    try {
+      return Futures.immediateFuture(connectReservedClient());
+    } catch (IOException | TTransportException | ClientPoolException ex) {
+      logger.error("{}, failed to connect to {}", options.getServiceName(), address, ex);
+      serveWaiters();
+      return Futures.immediateFailedFuture(ex);
+    }
+  }
+
+  @Override
+  public void release(C client, boolean healthy) {
+    synchronized (this) {
+      TNonblockingSSLTransport transport = clientTransportMap.get(client);
+      if (transport == null) {
+        throw new IllegalArgumentException("Client is not currently acquired by the pool: " + client);
+      }
+
+      acquiredCount--;
+
+      if (shutdown || !healthy || !isHealthy(client)) {
+        logger.debug("{}, closing client {} for {}, healthy: {}", options.getServiceName(), client, address, healthy);
+        closeClient(client);
+      } else if (!handOff(client)) {
+        idleClients.push(new IdleClient<>(client, ticker.read()));
+      }
+    }
+
+    serveWaiters();
+  }
+
+  /**
+   * Callers share this pool with every other caller talking to the same endpoint, so closing it is a no-op.
+   * The connections are released by {@link AgentConnectionManager} through {@link #shutdown()}.
+   */
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public synchronized boolean isClosed() {
+    return shutdown;
+  }
+
+  @Override
+  public synchronized int getWaiters() {
+    return waiters.size();
+  }
+
+  /**
+   * Close all the idle clients, fail all the waiters and close in-flight clients as they are released.
+   */
+  public synchronized void shutdown() {
+    logger.info("{}, shutting down client pool for {}", options.getServiceName(), address);
+    shutdown = true;
+
+    Iterator<Waiter<C>> waiterIterator = waiters.iterator();
+    while (waiterIterator.hasNext()) {
+      waiterIterator.next().promise.setException(new ClientPoolException("Client pool closing"));
+      waiterIterator.remove();
+    }
+
+    while (!idleClients.isEmpty()) {
+      closeClient(idleClients.pop().client);
+    }
+  }
+
+  /**
+   * Close the clients that have been idle for longer than the idle timeout, as well as idle clients that are
+   * no longer healthy.
+   */
+  public synchronized void evictIdleClients() {
+    long now = ticker.read();
+    Iterator<IdleClient<C>> iterator = idleClients.iterator();
+    while (iterator.hasNext()) {
+      IdleClient<C> idleClient = iterator.next();
+      if (now - idleClient.idleSinceNanos > idleTimeoutNanos || !isHealthy(idleClient.client)) {
+        iterator.remove();
+        closeClient(idleClient.client);
+        metrics.evictions.mark();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getIdleCount() {
+    return idleClients.size();
+  }
+
+  @VisibleForTesting
+  synchronized int getAcquiredCount() {
+    return acquiredCount;
+  }
+
+  /**
+   * Idle clients are kept in a stack so the most recently used one is reused first, and the least recently
+   * used ones age out through eviction.
+   */
+  private C reserveIdleClient() {
+    while (!idleClients.isEmpty()) {
+      C client = idleClients.pop().client;
+      if (isHealthy(client)) {
+        acquiredCount++;
+        return client;
+      }
+
+      logger.warn("{}, idle client {} for {} is unhealthy, discarding it", options.getServiceName(), client, address);
+      closeClient(client);
+    }
+
+    return null;
+  }
+
+  /**
+   * Connects a new client for a slot that was already counted in {@link #acquiredCount}. Must be called without
+   * holding the pool lock; the slot is given back if the connection fails or the pool was shut down meanwhile.
+   */
+  private C connectReservedClient() throws IOException, TTransportException, ClientPoolException {
+    Map<C, TNonblockingSSLTransport> transports = new HashMap<>();
+    C client;
+    long start = ticker.read();
+    try {
+      client = connector.connect(address, options, transports);
+    } catch (IOException | TTransportException | RuntimeException ex) {
+      synchronized (this) {
+        acquiredCount--;
+      }
+      throw ex;
+    }
+    metrics.handshakes.update(ticker.read() - start, TimeUnit.NANOSECONDS);
+
+    synchronized (this) {
+      if (shutdown) {
+        acquiredCount--;
+        transports.values().forEach(TNonblockingSSLTransport::close);
+        throw new ClientPoolException("Client pool closing");
+      }
+
+      clientTransportMap.putAll(transports);
+    }
+
+    logger.debug("{}, created new client {} for {}", options.getServiceName(), client, address);
+    return client;
+  }
+
+  private boolean canCreateClient() {
+    return acquiredCount + idleClients.size() < options.getMaxClients();
+  }
+
+  private boolean isHealthy(C client) {
+    TNonblockingSSLTransport transport = clientTransportMap.get(client);
+    return transport != null && transport.isOpen() && !client.hasError();
+  }
+
+  /**
+   * Give a released client directly to the oldest waiter, if there is one.
+   */
+  private boolean handOff(C client) {
+    while (!waiters.isEmpty()) {
+      Waiter<C> waiter = waiters.remove();
+      if (waiter.promise.isDone()) {
+        continue;
+      }
+
+      acquiredCount++;
+      if (waiter.promise.set(client)) {
+        metrics.hits.mark();
+        metrics.waitTime.update(ticker.read() - waiter.waitStartNanos, TimeUnit.NANOSECONDS);
+        return true;
+      }
+
+      acquiredCount--;
+    }
+
+    return false;
+  }
+
+  /**
+   * Serve waiters with new clients while we are below the client limit, for example after an unhealthy
+   * client was closed. Must be called without holding the pool lock, as the clients are connected outside it.
+   */
+  private void serveWaiters() {
+    Waiter<C> waiter;
+    while ((waiter = reserveWaiter()) != null) {
+      C client;
+      try {
+        client = connectReservedClient();
+      } catch (IOException | TTransportException | ClientPoolException ex) {
+        logger.error("{}, failed to connect to {}", options.getServiceName(), address, ex);
+        waiter.promise.setException(ex);
+        continue;
+      }
+
+      synchronized (this) {
+        if (waiter.promise.set(client)) {
+          metrics.misses.mark();
+          metrics.waitTime.update(ticker.read() - waiter.waitStartNanos, TimeUnit.NANOSECONDS);
+        } else {
+          acquiredCount--;
+          if (!handOff(client)) {
+            idleClients.push(new IdleClient<>(client, ticker.read()));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest pending waiter and reserves a new client slot for it, if the pool is below its client
+   * limit.
+   */
+  private synchronized Waiter<C> reserveWaiter() {
+    while (!waiters.isEmpty() && !shutdown) {
+      Waiter<C> waiter = waiters.peek();
+      if (waiter.promise.isDone()) {
+        waiters.remove();
+        continue;
+      }
+
+      if (!canCreateClient()) {
+        return null;
+      }
+
+      waiters.remove();
+      acquiredCount++;
+      return waiter;
+    }
+
+    return null;
+  }
+
+  private void setTimeout(final Promise<C> promise) {
+    ScheduledFuture<Void> schedule = scheduledExecutor.schedule(new Callable<Void>() {
+      @Override
+      public Void call() {
+        synchronized (PersistentClientPool.this) {
+          promise.setException(new ClientPoolException(String.format("Timeout acquiring client: %s", address)));
+        }
+        return VOID;
+      }
+    }, options.getTimeoutMs(), TimeUnit.MILLISECONDS);
+    promise.setTimeout(schedule);
+  }
+
+  private void closeClient(C client) {
+    TNonblockingSSLTransport transport = clientTransportMap.remove(client);
+    if (transport != null) {
+      transport.close();
+    }
+  }
+}
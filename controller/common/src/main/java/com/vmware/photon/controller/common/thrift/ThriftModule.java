@@ -42,6 +42,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Guice module for Thrift.
@@ -52,6 +53,8 @@ public class ThriftModule extends AbstractModule {
   private volatile TProtocolFactory tProtocolFactory;
   private TAsyncSSLClientManager tAsyncSSLClientManager;
   private volatile ScheduledExecutorService scheduledExecutorService;
+  private volatile AgentConnectionManager<Host.AsyncSSLClient> hostConnectionManager;
+  private volatile AgentConnectionManager<AgentControl.AsyncSSLClient> agentControlConnectionManager;
   private final SSLContext sslContext;
 
   public ThriftModule(SSLContext sslContext) {
@@ -170,6 +173,29 @@ public class ThriftModule extends AbstractModule {
         sslContext);
   }
 
+  /**
+   * Creates an AgentConnectionManager that keeps persistent connections to the agents for the given client type.
+   *
+   * @return
+   */
+  private <T extends TAsyncSSLClient> AgentConnectionManager<T> createAgentConnectionManager(
+      TAsyncSSLClientFactory<T> tAsyncSSLClientFactory, String serviceName) {
+    ClientPoolOptions options = new ClientPoolOptions()
+        .setMaxClients(AgentConnectionManager.DEFAULT_MAX_CLIENTS_PER_AGENT)
+        .setMaxWaiters(AgentConnectionManager.DEFAULT_MAX_WAITERS_PER_AGENT)
+        .setTimeout(AgentConnectionManager.DEFAULT_ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .setServiceName(serviceName);
+
+    return new AgentConnectionManager<>(
+        tAsyncSSLClientFactory,
+        sslContext,
+        getTProtocolFactory(),
+        getThriftFactory(),
+        getClientPoolTimer(),
+        options,
+        AgentConnectionManager.DEFAULT_IDLE_TIMEOUT_MS);
+  }
+
   /**
    * Creates a ClientProxyFactory of the given type.
    *
@@ -205,7 +231,15 @@ public class ThriftModule extends AbstractModule {
     ClientPoolFactory<AgentControl.AsyncSSLClient> clientPoolFactory = getClientPoolFactory(tAsyncSSLClientFactory);
     ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory = getClientProxyFactory(type);
 
-    return new AgentControlClientFactoryImpl(clientPoolFactory, clientProxyFactory);
+    if (agentControlConnectionManager == null) {
+      synchronized (lock) {
+        if (agentControlConnectionManager == null) {
+          agentControlConnectionManager = createAgentConnectionManager(tAsyncSSLClientFactory, "AgentControl");
+        }
+      }
+    }
+
+    return new AgentControlClientFactoryImpl(clientPoolFactory, clientProxyFactory, agentControlConnectionManager);
   }
 
   /**
@@ -220,7 +254,15 @@ public class ThriftModule extends AbstractModule {
     ClientPoolFactory<Host.AsyncSSLClient> clientPoolFactory = getClientPoolFactory(tAsyncSSLClientFactory);
     ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory = getClientProxyFactory(type);
 
-    return new HostClientFactoryImpl(clientPoolFactory, clientProxyFactory);
+    if (hostConnectionManager == null) {
+      synchronized (lock) {
+        if (hostConnectionManager == null) {
+          hostConnectionManager = createAgentConnectionManager(tAsyncSSLClientFactory, "Host");
+        }
+      }
+    }
+
+    return new HostClientFactoryImpl(clientPoolFactory, clientProxyFactory, hostConnectionManager);
   }
 
   /**
@@ -229,17 +271,20 @@ public class ThriftModule extends AbstractModule {
   private static class HostClientFactoryImpl implements HostClientFactory {
     private ClientPoolFactory<Host.AsyncSSLClient> clientPoolFactory;
     private ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory;
+    private AgentConnectionManager<Host.AsyncSSLClient> connectionManager;
 
     private HostClientFactoryImpl(
         ClientPoolFactory<Host.AsyncSSLClient> clientPoolFactory,
-        ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory) {
+        ClientProxyFactory<Host.AsyncSSLClient> clientProxyFactory,
+        AgentConnectionManager<Host.AsyncSSLClient> connectionManager) {
       this.clientPoolFactory = clientPoolFactory;
       this.clientProxyFactory = clientProxyFactory;
+      this.connectionManager = connectionManager;
     }
 
     @Override
     public HostClient create() {
-      return new HostClient(clientProxyFactory, clientPoolFactory);
+      return new HostClient(clientProxyFactory, clientPoolFactory, connectionManager);
     }
   }
 
@@ -340,16 +385,19 @@ public class ThriftModule extends AbstractModule {
   private static class AgentControlClientFactoryImpl implements AgentControlClientFactory {
     private ClientPoolFactory<AgentControl.AsyncSSLClient> clientPoolFactory;
     private ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory;
+    private AgentConnectionManager<AgentControl.AsyncSSLClient> connectionManager;
 
     private AgentControlClientFactoryImpl(ClientPoolFactory<AgentControl.AsyncSSLClient> clientPoolFactory,
-        ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory) {
+        ClientProxyFactory<AgentControl.AsyncSSLClient> clientProxyFactory,
+        AgentConnectionManager<AgentControl.AsyncSSLClient> connectionManager) {
       this.clientPoolFactory = clientPoolFactory;
       this.clientProxyFactory = clientProxyFactory;
+      this.connectionManager = connectionManager;
     }
 
     @Override
     public AgentControlClient create() {
-      return new AgentControlClient(clientProxyFactory, clientPoolFactory);
+      return new AgentControlClient(clientProxyFactory, clientPoolFactory, connectionManager);
     }
   }
 }
@@ -134,6 +134,7 @@ import com.google.inject.TypeLiteral;
 import org.apache.thrift.TException;
 import org.apache.thrift.async.AsyncMethodCallback;
 import org.apache.thrift.transport.TSSLTransportFactory.TSSLTransportParameters;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.testng.annotations.AfterClass;
@@ -676,6 +677,25 @@ public class HostClientTest {
 
       hostClient.setClientProxy(clientProxy);
       assertThat(hostClient.copyImage(imageId, source, destination), is(copyImageResponse));
+      verify(clientProxy).setTimeout(anyInt());
+    }
+
+    @Test
+    public void testSuccessToNewImage() throws Exception {
+      CopyImageResponse copyImageResponse = new CopyImageResponse();
+      copyImageResponse.setResult(CopyImageResultCode.OK);
+      final Host.AsyncSSLClient.copy_image_call copyImageCall = mock(Host.AsyncSSLClient.copy_image_call.class);
+      doReturn(copyImageResponse).when(copyImageCall).getResult();
+      ArgumentCaptor<CopyImageRequest> request = ArgumentCaptor.forClass(CopyImageRequest.class);
+      doAnswer(getAnswer(copyImageCall))
+          .when(clientProxy).copy_image(request.capture(), any(AsyncMethodCallback.class));
+
+      hostClient.setClientProxy(clientProxy);
+      assertThat(hostClient.copyImage(imageId, source, "newImageId", source), is(copyImageResponse));
+      assertThat(request.getValue().getSource().getId(), is(imageId));
+      assertThat(request.getValue().getSource().getDatastore().getId(), is(source));
+      assertThat(request.getValue().getDestination().getId(), is("newImageId"));
+      assertThat(request.getValue().getDestination().getDatastore().getId(), is(source));
     }
 
     @Test
@@ -1954,6 +1974,7 @@ public class HostClientTest {
       hostClient.setHostMode(HostMode.ENTERING_MAINTENANCE, handler);
 
       latch.await(20, TimeUnit.MILLISECONDS);
+      verify(clientProxy).setTimeout(anyInt());
     }
 
     @SuppressWarnings("unchecked")
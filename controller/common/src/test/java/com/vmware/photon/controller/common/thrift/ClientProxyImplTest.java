@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.common.thrift;
 
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.TypeLiteral;
 import org.apache.thrift.TApplicationException;
 import org.apache.thrift.TException;
@@ -28,7 +29,11 @@ import org.testng.annotations.Test;
 import static com.example.echo.Echoer.AsyncSSLClient;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -40,6 +45,7 @@ import static org.testng.Assert.fail;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -172,6 +178,68 @@ public class ClientProxyImplTest extends PowerMockTestCase {
     verifyNoMoreInteractions(clientPool);
   }
 
+  @Test
+  public void testTimeoutIsCapturedPerCall() throws Exception {
+    SettableFuture<AsyncSSLClient> futureClient = SettableFuture.create();
+    when(clientPool.acquire()).thenReturn(futureClient);
+    mockCallSuccess(client);
+
+    ClientProxy<AsyncSSLClient> proxy = new ClientProxyImpl<>(executor, typeLiteral, clientPool);
+
+    // The call waits for a client while another thread sets a different timeout on the shared proxy
+    Future<String> result = executor.submit(() -> {
+      proxy.get().setTimeout(10);
+      return performEchoCall(proxy.get(), "foo");
+    });
+    verify(clientPool, timeout(5000)).acquire();
+    executor.submit(() -> proxy.get().setTimeout(20)).get();
+
+    futureClient.set(client);
+    assertThat(result.get(5, TimeUnit.SECONDS), is("foo"));
+    verify(client).setTimeout(10);
+    verify(clientPool).release(client, true);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testConcurrentCalls() throws Exception {
+    when(clientPool.acquire()).thenReturn(Futures.immediateFuture(client));
+    doAnswer(invocation -> {
+      ((AsyncMethodCallback<AsyncSSLClient.echo_call>) invocation.getArguments()[1]).onComplete(null);
+      return null;
+    }).when(client).echo(anyString(), any(AsyncMethodCallback.class));
+
+    ClientProxy<AsyncSSLClient> proxy = new ClientProxyImpl<>(executor, typeLiteral, clientPool);
+    AsyncSSLClient clientProxy = proxy.get();
+    assertThat(proxy.get(), is(sameInstance(clientProxy)));
+
+    int threadCount = 8;
+    int callCount = 100;
+    CountDownLatch done = new CountDownLatch(threadCount * callCount);
+    for (int i = 0; i < threadCount; i++) {
+      executor.submit(() -> {
+        for (int j = 0; j < callCount; j++) {
+          clientProxy.echo("foo", new AsyncMethodCallback<AsyncSSLClient.echo_call>() {
+            @Override
+            public void onComplete(AsyncSSLClient.echo_call response) {
+              done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+              fail(e.toString());
+            }
+          });
+        }
+        return null;
+      });
+    }
+
+    assertTrue(done.await(30, TimeUnit.SECONDS));
+    verify(clientPool, times(threadCount * callCount)).acquire();
+    verify(clientPool, times(threadCount * callCount)).release(client, true);
+  }
+
   private void mockCallSuccess(AsyncSSLClient client) throws Exception {
     doAnswer(new Answer<Object>() {
       @Override
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.common.thrift;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.echo.Echoer;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.thrift.transport.TNonblockingSSLTransport;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
+
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests {@link PersistentClientPool} and {@link AgentConnectionManager}.
+ */
+public class PersistentClientPoolTest {
+
+  private static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private final InetSocketAddress address = InetSocketAddress.createUnresolved("127.0.0.1", 8835);
+
+  private AtomicLong now;
+  private volatile int connectCount;
+  private volatile CountDownLatch connectStarted;
+  private volatile CountDownLatch connectBlocker;
+  private AgentConnectionManager<Echoer.AsyncSSLClient> manager;
+  private MetricRegistry registry;
+
+  @BeforeMethod
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    now = new AtomicLong();
+    connectCount = 0;
+    connectStarted = null;
+    connectBlocker = null;
+    registry = new MetricRegistry();
+
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(executor.scheduleWithFixedDelay(any(Runnable.class), any(Long.class), any(Long.class),
+        any(TimeUnit.class))).thenReturn(mock(ScheduledFuture.class));
+    when(executor.schedule(any(Callable.class), any(Long.class), any(TimeUnit.class)))
+        .thenReturn(mock(ScheduledFuture.class));
+
+    ClientPoolOptions options = new ClientPoolOptions()
+        .setMaxClients(2)
+        .setMaxWaiters(1)
+        .setTimeout(30, TimeUnit.SECONDS)
+        .setServiceName("Echoer");
+
+    manager = new AgentConnectionManager<>(
+        this::connect,
+        executor,
+        options,
+        IDLE_TIMEOUT_MS,
+        new Ticker() {
+          @Override
+          public long read() {
+            return now.get();
+          }
+        },
+        registry);
+  }
+
+  @Test
+  public void testReleasedClientIsReused() throws Exception {
+    ClientPool<Echoer.AsyncSSLClient> pool = manager.getClientPool(address);
+    assertThat(manager.getClientPool(address), sameInstance(pool));
+
+    Echoer.AsyncSSLClient client = pool.acquire().get();
+    pool.release(client, true);
+    assertThat(pool.acquire().get(), sameInstance(client));
+
+    assertThat(connectCount, is(1));
+    assertThat(meterCount("hits"), is(1L));
+    assertThat(meterCount("misses"), is(1L));
+    assertThat(registry.timer(metricName("handshakes")).getCount(), is(1L));
+  }
+
+  @Test
+  public void testCloseIsNoOp() throws Exception {
+    ClientPool<Echoer.AsyncSSLClient> pool = manager.getClientPool(address);
+    Echoer.AsyncSSLClient client = pool.acquire().get();
+    pool.release(client, true);
+
+    pool.close();
+    assertThat(pool.isClosed(), is(false));
+    assertThat(pool.acquire().get(), sameInstance(client));
+  }
+
+  @Test
+  public void testMaxClientsAndWaiters() throws Exception {
+    ClientPool<Echoer.AsyncSSLClient> pool = manager.getClientPool(address);
+    Echoer.AsyncSSLClient client1 = pool.acquire().get();
+    Echoer.AsyncSSLClient client2 = pool.acquire().get();
+    assertThat(client1, not(sameInstance(client2)));
+
+    ListenableFuture<Echoer.AsyncSSLClient> waiter = pool.acquire();
+    assertThat(waiter.isDone(), is(false));
+    assertThat(pool.getWaiters(), is(1));
+
+    try {
+      pool.acquire().get();
+      fail("acquire should fail when there are too many waiters");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause() instanceof ClientPoolException, is(true));
+    }
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+    pool.release(client1, true);
+    assertThat(waiter.get(), sameInstance(client1));
+    assertThat(pool.getWaiters(), is(0));
+    assertThat(connectCount, is(2));
+    assertThat(registry.timer(metricName("wait-time")).getSnapshot().getMax(),
+        is(TimeUnit.MILLISECONDS.toNanos(10)));
+  }
+
+  @Test
+  public void testUnhealthyClientIsDiscarded() throws Exception {
+    PersistentClientPool<Echoer.AsyncSSLClient> pool =
+        (PersistentClientPool<Echoer.AsyncSSLClient>) manager.getClientPool(address);
+    Echoer.AsyncSSLClient client = pool.acquire().get();
+    pool.release(client, false);
+    assertThat(pool.getIdleCount(), is(0));
+
+    client = pool.acquire().get();
+    when(client.hasError()).thenReturn(true);
+    pool.release(client, true);
+    assertThat(pool.getIdleCount(), is(0));
+
+    assertThat(pool.acquire().get(), not(sameInstance(client)));
+    assertThat(connectCount, is(3));
+  }
+
+  @Test
+  public void testIdleClientsAreEvicted() throws Exception {
+    PersistentClientPool<Echoer.AsyncSSLClient> pool =
+        (PersistentClientPool<Echoer.AsyncSSLClient>) manager.getClientPool(address);
+    Echoer.AsyncSSLClient client1 = pool.acquire().get();
+    Echoer.AsyncSSLClient client2 = pool.acquire().get();
+    pool.release(client1, true);
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS) + 1);
+    pool.release(client2, true);
+    manager.evictIdleClients();
+
+    assertThat(pool.getIdleCount(), is(1));
+    assertThat(pool.acquire().get(), sameInstance(client2));
+    assertThat(meterCount("evictions"), is(1L));
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    PersistentClientPool<Echoer.AsyncSSLClient> pool =
+        (PersistentClientPool<Echoer.AsyncSSLClient>) manager.getClientPool(address);
+    Echoer.AsyncSSLClient client = pool.acquire().get();
+    pool.release(client, true);
+
+    manager.shutdown();
+    assertThat(pool.isClosed(), is(true));
+    assertThat(pool.getIdleCount(), is(0));
+    assertThat(manager.getPoolCount(), is(0));
+  }
+
+  /**
+   * A slow handshake must not block the callers using the clients that are already connected.
+   */
+  @Test
+  public void testConnectDoesNotBlockPool() throws Exception {
+    ClientPool<Echoer.AsyncSSLClient> pool = manager.getClientPool(address);
+    Echoer.AsyncSSLClient client1 = pool.acquire().get();
+
+    connectStarted = new CountDownLatch(1);
+    connectBlocker = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<ListenableFuture<Echoer.AsyncSSLClient>> slowAcquire = executor.submit(pool::acquire);
+      assertThat(connectStarted.await(10, TimeUnit.SECONDS), is(true));
+
+      pool.release(client1, true);
+      assertThat(pool.getWaiters(), is(0));
+      assertThat(pool.acquire().get(), sameInstance(client1));
+
+      ListenableFuture<Echoer.AsyncSSLClient> waiter = pool.acquire();
+      assertThat(waiter.isDone(), is(false));
+      assertThat(pool.getWaiters(), is(1));
+
+      connectBlocker.countDown();
+      Echoer.AsyncSSLClient client2 = slowAcquire.get(10, TimeUnit.SECONDS).get();
+      assertThat(client2, not(sameInstance(client1)));
+      assertThat(connectCount, is(2));
+
+      pool.release(client2, true);
+      assertThat(waiter.get(), sameInstance(client2));
+    } finally {
+      connectBlocker.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  private Echoer.AsyncSSLClient connect(InetSocketAddress address, ClientPoolOptions options,
+                                        Map<Echoer.AsyncSSLClient, TNonblockingSSLTransport> clientTransportMap)
+      throws InterruptedIOException {
+    connectCount++;
+    if (connectBlocker != null) {
+      connectStarted.countDown();
+      try {
+        connectBlocker.await();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+    }
+    Echoer.AsyncSSLClient client = mock(Echoer.AsyncSSLClient.class);
+    TNonblockingSSLTransport transport = mock(TNonblockingSSLTransport.class);
+    when(transport.isOpen()).thenReturn(true);
+    clientTransportMap.put(client, transport);
+    return client;
+  }
+
+  private long meterCount(String name) {
+    return registry.meter(metricName(name)).getCount();
+  }
+
+  private static String metricName(String name) {
+    return MetricRegistry.name(AgentConnectionManager.class, "Echoer", name);
+  }
+}
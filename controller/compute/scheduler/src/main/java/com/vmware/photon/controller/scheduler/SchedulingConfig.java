@@ -23,6 +23,17 @@ import javax.validation.constraints.Min;
  */
 @SuppressWarnings("UnusedDeclaration")
 public class SchedulingConfig {
+
+  /**
+   * The constraint checker implementations the scheduler can use to find placement candidates.
+   */
+  public enum ConstraintCheckerType {
+    // Query Cloudstore for every placement (see CloudStoreConstraintChecker)
+    CLOUD_STORE,
+    // Answer from an in-memory index kept current by Cloudstore notifications (see InMemoryConstraintChecker)
+    IN_MEMORY
+  }
+
   @Min(1000)
   @JsonProperty("place_timeout_ms")
   private long placeTimeoutMs = 60000;
@@ -32,10 +43,51 @@ public class SchedulingConfig {
   @JsonProperty("max_fan_out_count")
   private int maxFanoutCount = 4;
 
+  /**
+   * Number of OK place responses after which the best of them is picked without waiting for the other
+   * candidates. 0 waits for all the candidates.
+   */
+  @Min(0)
+  @Max(32)
+  @JsonProperty("place_response_quorum")
+  private int placeResponseQuorum = 0;
+
+  /**
+   * Time after which the best of the OK place responses received so far is picked. If none was received yet,
+   * the first one to come is picked. 0 waits for the candidates up to the place timeout.
+   */
+  @Min(0)
+  @JsonProperty("place_response_deadline_ms")
+  private long placeResponseDeadlineMs = 0;
+
+  /**
+   * Number of spare candidates sampled next to the max_fan_out_count candidates. A spare is asked to place the
+   * resource when a candidate fails, or when no decision was reached after place_hedge_delay_ms.
+   */
+  @Min(0)
+  @Max(32)
+  @JsonProperty("place_hedge_count")
+  private int placeHedgeCount = 0;
+
+  /**
+   * Time after which the remaining spare candidates are asked to place the resource too. 0 only uses spares to
+   * replace the candidates which failed.
+   */
+  @Min(0)
+  @JsonProperty("place_hedge_delay_ms")
+  private long placeHedgeDelayMs = 0;
+
   @Min(0)
   @JsonProperty("utilization_transfer_ratio")
   private double utilizationTransferRatio = 9.0;
 
+  @JsonProperty("constraint_checker")
+  private ConstraintCheckerType constraintChecker = ConstraintCheckerType.CLOUD_STORE;
+
+  @Min(1000)
+  @JsonProperty("constraint_checker_resync_interval_ms")
+  private long constraintCheckerResyncIntervalMs = 5 * 60 * 1000;
+
   public long getPlaceTimeoutMs() {
     return placeTimeoutMs;
   }
@@ -52,6 +104,38 @@ public class SchedulingConfig {
     this.maxFanoutCount = maxFanoutCount;
   }
 
+  public int getPlaceResponseQuorum() {
+    return placeResponseQuorum;
+  }
+
+  public void setPlaceResponseQuorum(int placeResponseQuorum) {
+    this.placeResponseQuorum = placeResponseQuorum;
+  }
+
+  public long getPlaceResponseDeadlineMs() {
+    return placeResponseDeadlineMs;
+  }
+
+  public void setPlaceResponseDeadlineMs(long placeResponseDeadlineMs) {
+    this.placeResponseDeadlineMs = placeResponseDeadlineMs;
+  }
+
+  public int getPlaceHedgeCount() {
+    return placeHedgeCount;
+  }
+
+  public void setPlaceHedgeCount(int placeHedgeCount) {
+    this.placeHedgeCount = placeHedgeCount;
+  }
+
+  public long getPlaceHedgeDelayMs() {
+    return placeHedgeDelayMs;
+  }
+
+  public void setPlaceHedgeDelayMs(long placeHedgeDelayMs) {
+    this.placeHedgeDelayMs = placeHedgeDelayMs;
+  }
+
   public double getUtilizationTransferRatio() {
     return utilizationTransferRatio;
   }
@@ -59,4 +143,20 @@ public class SchedulingConfig {
   public void setUtilizationTransferRatio(double utilizationTransferRatio) {
     this.utilizationTransferRatio = utilizationTransferRatio;
   }
+
+  public ConstraintCheckerType getConstraintChecker() {
+    return constraintChecker;
+  }
+
+  public void setConstraintChecker(ConstraintCheckerType constraintChecker) {
+    this.constraintChecker = constraintChecker;
+  }
+
+  public long getConstraintCheckerResyncIntervalMs() {
+    return constraintCheckerResyncIntervalMs;
+  }
+
+  public void setConstraintCheckerResyncIntervalMs(long constraintCheckerResyncIntervalMs) {
+    this.constraintCheckerResyncIntervalMs = constraintCheckerResyncIntervalMs;
+  }
 }
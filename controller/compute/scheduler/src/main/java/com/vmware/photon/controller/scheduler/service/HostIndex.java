@@ -0,0 +1,508 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.scheduler.service;
+
+import com.vmware.photon.controller.api.model.AgentState;
+import com.vmware.photon.controller.api.model.HostState;
+import com.vmware.photon.controller.api.model.UsageTag;
+import com.vmware.photon.controller.cloudstore.xenon.entity.DatastoreService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
+import com.vmware.photon.controller.common.clients.exceptions.ConstraintMatchingDatastoreNotFoundException;
+import com.vmware.photon.controller.common.xenon.ServiceUtils;
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.photon.controller.resource.gen.ResourceConstraint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of the hosts and datastores known to Cloudstore, used by {@link InMemoryConstraintChecker}.
+ *
+ * The index keeps one entry per host plus inverted indexes from datastore, network, availability zone,
+ * usage tag and agent state to the set of host IDs with that attribute. Datastore tags are resolved through
+ * a separate tag to datastore ID index built from the DatastoreService documents.
+ *
+ * To find candidates we start from the smallest inverted index set implied by the positive constraints,
+ * filter it with the remaining constraints and then pick a uniformly random sample of the matches with a
+ * partial Fisher-Yates shuffle. No sorting and no Lucene query is involved.
+ *
+ * Updates may arrive out of order (for example, a notification racing with a resync), so every update
+ * carries the document update time and older updates are ignored.
+ *
+ * This class is thread safe.
+ */
+public class HostIndex {
+
+  private static final String CLOUD_TAG = UsageTag.CLOUD.name();
+  private static final String MGMT_TAG = UsageTag.MGMT.name();
+
+  /**
+   * The indexed view of a single HostService document.
+   */
+  private static class HostEntry {
+    String id;
+    ServerAddress address;
+    HostState state;
+    AgentState agentState;
+    String availabilityZoneId;
+    Set<String> datastores;
+    Set<String> networks;
+    Set<String> usageTags;
+    long updateTimeMicros;
+  }
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Random random;
+
+  private final Map<String, HostEntry> hosts = new HashMap<>();
+  private final Map<String, Set<String>> hostsByDatastore = new HashMap<>();
+  private final Map<String, Set<String>> hostsByNetwork = new HashMap<>();
+  private final Map<String, Set<String>> hostsByAvailabilityZone = new HashMap<>();
+  private final Map<String, Set<String>> hostsByUsageTag = new HashMap<>();
+  private final Map<AgentState, Set<String>> hostsByAgentState = new HashMap<>();
+
+  // Datastore ID -> tags, and tag -> datastore IDs
+  private final Map<String, Set<String>> datastoreTags = new HashMap<>();
+  private final Map<String, Long> datastoreUpdateTimes = new HashMap<>();
+  private final Map<String, Set<String>> datastoresByTag = new HashMap<>();
+
+  public HostIndex() {
+    this(new Random());
+  }
+
+  public HostIndex(Random random) {
+    this.random = random;
+  }
+
+  /**
+   * Returns the number of hosts in the index.
+   */
+  public int getHostCount() {
+    lock.readLock().lock();
+    try {
+      return hosts.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of datastores in the index.
+   */
+  public int getDatastoreCount() {
+    lock.readLock().lock();
+    try {
+      return datastoreTags.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds or replaces a host, unless the index already has a newer version of it.
+   */
+  public void updateHost(HostService.State host) {
+    String hostId = ServiceUtils.getIDFromDocumentSelfLink(host.documentSelfLink);
+    lock.writeLock().lock();
+    try {
+      HostEntry existing = hosts.get(hostId);
+      if (existing != null && existing.updateTimeMicros > host.documentUpdateTimeMicros) {
+        return;
+      }
+      if (existing != null) {
+        unindexHost(existing);
+      }
+      indexHost(toEntry(hostId, host));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a host, unless the index already has a version of it that is newer than the delete.
+   */
+  public void removeHost(String hostId, long updateTimeMicros) {
+    lock.writeLock().lock();
+    try {
+      HostEntry existing = hosts.get(hostId);
+      if (existing != null && existing.updateTimeMicros <= updateTimeMicros) {
+        unindexHost(existing);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds or replaces a datastore, unless the index already has a newer version of it.
+   */
+  public void updateDatastore(DatastoreService.State datastore) {
+    String datastoreId = ServiceUtils.getIDFromDocumentSelfLink(datastore.documentSelfLink);
+    lock.writeLock().lock();
+    try {
+      Long existingUpdateTime = datastoreUpdateTimes.get(datastoreId);
+      if (existingUpdateTime != null && existingUpdateTime > datastore.documentUpdateTimeMicros) {
+        return;
+      }
+      unindexDatastore(datastoreId);
+      Set<String> tags = datastore.tags == null ? Collections.emptySet() : new HashSet<>(datastore.tags);
+      datastoreTags.put(datastoreId, tags);
+      datastoreUpdateTimes.put(datastoreId, datastore.documentUpdateTimeMicros);
+      for (String tag : tags) {
+        addToIndex(datastoresByTag, tag, datastoreId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a datastore, unless the index already has a version of it that is newer than the delete.
+   */
+  public void removeDatastore(String datastoreId, long updateTimeMicros) {
+    lock.writeLock().lock();
+    try {
+      Long existingUpdateTime = datastoreUpdateTimes.get(datastoreId);
+      if (existingUpdateTime != null && existingUpdateTime <= updateTimeMicros) {
+        unindexDatastore(datastoreId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Reconciles the index with a full snapshot of the hosts and datastores.
+   *
+   * Documents in the snapshot are applied as regular updates. Documents missing from the snapshot are
+   * removed, unless they were updated after the snapshot was started: those came from a notification
+   * that the snapshot query did not see yet.
+   */
+  public void sync(Collection<HostService.State> hostSnapshot,
+                   Collection<DatastoreService.State> datastoreSnapshot,
+                   long snapshotStartTimeMicros) {
+    Set<String> hostIds = new HashSet<>();
+    for (HostService.State host : hostSnapshot) {
+      hostIds.add(ServiceUtils.getIDFromDocumentSelfLink(host.documentSelfLink));
+      updateHost(host);
+    }
+
+    Set<String> datastoreIds = new HashSet<>();
+    for (DatastoreService.State datastore : datastoreSnapshot) {
+      datastoreIds.add(ServiceUtils.getIDFromDocumentSelfLink(datastore.documentSelfLink));
+      updateDatastore(datastore);
+    }
+
+    lock.writeLock().lock();
+    try {
+      List<HostEntry> staleHosts = new ArrayList<>();
+      for (HostEntry entry : hosts.values()) {
+        if (!hostIds.contains(entry.id) && entry.updateTimeMicros < snapshotStartTimeMicros) {
+          staleHosts.add(entry);
+        }
+      }
+      staleHosts.forEach(this::unindexHost);
+
+      List<String> staleDatastores = new ArrayList<>();
+      for (Map.Entry<String, Long> entry : datastoreUpdateTimes.entrySet()) {
+        if (!datastoreIds.contains(entry.getKey()) && entry.getValue() < snapshotStartTimeMicros) {
+          staleDatastores.add(entry.getKey());
+        }
+      }
+      staleDatastores.forEach(this::unindexDatastore);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Pick up to numCandidates hosts, uniformly at random, among the hosts that satisfy all the constraints.
+   *
+   * The constraint semantics are the same as the ones of {@link CloudStoreConstraintChecker}: only READY hosts
+   * with an ACTIVE agent are returned, and unless a MANAGEMENT_ONLY constraint is given only CLOUD hosts are
+   * considered.
+   *
+   * @throws ConstraintMatchingDatastoreNotFoundException if a datastore tag constraint matches no datastore.
+   */
+  public Map<String, ServerAddress> getCandidates(List<ResourceConstraint> constraints, int numCandidates)
+      throws ConstraintMatchingDatastoreNotFoundException {
+    if (numCandidates <= 0) {
+      throw new IllegalArgumentException("getCandidates called with invalid numCandidates: " + numCandidates);
+    }
+
+    lock.readLock().lock();
+    try {
+      List<Filter> filters = buildFilters(constraints);
+
+      // Start from the smallest set of hosts we know must contain all the matches
+      Set<String> seed = hostsByAgentState.getOrDefault(AgentState.ACTIVE, Collections.emptySet());
+      for (Filter filter : filters) {
+        if (filter.negative) {
+          continue;
+        }
+        Set<String> filterSeed = filter.matchingHosts();
+        if (filterSeed.size() < seed.size()) {
+          seed = filterSeed;
+        }
+      }
+
+      List<HostEntry> matches = new ArrayList<>();
+      for (String hostId : seed) {
+        HostEntry entry = hosts.get(hostId);
+        if (entry != null && matches(entry, filters)) {
+          matches.add(entry);
+        }
+      }
+
+      // Partial Fisher-Yates shuffle: the first numCandidates entries are a uniform random sample
+      int count = Math.min(numCandidates, matches.size());
+      Map<String, ServerAddress> candidates = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        int j = i + random.nextInt(matches.size() - i);
+        HostEntry picked = matches.get(j);
+        matches.set(j, matches.get(i));
+        matches.set(i, picked);
+        candidates.put(picked.id, new ServerAddress(picked.address.getHost(), picked.address.getPort()));
+      }
+      return candidates;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * A single constraint, translated into a lookup on one of our inverted indexes.
+   */
+  private class Filter {
+    Map<String, Set<String>> index;
+    Collection<String> values;
+    boolean negative;
+
+    Filter(Map<String, Set<String>> index, Collection<String> values, boolean negative) {
+      this.index = index;
+      this.values = values;
+      this.negative = negative;
+    }
+
+    Set<String> matchingHosts() {
+      if (values.size() == 1) {
+        return index.getOrDefault(values.iterator().next(), Collections.emptySet());
+      }
+      Set<String> result = new HashSet<>();
+      for (String value : values) {
+        result.addAll(index.getOrDefault(value, Collections.emptySet()));
+      }
+      return result;
+    }
+
+    boolean accepts(String hostId) {
+      boolean found = false;
+      for (String value : values) {
+        Set<String> hostIds = index.get(value);
+        if (hostIds != null && hostIds.contains(hostId)) {
+          found = true;
+          break;
+        }
+      }
+      return found != negative;
+    }
+  }
+
+  private List<Filter> buildFilters(List<ResourceConstraint> constraints)
+      throws ConstraintMatchingDatastoreNotFoundException {
+    List<Filter> filters = new ArrayList<>();
+    boolean managementOnly = false;
+
+    if (constraints != null) {
+      for (ResourceConstraint constraint : constraints) {
+        if (constraint == null) {
+          continue;
+        }
+
+        boolean negative = constraint.isSetNegative() && constraint.isNegative();
+        List<String> values = constraint.getValues();
+        boolean hasValues = values != null && !values.isEmpty();
+
+        switch (constraint.getType()) {
+          case AVAILABILITY_ZONE:
+            if (hasValues) {
+              filters.add(new Filter(hostsByAvailabilityZone, values, negative));
+            }
+            break;
+          case DATASTORE:
+            if (hasValues) {
+              filters.add(new Filter(hostsByDatastore, values, negative));
+            }
+            break;
+          case DATASTORE_TAG:
+            if (hasValues) {
+              filters.add(new Filter(hostsByDatastore, resolveDatastoreTags(values), negative));
+            }
+            break;
+          case HOST:
+            if (hasValues) {
+              filters.add(new Filter(hostsById(values), values, negative));
+            }
+            break;
+          case MANAGEMENT_ONLY:
+            managementOnly = true;
+            filters.add(new Filter(hostsByUsageTag, Collections.singletonList(MGMT_TAG), negative));
+            break;
+          case NETWORK:
+            if (hasValues) {
+              filters.add(new Filter(hostsByNetwork, values, negative));
+            }
+            break;
+          case VIRTUAL_NETWORK:
+            // All hosts are wired to all virtual networks, so this constraint is ignored.
+            break;
+          default:
+            throw new IllegalStateException("Invalid resource constraint: " + constraint);
+        }
+      }
+    }
+
+    // Without an explicit MANAGEMENT_ONLY constraint we only place on CLOUD hosts
+    if (!managementOnly) {
+      filters.add(new Filter(hostsByUsageTag, Collections.singletonList(CLOUD_TAG), false));
+    }
+    return filters;
+  }
+
+  private Set<String> resolveDatastoreTags(List<String> tags) throws ConstraintMatchingDatastoreNotFoundException {
+    Set<String> datastoreIds = new HashSet<>();
+    for (String tag : tags) {
+      datastoreIds.addAll(datastoresByTag.getOrDefault(tag, Collections.emptySet()));
+    }
+    if (datastoreIds.isEmpty()) {
+      throw new ConstraintMatchingDatastoreNotFoundException(
+          "Cannot satisfy constraint for datastore tag(s) '" + tags.toString() + "' found");
+    }
+    return datastoreIds;
+  }
+
+  /**
+   * Builds a trivial index for a HOST constraint, so it can be handled like every other constraint.
+   */
+  private Map<String, Set<String>> hostsById(List<String> hostIds) {
+    Map<String, Set<String>> index = new HashMap<>();
+    for (String hostId : hostIds) {
+      if (hosts.containsKey(hostId)) {
+        index.put(hostId, Collections.singleton(hostId));
+      }
+    }
+    return index;
+  }
+
+  private boolean matches(HostEntry entry, List<Filter> filters) {
+    if (entry.state != HostState.READY || entry.agentState != AgentState.ACTIVE) {
+      return false;
+    }
+    for (Filter filter : filters) {
+      if (!filter.accepts(entry.id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static HostEntry toEntry(String hostId, HostService.State host) {
+    HostEntry entry = new HostEntry();
+    entry.id = hostId;
+    entry.address = new ServerAddress(host.hostAddress,
+        host.agentPort != null ? host.agentPort : ConstraintChecker.DEFAULT_AGENT_PORT);
+    entry.state = host.state;
+    entry.agentState = host.agentState;
+    entry.availabilityZoneId = host.availabilityZoneId;
+    entry.datastores = host.reportedDatastores == null ? Collections.emptySet() : host.reportedDatastores;
+    entry.networks = host.reportedNetworks == null ? Collections.emptySet() : host.reportedNetworks;
+    entry.usageTags = host.usageTags == null ? Collections.emptySet() : host.usageTags;
+    entry.updateTimeMicros = host.documentUpdateTimeMicros;
+    return entry;
+  }
+
+  private void indexHost(HostEntry entry) {
+    hosts.put(entry.id, entry);
+    if (entry.availabilityZoneId != null) {
+      addToIndex(hostsByAvailabilityZone, entry.availabilityZoneId, entry.id);
+    }
+    for (String datastore : entry.datastores) {
+      addToIndex(hostsByDatastore, datastore, entry.id);
+    }
+    for (String network : entry.networks) {
+      addToIndex(hostsByNetwork, network, entry.id);
+    }
+    for (String usageTag : entry.usageTags) {
+      addToIndex(hostsByUsageTag, usageTag, entry.id);
+    }
+    if (entry.agentState != null) {
+      hostsByAgentState.computeIfAbsent(entry.agentState, k -> new HashSet<>()).add(entry.id);
+    }
+  }
+
+  private void unindexHost(HostEntry entry) {
+    hosts.remove(entry.id);
+    if (entry.availabilityZoneId != null) {
+      removeFromIndex(hostsByAvailabilityZone, entry.availabilityZoneId, entry.id);
+    }
+    for (String datastore : entry.datastores) {
+      removeFromIndex(hostsByDatastore, datastore, entry.id);
+    }
+    for (String network : entry.networks) {
+      removeFromIndex(hostsByNetwork, network, entry.id);
+    }
+    for (String usageTag : entry.usageTags) {
+      removeFromIndex(hostsByUsageTag, usageTag, entry.id);
+    }
+    if (entry.agentState != null) {
+      Set<String> hostIds = hostsByAgentState.get(entry.agentState);
+      if (hostIds != null) {
+        hostIds.remove(entry.id);
+      }
+    }
+  }
+
+  private void unindexDatastore(String datastoreId) {
+    Set<String> tags = datastoreTags.remove(datastoreId);
+    datastoreUpdateTimes.remove(datastoreId);
+    if (tags != null) {
+      for (String tag : tags) {
+        removeFromIndex(datastoresByTag, tag, datastoreId);
+      }
+    }
+  }
+
+  private static void addToIndex(Map<String, Set<String>> index, String key, String id) {
+    index.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+  }
+
+  private static void removeFromIndex(Map<String, Set<String>> index, String key, String id) {
+    Set<String> ids = index.get(key);
+    if (ids != null) {
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+}
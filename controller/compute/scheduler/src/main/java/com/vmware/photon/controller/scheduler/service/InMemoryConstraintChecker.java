@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.scheduler.service;
+
+import com.vmware.photon.controller.cloudstore.xenon.entity.DatastoreService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
+import com.vmware.photon.controller.common.xenon.CloudStoreHelper;
+import com.vmware.photon.controller.common.xenon.ContinuousQuerySubscription;
+import com.vmware.photon.controller.common.xenon.QueryTaskUtils;
+import com.vmware.photon.controller.common.xenon.ServiceUriPaths;
+import com.vmware.photon.controller.common.xenon.ServiceUtils;
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.photon.controller.resource.gen.ResourceConstraint;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.OperationJoin;
+import com.vmware.xenon.common.Service;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This scheduler constraint checker answers getCandidates() from an in-memory {@link HostIndex} instead of
+ * querying Cloudstore on every placement.
+ *
+ * The index is kept current in two ways:
+ *
+ * 1. A continuous query over the HostService and DatastoreService documents on the local Xenon host. Every
+ *    create, update and delete of those documents is delivered to us as a notification and applied to the
+ *    index right away.
+ *
+ * 2. A periodic resync that broadcasts a query for all the hosts and datastores and reconciles the index with
+ *    the result. Host and datastore documents are only replicated to a subset of the nodes when the node group
+ *    is large, so the local continuous query may not see every document; the resync also repairs the index if
+ *    notifications were lost, and re-creates the subscription if it failed.
+ *
+ * Because the index is in memory, getCandidates() never leaves the process and completes synchronously, with a
+ * uniformly random selection of hosts (see {@link HostIndex}).
+ *
+ * The semantics of the constraints are the same as in {@link CloudStoreConstraintChecker}, so the two can be
+ * swapped through the scheduler configuration.
+ */
+public class InMemoryConstraintChecker implements ConstraintChecker {
+
+  public static final long DEFAULT_RESYNC_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private static final String HOST_KIND = Utils.buildKind(HostService.State.class);
+  private static final String DATASTORE_KIND = Utils.buildKind(DatastoreService.State.class);
+
+  private static final Logger logger = LoggerFactory.getLogger(InMemoryConstraintChecker.class);
+
+  private final CloudStoreHelper cloudStoreHelper;
+  private final ServiceHost xenonHost;
+  private final HostIndex index;
+  private final long resyncIntervalMillis;
+  private final ContinuousQuerySubscription subscription;
+
+  private final AtomicBoolean subscribing = new AtomicBoolean(false);
+  private final AtomicBoolean subscribed = new AtomicBoolean(false);
+  private final AtomicBoolean started = new AtomicBoolean(false);
+
+  public InMemoryConstraintChecker(CloudStoreHelper cloudStoreHelper, ServiceHost xenonHost) {
+    this(cloudStoreHelper, xenonHost, new HostIndex(), DEFAULT_RESYNC_INTERVAL_MILLIS);
+  }
+
+  public InMemoryConstraintChecker(
+      CloudStoreHelper cloudStoreHelper,
+      ServiceHost xenonHost,
+      HostIndex index,
+      long resyncIntervalMillis) {
+    this.cloudStoreHelper = cloudStoreHelper;
+    this.xenonHost = xenonHost;
+    this.index = index;
+    this.resyncIntervalMillis = resyncIntervalMillis;
+    this.subscription = new ContinuousQuerySubscription(
+        xenonHost,
+        QueryTask.Query.Builder.create()
+            .addKindFieldClause(HostService.State.class, QueryTask.Query.Occurance.SHOULD_OCCUR)
+            .addKindFieldClause(DatastoreService.State.class, QueryTask.Query.Occurance.SHOULD_OCCUR)
+            .build(),
+        true,
+        this::handleNotification);
+  }
+
+  @VisibleForTesting
+  public HostIndex getIndex() {
+    return index;
+  }
+
+  @VisibleForTesting
+  public boolean isSubscribed() {
+    return subscribed.get();
+  }
+
+  /**
+   * Subscribes to host and datastore changes and loads the initial content of the index.
+   *
+   * This must be called once the Xenon host is started. Until the initial load completes, the index may be
+   * empty and getCandidates() may return no candidates.
+   */
+  public void start() {
+    if (!started.compareAndSet(false, true)) {
+      return;
+    }
+    subscribe();
+    resync();
+  }
+
+  /**
+   * Synchronous interface to getCandidates().
+   * This should *only* be used by tests, not production code
+   */
+  @Override
+  public Map<String, ServerAddress> getCandidatesSync(
+      List<ResourceConstraint> resourceConstraints,
+      int numCandidates) {
+    Map<String, ServerAddress> candidates = new HashMap<>();
+    getCandidates(resourceConstraints, numCandidates, (c, ex) -> candidates.putAll(c));
+    return candidates;
+  }
+
+  /**
+   * The main entry point to find candidates for the PlacementTask. The result is provided through the
+   * completion, which is called before this method returns.
+   */
+  @Override
+  public void getCandidates(
+      List<ResourceConstraint> resourceConstraints,
+      int numCandidates,
+      GetCandidatesCompletion completion) {
+    Map<String, ServerAddress> candidates;
+    try {
+      candidates = index.getCandidates(resourceConstraints, numCandidates);
+    } catch (Throwable t) {
+      logger.warn("getCandidates() failed: " + t);
+      completion.handle(new HashMap<>(), t);
+      return;
+    }
+
+    logger.info("Found {} candidate(s) out of {} indexed host(s): {}", candidates.size(), index.getHostCount(),
+        Utils.toJson(false, false, candidates.values()));
+    completion.handle(candidates, null);
+  }
+
+  /**
+   * Synchronously reloads the index with a full snapshot of the hosts and datastores.
+   * This should *only* be used by tests, not production code
+   */
+  @VisibleForTesting
+  public void resyncSync() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    doResync(latch::countDown);
+    latch.await();
+  }
+
+  /**
+   * Create the continuous query on the local host and subscribe to its notifications, unless this is already done
+   * or in progress. On failure, the next resync tries again.
+   */
+  private void subscribe() {
+    if (!subscribing.compareAndSet(false, true)) {
+      return;
+    }
+
+    subscription.subscribe((op, ex) -> {
+      if (ex != null) {
+        logger.warn("Failed to subscribe to host index continuous query, will retry on next resync: {}", ex);
+        subscribing.set(false);
+        return;
+      }
+      subscribed.set(true);
+      logger.info("Subscribed to host index continuous query {}", subscription.getQueryLink());
+    });
+  }
+
+  /**
+   * Apply the documents reported by a continuous query notification to the index.
+   */
+  private void handleNotification(Operation notification) {
+    notification.complete();
+
+    if (!notification.hasBody()) {
+      return;
+    }
+
+    QueryTask queryTask = notification.getBody(QueryTask.class);
+    if (queryTask.results == null || queryTask.results.documents == null) {
+      return;
+    }
+
+    for (Object document : queryTask.results.documents.values()) {
+      try {
+        applyDocument(document);
+      } catch (Throwable t) {
+        logger.warn("Ignoring invalid document in host index notification: {}", t);
+      }
+    }
+  }
+
+  private void applyDocument(Object document) {
+    ServiceDocument header = Utils.fromJson(document, ServiceDocument.class);
+    boolean deleted = Service.Action.DELETE.toString().equals(header.documentUpdateAction);
+    String id = ServiceUtils.getIDFromDocumentSelfLink(header.documentSelfLink);
+
+    if (HOST_KIND.equals(header.documentKind)) {
+      if (deleted) {
+        index.removeHost(id, header.documentUpdateTimeMicros);
+      } else {
+        index.updateHost(Utils.fromJson(document, HostService.State.class));
+      }
+    } else if (DATASTORE_KIND.equals(header.documentKind)) {
+      if (deleted) {
+        index.removeDatastore(id, header.documentUpdateTimeMicros);
+      } else {
+        index.updateDatastore(Utils.fromJson(document, DatastoreService.State.class));
+      }
+    }
+  }
+
+  /**
+   * Reconcile the index with Cloudstore and schedule the next resync.
+   */
+  private void resync() {
+    if (!subscribed.get()) {
+      subscribe();
+    }
+
+    doResync(() -> xenonHost.schedule(this::resync, resyncIntervalMillis, TimeUnit.MILLISECONDS));
+  }
+
+  private void doResync(Runnable onDone) {
+    long snapshotStartTimeMicros = Utils.getNowMicrosUtc();
+
+    Operation hostQuery = cloudStoreHelper
+        .createBroadcastPost(ServiceUriPaths.CORE_LOCAL_QUERY_TASKS, ServiceUriPaths.DEFAULT_NODE_SELECTOR)
+        .setBody(buildSnapshotQuery(HostService.State.class));
+    Operation datastoreQuery = cloudStoreHelper
+        .createBroadcastPost(ServiceUriPaths.CORE_LOCAL_QUERY_TASKS, ServiceUriPaths.DEFAULT_NODE_SELECTOR)
+        .setBody(buildSnapshotQuery(DatastoreService.State.class));
+
+    OperationJoin
+        .create(hostQuery, datastoreQuery)
+        .setCompletion((ops, exs) -> {
+          try {
+            if (exs != null && !exs.isEmpty()) {
+              logger.warn("Host index resync failed, keeping current index: {}", exs.values().iterator().next());
+              return;
+            }
+
+            index.sync(
+                QueryTaskUtils.getBroadcastQueryDocuments(HostService.State.class, ops.get(hostQuery.getId())),
+                QueryTaskUtils.getBroadcastQueryDocuments(
+                    DatastoreService.State.class, ops.get(datastoreQuery.getId())),
+                snapshotStartTimeMicros);
+            logger.info("Host index resynced: {} host(s), {} datastore(s)",
+                index.getHostCount(), index.getDatastoreCount());
+          } catch (Throwable t) {
+            logger.warn("Host index resync failed, keeping current index: {}", t);
+          } finally {
+            onDone.run();
+          }
+        })
+        .sendWith(xenonHost);
+  }
+
+  private static QueryTask buildSnapshotQuery(Class<? extends ServiceDocument> documentType) {
+    return QueryTask.Builder.createDirectTask()
+        .setQuery(QueryTask.Query.Builder.create()
+            .addKindFieldClause(documentType)
+            .build())
+        .addOption(QueryTask.QuerySpecification.QueryOption.EXPAND_CONTENT)
+        .build();
+  }
+}
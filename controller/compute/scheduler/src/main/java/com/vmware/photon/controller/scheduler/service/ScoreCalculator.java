@@ -43,7 +43,8 @@ public class ScoreCalculator {
     if (responses == null || responses.isEmpty()) {
       return null;
     }
-    return scoreOrdering.reverse().sortedCopy(responses).get(0);
+    // Single pass; among equal scores, the first response is returned as a stable sort would
+    return scoreOrdering.max(responses);
   }
 
   private double score(PlaceResponse placeResponse) {
@@ -33,15 +33,21 @@ public class SchedulerServiceGroup
 
   private static final Logger logger = LoggerFactory.getLogger(SchedulerServiceGroup.class);
 
+  private final SchedulingConfig schedulingConfig;
   private final ScoreCalculator scoreCalculator;
   private ConstraintChecker checker;
   private PhotonControllerXenonHost photonControllerXenonHost;
 
   public SchedulerServiceGroup(SchedulingConfig schedulerConfig, ConstraintChecker constraintChecker) {
+    this.schedulingConfig = schedulerConfig;
     this.scoreCalculator = new ScoreCalculator(schedulerConfig);
     this.checker = constraintChecker;
   }
 
+  public SchedulingConfig getSchedulingConfig() {
+    return schedulingConfig;
+  }
+
   @Override
   public ScoreCalculator getScoreCalculator() {
     return scoreCalculator;
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.scheduler.xenon.task;
+
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the place requests sent to the candidates of a placement, and decides when enough responses were
+ * received to pick a host. The decision is made, exactly once, as soon as:
+ * - the quorum of OK responses is reached;
+ * - every request sent was answered;
+ * - the deadline passed and at least one OK response was received.
+ *
+ * The candidates past the fan out are kept as spares. A spare is sent a request when a candidate fails, so that a
+ * dead agent does not cost one of the responses, and the remaining spares are all sent a request by
+ * {@link #hedge()} when the candidates are slow to respond.
+ *
+ * Requests are sent outside of the lock, since the sender may call back synchronously.
+ */
+class PlacementScatterGather {
+
+  /**
+   * Sends a place request to a candidate. The response, or the error, must be reported with
+   * {@link #onResponse(PlaceResponse)}.
+   */
+  interface Sender {
+    void send(Map.Entry<String, ServerAddress> candidate);
+  }
+
+  private final List<Map.Entry<String, ServerAddress>> candidates = new ArrayList<>();
+  private final Deque<Map.Entry<String, ServerAddress>> spares = new ArrayDeque<>();
+  private final int quorum;
+  private final Sender sender;
+  private final PlacementTaskService.ScoreResultsCompletion completion;
+  private final Set<PlaceResponse> okResponses = new HashSet<>();
+  private final Set<PlaceResponse> allResponses = new HashSet<>();
+
+  private int outstanding;
+  private int hedged;
+  private boolean deadlinePassed;
+  private boolean decided;
+  private boolean decidedEarly;
+
+  /**
+   * @param candidates the candidates, of which the first fanOut are sent a request and the others are spares
+   * @param fanOut     the number of candidates to send a request to at first
+   * @param quorum     the number of OK responses to decide on, 0 to wait for all the requests sent
+   */
+  PlacementScatterGather(Map<String, ServerAddress> candidates, int fanOut, int quorum, Sender sender,
+                         PlacementTaskService.ScoreResultsCompletion completion) {
+    for (Map.Entry<String, ServerAddress> candidate : candidates.entrySet()) {
+      if (this.candidates.size() < fanOut) {
+        this.candidates.add(candidate);
+      } else {
+        this.spares.add(candidate);
+      }
+    }
+    this.quorum = quorum > 0 ? quorum : Integer.MAX_VALUE;
+    this.sender = sender;
+    this.completion = completion;
+  }
+
+  /**
+   * Sends the requests to the candidates within the fan out.
+   */
+  void start() {
+    synchronized (this) {
+      outstanding = candidates.size();
+    }
+    candidates.forEach(sender::send);
+  }
+
+  /**
+   * Records the response of a candidate. Responses received after the decision are ignored.
+   */
+  void onResponse(PlaceResponse response) {
+    Map.Entry<String, ServerAddress> spare = null;
+    boolean decide;
+    synchronized (this) {
+      if (decided) {
+        return;
+      }
+
+      outstanding--;
+      allResponses.add(response);
+      if (response.getResult() == PlaceResultCode.OK) {
+        okResponses.add(response);
+      } else if (!spares.isEmpty()) {
+        spare = spares.poll();
+        outstanding++;
+        hedged++;
+      }
+      decide = decideIfDone();
+    }
+
+    if (spare != null) {
+      sender.send(spare);
+    }
+    if (decide) {
+      completion.handle(okResponses, allResponses);
+    }
+  }
+
+  /**
+   * Sends requests to all the remaining spares, unless the decision was already made.
+   */
+  void hedge() {
+    List<Map.Entry<String, ServerAddress>> hedges;
+    synchronized (this) {
+      if (decided || spares.isEmpty()) {
+        return;
+      }
+
+      hedges = new ArrayList<>(spares);
+      spares.clear();
+      outstanding += hedges.size();
+      hedged += hedges.size();
+    }
+    hedges.forEach(sender::send);
+  }
+
+  /**
+   * Makes the decision if any OK response was received, otherwise the first OK response will make it.
+   */
+  void onDeadline() {
+    boolean decide;
+    synchronized (this) {
+      if (decided) {
+        return;
+      }
+
+      deadlinePassed = true;
+      decide = decideIfDone();
+    }
+
+    if (decide) {
+      completion.handle(okResponses, allResponses);
+    }
+  }
+
+  synchronized boolean isDecided() {
+    return decided;
+  }
+
+  /**
+   * Returns whether the decision was made before all the requests sent were answered.
+   */
+  synchronized boolean isDecidedEarly() {
+    return decidedEarly;
+  }
+
+  /**
+   * Returns the number of requests sent to spare candidates.
+   */
+  synchronized int getHedgedCount() {
+    return hedged;
+  }
+
+  private boolean decideIfDone() {
+    if (okResponses.size() >= quorum || outstanding == 0 || (deadlinePassed && !okResponses.isEmpty())) {
+      decided = true;
+      decidedEarly = outstanding > 0;
+      return true;
+    }
+    return false;
+  }
+}
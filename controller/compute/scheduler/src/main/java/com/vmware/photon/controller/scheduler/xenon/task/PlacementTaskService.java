@@ -21,6 +21,7 @@ import com.vmware.photon.controller.common.clients.exceptions.NoSuchResourceExce
 import com.vmware.photon.controller.common.clients.exceptions.RpcException;
 import com.vmware.photon.controller.common.clients.exceptions.SystemErrorException;
 import com.vmware.photon.controller.common.logging.LoggingUtils;
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
 import com.vmware.photon.controller.common.xenon.CloudStoreHelper;
 import com.vmware.photon.controller.common.xenon.ControlFlags;
 import com.vmware.photon.controller.common.xenon.InitializationUtils;
@@ -38,6 +39,7 @@ import com.vmware.photon.controller.resource.gen.Resource;
 import com.vmware.photon.controller.resource.gen.ResourceConstraint;
 import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
 import com.vmware.photon.controller.resource.gen.Vm;
+import com.vmware.photon.controller.scheduler.SchedulingConfig;
 import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
 import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
 import com.vmware.photon.controller.scheduler.service.ConstraintChecker;
@@ -52,10 +54,12 @@ import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.common.UtilsHelper;
 import com.vmware.xenon.services.common.QueryTask;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Sets;
 import org.apache.thrift.TException;
 import org.apache.thrift.async.AsyncMethodCallback;
 
@@ -66,7 +70,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -75,9 +78,9 @@ import java.util.stream.Collectors;
  * <p>
  * 1. Randomly choose n hosts (n = 4 by default) that satisfy all the resource constraints.
  * 2. Send place requests to the chosen hosts and wait for responses with a timeout.
- * 3. After receiving all the responses or reaching the timeout, return the host with
- * the highest placement score. See {@link ScoreCalculator} for the placement score
- * calculation logic.
+ * 3. After receiving all the responses or reaching the timeout, or earlier when the scheduling
+ * configuration sets a response quorum or deadline, return the host with the highest placement
+ * score. See {@link ScoreCalculator} for the placement score calculation logic.
  * <p>
  * (1) http://www.eecs.berkeley.edu/~keo/publications/sosp13-final17.pdf
  */
@@ -85,6 +88,13 @@ public class PlacementTaskService extends StatefulService {
 
   public static final String FACTORY_LINK = ServiceUriPaths.SCHEDULER_ROOT + "/placement";
 
+  private static final Timer placementTimer = DefaultMetricRegistry.REGISTRY.timer(
+      MetricRegistry.name(PlacementTaskService.class, "placement-time"));
+  private static final Meter earlyDecisions = DefaultMetricRegistry.REGISTRY.meter(
+      MetricRegistry.name(PlacementTaskService.class, "early-decisions"));
+  private static final Meter hedgedRequests = DefaultMetricRegistry.REGISTRY.meter(
+      MetricRegistry.name(PlacementTaskService.class, "hedged-requests"));
+
   // This completion handler provides a new constraint to be added to a set of constraints
   interface CalculateConstraintCompletion {
     public void handle(ResourceConstraint newConstraint, Exception exception);
@@ -265,7 +275,7 @@ public class PlacementTaskService extends StatefulService {
     ServiceUtils.logInfo(this, "Sending place requests to %s with timeout %d ms", candidates, currentState.timeoutMs);
     Stopwatch scoreCandidatesStopwatch = Stopwatch.createStarted();
 
-    queryHostsForScores(currentState.resource, candidates,
+    queryHostsForScores(currentState.resource, candidates, currentState.sampleHostCount,
         (okResponses, allResponses) -> {
           ServiceUtils.logInfo(this, "elapsed-time flat-place-score-candidates %d milliseconds",
               scoreCandidatesStopwatch.elapsed(TimeUnit.MILLISECONDS));
@@ -323,7 +333,9 @@ public class PlacementTaskService extends StatefulService {
     SchedulerServiceGroup scheduler = (SchedulerServiceGroup) ((PhotonControllerXenonHost) getHost()).getScheduler();
     ConstraintChecker checker = scheduler.getConstraintChecker();
     try {
-      checker.getCandidates(constraints, currentState.sampleHostCount, completion);
+      // Spare candidates are sampled along with the others, see queryHostsForScores
+      checker.getCandidates(constraints,
+          currentState.sampleHostCount + scheduler.getSchedulingConfig().getPlaceHedgeCount(), completion);
     } catch (Exception ex) {
       completion.handle(null, ex);
     }
@@ -338,99 +350,127 @@ public class PlacementTaskService extends StatefulService {
    * - The set of "okResponses", from hosts that could accept the resource. This will include the score.
    * - All responses. These are used when there's an error, to summarize what went wrong
    *
+   * By default the completion waits for all the candidates. The scheduling configuration can make it decide
+   * earlier, on a quorum of OK responses or after a deadline, and ask spare candidates when candidates fail or
+   * are slow to respond (see {@link PlacementScatterGather}).
+   *
    * @param resource
    * @param candidates
+   * @param fanOut
    * @param completion
    */
   private void queryHostsForScores(
       Resource resource,
       Map<String, ServerAddress> candidates,
+      int fanOut,
       ScoreResultsCompletion completion) {
 
-    final int numCandidates = candidates.size();
-    final Set<PlaceResponse> okResponses = Sets.newConcurrentHashSet();
-    final Set<PlaceResponse> allResponses = Sets.newConcurrentHashSet();
-    final AtomicInteger resultCount = new AtomicInteger(0);
-
+    SchedulingConfig config = getSchedulingConfig();
     final String requestId = LoggingUtils.getRequestId();
-    for (Map.Entry<String, ServerAddress> entry : candidates.entrySet()) {
-      ServerAddress address = entry.getValue();
-      try {
-        // The thrift "place" request is a request to get a score from the host indicating how good
-        // of a match the host is for the resource request.
-        // Note that the place() call has an embedded timeout (currently 60 seconds): we'll get a
-        // timeout exception when it fails.
-        HostClient hostClient = ((HostClientProvider) getHost()).getHostClient();
-        hostClient.setIpAndPort(address.getHost(), address.getPort());
-        hostClient.place(resource, new AsyncMethodCallback<Host.AsyncSSLClient.place_call>() {
-          @Override
-          public void onComplete(Host.AsyncSSLClient.place_call call) {
-            if (requestId != null) {
-              // We have to do more work here than normal: the PlaceResponse
-              // doesn't have the request ID and we're in a new thread, so we
-              // need to set it correctly for both Xenon (ServiceUtils.log*) and regular
-              // logging.
-              LoggingUtils.setRequestId(requestId);
-              UtilsHelper.setThreadContextId(requestId);
-            }
-            PlaceResponse response;
-            try {
-              response = call.getResult();
-            } catch (TException ex) {
-              onError(ex);
-              return;
-            }
-            ServiceUtils.logInfo(PlacementTaskService.this, "Received a place response from %s: %s", entry, response);
-            if (response.getAddress() == null) {
-              response.setAddress(address);
-            }
-            allResponses.add(response);
-            if (response.getResult() == PlaceResultCode.OK) {
-              okResponses.add(response);
-            }
-            if (resultCount.addAndGet(1) == numCandidates) {
-              completion.handle(okResponses, allResponses);
-            }
+    final PlacementScatterGather[] scatterGather = new PlacementScatterGather[1];
+    scatterGather[0] = new PlacementScatterGather(candidates, fanOut, config.getPlaceResponseQuorum(),
+        (candidate) -> sendPlaceRequest(resource, candidate, requestId, scatterGather[0]),
+        (okResponses, allResponses) -> {
+          if (scatterGather[0].isDecidedEarly()) {
+            earlyDecisions.mark();
           }
+          hedgedRequests.mark(scatterGather[0].getHedgedCount());
+          completion.handle(okResponses, allResponses);
+        });
 
-          @Override
-          public void onError(Exception ex) {
-            if (requestId != null) {
-              // See comments above in onComplete()
-              LoggingUtils.setRequestId(requestId);
-              UtilsHelper.setThreadContextId(requestId);
-            }
-            ServiceUtils.logWarning(PlacementTaskService.this, "Failed to get a placement response from %s: %s",
-                entry, ex);
-            PlaceResponse errorResponse = new PlaceResponse();
-            errorResponse.setResult(PlaceResultCode.SYSTEM_ERROR);
-            errorResponse.setError(String.format("Failed to get a placement response from %s: %s",
-                entry, ex.getMessage()));
-            if (errorResponse.getAddress() == null) {
-              errorResponse.setAddress(address);
-            }
-            allResponses.add(errorResponse);
-            if (resultCount.addAndGet(1) == numCandidates) {
-              completion.handle(okResponses, allResponses);
-            }
+    if (config.getPlaceResponseDeadlineMs() > 0) {
+      getHost().schedule(scatterGather[0]::onDeadline, config.getPlaceResponseDeadlineMs(), TimeUnit.MILLISECONDS);
+    }
+    if (config.getPlaceHedgeDelayMs() > 0 && candidates.size() > fanOut) {
+      getHost().schedule(scatterGather[0]::hedge, config.getPlaceHedgeDelayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    scatterGather[0].start();
+  }
+
+  /**
+   * Sends a "place" request to one candidate, and reports its response, or error, to the scatter gather.
+   */
+  private void sendPlaceRequest(
+      Resource resource,
+      Map.Entry<String, ServerAddress> entry,
+      String requestId,
+      PlacementScatterGather scatterGather) {
+
+    ServerAddress address = entry.getValue();
+    Timer.Context responseTime = DefaultMetricRegistry.REGISTRY.timer(
+        MetricRegistry.name(PlacementTaskService.class, "place-response-time", address.getHost())).time();
+    try {
+      // The thrift "place" request is a request to get a score from the host indicating how good
+      // of a match the host is for the resource request.
+      // Note that the place() call has an embedded timeout (currently 60 seconds): we'll get a
+      // timeout exception when it fails.
+      HostClient hostClient = ((HostClientProvider) getHost()).getHostClient();
+      hostClient.setIpAndPort(address.getHost(), address.getPort());
+      hostClient.place(resource, new AsyncMethodCallback<Host.AsyncSSLClient.place_call>() {
+        @Override
+        public void onComplete(Host.AsyncSSLClient.place_call call) {
+          if (requestId != null) {
+            // We have to do more work here than normal: the PlaceResponse
+            // doesn't have the request ID and we're in a new thread, so we
+            // need to set it correctly for both Xenon (ServiceUtils.log*) and regular
+            // logging.
+            LoggingUtils.setRequestId(requestId);
+            UtilsHelper.setThreadContextId(requestId);
           }
-        });
-      } catch (RpcException ex) {
-        ServiceUtils.logWarning(PlacementTaskService.this, "Failed to send placement request to %s: %s",
-            entry, ex);
-        PlaceResponse errorResponse = new PlaceResponse();
-        errorResponse.setAddress(entry.getValue());
-        errorResponse.setResult(PlaceResultCode.SYSTEM_ERROR);
-        errorResponse.setError(String.format("Failed to send placement request to %s: %s",
-            entry, ex.getMessage()));
-        allResponses.add(errorResponse);
-        if (resultCount.addAndGet(1) == numCandidates) {
-          completion.handle(okResponses, allResponses);
+          PlaceResponse response;
+          try {
+            response = call.getResult();
+          } catch (TException ex) {
+            onError(ex);
+            return;
+          }
+          responseTime.stop();
+          ServiceUtils.logInfo(PlacementTaskService.this, "Received a place response from %s: %s", entry, response);
+          if (response.getAddress() == null) {
+            response.setAddress(address);
+          }
+          scatterGather.onResponse(response);
         }
-      }
+
+        @Override
+        public void onError(Exception ex) {
+          if (requestId != null) {
+            // See comments above in onComplete()
+            LoggingUtils.setRequestId(requestId);
+            UtilsHelper.setThreadContextId(requestId);
+          }
+          responseTime.stop();
+          ServiceUtils.logWarning(PlacementTaskService.this, "Failed to get a placement response from %s: %s",
+              entry, ex);
+          PlaceResponse errorResponse = new PlaceResponse();
+          errorResponse.setResult(PlaceResultCode.SYSTEM_ERROR);
+          errorResponse.setError(String.format("Failed to get a placement response from %s: %s",
+              entry, ex.getMessage()));
+          if (errorResponse.getAddress() == null) {
+            errorResponse.setAddress(address);
+          }
+          scatterGather.onResponse(errorResponse);
+        }
+      });
+    } catch (RpcException ex) {
+      responseTime.stop();
+      ServiceUtils.logWarning(PlacementTaskService.this, "Failed to send placement request to %s: %s",
+          entry, ex);
+      PlaceResponse errorResponse = new PlaceResponse();
+      errorResponse.setAddress(entry.getValue());
+      errorResponse.setResult(PlaceResultCode.SYSTEM_ERROR);
+      errorResponse.setError(String.format("Failed to send placement request to %s: %s",
+          entry, ex.getMessage()));
+      scatterGather.onResponse(errorResponse);
     }
   }
 
+  private SchedulingConfig getSchedulingConfig() {
+    SchedulerServiceGroup scheduler = (SchedulerServiceGroup) ((PhotonControllerXenonHost) getHost()).getScheduler();
+    return scheduler.getSchedulingConfig();
+  }
+
   /**
    * Returns the best host selected host among successful responses. If there are not any hosts to place the request,
    * this returns a result from the host responses.
@@ -450,6 +490,7 @@ public class PlacementTaskService extends StatefulService {
     ScoreCalculator scoreCalculator = scheduler.getScoreCalculator();
     PlaceResponse response = scoreCalculator.pickBestResponse(okResponses);
     watch.stop();
+    placementTimer.update(watch.elapsed(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
 
     PlacementTask patchState;
     if (response == null) {
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.scheduler.service;
+
+import com.vmware.photon.controller.api.model.AgentState;
+import com.vmware.photon.controller.api.model.HostState;
+import com.vmware.photon.controller.api.model.UsageTag;
+import com.vmware.photon.controller.cloudstore.xenon.entity.DatastoreService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.DatastoreServiceFactory;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostServiceFactory;
+import com.vmware.photon.controller.common.clients.exceptions.ConstraintMatchingDatastoreNotFoundException;
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.photon.controller.resource.gen.ResourceConstraint;
+import com.vmware.photon.controller.resource.gen.ResourceConstraintType;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests {@link HostIndex}.
+ */
+public class HostIndexTest {
+
+  private HostIndex index;
+
+  @BeforeMethod
+  public void setUp() {
+    index = new HostIndex();
+  }
+
+  @Test
+  public void testReadyActiveCloudHostsOnly() throws Throwable {
+    index.updateHost(host("h1", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateHost(host("h2", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.MGMT.name())));
+
+    HostService.State suspended = host("h3", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name()));
+    suspended.state = HostState.SUSPENDED;
+    index.updateHost(suspended);
+
+    HostService.State missing = host("h4", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name()));
+    missing.agentState = AgentState.MISSING;
+    index.updateHost(missing);
+
+    Map<String, ServerAddress> candidates = index.getCandidates(null, 10);
+    assertThat(candidates.keySet(), containsInAnyOrder("h1"));
+    assertThat(candidates.get("h1"), equalTo(new ServerAddress("h1-address", 8835)));
+
+    candidates = index.getCandidates(
+        Arrays.asList(new ResourceConstraint(ResourceConstraintType.MANAGEMENT_ONLY, null)), 10);
+    assertThat(candidates.keySet(), containsInAnyOrder("h2"));
+  }
+
+  @Test
+  public void testConstraints() throws Throwable {
+    index.updateHost(host("h1", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateHost(host("h2", 1, ImmutableSet.of("ds2"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateHost(host("h3", 1, ImmutableSet.of("ds1", "ds2"), ImmutableSet.of(UsageTag.CLOUD.name())));
+
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.DATASTORE, false, "ds1"), 10).keySet(),
+        containsInAnyOrder("h1", "h3"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.DATASTORE, true, "ds1"), 10).keySet(),
+        containsInAnyOrder("h2"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.DATASTORE, false, "ds1", "ds2"), 10).keySet(),
+        containsInAnyOrder("h1", "h2", "h3"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.HOST, false, "h2"), 10).keySet(),
+        containsInAnyOrder("h2"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.HOST, true, "h2"), 10).keySet(),
+        containsInAnyOrder("h1", "h3"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.NETWORK, false, "h2-network"), 10).keySet(),
+        containsInAnyOrder("h2"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.AVAILABILITY_ZONE, false, "zone"), 10)
+        .keySet(), containsInAnyOrder("h1", "h2", "h3"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.AVAILABILITY_ZONE, true, "zone"), 10)
+        .size(), is(0));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.VIRTUAL_NETWORK, false, "vn"), 10).size(),
+        is(3));
+  }
+
+  @Test
+  public void testDatastoreTags() throws Throwable {
+    index.updateHost(host("h1", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateHost(host("h2", 1, ImmutableSet.of("ds2"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateDatastore(datastore("ds1", 1, "tag1"));
+    index.updateDatastore(datastore("ds2", 1, "tag2"));
+
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.DATASTORE_TAG, false, "tag1"), 10).keySet(),
+        containsInAnyOrder("h1"));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.DATASTORE_TAG, true, "tag1"), 10).keySet(),
+        containsInAnyOrder("h2"));
+
+    index.removeDatastore("ds1", 2);
+    try {
+      index.getCandidates(constraints(ResourceConstraintType.DATASTORE_TAG, false, "tag1"), 10);
+      throw new AssertionError("Expected ConstraintMatchingDatastoreNotFoundException");
+    } catch (ConstraintMatchingDatastoreNotFoundException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testStaleUpdatesAreIgnored() throws Throwable {
+    index.updateHost(host("h1", 2, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateHost(host("h1", 1, ImmutableSet.of("ds2"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    assertThat(index.getCandidates(constraints(ResourceConstraintType.DATASTORE, false, "ds1"), 10).keySet(),
+        containsInAnyOrder("h1"));
+
+    index.removeHost("h1", 1);
+    assertThat(index.getHostCount(), is(1));
+    index.removeHost("h1", 3);
+    assertThat(index.getHostCount(), is(0));
+    assertThat(index.getCandidates(null, 10).size(), is(0));
+  }
+
+  @Test
+  public void testSync() throws Throwable {
+    index.updateHost(host("h1", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    index.updateHost(host("h2", 10, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+
+    // h1 is gone from the snapshot, h2 was updated after the snapshot started, h3 is new
+    index.sync(
+        Arrays.asList(host("h3", 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name()))),
+        Collections.emptyList(),
+        5);
+
+    assertThat(index.getCandidates(null, 10).keySet(), containsInAnyOrder("h2", "h3"));
+  }
+
+  @Test
+  public void testUniformSampling() throws Throwable {
+    int hostCount = 10;
+    for (int i = 0; i < hostCount; i++) {
+      index.updateHost(host("h" + i, 1, ImmutableSet.of("ds1"), ImmutableSet.of(UsageTag.CLOUD.name())));
+    }
+
+    int iterations = 10000;
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < iterations; i++) {
+      Map<String, ServerAddress> candidates = index.getCandidates(null, 2);
+      assertThat(candidates.size(), is(2));
+      for (String hostId : candidates.keySet()) {
+        counts.merge(hostId, 1, Integer::sum);
+      }
+    }
+
+    // Each host is expected to be picked 2000 times; allow a generous margin
+    assertThat(counts.size(), is(hostCount));
+    for (int count : counts.values()) {
+      assertThat(count > 1500 && count < 2500, is(true));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidNumCandidates() throws Throwable {
+    index.getCandidates(null, 0);
+  }
+
+  private static List<ResourceConstraint> constraints(ResourceConstraintType type, boolean negative,
+                                                      String... values) {
+    ResourceConstraint constraint = new ResourceConstraint(type, Arrays.asList(values));
+    if (negative) {
+      constraint.setNegative(true);
+    }
+    return Arrays.asList(constraint);
+  }
+
+  private static HostService.State host(String id, long updateTimeMicros, Set<String> datastores,
+                                        Set<String> usageTags) {
+    HostService.State host = new HostService.State();
+    host.documentSelfLink = HostServiceFactory.SELF_LINK + "/" + id;
+    host.documentUpdateTimeMicros = updateTimeMicros;
+    host.hostAddress = id + "-address";
+    host.agentPort = 8835;
+    host.state = HostState.READY;
+    host.agentState = AgentState.ACTIVE;
+    host.availabilityZoneId = "zone";
+    host.reportedDatastores = datastores;
+    host.reportedNetworks = ImmutableSet.of(id + "-network");
+    host.usageTags = usageTags;
+    return host;
+  }
+
+  private static DatastoreService.State datastore(String id, long updateTimeMicros, String... tags) {
+    DatastoreService.State datastore = new DatastoreService.State();
+    datastore.documentSelfLink = DatastoreServiceFactory.SELF_LINK + "/" + id;
+    datastore.documentUpdateTimeMicros = updateTimeMicros;
+    datastore.tags = ImmutableSet.copyOf(tags);
+    return datastore;
+  }
+}
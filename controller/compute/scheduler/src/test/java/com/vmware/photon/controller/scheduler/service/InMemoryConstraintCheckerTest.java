@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.scheduler.service;
+
+import com.vmware.photon.controller.api.model.AgentState;
+import com.vmware.photon.controller.api.model.HostState;
+import com.vmware.photon.controller.api.model.UsageTag;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostService;
+import com.vmware.photon.controller.cloudstore.xenon.entity.HostServiceFactory;
+import com.vmware.photon.controller.cloudstore.xenon.helpers.TestEnvironment;
+import com.vmware.photon.controller.common.xenon.CloudStoreHelper;
+import com.vmware.photon.controller.common.xenon.ServiceUriPaths;
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceDocumentQueryResult;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests {@link InMemoryConstraintChecker}.
+ */
+public class InMemoryConstraintCheckerTest {
+
+  private static final long RESYNC_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private TestEnvironment cloudStoreEnvironment;
+  private ServiceHost host;
+  private InMemoryConstraintChecker checker;
+
+  @BeforeMethod
+  public void setUp() throws Throwable {
+    cloudStoreEnvironment = TestEnvironment.create(1);
+    host = cloudStoreEnvironment.getHosts()[0];
+    checker = new InMemoryConstraintChecker(
+        new CloudStoreHelper(cloudStoreEnvironment.getServerSet()), host, new HostIndex(), RESYNC_INTERVAL_MILLIS);
+  }
+
+  @AfterMethod
+  public void tearDown() throws Throwable {
+    if (cloudStoreEnvironment != null) {
+      cloudStoreEnvironment.stop();
+      cloudStoreEnvironment = null;
+    }
+  }
+
+  /**
+   * The first resync runs right after the subscription is requested, so it must not create a second continuous
+   * query while the first one is still being set up.
+   */
+  @Test
+  public void testStartCreatesSingleContinuousQuery() throws Throwable {
+    checker.start();
+    checker.start();
+    waitFor(checker::isSubscribed);
+
+    assertThat(getHostIndexContinuousQueryCount(), is(1));
+  }
+
+  @Test
+  public void testNotificationsUpdateIndex() throws Throwable {
+    checker.start();
+    waitFor(checker::isSubscribed);
+    assertThat(checker.getIndex().getHostCount(), is(0));
+
+    HostService.State hostState = createHost();
+    waitFor(() -> checker.getIndex().getHostCount() == 1);
+
+    Map<String, ServerAddress> candidates = checker.getCandidatesSync(null, 1);
+    assertThat(candidates.size(), is(1));
+    assertThat(candidates.values().iterator().next().getHost(), equalTo(hostState.hostAddress));
+
+    Operation result = cloudStoreEnvironment.sendDeleteAndWait(
+        UriUtils.buildUriPath(HostServiceFactory.SELF_LINK, hostState.documentSelfLink));
+    assertThat(result.getStatusCode(), is(200));
+    waitFor(() -> checker.getIndex().getHostCount() == 0);
+
+    assertThat(checker.getCandidatesSync(null, 1).size(), is(0));
+  }
+
+  @Test
+  public void testResyncLoadsExistingHosts() throws Throwable {
+    createHost();
+    createHost();
+
+    checker.resyncSync();
+
+    assertThat(checker.getIndex().getHostCount(), is(2));
+  }
+
+  private HostService.State createHost() throws Throwable {
+    String id = UUID.randomUUID().toString();
+    HostService.State hostState = new HostService.State();
+    hostState.documentSelfLink = id;
+    hostState.hostAddress = id + "-address";
+    hostState.userName = "username";
+    hostState.password = "password";
+    hostState.state = HostState.READY;
+    hostState.agentState = AgentState.ACTIVE;
+    hostState.availabilityZoneId = "zone-1";
+    hostState.reportedDatastores = ImmutableSet.of("datastore-1");
+    hostState.reportedNetworks = ImmutableSet.of("network-1");
+    hostState.usageTags = ImmutableSet.of(UsageTag.CLOUD.name());
+
+    Operation result = cloudStoreEnvironment.sendPostAndWait(HostServiceFactory.SELF_LINK, hostState);
+    assertThat(result.getStatusCode(), is(200));
+    return hostState;
+  }
+
+  private int getHostIndexContinuousQueryCount() throws Throwable {
+    Operation get = Operation.createGet(UriUtils.buildExpandLinksQueryUri(
+        UriUtils.buildUri(host, ServiceUriPaths.CORE_LOCAL_QUERY_TASKS)));
+    ServiceDocumentQueryResult result = cloudStoreEnvironment.sendRequestAndWait(get, host)
+        .getBody(ServiceDocumentQueryResult.class);
+
+    int count = 0;
+    for (Object document : result.documents.values()) {
+      QueryTask queryTask = Utils.fromJson(document, QueryTask.class);
+      if (queryTask.querySpec.options.contains(QueryTask.QuerySpecification.QueryOption.CONTINUOUS)
+          && Utils.toJson(queryTask.querySpec.query).contains(Utils.buildKind(HostService.State.class))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws Throwable {
+    for (int i = 0; i < 10000 && !condition.getAsBoolean(); i++) {
+      Thread.sleep(1);
+    }
+    assertThat(condition.getAsBoolean(), is(true));
+  }
+}
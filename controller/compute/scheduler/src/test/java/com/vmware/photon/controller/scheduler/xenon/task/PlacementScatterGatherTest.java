@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.scheduler.xenon.task;
+
+import com.vmware.photon.controller.common.zookeeper.gen.ServerAddress;
+import com.vmware.photon.controller.scheduler.gen.PlaceResponse;
+import com.vmware.photon.controller.scheduler.gen.PlaceResultCode;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests {@link PlacementScatterGather}.
+ */
+public class PlacementScatterGatherTest {
+
+  private Map<String, ServerAddress> candidates;
+  private List<String> sent;
+  private int decisions;
+  private Set<PlaceResponse> okResponses;
+  private Set<PlaceResponse> allResponses;
+
+  @BeforeMethod
+  public void setUp() {
+    candidates = new LinkedHashMap<>();
+    for (int i = 1; i <= 6; i++) {
+      candidates.put("h" + i, new ServerAddress("h" + i, 1234));
+    }
+    sent = new ArrayList<>();
+    decisions = 0;
+  }
+
+  @Test
+  public void testWaitsForAllCandidatesByDefault() {
+    PlacementScatterGather scatterGather = create(4, 0);
+    scatterGather.start();
+    assertThat(sent, contains("h1", "h2", "h3", "h4"));
+
+    scatterGather.onResponse(ok("h1"));
+    scatterGather.onResponse(ok("h2"));
+    scatterGather.onResponse(error("h3"));
+    assertThat(decisions, is(0));
+
+    scatterGather.onResponse(ok("h4"));
+    assertThat(decisions, is(1));
+    assertThat(okResponses.size(), is(3));
+    assertThat(allResponses.size(), is(4));
+    assertThat(scatterGather.isDecidedEarly(), is(false));
+  }
+
+  @Test
+  public void testDecidesOnQuorum() {
+    PlacementScatterGather scatterGather = create(4, 2);
+    scatterGather.start();
+
+    scatterGather.onResponse(ok("h1"));
+    scatterGather.onResponse(error("h2"));
+    assertThat(decisions, is(0));
+
+    scatterGather.onResponse(ok("h3"));
+    assertThat(decisions, is(1));
+    assertThat(okResponses.size(), is(2));
+    assertThat(scatterGather.isDecidedEarly(), is(true));
+
+    // Late responses are ignored
+    scatterGather.onResponse(ok("h4"));
+    assertThat(decisions, is(1));
+    assertThat(okResponses.size(), is(2));
+  }
+
+  @Test
+  public void testDeadlineDecidesOnResponsesReceived() {
+    PlacementScatterGather scatterGather = create(4, 0);
+    scatterGather.start();
+
+    scatterGather.onResponse(ok("h1"));
+    scatterGather.onDeadline();
+    assertThat(decisions, is(1));
+    assertThat(okResponses.size(), is(1));
+  }
+
+  @Test
+  public void testDeadlineWithoutResponseDecidesOnFirstResponse() {
+    PlacementScatterGather scatterGather = create(4, 0);
+    scatterGather.start();
+
+    scatterGather.onDeadline();
+    assertThat(decisions, is(0));
+
+    scatterGather.onResponse(error("h1"));
+    assertThat(decisions, is(0));
+
+    scatterGather.onResponse(ok("h2"));
+    assertThat(decisions, is(1));
+  }
+
+  @Test
+  public void testSpareReplacesFailedCandidate() {
+    PlacementScatterGather scatterGather = create(2, 0);
+    scatterGather.start();
+    assertThat(sent, contains("h1", "h2"));
+
+    scatterGather.onResponse(error("h1"));
+    assertThat(sent, contains("h1", "h2", "h3"));
+
+    scatterGather.onResponse(ok("h2"));
+    assertThat(decisions, is(0));
+
+    scatterGather.onResponse(ok("h3"));
+    assertThat(decisions, is(1));
+    assertThat(okResponses.size(), is(2));
+    assertThat(scatterGather.getHedgedCount(), is(1));
+  }
+
+  @Test
+  public void testHedgeSendsToRemainingSpares() {
+    PlacementScatterGather scatterGather = create(3, 1);
+    scatterGather.start();
+
+    scatterGather.hedge();
+    assertThat(sent, contains("h1", "h2", "h3", "h4", "h5", "h6"));
+    assertThat(scatterGather.getHedgedCount(), is(3));
+
+    scatterGather.onResponse(ok("h5"));
+    assertThat(decisions, is(1));
+
+    // Nothing is left to hedge
+    scatterGather.hedge();
+    assertThat(sent.size(), is(6));
+  }
+
+  @Test
+  public void testHedgeAfterDecisionDoesNothing() {
+    PlacementScatterGather scatterGather = create(2, 1);
+    scatterGather.start();
+    scatterGather.onResponse(ok("h1"));
+
+    scatterGather.hedge();
+    assertThat(sent, contains("h1", "h2"));
+  }
+
+  @Test
+  public void testSynchronousSender() {
+    PlacementScatterGather[] scatterGather = new PlacementScatterGather[1];
+    scatterGather[0] = new PlacementScatterGather(candidates, 4, 0,
+        (candidate) -> {
+          sent.add(candidate.getKey());
+          scatterGather[0].onResponse(
+              candidate.getKey().equals("h1") ? error(candidate.getKey()) : ok(candidate.getKey()));
+        },
+        this::decide);
+    scatterGather[0].start();
+
+    assertThat(decisions, is(1));
+    assertThat(sent, contains("h1", "h5", "h2", "h3", "h4"));
+    assertThat(okResponses.size(), is(4));
+    assertThat(allResponses.size(), is(5));
+  }
+
+  private PlacementScatterGather create(int fanOut, int quorum) {
+    return new PlacementScatterGather(candidates, fanOut, quorum, (candidate) -> sent.add(candidate.getKey()),
+        this::decide);
+  }
+
+  private void decide(Set<PlaceResponse> okResponses, Set<PlaceResponse> allResponses) {
+    decisions++;
+    this.okResponses = okResponses;
+    this.allResponses = allResponses;
+  }
+
+  private PlaceResponse ok(String host) {
+    PlaceResponse response = new PlaceResponse(PlaceResultCode.OK);
+    response.setAddress(candidates.get(host));
+    return response;
+  }
+
+  private PlaceResponse error(String host) {
+    PlaceResponse response = new PlaceResponse(PlaceResultCode.SYSTEM_ERROR);
+    response.setAddress(candidates.get(host));
+    return response;
+  }
+}
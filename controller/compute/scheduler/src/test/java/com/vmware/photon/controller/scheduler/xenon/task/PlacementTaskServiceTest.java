@@ -19,7 +19,9 @@ import com.vmware.photon.controller.cloudstore.xenon.helpers.TestEnvironment;
 import com.vmware.photon.controller.common.clients.HostClient;
 import com.vmware.photon.controller.common.clients.HostClientFactory;
 import com.vmware.photon.controller.common.clients.exceptions.NoSuchResourceException;
+import com.vmware.photon.controller.common.clients.exceptions.RpcException;
 import com.vmware.photon.controller.common.clients.exceptions.SystemErrorException;
+import com.vmware.photon.controller.common.metrics.DefaultMetricRegistry;
 import com.vmware.photon.controller.common.xenon.CloudStoreHelper;
 import com.vmware.photon.controller.common.xenon.ControlFlags;
 import com.vmware.photon.controller.common.xenon.TaskUtils;
@@ -45,6 +47,7 @@ import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.UriUtils;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
 import org.apache.thrift.async.AsyncMethodCallback;
 import org.mockito.Mock;
@@ -63,6 +66,7 @@ import static org.hamcrest.Matchers.isEmptyOrNullString;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -393,6 +397,39 @@ public class PlacementTaskServiceTest {
       verify(client, times(4)).place(any(), any());
     }
 
+    /**
+     * Test that the response time of a host is recorded when the request cannot be sent to it.
+     */
+    @Test
+    public void testPlaceSendFailureIsTimed() throws Throwable {
+      String hostName = "send-failure-host";
+      this.checker.setCandidates(ImmutableMap.of(hostName, new ServerAddress(hostName, 1234)));
+
+      PlacementTask placementTask = new PlacementTask();
+      placementTask.resource = new Resource();
+      placementTask.sampleHostCount = config.getRoot().getMaxFanoutCount();
+      placementTask.timeoutMs = config.getRoot().getPlaceTimeoutMs();
+      placementTask.taskState = new TaskState();
+      placementTask.taskState.stage = TaskState.TaskStage.CREATED;
+      placementTask.taskState.isDirect = true;
+
+      doThrow(new RpcException("send failure")).when(client).place(any(), any());
+      long responseCount = DefaultMetricRegistry.REGISTRY.timer(
+          MetricRegistry.name(PlacementTaskService.class, "place-response-time", hostName)).getCount();
+
+      PlacementTask finalState = schedulerTestEnvironment.callServiceAndWaitForState(
+          PlacementTaskService.FACTORY_LINK,
+          placementTask,
+          PlacementTask.class,
+          (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage));
+
+      assertThat(finalState.taskState.stage, is(TaskState.TaskStage.FAILED));
+      assertThat(finalState.resultCode, is(PlaceResultCode.SYSTEM_ERROR));
+      assertThat(DefaultMetricRegistry.REGISTRY.timer(
+          MetricRegistry.name(PlacementTaskService.class, "place-response-time", hostName)).getCount(),
+          is(responseCount + 1));
+    }
+
     /**
      * Test success when two hosts responds successfully and two fail with an error.
      */
@@ -14,6 +14,7 @@
 package com.vmware.photon.controller.deployer.deployengine;
 
 import com.vmware.photon.controller.nsxclient.NsxClient;
+import com.vmware.photon.controller.nsxclient.NsxClientRegistry;
 
 /**
  * This class defines a factory which creates
@@ -22,6 +23,6 @@ import com.vmware.photon.controller.nsxclient.NsxClient;
 public class NsxClientFactory {
 
   public NsxClient create(String endpoint, String username, String password) {
-    return new NsxClient(endpoint, username, password);
+    return NsxClientRegistry.INSTANCE.getNsxClient(endpoint, username, password);
   }
 }
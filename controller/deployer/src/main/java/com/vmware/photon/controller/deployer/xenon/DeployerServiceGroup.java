@@ -133,7 +133,7 @@ public class DeployerServiceGroup
 
   public static final Map<String, TaskSchedulerServiceStateBuilder> TASK_SCHEDULERS = ImmutableMap.of(
       COPY_STATE_SCHEDULER_SERVICE,
-        new TaskSchedulerServiceStateBuilder(CopyStateTaskService.class, 5)
+        new TaskSchedulerServiceStateBuilder(CopyStateTaskService.class, 10)
   );
 
   private static final String DEPLOYER_URI = "deployer";
@@ -26,7 +26,7 @@ import com.vmware.photon.controller.common.xenon.ServiceUtils;
 import com.vmware.photon.controller.common.xenon.TaskUtils;
 import com.vmware.photon.controller.common.xenon.ValidationUtils;
 import com.vmware.photon.controller.common.xenon.deployment.NoMigrationDuringDeployment;
-import com.vmware.photon.controller.common.xenon.migration.MigrationUtils;
+import com.vmware.photon.controller.common.xenon.migration.DocumentTransformationPlan;
 import com.vmware.photon.controller.common.xenon.migration.NoMigrationDuringUpgrade;
 import com.vmware.photon.controller.common.xenon.validation.DefaultBoolean;
 import com.vmware.photon.controller.common.xenon.validation.DefaultInteger;
@@ -52,20 +52,28 @@ import com.vmware.xenon.services.common.QueryTask.NumericRange;
 import com.vmware.xenon.services.common.ServiceUriPaths;
 
 import com.google.common.base.Objects;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 
 import javax.annotation.Nullable;
 
 import java.net.URI;
 import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -76,6 +84,12 @@ public class CopyStateTaskService extends StatefulService {
 
   private static final String DOCUMENT_UPDATE_TIME_MICROS = "documentUpdateTimeMicros";
 
+  /**
+   * The transformation plans of the destination services, by service class name.
+   */
+  private static final ConcurrentMap<String, DocumentTransformationPlan> transformationPlans =
+      new ConcurrentHashMap<>();
+
   /**
    * This class defines the document state associated with a single
    * {@link CopyStateTaskService} instance.
@@ -136,6 +150,23 @@ public class CopyStateTaskService extends StatefulService {
     @Immutable
     @DefaultBoolean(value = false)
     public Boolean performHostTransformation;
+
+    /**
+     * The maximum number of writes to the destination which are in flight at any time.
+     */
+    @Immutable
+    @DefaultInteger(value = 50)
+    public Integer maxInFlightWrites;
+
+    /**
+     * The number of documents copied so far, reported after every page.
+     */
+    public Long documentsCopied;
+
+    /**
+     * The number of documents copied per second since the copy started, reported after every page.
+     */
+    public Double documentsPerSecond;
   }
 
   public CopyStateTaskService() {
@@ -202,6 +233,7 @@ public class CopyStateTaskService extends StatefulService {
     State currentState = getState(patchOperation);
     State patchState = patchOperation.getBody(State.class);
     validatePatchState(currentState, patchState);
+    TaskState.TaskStage previousStage = currentState.taskState.stage;
     PatchUtils.patchState(currentState, patchState);
     validateState(currentState);
     patchOperation.complete();
@@ -210,11 +242,13 @@ public class CopyStateTaskService extends StatefulService {
       ServiceUtils.logInfo(this, "Skipping start operation processing (disabled)");
       return;
     }
-    if (currentState.taskState.stage != TaskState.TaskStage.STARTED) {
+
+    // Progress patches keep the task in STARTED, so only the patch which starts the task starts the copy
+    if (previousStage != TaskState.TaskStage.CREATED || currentState.taskState.stage != TaskState.TaskStage.STARTED) {
       return;
     }
     try {
-      retrieveDocuments(currentState, currentState.queryDocumentsChangedSinceEpoc);
+      retrieveDocuments(currentState);
     } catch (Throwable t) {
       ServiceUtils.logSevere(this, t);
       if (!OperationUtils.isCompleted(patchOperation)) {
@@ -223,7 +257,8 @@ public class CopyStateTaskService extends StatefulService {
     }
   }
 
-  private void retrieveDocuments(State currentState, long lastUpdateQueryTime) {
+  private void retrieveDocuments(State currentState) {
+    CopyProgress progress = new CopyProgress();
 
     Stream<Operation> queryOps = currentState.sourceURIs.stream().map((sourceURI) -> {
       Operation queryOp = Operation
@@ -240,7 +275,7 @@ public class CopyStateTaskService extends StatefulService {
             if (exs != null && !exs.isEmpty()) {
               failTask(exs);
             } else {
-              processQueryOps(currentState, ops.values(), lastUpdateQueryTime);
+              processQueryOps(currentState, ops.values(), progress);
             }
           } catch (Throwable t) {
             failTask(t);
@@ -249,7 +284,7 @@ public class CopyStateTaskService extends StatefulService {
         .sendWith(this);
   }
 
-  private void processQueryOps(State currentState, Collection<Operation> queryOps, long lastUpdateQueryTime) {
+  private void processQueryOps(State currentState, Collection<Operation> queryOps, CopyProgress progress) {
 
     Map<URI, String> nextPageLinks = queryOps.stream()
         .filter((queryOp) -> queryOp.getBody(QueryTask.class).results.nextPageLink != null)
@@ -260,7 +295,13 @@ public class CopyStateTaskService extends StatefulService {
         })
         .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
-    continueWithNextPage(nextPageLinks, currentState, lastUpdateQueryTime);
+    long lastUpdateQueryTime = currentState.queryDocumentsChangedSinceEpoc;
+    if (nextPageLinks.isEmpty()) {
+      finishTask(lastUpdateQueryTime, progress);
+      return;
+    }
+
+    retrieveNextPage(nextPageLinks, (page) -> copyPage(currentState, page, lastUpdateQueryTime, progress));
   }
 
   private URI extractBaseURI(Operation op) {
@@ -271,163 +312,243 @@ public class CopyStateTaskService extends StatefulService {
     return UriUtils.buildUri(uri.getScheme(), uri.getHost(), uri.getPort(), null, null);
   }
 
-  private void continueWithNextPage(
-      Map<URI, String> nextPageLinks,
-      State currentState,
-      long lastUpdateQueryTime) {
-
-    if (!nextPageLinks.isEmpty()) {
-      retrieveNextPage(currentState, nextPageLinks, lastUpdateQueryTime);
-    } else {
-      // if there are no more results in the querye continue with the next host
-      State patch = new State();
-      patch.taskState = new TaskState();
-      patch.taskState.stage = TaskState.TaskStage.FINISHED;
-      patch.lastDocumentUpdateTimeEpoc = lastUpdateQueryTime;
-      TaskUtils.sendSelfPatch(CopyStateTaskService.this, patch);
-    }
+  private Map<URI, String> getNextPageLinks(Map<URI, ServiceDocumentQueryResult> page) {
+    return page.entrySet().stream()
+        .filter(entry -> entry.getValue().nextPageLink != null)
+        .map(entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().nextPageLink))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
   }
 
-  private void retrieveNextPage(
-      final State currentState,
-      Map<URI, String> nextPageLinks,
-      long lastUpdateQueryTime) {
-
-    getHost().schedule(() ->
-      OperationJoin.create(
-          nextPageLinks.entrySet().stream()
-              .map(entry -> {
-                Operation o = Operation.createGet(UriUtils.buildUri(entry.getKey(), entry.getValue()));
-                AuthenticationUtils.addSystemUserAuthcontext(o, getSystemAuthorizationContext());
-                return o;
-              })).setCompletion((os, ts) -> {
-            if (ts != null && ts.isEmpty()) {
-              failTask(ts);
-              return;
-            }
+  private void retrieveNextPage(Map<URI, String> nextPageLinks,
+                                Consumer<Map<URI, ServiceDocumentQueryResult>> pageHandler) {
+    OperationJoin
+        .create(nextPageLinks.entrySet().stream()
+            .map(entry -> {
+              Operation o = Operation.createGet(UriUtils.buildUri(entry.getKey(), entry.getValue()));
+              AuthenticationUtils.addSystemUserAuthcontext(o, getSystemAuthorizationContext());
+              return o;
+            }))
+        .setCompletion((os, ts) -> {
+          if (ts != null && !ts.isEmpty()) {
+            failTask(ts);
+            return;
+          }
+          try {
             Map<URI, ServiceDocumentQueryResult> results = os.values().stream()
                 .map(o -> {
                   QueryTask qt = o.getBody(QueryTask.class);
                   return new AbstractMap.SimpleEntry<>(extractBaseURI(o), qt.results);
                 })
-                .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
-            storeDocuments(currentState, results, lastUpdateQueryTime);
-          })
-        .sendWith(this), 300, TimeUnit.MILLISECONDS);
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            pageHandler.accept(results);
+          } catch (Throwable t) {
+            failTask(t);
+          }
+        })
+        .sendWith(this);
   }
 
-  private void storeDocuments(
+  /**
+   * Writes the documents of a page to the destination while the next page is retrieved from the sources, and moves
+   * on once both are done.
+   */
+  private void copyPage(
       final State currentState,
-      Map<URI, ServiceDocumentQueryResult> results,
-      long lastUpdateQueryTime) {
-
-    if (results.isEmpty()) {
-      continueWithNextPage(
-          Collections.emptyMap(),
-          currentState,
-          lastUpdateQueryTime);
+      Map<URI, ServiceDocumentQueryResult> page,
+      long lastUpdateQueryTime,
+      CopyProgress progress) {
+
+    List<Object> documents = new ArrayList<>();
+    List<String> documentLinks = new ArrayList<>();
+    long lastUpdateTime = lastUpdateQueryTime;
+    for (ServiceDocumentQueryResult result : page.values()) {
+      for (Object document : result.documents.values()) {
+        ServiceDocument serviceDocument = Utils.fromJson(document, ServiceDocument.class);
+        if (serviceDocument.documentOwner != null
+            && !Objects.equal(serviceDocument.documentOwner, result.documentOwner)) {
+          continue;
+        }
+        documents.add(document);
+        documentLinks.add(serviceDocument.documentSelfLink);
+        lastUpdateTime = Math.max(lastUpdateTime, serviceDocument.documentUpdateTimeMicros);
+      }
+    }
+    QueryTaskUtils.logQueryResults(this, documentLinks);
+
+    final long newLastUpdateTime = lastUpdateTime;
+    Map<URI, String> nextPageLinks = getNextPageLinks(page);
+    AtomicReference<Map<URI, ServiceDocumentQueryResult>> nextPage = new AtomicReference<>(Collections.emptyMap());
+    AtomicInteger pendingSteps = new AtomicInteger(nextPageLinks.isEmpty() ? 1 : 2);
+    Runnable completeStep = () -> {
+      if (pendingSteps.decrementAndGet() == 0) {
+        continueWithNextPage(currentState, nextPage.get(), newLastUpdateTime, progress);
+      }
+    };
+
+    if (!nextPageLinks.isEmpty()) {
+      retrieveNextPage(nextPageLinks, (results) -> {
+        nextPage.set(results);
+        completeStep.run();
+      });
+    }
+
+    storeDocuments(currentState, documents, () -> {
+      progress.documentsCopied.addAndGet(documents.size());
+      completeStep.run();
+    });
+  }
+
+  private void continueWithNextPage(
+      State currentState,
+      Map<URI, ServiceDocumentQueryResult> nextPage,
+      long lastUpdateQueryTime,
+      CopyProgress progress) {
+
+    if (nextPage.isEmpty()) {
+      finishTask(lastUpdateQueryTime, progress);
+      return;
+    }
+
+    State patch = buildPatch(TaskState.TaskStage.STARTED, null);
+    progress.report(patch);
+    TaskUtils.sendSelfPatch(this, patch);
+
+    copyPage(currentState, nextPage, lastUpdateQueryTime, progress);
+  }
+
+  private void finishTask(long lastUpdateQueryTime, CopyProgress progress) {
+    State patch = buildPatch(TaskState.TaskStage.FINISHED, null);
+    patch.lastDocumentUpdateTimeEpoc = lastUpdateQueryTime;
+    progress.report(patch);
+    ServiceUtils.logInfo(this, "Copied %d documents at %.1f documents per second",
+        patch.documentsCopied, patch.documentsPerSecond);
+    TaskUtils.sendSelfPatch(this, patch);
+  }
+
+  /**
+   * Upserts the documents on the destination. Each document is posted to the destination factory first, which
+   * creates it, or updates it when the factory accepts idempotent posts. Documents which already exist are then
+   * updated with a put, and only the documents which still fail are deleted and posted again.
+   */
+  private void storeDocuments(State currentState, List<Object> documents, Runnable storedHandler) {
+    if (documents.isEmpty()) {
+      storedHandler.run();
       return;
     }
 
     URI destinationFactoryURI = UriUtils.buildUri(currentState.destinationURI,
         currentState.destinationFactoryLink);
 
-    List<Object> ownerSelectedResults = new ArrayList<>();
-    for (ServiceDocumentQueryResult result : results.values()) {
-      ownerSelectedResults.addAll(
-          result.documents.values().stream()
-              .filter(doc -> {
-                ServiceDocument serviceDoc = Utils.fromJson(doc, ServiceDocument.class);
-                return serviceDoc.documentOwner == null
-                    || Objects.equal(serviceDoc.documentOwner, result.documentOwner);
-              })
-              .collect(Collectors.toList())
-      );
+    Map<Long, CopiedDocument> postedDocuments = new HashMap<>();
+    try {
+      for (Object document : documents) {
+        Object json = handleRenamedFields(
+            removeFactoryPathFromSelfLink(document, currentState.sourceFactoryLink), currentState);
+        CopiedDocument copiedDocument = new CopiedDocument(extractId(document, currentState.sourceFactoryLink), json);
+        copiedDocument.operation = buildPostOperation(json, destinationFactoryURI);
+        postedDocuments.put(copiedDocument.operation.getId(), copiedDocument);
+      }
+    } catch (Throwable t) {
+      failTask(t);
+      return;
     }
-    QueryTaskUtils.logQueryResults(this, ownerSelectedResults.stream()
-        .map(doc -> {
-          ServiceDocument serviceDoc = Utils.fromJson(doc, ServiceDocument.class);
-          return serviceDoc.documentSelfLink;
+
+    OperationJoin
+        .create(postedDocuments.values().stream().map(document -> document.operation))
+        .setCompletion((ops, exs) -> {
+          if (exs == null || exs.isEmpty()) {
+            storedHandler.run();
+            return;
+          }
+
+          List<CopiedDocument> existingDocuments = new ArrayList<>();
+          List<CopiedDocument> failedDocuments = new ArrayList<>();
+          for (Long id : exs.keySet()) {
+            if (ops.get(id).getStatusCode() == Operation.STATUS_CODE_CONFLICT) {
+              existingDocuments.add(postedDocuments.get(id));
+            } else {
+              failedDocuments.add(postedDocuments.get(id));
+            }
+          }
+          updateDocuments(currentState, existingDocuments, failedDocuments, storedHandler);
         })
-        .collect(Collectors.toList()));
-
-    long lastUpdateTimeOnPage = ownerSelectedResults.stream()
-        .map(doc -> Utils.getJsonMapValue(doc, DOCUMENT_UPDATE_TIME_MICROS, Long.class))
-        .mapToLong(l -> l.longValue())
-        .max()
-        .orElse(0);
-    final long newLastUpdateTime = Math.max(lastUpdateQueryTime, lastUpdateTimeOnPage);
-
-    if (ownerSelectedResults.isEmpty()) {
-      Map<URI, String> pageLinks = results.entrySet().stream()
-          .filter(entry -> entry.getValue().nextPageLink != null)
-          .map(entry -> {
-            return new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().nextPageLink);
-          })
-          .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
-      continueWithNextPage(
-          pageLinks,
-          currentState,
-          newLastUpdateTime);
+        .sendWith(this, currentState.maxInFlightWrites);
+  }
+
+  private void updateDocuments(
+      State currentState,
+      List<CopiedDocument> existingDocuments,
+      List<CopiedDocument> failedDocuments,
+      Runnable storedHandler) {
+
+    if (existingDocuments.isEmpty()) {
+      recreateDocuments(currentState, failedDocuments, storedHandler);
       return;
     }
 
+    Map<Long, CopiedDocument> updatedDocuments = new HashMap<>();
+    for (CopiedDocument document : existingDocuments) {
+      URI uri = UriUtils.buildUri(currentState.destinationURI, currentState.destinationFactoryLink + document.id);
+      Operation putOp = Operation
+          .createPut(uri)
+          .setBody(document.json)
+          .forceRemote()
+          .setReferer(uri);
+      document.operation = putOp;
+      updatedDocuments.put(putOp.getId(), document);
+    }
+
     OperationJoin
-        .create(ownerSelectedResults.stream()
-            .map(document -> {
-              String documentId = extractId(document, currentState.sourceFactoryLink);
-              return buildDeleteOperation(destinationFactoryURI + "/" + documentId);
-            }))
-        .setCompletion((opers, execptions) -> {
-          if (null != execptions && !execptions.isEmpty()) {
-            // Ignore delete not found error
+        .create(existingDocuments.stream().map(document -> document.operation))
+        .setCompletion((ops, exs) -> {
+          if (exs != null) {
+            exs.keySet().forEach(id -> failedDocuments.add(updatedDocuments.get(id)));
           }
+          recreateDocuments(currentState, failedDocuments, storedHandler);
+        })
+        .sendWith(this, currentState.maxInFlightWrites);
+  }
+
+  private void recreateDocuments(State currentState, List<CopiedDocument> documents, Runnable storedHandler) {
+    if (documents.isEmpty()) {
+      storedHandler.run();
+      return;
+    }
+
+    ServiceUtils.logInfo(this, "Deleting and posting %d documents which could not be updated", documents.size());
+    URI destinationFactoryURI = UriUtils.buildUri(currentState.destinationURI,
+        currentState.destinationFactoryLink);
+
+    OperationJoin
+        .create(documents.stream()
+            .map(document -> buildDeleteOperation(destinationFactoryURI + "/" + document.id)))
+        .setCompletion((opers, execptions) -> {
+          // Ignore delete not found error
           OperationJoin
-              .create(ownerSelectedResults.stream()
-                  .map(document -> {
-                    Object json = removeFactoryPathFromSelfLink(document, currentState.sourceFactoryLink);
-                    return buildPostOperation(json, destinationFactoryURI, currentState);
-                  }))
+              .create(documents.stream()
+                  .map(document -> buildPostOperation(document.json, destinationFactoryURI)))
               .setCompletion((ops, exs) -> {
                 if (null != exs && !exs.isEmpty()) {
                   failTask(exs);
                   return;
                 }
-                Map<URI, String> pageLinks = results.entrySet().stream()
-                    .filter(entry -> entry.getValue().nextPageLink != null)
-                    .map(entry -> {
-                      return new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().nextPageLink);
-                    })
-                    .collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()));
-                continueWithNextPage(
-                    pageLinks,
-                    currentState,
-                    newLastUpdateTime);
+                storedHandler.run();
               })
-              .sendWith(this);
+              .sendWith(this, currentState.maxInFlightWrites);
         })
-        .sendWith(this);
+        .sendWith(this, currentState.maxInFlightWrites);
   }
 
-  private Operation buildPostOperation(Object document, URI uri, State currentState) {
-    try {
-      Object documentWithRenamedFields = handleRenamedFields(document, currentState);
-      Operation postOp = Operation
-          .createPost(uri)
-          .setUri(uri)
-          .setBody(documentWithRenamedFields)
-          .forceRemote()
-          // PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE is a workaround needed
-          // because Xenon 0.7.0 does not allow POST to a previously deleted service
-          // we will need to implement an alternative solution using idempotent posts so that this workaround can
-          // be removed https://www.pivotaltracker.com/story/show/114425679
-          .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE)
-          .setReferer(uri);
-      return postOp;
-    } catch (Throwable ex) {
-      failTask(ex);
-      throw new RuntimeException(ex);
-    }
+  private Operation buildPostOperation(Object document, URI uri) {
+    return Operation
+        .createPost(uri)
+        .setUri(uri)
+        .setBody(document)
+        .forceRemote()
+        // PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE is a workaround needed
+        // because Xenon does not allow POST to a previously deleted service
+        .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE)
+        .setReferer(uri);
   }
 
   private String findDestinationServiceClassName(State currentState) {
@@ -460,25 +581,37 @@ public class CopyStateTaskService extends StatefulService {
     }
     Object result = document;
     if (currentState.destinationServiceClassName != null) {
-      // Serialize original document into destination
-      Class<?> destinationDoc = Class.forName(currentState.destinationServiceClassName);
-      @SuppressWarnings("unchecked")
-      Service sd = ((Class<Service>) destinationDoc).newInstance();
-      ServiceDocument convertedServiceDocument = Utils.fromJson(document, sd.getStateType());
-      MigrationUtils.handleRenamedField(document, convertedServiceDocument);
-      // Convert it back to json
+      DocumentTransformationPlan transformationPlan = getTransformationPlan(currentState.destinationServiceClassName);
+      JsonObject convertedServiceDocument = transformationPlan.transform(document);
 
-      if (sd.getStateType() == HostService.State.class) {
-        HostService.State fromJson = (HostService.State) convertedServiceDocument;
-        fromJson.usageTags = new HashSet<>(Arrays.asList(UsageTag.CLOUD.name()));
+      if (transformationPlan.getDocumentType() == HostService.State.class) {
+        JsonArray usageTags = new JsonArray();
+        usageTags.add(new JsonPrimitive(UsageTag.CLOUD.name()));
+        convertedServiceDocument.add(HostService.State.FIELD_NAME_USAGE_TAGS, usageTags);
       }
 
-      result = Utils.toJson(false, false, convertedServiceDocument);
+      result = convertedServiceDocument.toString();
     }
 
     return result;
   }
 
+  /**
+   * Returns the transformation plan of the state of a service class. The service is only instantiated to find its
+   * state type the first time.
+   */
+  private static DocumentTransformationPlan getTransformationPlan(String serviceClassName) throws Throwable {
+    DocumentTransformationPlan transformationPlan = transformationPlans.get(serviceClassName);
+    if (transformationPlan == null) {
+      Class<?> destinationDoc = Class.forName(serviceClassName);
+      @SuppressWarnings("unchecked")
+      Service sd = ((Class<Service>) destinationDoc).newInstance();
+      transformationPlan = DocumentTransformationPlan.get(sd.getStateType());
+      transformationPlans.put(serviceClassName, transformationPlan);
+    }
+    return transformationPlan;
+  }
+
   private QueryTask retrieveDocumentsQuery(State currentState) {
     QueryTask.Query excludeCreatedTasks
         = buildExcludeQuery(currentState.taskStateFieldName, TaskState.TaskStage.CREATED.name());
@@ -572,6 +705,34 @@ public class CopyStateTaskService extends StatefulService {
     TaskUtils.sendSelfPatch(this, buildPatch(TaskState.TaskStage.FAILED, exs.values().iterator().next()));
   }
 
+  /**
+   * A document being written to the destination, with the operation writing it.
+   */
+  private static class CopiedDocument {
+    private final String id;
+    private final Object json;
+    private Operation operation;
+
+    private CopiedDocument(String id, Object json) {
+      this.id = id;
+      this.json = json;
+    }
+  }
+
+  /**
+   * Tracks how many documents a running copy has written.
+   */
+  private static class CopyProgress {
+    private final long startTimeMicros = Utils.getNowMicrosUtc();
+    private final AtomicLong documentsCopied = new AtomicLong();
+
+    private void report(State patch) {
+      long elapsedMicros = Math.max(1, Utils.getNowMicrosUtc() - startTimeMicros);
+      patch.documentsCopied = documentsCopied.get();
+      patch.documentsPerSecond = patch.documentsCopied * (double) TimeUnit.SECONDS.toMicros(1) / elapsedMicros;
+    }
+  }
+
   private State buildPatch(TaskState.TaskStage stage, @Nullable Throwable t) {
     State patchState = new State();
     patchState.taskState = new TaskState();
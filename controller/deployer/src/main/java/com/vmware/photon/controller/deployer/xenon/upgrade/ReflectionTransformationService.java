@@ -12,55 +12,63 @@
  */
 package com.vmware.photon.controller.deployer.xenon.upgrade;
 
+import com.vmware.photon.controller.common.xenon.migration.DocumentTransformationPlan;
 import com.vmware.photon.controller.common.xenon.migration.MigrationUtils;
 import com.vmware.photon.controller.common.xenon.migration.UpgradeInformation;
 import com.vmware.photon.controller.deployer.xenon.util.HostUtils;
 import com.vmware.xenon.common.Operation;
-import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.Utils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The ReflectionTransformationService will transform a service by reflecting on all the fields
  * and renaming any that have the {@link RenameField} annotation that indicates it should be renamed.
+ *
+ * The reflection happens once per document type, when its {@link DocumentTransformationPlan} is built.
  */
 public class ReflectionTransformationService extends StatelessService {
 
   public static final String SELF_LINK = MigrationUtils.REFLECTION_TRANSFORMATION_SERVICE_LINK;
 
+  private final Map<String, DocumentTransformationPlan> transformationPlans = new ConcurrentHashMap<>();
+
   @Override
   public void handlePost(Operation postOperation) {
     Map<?, ?> documents = postOperation.getBody(Map.class);
     Map<String, String> results = new HashMap<>();
 
     if (!documents.isEmpty()) {
-      Class<? extends ServiceDocument> documentType = findDocumentType(documents);
-      if (documentType == null) {
+      DocumentTransformationPlan transformationPlan = findTransformationPlan(documents);
+      if (transformationPlan == null) {
         postOperation.fail(new Exception("Could not find a factory matching provided path"));
         return;
       }
 
       for (Map.Entry<?, ?> entry : documents.entrySet()) {
         String factoryPath = Utils.fromJson(entry.getValue(), String.class);
-
-        ServiceDocument convertedServiceDocument = Utils.fromJson(entry.getKey(), documentType);
-        MigrationUtils.handleRenamedField(entry.getKey(), convertedServiceDocument);
-
-        results.put(Utils.toJson(false, false, convertedServiceDocument), factoryPath);
+        results.put(transformationPlan.transformToJson(entry.getKey()), factoryPath);
       }
     }
 
     postOperation.setBody(results).complete();
   }
 
-  private Class<? extends ServiceDocument> findDocumentType(Map<?, ?> documents) {
+  private DocumentTransformationPlan findTransformationPlan(Map<?, ?> documents) {
     String factoryPath = Utils.fromJson(documents.values().iterator().next(), String.class);
+    DocumentTransformationPlan transformationPlan = transformationPlans.get(factoryPath);
+    if (transformationPlan != null) {
+      return transformationPlan;
+    }
+
     for (UpgradeInformation info : HostUtils.getDeployerContext(this).getUpgradeInformation()) {
       if (info.destinationFactoryServicePath.equals(factoryPath)) {
-        return info.serviceType;
+        transformationPlan = DocumentTransformationPlan.get(info.serviceType);
+        transformationPlans.put(factoryPath, transformationPlan);
+        return transformationPlan;
       }
     }
     return null;
@@ -52,6 +52,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.testng.Assert.fail;
 
@@ -404,6 +405,26 @@ public class CopyStateTaskServiceTest {
       assertThat(getDocumentLinks(destinationCluster).size(), is(DOCUMENT_COUNT));
     }
 
+    @Test(dataProvider = "hostCounts")
+    public void successCopyingSeveralPages(Integer sourceHostCount, Integer destinationHostCount) throws Throwable {
+      startClusters(sourceHostCount, destinationHostCount);
+
+      createDocuments(sourceCluster, DOCUMENT_COUNT);
+      copyStateTaskServiceState.queryResultLimit = 3;
+      copyStateTaskServiceState.maxInFlightWrites = 2;
+
+      CopyStateTaskService.State finalState = sourceCluster.callServiceAndWaitForState(
+          CopyStateTaskFactoryService.SELF_LINK,
+          copyStateTaskServiceState,
+          CopyStateTaskService.State.class,
+          (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage));
+
+      assertThat(finalState.taskState.stage, is(TaskState.TaskStage.FINISHED));
+      assertThat(finalState.documentsCopied, is((long) DOCUMENT_COUNT));
+      assertThat(finalState.documentsPerSecond, greaterThan(0.0));
+      assertThat(getDocumentLinks(destinationCluster).size(), is(DOCUMENT_COUNT));
+    }
+
     @Test(dataProvider = "hostCounts")
     public void successRunningOnDestination(Integer sourceHostCount, Integer destinationHostCount) throws Throwable {
       startClusters(sourceHostCount, destinationHostCount);
@@ -478,6 +499,7 @@ public class CopyStateTaskServiceTest {
           (state) -> TaskUtils.finalTaskStages.contains(state.taskState.stage));
 
       assertThat(finalState.taskState.stage, is(TaskState.TaskStage.FINISHED));
+      assertThat(finalState.documentsCopied, is((long) DOCUMENT_COUNT));
       assertThat(getDocumentLinks(destinationCluster).size(), is(DOCUMENT_COUNT));
     }
 
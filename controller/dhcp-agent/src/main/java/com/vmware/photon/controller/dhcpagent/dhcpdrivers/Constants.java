@@ -42,4 +42,19 @@ public class Constants {
    * The 5 second timeout to wait for a process to finish running a command.
    */
   public static final long TIMEOUT = 5;
+
+  /**
+   * The command which restarts dnsmasq, so that it reads its configuration and lease files again.
+   */
+  public static final String DNSMASQ_RESTART_COMMAND = "systemctl restart dnsmasq.service";
+
+  /**
+   * The command which sends SIGHUP to dnsmasq, so that it reads its host and option files again.
+   */
+  public static final String DNSMASQ_SIGNAL_COMMAND = "systemctl kill --kill-who=main --signal=HUP dnsmasq.service";
+
+  /**
+   * The 200 millisecond window during which reload requests are coalesced into a single reload of dnsmasq.
+   */
+  public static final long RELOAD_WINDOW_MILLIS = 200;
 }
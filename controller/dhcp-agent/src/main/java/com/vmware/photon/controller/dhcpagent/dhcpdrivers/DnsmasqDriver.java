@@ -24,24 +24,35 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Class implements Driver interface for Dnsmasq DHCP server.
+ *
+ * Subnet updates only rewrite the files they change, and ask for the lightest reload which applies the change:
+ * dnsmasq reads the host files again on SIGHUP, but reads the configuration and lease files only when restarted.
+ * Reloads requested by concurrent updates are coalesced by a {@link ReloadScheduler}.
  */
 public class DnsmasqDriver implements DHCPDriver {
 
   private static final Logger logger = LoggerFactory.getLogger(DnsmasqDriver.class);
 
+  private static final Pattern VERSION_PATTERN = Pattern.compile("^# Version=(?<version>[0-9]+)$");
+
+  private static final Pattern LEASE_FIELD_SEPARATOR = Pattern.compile("\\s+");
+
   private String dhcpLeaseFilePath = Constants.DNSMASQ_LEASE_PATH;
   private String dhcpHostFileDir = Constants.DNSMASQ_HOST_DIR_PATH;
   private String dhcpHostFileCopyDir = Constants.DNSMASQ_HOST_DIR_PATH + "-copy";
@@ -49,17 +60,38 @@ public class DnsmasqDriver implements DHCPDriver {
   private String dhcpOptionFileCopyDir = Constants.DNSMASQ_OPTION_DIR_PATH + "-copy";
   private String dhcpConfigFilePath = Constants.DNSMASQ_CONF_PATH;
 
+  private final String restartCommand;
+  private final String signalCommand;
+  private final ReloadScheduler reloadScheduler;
+  private final Object leaseFileLock = new Object();
+
   public DnsmasqDriver(
       String dhcpLeaseFilePath,
       String dhcpHostFileDir,
       String dhcpOptionFileDir,
       String dhcpConfigFilePath) {
+    this(dhcpLeaseFilePath, dhcpHostFileDir, dhcpOptionFileDir, dhcpConfigFilePath,
+        Constants.DNSMASQ_RESTART_COMMAND, Constants.DNSMASQ_SIGNAL_COMMAND, Constants.RELOAD_WINDOW_MILLIS);
+  }
+
+  DnsmasqDriver(
+      String dhcpLeaseFilePath,
+      String dhcpHostFileDir,
+      String dhcpOptionFileDir,
+      String dhcpConfigFilePath,
+      String restartCommand,
+      String signalCommand,
+      long reloadWindowMillis) {
     this.dhcpLeaseFilePath = dhcpLeaseFilePath;
     this.dhcpHostFileDir = dhcpHostFileDir;
     this.dhcpHostFileCopyDir = dhcpHostFileDir + "-copy";
     this.dhcpOptionFileDir = dhcpOptionFileDir;
     this.dhcpOptionFileCopyDir = dhcpOptionFileDir + "-copy";
     this.dhcpConfigFilePath = dhcpConfigFilePath;
+    this.restartCommand = restartCommand;
+    this.signalCommand = signalCommand;
+    this.reloadScheduler = new ReloadScheduler(
+        this::runReloadAction, reloadWindowMillis, TimeUnit.SECONDS.toMillis(Constants.TIMEOUT));
 
     for (String directory : new String[]{
         this.dhcpHostFileDir, this.dhcpHostFileCopyDir,
@@ -75,25 +107,34 @@ public class DnsmasqDriver implements DHCPDriver {
    * This method attempt to reload the DHCP server's cache.
    * Return true if it was reloaded.
    *
+   * The changes made since the last reload are applied by a single reload shared with the
+   * concurrent callers. Returns true right away if nothing changed.
+   *
    * @return
    */
   @Override
   public boolean reload() {
-    logger.info("Reloading dhcp-agent");
+    return reloadScheduler.awaitReload();
+  }
 
-    boolean response = false;
-    try {
-      String command = "systemctl restart dnsmasq.service";
-      Process p = Runtime.getRuntime().exec(command);
-      boolean result = p.waitFor(Constants.TIMEOUT, TimeUnit.SECONDS);
+  /**
+   * Returns the number of times dnsmasq was reloaded.
+   *
+   * @return
+   */
+  long getReloadCount() {
+    return reloadScheduler.getReloadCount();
+  }
 
-      if (result && p.exitValue() == 0) {
-        response = true;
-      }
-    } catch (Exception e) {
-      // Swallow the exception--we'll return false, as appropriate
+  private boolean runReloadAction(ReloadScheduler.Action action) throws Exception {
+    String command = action == ReloadScheduler.Action.RESTART ? restartCommand : signalCommand;
+    Process p = Runtime.getRuntime().exec(command);
+    boolean result = p.waitFor(Constants.TIMEOUT, TimeUnit.SECONDS);
+    if (!result) {
+      p.destroy();
     }
-    return response;
+
+    return result && p.exitValue() == 0;
   }
 
   /**
@@ -170,6 +211,7 @@ public class DnsmasqDriver implements DHCPDriver {
     PrintWriter configFileWriter = new PrintWriter(new FileWriter(dhcpConfigFilePath, true));
     configFileWriter.println("dhcp-range=tag:" + subnetId + "," + lowIp + "," + highIp);
     configFileWriter.close();
+    reloadScheduler.request(ReloadScheduler.Action.RESTART);
 
     Response response = new Response();
     response.exitCode = 0;
@@ -206,6 +248,7 @@ public class DnsmasqDriver implements DHCPDriver {
     if (hostFile.exists()) {
       hostFile.delete();
     }
+    reloadScheduler.request(ReloadScheduler.Action.RESTART);
 
     Response response = new Response();
     response.exitCode = 0;
@@ -216,6 +259,10 @@ public class DnsmasqDriver implements DHCPDriver {
    * This method updates subnet leases of
    * IP for MAC address.
    *
+   * The new mapping is diffed with the old one: only the leases of the removed mappings are
+   * removed from the lease file, which is only rewritten if it held any, and a reload is only
+   * requested if the mapping changed.
+   *
    * @param subnetId
    * @param ipAddressToMACAddressMap
    * @param version
@@ -226,18 +273,12 @@ public class DnsmasqDriver implements DHCPDriver {
       String subnetId,
       Map<String, String> ipAddressToMACAddressMap,
       Long version) throws Exception {
-    logger.info(String.format(
-        "Updating subnet leases for [%s]: new mapping is [%s]",
-        subnetId,
-        ipAddressToMACAddressMap.toString()));
-
     Response response = new Response();
 
-    // Read the old subnet file, compare the version, and get a list of IP-MAC mapping that needs
-    // to be removed.
+    // Read the old subnet file, compare the version, and diff the old IP-MAC mapping with the new one.
     String oldSubnetFilename = dhcpHostFileDir + "/" + subnetId;
     File oldSubnetHostFile = new File(oldSubnetFilename);
-    Map<String, String> ipToMacToRemove = new HashMap<>();
+    Map<String, String> oldIpToMac = new HashMap<>();
 
     if (oldSubnetHostFile.exists()) {
       BufferedReader reader = new BufferedReader(new FileReader(oldSubnetHostFile));
@@ -245,8 +286,7 @@ public class DnsmasqDriver implements DHCPDriver {
       try {
         String line = null;
         while ((line = reader.readLine()) != null) {
-          Pattern versionPattern = Pattern.compile("^# Version=(?<version>[0-9]+)$");
-          Matcher versionMatcher = versionPattern.matcher(line);
+          Matcher versionMatcher = VERSION_PATTERN.matcher(line);
           if (versionMatcher.matches()) {
             Long oldVersion = Long.parseLong(versionMatcher.group("version"));
 
@@ -265,12 +305,7 @@ public class DnsmasqDriver implements DHCPDriver {
               continue;
             }
 
-            String ip = ipToMacParts[0];
-            String mac = ipToMacParts[1];
-            if (!ipAddressToMACAddressMap.containsKey(ip) ||
-                !ipAddressToMACAddressMap.get(ip).equalsIgnoreCase(mac)) {
-              ipToMacToRemove.put(ip, mac);
-            }
+            oldIpToMac.put(ipToMacParts[0], ipToMacParts[1]);
           }
         }
       } finally {
@@ -278,7 +313,31 @@ public class DnsmasqDriver implements DHCPDriver {
       }
     }
 
-    // Update the subnet file with new version and IP-MAC mapping.
+    Map<String, String> ipToMacToRemove = new HashMap<>();
+    for (Map.Entry<String, String> pair : oldIpToMac.entrySet()) {
+      String newMac = ipAddressToMACAddressMap.get(pair.getKey());
+      if (newMac == null || !newMac.equalsIgnoreCase(pair.getValue())) {
+        ipToMacToRemove.put(pair.getKey(), pair.getValue());
+      }
+    }
+
+    int addedCount = 0;
+    for (Map.Entry<String, String> pair : ipAddressToMACAddressMap.entrySet()) {
+      String oldMac = oldIpToMac.get(pair.getKey());
+      if (oldMac == null || !oldMac.equalsIgnoreCase(pair.getValue())) {
+        addedCount++;
+      }
+    }
+
+    logger.info(String.format(
+        "Updating subnet leases for [%s] to version [%d]: [%d] mappings added, mapping to be removed is [%s]",
+        subnetId,
+        version,
+        addedCount,
+        ipToMacToRemove.toString()));
+
+    // Update the subnet file with new version and IP-MAC mapping. The version is recorded even when the
+    // mapping did not change, so that older updates keep being rejected.
     String newSubnetFilename = dhcpHostFileCopyDir + "/" + subnetId;
     PrintWriter writer = new PrintWriter(newSubnetFilename, "UTF-8");
     writer.println("# Version=" + version);
@@ -292,21 +351,68 @@ public class DnsmasqDriver implements DHCPDriver {
     Files.move(newSubnetHostFile.toPath(), oldSubnetHostFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
     // Remove obsolete IP-MAC lease.
-    logger.info(String.format(
-        "Updating subnet leases for [%s]: mapping to be removed is [%s]",
-        subnetId,
-        ipToMacToRemove.toString()));
-
+    int removedLeaseCount = 0;
     if (!ipToMacToRemove.isEmpty()) {
-      removeLinesFromFile(dhcpLeaseFilePath,
-          ipToMacToRemove.entrySet().stream()
-              .map(entry -> entry.getValue() + " " + entry.getKey()).collect(Collectors.toList()));
+      removedLeaseCount = removeLeases(ipToMacToRemove);
+    }
+
+    if (removedLeaseCount > 0) {
+      reloadScheduler.request(ReloadScheduler.Action.RESTART);
+    } else if (addedCount > 0 || !ipToMacToRemove.isEmpty()) {
+      reloadScheduler.request(ReloadScheduler.Action.SIGNAL);
     }
 
     response.exitCode = 0;
     return response;
   }
 
+  /**
+   * Removes the leases of the given IP-MAC mappings from the lease file, whose lines are
+   * "expiry MAC IP hostname client-id". Each line is looked up in a set of the leases to remove,
+   * and the file is rewritten only if a lease was removed.
+   *
+   * @param ipToMacToRemove
+   * @return the number of leases removed
+   * @throws IOException
+   */
+  private int removeLeases(Map<String, String> ipToMacToRemove) throws IOException {
+    Set<String> leasesToRemove = new HashSet<>();
+    for (Map.Entry<String, String> pair : ipToMacToRemove.entrySet()) {
+      leasesToRemove.add(leaseKey(pair.getValue(), pair.getKey()));
+    }
+
+    synchronized (leaseFileLock) {
+      File file = new File(dhcpLeaseFilePath);
+      if (!file.exists()) {
+        return 0;
+      }
+
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      List<String> keptLines = new ArrayList<>(lines.size());
+      for (String line : lines) {
+        String[] leaseParts = LEASE_FIELD_SEPARATOR.split(line.trim());
+        if (leaseParts.length >= 3 && leasesToRemove.contains(leaseKey(leaseParts[1], leaseParts[2]))) {
+          continue;
+        }
+
+        keptLines.add(line);
+      }
+
+      int removedCount = lines.size() - keptLines.size();
+      if (removedCount > 0) {
+        File tmpFile = new File(dhcpLeaseFilePath + ".tmp");
+        Files.write(tmpFile.toPath(), keptLines, StandardCharsets.UTF_8);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      return removedCount;
+    }
+  }
+
+  private static String leaseKey(String mac, String ip) {
+    return mac.toLowerCase() + " " + ip;
+  }
+
   private void removeLinesFromFile(String filePath,
                                   List<String> excludeLineContents) throws IOException {
     File file = new File(filePath);
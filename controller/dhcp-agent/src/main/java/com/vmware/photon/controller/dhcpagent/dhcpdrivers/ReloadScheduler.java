@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.dhcpagent.dhcpdrivers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the reloads of the DHCP server requested within a window into a single reload.
+ *
+ * Changes to the DHCP server files record the reload they need with {@link #request(Action)}, and callers wait for
+ * the changes to be applied with {@link #awaitReload()}. The first caller opens a window, and every caller arriving
+ * before the window closes waits for the same reload. The reload runs the strongest action requested during the
+ * window, so updates to many subnets cost one signal, or one restart if any of them needs it.
+ *
+ * A failed reload leaves its action pending, so that the next caller retries it.
+ */
+class ReloadScheduler {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReloadScheduler.class);
+
+  /**
+   * Actions which reload the DHCP server, from the weakest to the strongest.
+   */
+  enum Action {
+    /**
+     * Nothing changed.
+     */
+    NONE,
+
+    /**
+     * Host or option files changed, which a signal makes the DHCP server read again.
+     */
+    SIGNAL,
+
+    /**
+     * The configuration or lease file changed, which the DHCP server reads again only on restart.
+     */
+    RESTART
+  }
+
+  /**
+   * Runs a reload action.
+   */
+  interface Reloader {
+    boolean reload(Action action) throws Exception;
+  }
+
+  private final Reloader reloader;
+  private final long windowMillis;
+  private final long timeoutMillis;
+  private final ScheduledExecutorService executor;
+
+  private Action pendingAction = Action.NONE;
+  private CompletableFuture<Boolean> window;
+  private CompletableFuture<Boolean> inFlight;
+  private long reloadCount;
+
+  ReloadScheduler(Reloader reloader, long windowMillis, long timeoutMillis) {
+    this.reloader = reloader;
+    this.windowMillis = windowMillis;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("DhcpReloadScheduler-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Records that the next reload needs at least the given action.
+   */
+  synchronized void request(Action action) {
+    if (action.compareTo(pendingAction) > 0) {
+      pendingAction = action;
+    }
+  }
+
+  /**
+   * Waits for the changes requested so far to be applied. Returns true right away if nothing is pending.
+   */
+  boolean awaitReload() {
+    CompletableFuture<Boolean> future;
+    synchronized (this) {
+      if (window == null && pendingAction == Action.NONE) {
+        if (inFlight == null) {
+          return true;
+        }
+
+        // The changes requested so far are being applied by the reload in flight
+        future = inFlight;
+      } else {
+        if (window == null) {
+          window = new CompletableFuture<>();
+          executor.schedule(this::reload, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        future = window;
+      }
+    }
+
+    try {
+      return future.get(windowMillis + timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      logger.warn("Failed to wait for the DHCP server to reload", e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the number of reloads run, for tests and benchmarks.
+   */
+  synchronized long getReloadCount() {
+    return reloadCount;
+  }
+
+  private void reload() {
+    CompletableFuture<Boolean> future;
+    Action action;
+    synchronized (this) {
+      future = window;
+      window = null;
+      inFlight = future;
+      action = pendingAction;
+      pendingAction = Action.NONE;
+    }
+
+    boolean result = false;
+    try {
+      if (action == Action.NONE) {
+        result = true;
+      } else {
+        logger.info("Reloading the DHCP server with action {}", action);
+        result = reloader.reload(action);
+      }
+    } catch (Throwable t) {
+      logger.warn("Failed to reload the DHCP server with action {}", action, t);
+    } finally {
+      synchronized (this) {
+        if (action != Action.NONE) {
+          reloadCount++;
+        }
+        if (!result) {
+          request(action);
+        }
+        if (inFlight == future) {
+          inFlight = null;
+        }
+      }
+      future.complete(result);
+    }
+  }
+}
@@ -16,13 +16,20 @@ package com.vmware.photon.controller.dhcpagent.dhcpdrivers;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -200,4 +207,84 @@ public class DnsmasqDriverTest {
       fail(String.format("Failed with exception: %s", e.toString()));
     }
   }
+
+  @Test
+  public void testUpdateSubnetRemovesOnlyObsoleteLeases() throws Throwable {
+    Path directory = Files.createTempDirectory("dnsmasq");
+    DnsmasqDriver driver = createDriver(directory, successScript);
+    Path leaseFile = directory.resolve("dnsmasq.leases");
+    Files.write(leaseFile, Arrays.asList(
+        "1463701168 08:00:27:5c:9a:7b 192.168.0.4  * *",
+        "1463701168 08:00:27:d8:7d:8e 192.168.0.2 ubuntu *",
+        "1463701168 08:00:27:d2:b6:66 192.168.0.3 * *"), StandardCharsets.UTF_8);
+
+    Map<String, String> ipToMac = new HashMap<>();
+    ipToMac.put("192.168.0.2", "08:00:27:d8:7d:8e");
+    ipToMac.put("192.168.0.3", "08:00:27:d2:b6:66");
+    driver.updateSubnet("subnet1", ipToMac, 1L);
+    assertTrue(driver.reload());
+    assertEquals(driver.getReloadCount(), 1L);
+
+    // The MAC of 192.168.0.3 changed and 192.168.0.2 was released
+    ipToMac.remove("192.168.0.2");
+    ipToMac.put("192.168.0.3", "08:00:27:00:00:01");
+    driver.updateSubnet("subnet1", ipToMac, 2L);
+
+    List<String> leases = Files.readAllLines(leaseFile, StandardCharsets.UTF_8);
+    assertEquals(leases.size(), 1);
+    assertEquals(leases.get(0), "1463701168 08:00:27:5c:9a:7b 192.168.0.4  * *");
+    assertEquals(Files.readAllLines(directory.resolve("hosts").resolve("subnet1"), StandardCharsets.UTF_8),
+        Arrays.asList("# Version=2", "192.168.0.3,08:00:27:00:00:01,net:subnet1"));
+    assertTrue(driver.reload());
+    assertEquals(driver.getReloadCount(), 2L);
+  }
+
+  @Test
+  public void testUpdateSubnetWithoutChangeDoesNotReload() throws Throwable {
+    Path directory = Files.createTempDirectory("dnsmasq");
+    DnsmasqDriver driver = createDriver(directory, successScript);
+    Map<String, String> ipToMac = new HashMap<>();
+    ipToMac.put("192.168.0.2", "08:00:27:d8:7d:8e");
+
+    driver.updateSubnet("subnet1", ipToMac, 1L);
+    assertTrue(driver.reload());
+    assertEquals(driver.getReloadCount(), 1L);
+
+    // Only the version changed
+    driver.updateSubnet("subnet1", ipToMac, 2L);
+    assertTrue(driver.reload());
+    assertEquals(driver.getReloadCount(), 1L);
+    assertEquals(Files.readAllLines(directory.resolve("hosts").resolve("subnet1"), StandardCharsets.UTF_8).get(0),
+        "# Version=2");
+
+    // An older version is rejected
+    assertEquals(driver.updateSubnet("subnet1", new HashMap<>(), 1L).exitCode, 1);
+  }
+
+  @Test
+  public void testFailedReloadIsRetried() throws Throwable {
+    Path directory = Files.createTempDirectory("dnsmasq");
+    DnsmasqDriver driver = createDriver(directory, failureScript);
+    Map<String, String> ipToMac = new HashMap<>();
+    ipToMac.put("192.168.0.2", "08:00:27:d8:7d:8e");
+
+    driver.updateSubnet("subnet1", ipToMac, 1L);
+    assertFalse(driver.reload());
+    assertFalse(driver.reload());
+    assertEquals(driver.getReloadCount(), 2L);
+  }
+
+  private static DnsmasqDriver createDriver(Path directory, String script) throws IOException {
+    String scriptPath = DnsmasqDriverTest.class.getResource(script).getPath();
+    new File(scriptPath).setExecutable(true);
+    Path configFile = Files.createFile(directory.resolve("dnsmasq.conf"));
+    return new DnsmasqDriver(
+        directory.resolve("dnsmasq.leases").toString(),
+        directory.resolve("hosts").toString(),
+        directory.resolve("options").toString(),
+        configFile.toString(),
+        scriptPath,
+        scriptPath,
+        0);
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.dhcpagent.dhcpdrivers;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests {@link ReloadScheduler}.
+ */
+public class ReloadSchedulerTest {
+
+  private List<ReloadScheduler.Action> actions;
+  private volatile boolean succeed;
+
+  @BeforeMethod
+  public void setUp() {
+    actions = Collections.synchronizedList(new ArrayList<>());
+    succeed = true;
+  }
+
+  @Test
+  public void testNothingPending() {
+    ReloadScheduler scheduler = createScheduler(0);
+
+    assertThat(scheduler.awaitReload(), is(true));
+    assertThat(actions.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testCoalescesConcurrentRequests() throws Throwable {
+    ReloadScheduler scheduler = createScheduler(500);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<Boolean>> callers = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        ReloadScheduler.Action action = i == 3 ? ReloadScheduler.Action.RESTART : ReloadScheduler.Action.SIGNAL;
+        callers.add(() -> {
+          scheduler.request(action);
+          return scheduler.awaitReload();
+        });
+      }
+
+      for (Future<Boolean> result : executor.invokeAll(callers)) {
+        assertThat(result.get(), is(true));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(actions, contains(ReloadScheduler.Action.RESTART));
+    assertThat(scheduler.getReloadCount(), is(1L));
+
+    // The changes were applied
+    assertThat(scheduler.awaitReload(), is(true));
+    assertThat(scheduler.getReloadCount(), is(1L));
+  }
+
+  @Test
+  public void testRetriesFailedReload() {
+    ReloadScheduler scheduler = createScheduler(0);
+    succeed = false;
+
+    scheduler.request(ReloadScheduler.Action.SIGNAL);
+    assertThat(scheduler.awaitReload(), is(false));
+
+    succeed = true;
+    assertThat(scheduler.awaitReload(), is(true));
+    assertThat(actions, contains(ReloadScheduler.Action.SIGNAL, ReloadScheduler.Action.SIGNAL));
+
+    assertThat(scheduler.awaitReload(), is(true));
+    assertThat(scheduler.getReloadCount(), is(2L));
+  }
+
+  private ReloadScheduler createScheduler(long windowMillis) {
+    return new ReloadScheduler(
+        (action) -> {
+          actions.add(action);
+          return succeed;
+        },
+        windowMillis,
+        5000);
+  }
+}
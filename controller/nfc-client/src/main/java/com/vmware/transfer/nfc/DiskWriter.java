@@ -31,6 +31,8 @@ public class DiskWriter implements AutoCloseable {
 
   private final NfcClient nfcClient;
   private ByteBuffer fileData;
+  private byte[] grainData;
+  private ByteBuffer grainBuffer;
   private long zeroSectors = 0;
   private long nextLba = 0;
   private boolean isDirty = false;
@@ -70,7 +72,13 @@ public class DiskWriter implements AutoCloseable {
 
     zeroSectors += lba - nextLba;
     nextLba = lba + 1;
-    if (isZero(data, offset, NfcClient.SECTOR_SIZE)) {
+    if (data != grainData) {
+      // The sectors of a grain come from the same array, and the grain arrays are reused, so an array is only
+      // wrapped when it changes rather than for every sector
+      grainData = data;
+      grainBuffer = SparseUtil.wrap(data);
+    }
+    if (SparseUtil.isZero(grainBuffer, offset, NfcClient.SECTOR_SIZE)) {
       zeroSectors++;
     } else {
       outputDataSector(data, offset);
@@ -139,15 +147,6 @@ public class DiskWriter implements AutoCloseable {
     isDirty = false;
   }
 
-  private boolean isZero(byte[] data, int offset, int length) {
-    for (int i = offset; i < offset + length; ++i) {
-      if (data[i] != 0) {
-        return false;
-      }
-    }
-    return true;
-  }
-
   private void writeNfcFileDskHdr(boolean isMetadata) {
     // This is the first section in a FILE_DATA message
     assert !isDirty;
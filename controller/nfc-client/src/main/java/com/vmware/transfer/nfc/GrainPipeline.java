@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.nfc;
+
+import com.vmware.transfer.streamVmdk.StreamVmdkReader;
+import com.vmware.transfer.streamVmdk.VmdkFormatException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+/**
+ * GrainPipeline moves the data grains of a stream-optimized VMDK to a writer in three stages, so that reading
+ * the stream, inflating grains and writing to the NFC socket overlap:
+ * - a reader thread reads compressed grains ahead of the writer, up to the read-ahead limit;
+ * - a pool of inflater threads inflates them, reusing their Inflater and grain buffers, and flags the grains
+ * that only contain zeros;
+ * - the calling thread writes the inflated grains in stream order. Zero grains are not written at all: the
+ * writer accounts for skipped sectors from the LBA of the next grain written.
+ */
+class GrainPipeline implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GrainPipeline.class);
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+  /**
+   * Destination of the inflated grains, one sector at a time.
+   */
+  interface SectorWriter {
+    void writeGrain(long lba, byte[] data, int offset) throws IOException;
+  }
+
+  /**
+   * A grain moving through the pipeline. Instances are recycled once written.
+   */
+  private static class Grain {
+    final StreamVmdkReader.CompressedGrain compressed = new StreamVmdkReader.CompressedGrain();
+    final byte[] data;
+    long lba;
+    int length;
+    boolean isZero;
+
+    Grain(int grainSizeBytes) {
+      this.data = new byte[grainSizeBytes];
+    }
+  }
+
+  private static final Grain END_OF_STREAM = new Grain(0);
+
+  private final StreamVmdkReader reader;
+  private final BlockingQueue<Grain> freeGrains;
+  private final BlockingQueue<Inflater> inflaters;
+  private final BlockingQueue<Future<Grain>> orderedGrains;
+  private final ExecutorService readerExecutor;
+  private final ExecutorService inflaterExecutor;
+
+  GrainPipeline(StreamVmdkReader reader, int inflaterCount, int readAheadGrains) {
+    this.reader = reader;
+    int grainSizeBytes = reader.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE;
+
+    this.freeGrains = new ArrayBlockingQueue<>(readAheadGrains);
+    for (int i = 0; i < readAheadGrains; i++) {
+      freeGrains.add(new Grain(grainSizeBytes));
+    }
+
+    this.inflaters = new ArrayBlockingQueue<>(inflaterCount);
+    for (int i = 0; i < inflaterCount; i++) {
+      inflaters.add(new Inflater());
+    }
+
+    // At most readAheadGrains grains are in flight, plus the end of stream (or failure) marker
+    this.orderedGrains = new ArrayBlockingQueue<>(readAheadGrains + 1);
+    this.readerExecutor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("GrainReader-%d").setDaemon(true).build());
+    this.inflaterExecutor = Executors.newFixedThreadPool(inflaterCount,
+        new ThreadFactoryBuilder().setNameFormat("GrainInflater-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Transfers all the data grains of the stream to the writer.
+   *
+   * @return the number of data grains read from the stream
+   */
+  long transfer(SectorWriter writer) throws IOException, VmdkFormatException {
+    readerExecutor.submit(this::readGrains);
+
+    long grainCount = 0;
+    while (true) {
+      Grain grain = takeNextGrain();
+      if (grain == END_OF_STREAM) {
+        return grainCount;
+      }
+
+      grainCount++;
+      if (0 == (grainCount % 1000)) {
+        logger.debug("Writing grain count/lba {}/{}", grainCount, grain.lba);
+      }
+      if (!grain.isZero) {
+        long lba = grain.lba;
+        for (int offset = 0; offset < grain.length; offset += SparseUtil.DISKLIB_SECTOR_SIZE) {
+          writer.writeGrain(lba++, grain.data, offset);
+        }
+      }
+      freeGrains.add(grain);
+    }
+  }
+
+  @Override
+  public void close() {
+    readerExecutor.shutdownNow();
+    inflaterExecutor.shutdownNow();
+    try {
+      inflaterExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    Inflater inflater;
+    while ((inflater = inflaters.poll()) != null) {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Reader stage: reads compressed grains and hands them to the inflaters, in stream order.
+   */
+  private void readGrains() {
+    try {
+      while (true) {
+        Grain grain = freeGrains.take();
+        if (!reader.readNextCompressedGrain(grain.compressed)) {
+          orderedGrains.put(CompletableFuture.completedFuture(END_OF_STREAM));
+          return;
+        }
+        orderedGrains.put(inflaterExecutor.submit(() -> inflate(grain)));
+      }
+    } catch (InterruptedException e) {
+      // The pipeline is being closed
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      CompletableFuture<Grain> failure = new CompletableFuture<>();
+      failure.completeExceptionally(t);
+      orderedGrains.offer(failure);
+    }
+  }
+
+  /**
+   * Inflater stage: inflates a grain with one of the pooled inflaters.
+   */
+  private Grain inflate(Grain grain) throws InterruptedException, VmdkFormatException {
+    Inflater inflater = inflaters.take();
+    try {
+      grain.length = StreamVmdkReader.inflate(
+          inflater, grain.compressed.data, grain.compressed.length, grain.data);
+    } finally {
+      inflaters.add(inflater);
+    }
+    grain.lba = grain.compressed.lba;
+    grain.isZero = SparseUtil.isZero(grain.data, 0, grain.length);
+    return grain;
+  }
+
+  private Grain takeNextGrain() throws IOException, VmdkFormatException {
+    try {
+      return orderedGrains.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while transferring disk", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof VmdkFormatException) {
+        throw (VmdkFormatException) cause;
+      }
+      throw new IOException("Failed to read disk", cause);
+    }
+  }
+}
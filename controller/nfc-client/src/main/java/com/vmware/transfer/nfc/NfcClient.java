@@ -107,6 +107,10 @@ public class NfcClient implements AutoCloseable {
   private static final int CONV_DISK_THIN = 1 << 7;
   private static final int CONV_DISK_LSILOGIC = 1 << 8;
   private static final int CONV_DISK_IDE = 1 << 13;
+  // Sizing of the grain pipeline used by putStreamOptimizedDisk
+  private static final int GRAIN_INFLATER_COUNT =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+  private static final int GRAIN_READ_AHEAD = 32;
   private Socket socket;
   private ReadableByteChannel input;
   private WritableByteChannel output;
@@ -199,27 +203,12 @@ public class NfcClient implements AutoCloseable {
     try {
       writer = putDisk(filePath, disk.getAdapterType(), disk.getCapacityInSectors());
       writer.writeDdb(disk.getDdb());
-      byte[] grain = new byte[disk.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE];
-      int grainSize = disk.getNextGrain(grain);
-      int grainCount = 0;
-      while (grainSize >= 0) {
-        grainCount++;
-        if (0 == (grainCount % 1000)) {
-          logger.debug("NfcClient putStreamOptimizedDisk for file {} preparing to write grain count/size {}/{}",
-              filePath,
-              grainCount,
-              grainSize);
-        }
-        if (grainSize > 0) {
-          long lba = disk.getCurrentLba();
-          for (int offset = 0; offset < grainSize; offset += SparseUtil.DISKLIB_SECTOR_SIZE) {
-            writer.writeGrain(lba++, grain, offset);
-          }
-        }
-        grainSize = disk.getNextGrain(grain);
+      long grainCount;
+      try (GrainPipeline pipeline = new GrainPipeline(disk, GRAIN_INFLATER_COUNT, GRAIN_READ_AHEAD)) {
+        grainCount = pipeline.transfer(writer::writeGrain);
       }
-      logger.debug("NfcClient putStreamOptimizedDisk for file {} write complete on grain count/size {}/{}", filePath,
-          grainCount, grainSize);
+      logger.debug("NfcClient putStreamOptimizedDisk for file {} write complete on grain count {}", filePath,
+          grainCount);
       writer.finalizeWrite();
       close();
       return disk.getCapacityInSectors() * SparseUtil.DISKLIB_SECTOR_SIZE;
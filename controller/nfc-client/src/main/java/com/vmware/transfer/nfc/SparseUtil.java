@@ -13,6 +13,9 @@
 
 package com.vmware.transfer.nfc;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * SparseUtil.
  */
@@ -66,4 +69,39 @@ public class SparseUtil {
   public static long bytesToSectors(long bytes) {
     return divideAndRoundUp(bytes, DISKLIB_SECTOR_SIZE);
   }
+
+  /**
+   * Checks whether a range of a buffer only contains zeros. The range is scanned a long at a time, the
+   * remaining bytes (if any) one at a time.
+   */
+  public static boolean isZero(byte[] data, int offset, int length) {
+    return isZero(wrap(data), offset, length);
+  }
+
+  /**
+   * Same as {@link #isZero(byte[], int, int)} on an array wrapped with {@link #wrap(byte[])}, for callers which
+   * check many ranges of the same array.
+   */
+  public static boolean isZero(ByteBuffer buffer, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    for (; i <= end - Long.BYTES; i += Long.BYTES) {
+      if (buffer.getLong(i) != 0) {
+        return false;
+      }
+    }
+    for (; i < end; ++i) {
+      if (buffer.get(i) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Wraps an array for {@link #isZero(ByteBuffer, int, int)}.
+   */
+  public static ByteBuffer wrap(byte[] data) {
+    return ByteBuffer.wrap(data).order(ByteOrder.nativeOrder());
+  }
 }
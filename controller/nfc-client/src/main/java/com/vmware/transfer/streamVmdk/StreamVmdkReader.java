@@ -40,12 +40,19 @@ public class StreamVmdkReader {
   private long currentLba;
   private String adapterType;
   private Map<String, String> ddb;
+  private final ByteBuffer grainHeader;
+  private final ByteBuffer metadata;
+  private final Inflater inflater;
+  private byte[] compressedBuffer;
 
   public StreamVmdkReader(InputStream input) throws VmdkFormatException, IOException {
     this.input = new DataInputStream(input);
     adapterType = "buslogic";
     ddb = new LinkedHashMap<>(); // Preserve the order of the DDB entries
     currentLba = -1;
+    grainHeader = ByteBuffer.allocate(SparseUtil.STREAMED_GRAIN_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    metadata = ByteBuffer.allocate(512 - SparseUtil.STREAMED_GRAIN_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    inflater = new Inflater();
     initialize();
   }
 
@@ -156,67 +163,128 @@ public class StreamVmdkReader {
     return (int) grainSize;
   }
 
+  /**
+   * Reads and inflates the next data grain into the given buffer.
+   *
+   * @return the size of the inflated grain, 0 if a progress marker was read, or -1 at the end of the stream
+   */
   public int getNextGrain(byte[] grain) throws VmdkFormatException, IOException {
-    byte[] headerBytes = new byte[12];
-    readFully(headerBytes);
-    ByteBuffer header = ByteBuffer.wrap(headerBytes);
-    header.order(ByteOrder.LITTLE_ENDIAN);
-    long sector = header.getLong();
-    int cmpSize = header.getInt();
+    int cmpSize = readNextGrainHeader(grain.length, false);
+    if (cmpSize <= 0) {
+      return cmpSize;
+    }
+
+    if (compressedBuffer == null || compressedBuffer.length < cmpSize) {
+      compressedBuffer = new byte[cmpSize];
+    }
+    readGrainData(compressedBuffer, cmpSize);
+    return inflate(inflater, compressedBuffer, cmpSize, grain);
+  }
+
+  /**
+   * Reads the next data grain without inflating it, skipping over progress markers. This lets the caller
+   * inflate grains on other threads while the stream is being read.
+   *
+   * @return false at the end of the stream
+   */
+  public boolean readNextCompressedGrain(CompressedGrain grain) throws VmdkFormatException, IOException {
+    int cmpSize = readNextGrainHeader(getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE, true);
+    if (cmpSize < 0) {
+      return false;
+    }
+
+    if (grain.data == null || grain.data.length < cmpSize) {
+      grain.data = new byte[cmpSize];
+    }
+    readGrainData(grain.data, cmpSize);
+    grain.length = cmpSize;
+    grain.lba = currentLba;
+    return true;
+  }
+
+  /**
+   * Inflates a compressed grain. The inflater is reset first, so it can be reused across grains.
+   *
+   * @return the size of the inflated grain
+   */
+  public static int inflate(Inflater inflater, byte[] cmpBytes, int cmpSize, byte[] grain)
+      throws VmdkFormatException {
+    inflater.reset();
+    inflater.setInput(cmpBytes, 0, cmpSize);
+    try {
+      return inflater.inflate(grain);
+    } catch (DataFormatException e) {
+      throw new VmdkFormatException("Zlib error: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Reads grain headers until a data grain, a progress marker or the end of stream marker is found.
+   *
+   * @param skipProgressMarkers whether to keep reading after a progress marker rather than returning 0
+   * @return the compressed size of the data grain, 0 for a progress marker, or -1 at the end of the stream
+   */
+  private int readNextGrainHeader(int grainSizeBytes, boolean skipProgressMarkers)
+      throws VmdkFormatException, IOException {
+    grainHeader.clear();
+    readFully(grainHeader.array());
+    long sector = grainHeader.getLong();
+    int cmpSize = grainHeader.getInt();
 
     // Sanity check
-    if (cmpSize > grain.length * 3) {
+    if (cmpSize > grainSizeBytes * 3) {
       throw new VmdkFormatException("Disk format error: Invalid grain size");
     }
 
     while (cmpSize == 0) {
       // Metadata grain
-      byte[] metadataBytes = new byte[512 - 12];
-      readFully(metadataBytes);
-      ByteBuffer metadata = ByteBuffer.wrap(metadataBytes);
-      metadata.order(ByteOrder.LITTLE_ENDIAN);
+      metadata.clear();
+      readFully(metadata.array());
       int type = metadata.getInt();
       long value = metadata.getLong();
       if (type == SparseUtil.GRAIN_MARKER_EOS) {
+        inflater.end();
         input.close();
         return -1; // End of stream
       }
       if (type == SparseUtil.GRAIN_MARKER_PROGRESS) {
         // Update current LBA, and let the caller know something's happening.
         currentLba = value;
-        return 0;
+        if (!skipProgressMarkers) {
+          return 0;
+        }
       }
-      // Some other metadata grain (GT/GD). Skip to next grain and retry from there.
+      // Some other metadata grain (GT/GD), or a skipped progress marker which has no sectors of its own. Skip to
+      // next grain and retry from there.
       long toSkip = sector * 512;
       while (toSkip > 0) {
         toSkip -= input.skip(toSkip);
       }
-      readFully(headerBytes);
-      header = ByteBuffer.wrap(headerBytes);
-      header.order(ByteOrder.LITTLE_ENDIAN);
-      sector = header.getLong();
-      cmpSize = header.getInt();
+      grainHeader.clear();
+      readFully(grainHeader.array());
+      sector = grainHeader.getLong();
+      cmpSize = grainHeader.getInt();
     }
     assert cmpSize > 0;
-    byte[] cmpBytes = new byte[cmpSize];
-    readFully(cmpBytes);
-    Inflater inf = new Inflater();
-    inf.setInput(cmpBytes);
-    int grainSize = -1;
+    currentLba = sector;
+    return cmpSize;
+  }
+
+  /**
+   * Reads the compressed data of a grain and skips its padding.
+   */
+  private void readGrainData(byte[] cmpBytes, int cmpSize) throws VmdkFormatException, IOException {
     try {
-      grainSize = inf.inflate(grain);
-    } catch (DataFormatException e) {
-      throw new VmdkFormatException("Zlib error: " + e.getMessage(), e);
+      input.readFully(cmpBytes, 0, cmpSize);
+    } catch (EOFException e) {
+      throw new VmdkFormatException("Unexpected end of file", e);
     }
-    inf.end();
 
     long totalGrainSize = 12 + cmpSize;
     long paddingSize = ((totalGrainSize + 512 - 1) / 512) * 512 - totalGrainSize;
     while (paddingSize > 0) {
       paddingSize -= input.skip(paddingSize);
     }
-    currentLba = sector;
-    return grainSize;
   }
 
   private void readFully(byte[] buffer) throws IOException, VmdkFormatException {
@@ -232,6 +300,17 @@ public class StreamVmdkReader {
   }
 
   public void close() throws IOException {
+    inflater.end();
     input.close();
   }
+
+  /**
+   * A data grain as read from the stream, before inflation. The buffer is reused across grains and may be
+   * larger than the compressed data.
+   */
+  public static class CompressedGrain {
+    public long lba;
+    public byte[] data;
+    public int length;
+  }
 }
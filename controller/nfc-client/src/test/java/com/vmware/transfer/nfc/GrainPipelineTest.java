@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.nfc;
+
+import com.vmware.transfer.streamVmdk.StreamVmdkReader;
+import com.vmware.transfer.streamVmdk.VmdkFormatException;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Tests {@link GrainPipeline}.
+ */
+public class GrainPipelineTest {
+
+  private static final int GRAIN_COUNT = 100;
+
+  @DataProvider(name = "pipelineSizes")
+  public Object[][] getPipelineSizes() {
+    return new Object[][]{
+        {1, 1},
+        {1, 8},
+        {4, 2},
+        {4, 32},
+    };
+  }
+
+  @Test(dataProvider = "pipelineSizes")
+  public void testTransferMatchesSerialRead(int inflaterCount, int readAheadGrains) throws Exception {
+    byte[] vmdk = StreamVmdkGenerator.generate(GRAIN_COUNT, 3, 42);
+    byte[] expected = readSerially(vmdk);
+
+    byte[] actual = new byte[expected.length];
+    long[] nextLba = new long[1];
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    try (GrainPipeline pipeline = new GrainPipeline(reader, inflaterCount, readAheadGrains)) {
+      long grainCount = pipeline.transfer((lba, data, offset) -> {
+        assertThat(lba >= nextLba[0], is(true));
+        nextLba[0] = lba + 1;
+        System.arraycopy(data, offset, actual, (int) lba * SparseUtil.DISKLIB_SECTOR_SIZE,
+            SparseUtil.DISKLIB_SECTOR_SIZE);
+      });
+      assertThat(grainCount, is((long) GRAIN_COUNT));
+    }
+
+    assertThat(Arrays.equals(actual, expected), is(true));
+  }
+
+  @Test
+  public void testProgressMarkersAreSkipped() throws Exception {
+    byte[] expected = readSerially(StreamVmdkGenerator.generate(GRAIN_COUNT, 3, 42));
+    byte[] vmdk = StreamVmdkGenerator.generate(GRAIN_COUNT, 3, 42, 7);
+    assertThat(vmdk.length > StreamVmdkGenerator.generate(GRAIN_COUNT, 3, 42).length, is(true));
+
+    byte[] actual = new byte[expected.length];
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    try (GrainPipeline pipeline = new GrainPipeline(reader, 2, 4)) {
+      long grainCount = pipeline.transfer((lba, data, offset) ->
+          System.arraycopy(data, offset, actual, (int) lba * SparseUtil.DISKLIB_SECTOR_SIZE,
+              SparseUtil.DISKLIB_SECTOR_SIZE));
+      assertThat(grainCount, is((long) GRAIN_COUNT));
+    }
+
+    assertThat(Arrays.equals(actual, expected), is(true));
+  }
+
+  @Test
+  public void testZeroGrainsAreSkipped() throws Exception {
+    byte[] vmdk = StreamVmdkGenerator.generate(GRAIN_COUNT, 2, 42);
+    int[] writtenSectors = new int[1];
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    try (GrainPipeline pipeline = new GrainPipeline(reader, 2, 4)) {
+      pipeline.transfer((lba, data, offset) -> {
+        int grainIndex = (int) (lba / SparseUtil.DEFAULT_GRAIN_SIZE);
+        assertThat(StreamVmdkGenerator.isZeroGrain(grainIndex, 2), is(false));
+        writtenSectors[0]++;
+      });
+    }
+
+    assertThat(writtenSectors[0], is(GRAIN_COUNT / 2 * SparseUtil.DEFAULT_GRAIN_SIZE));
+  }
+
+  @Test(expectedExceptions = VmdkFormatException.class)
+  public void testCorruptGrain() throws Exception {
+    byte[] vmdk = StreamVmdkGenerator.generate(GRAIN_COUNT, 0, 42);
+    // Break the zlib header of the first grain, which follows the header and descriptor grain
+    int offset = SparseUtil.DEFAULT_GRAIN_SIZE_BYTES + SparseUtil.STREAMED_GRAIN_HEADER_SIZE;
+    vmdk[offset] = 0;
+    vmdk[offset + 1] = 0;
+
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    try (GrainPipeline pipeline = new GrainPipeline(reader, 2, 4)) {
+      pipeline.transfer((lba, data, sectorOffset) -> {
+      });
+    }
+  }
+
+  @Test
+  public void testWriterFailure() throws Exception {
+    byte[] vmdk = StreamVmdkGenerator.generate(GRAIN_COUNT, 0, 42);
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    try (GrainPipeline pipeline = new GrainPipeline(reader, 2, 4)) {
+      pipeline.transfer((lba, data, offset) -> {
+        if (lba == SparseUtil.DEFAULT_GRAIN_SIZE * 10) {
+          throw new IOException("Broken pipe");
+        }
+      });
+      fail("transfer should fail when the writer fails");
+    } catch (IOException e) {
+      assertThat(e.getMessage(), is("Broken pipe"));
+    }
+  }
+
+  private static byte[] readSerially(byte[] vmdk) throws Exception {
+    StreamVmdkReader reader = new StreamVmdkReader(new ByteArrayInputStream(vmdk));
+    byte[] disk = new byte[(int) reader.getCapacityInSectors() * SparseUtil.DISKLIB_SECTOR_SIZE];
+    byte[] grain = new byte[reader.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE];
+    int grainSize = reader.getNextGrain(grain);
+    while (grainSize >= 0) {
+      if (grainSize > 0) {
+        System.arraycopy(grain, 0, disk, (int) reader.getCurrentLba() * SparseUtil.DISKLIB_SECTOR_SIZE, grainSize);
+      }
+      grainSize = reader.getNextGrain(grain);
+    }
+    return disk;
+  }
+}
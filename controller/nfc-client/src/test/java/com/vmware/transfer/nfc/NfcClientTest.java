@@ -23,17 +23,17 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * Tests {@link com.vmware.transfer.nfc.NfcClient}.
@@ -43,30 +43,28 @@ public class NfcClientTest extends PowerMockTestCase {
   @Test
   public void testPutStreamOptimizedDisk() throws Exception {
     NfcClient nfcClient = spy(new NfcClient());
-    StreamVmdkReader disk = mock(StreamVmdkReader.class);
     DiskWriter writer = mock(DiskWriter.class);
 
-    InputStream inputStream = new ByteArrayInputStream("test content".getBytes());
+    // 512 grains of 128 sectors, the first grain and every 4th after it only contain zeros
+    InputStream inputStream = new ByteArrayInputStream(StreamVmdkGenerator.generate(512, 4, 0));
+    StreamVmdkReader disk = new StreamVmdkReader(inputStream);
     doReturn(disk).when(nfcClient).getStreamVmdkReader(inputStream);
-    when(disk.getAdapterType()).thenReturn("buslogic");
-    when(disk.getCapacityInSectors()).thenReturn(65536L);
-    Map<String, String> ddb = new LinkedHashMap<>();
-    when(disk.getDdb()).thenReturn(ddb);
     doReturn(writer).when(nfcClient).putDisk("image destination path", "buslogic", 65536L);
 
-    byte[] grain = new byte[disk.getGrainSize() * SparseUtil.DISKLIB_SECTOR_SIZE];
-    when(disk.getNextGrain(grain)).thenReturn(65536, -1);
-    when(disk.getCurrentLba()).thenReturn(0L);
-
     long bytes = nfcClient.putStreamOptimizedDisk("image destination path", inputStream);
     assertThat(bytes, is(33554432L));
 
     InOrder inOrder = inOrder(writer, nfcClient);
-    inOrder.verify(writer).writeDdb(ddb);
-    inOrder.verify(writer, times(128)).writeGrain(anyLong(), any(byte[].class), anyInt());
+    inOrder.verify(writer).writeDdb(disk.getDdb());
+    inOrder.verify(writer, times(384 * 128)).writeGrain(anyLong(), any(byte[].class), anyInt());
     inOrder.verify(writer).finalizeWrite();
     inOrder.verify(nfcClient).close();
     inOrder.verify(writer).close();
     inOrder.verify(nfcClient).abort();
+
+    // zero grains are skipped, the sectors of the other grains are written in order
+    verify(writer, never()).writeGrain(eq(0L), any(byte[].class), anyInt());
+    verify(writer).writeGrain(eq(128L), any(byte[].class), eq(0));
+    verify(writer).writeGrain(eq(65535L), any(byte[].class), eq(65024));
   }
 }
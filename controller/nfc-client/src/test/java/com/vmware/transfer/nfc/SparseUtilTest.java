@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.nfc;
+
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tests {@link SparseUtil}.
+ */
+public class SparseUtilTest {
+
+  @Test
+  public void testIsZero() {
+    byte[] data = new byte[SparseUtil.DISKLIB_SECTOR_SIZE + 13];
+    assertThat(SparseUtil.isZero(data, 0, data.length), is(true));
+    assertThat(SparseUtil.isZero(data, 3, 0), is(true));
+
+    // every byte is checked, including the ones that do not fill a whole word
+    for (int i = 0; i < data.length; i++) {
+      data[i] = 1;
+      assertThat(SparseUtil.isZero(data, 0, data.length), is(false));
+      data[i] = 0;
+    }
+
+    // bytes outside of the range are ignored
+    data[0] = 1;
+    data[data.length - 1] = 1;
+    assertThat(SparseUtil.isZero(data, 1, data.length - 2), is(true));
+    assertThat(SparseUtil.isZero(data, 1, data.length - 1), is(false));
+  }
+
+  @Test
+  public void testIsZeroOnWrappedArray() {
+    byte[] data = new byte[2 * SparseUtil.DISKLIB_SECTOR_SIZE + 5];
+    ByteBuffer buffer = SparseUtil.wrap(data);
+    data[SparseUtil.DISKLIB_SECTOR_SIZE + 1] = 1;
+
+    assertThat(SparseUtil.isZero(buffer, 0, SparseUtil.DISKLIB_SECTOR_SIZE), is(true));
+    assertThat(SparseUtil.isZero(buffer, SparseUtil.DISKLIB_SECTOR_SIZE, SparseUtil.DISKLIB_SECTOR_SIZE), is(false));
+    assertThat(SparseUtil.isZero(buffer, SparseUtil.DISKLIB_SECTOR_SIZE + 2, SparseUtil.DISKLIB_SECTOR_SIZE + 3),
+        is(true));
+
+    // the buffer sees later changes of the array
+    data[3] = 1;
+    assertThat(SparseUtil.isZero(buffer, 0, SparseUtil.DISKLIB_SECTOR_SIZE), is(false));
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.transfer.nfc;
+
+import com.vmware.transfer.streamVmdk.StreamVmdkWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * Generates stream-optimized VMDKs for tests and benchmarks.
+ */
+public class StreamVmdkGenerator {
+
+  /**
+   * Generates a disk of the given number of grains. Every zeroEvery-th grain is written as a data grain full of
+   * zeros (0 for none); the other grains hold pseudo-random data that compresses about 2:1.
+   */
+  public static byte[] generate(int grainCount, int zeroEvery, long seed) throws IOException {
+    return generate(grainCount, zeroEvery, seed, 0);
+  }
+
+  /**
+   * Same as {@link #generate(int, int, long)}, with a progress marker after every progressEvery-th grain (0 for
+   * none), like the ones written by a slow writer.
+   */
+  public static byte[] generate(int grainCount, int zeroEvery, long seed, int progressEvery) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StreamVmdkWriter writer = new StreamVmdkWriter(output, (long) grainCount * SparseUtil.DEFAULT_GRAIN_SIZE);
+    writer.writeHeader(1, new LinkedHashMap<>());
+    Random random = new Random(seed);
+    for (int i = 0; i < grainCount; i++) {
+      writer.writeDataGrain((long) i * SparseUtil.DEFAULT_GRAIN_SIZE, grain(random, isZeroGrain(i, zeroEvery)));
+      if (progressEvery > 0 && i % progressEvery == 0) {
+        output.write(progressMarker((long) (i + 1) * SparseUtil.DEFAULT_GRAIN_SIZE));
+      }
+    }
+    writer.writeTrailer();
+    writer.close();
+    return output.toByteArray();
+  }
+
+  public static boolean isZeroGrain(int grainIndex, int zeroEvery) {
+    return zeroEvery > 0 && grainIndex % zeroEvery == 0;
+  }
+
+  private static byte[] progressMarker(long sector) {
+    ByteBuffer marker = ByteBuffer.allocate(SparseUtil.DISKLIB_SECTOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    marker.putLong(0); // size of metadata (in sectors)
+    marker.putInt(0); // metadata marker
+    marker.putInt(SparseUtil.GRAIN_MARKER_PROGRESS);
+    marker.putLong(sector);
+    return marker.array();
+  }
+
+  private static byte[] grain(Random random, boolean isZero) {
+    byte[] grain = new byte[SparseUtil.DEFAULT_GRAIN_SIZE_BYTES];
+    if (!isZero) {
+      for (int i = 0; i < grain.length; i++) {
+        grain[i] = (byte) random.nextInt(16);
+      }
+    }
+    return grain;
+  }
+}
@@ -18,6 +18,8 @@ import com.vmware.photon.controller.nsxclient.apis.FabricApi;
 import com.vmware.photon.controller.nsxclient.apis.LogicalRouterApi;
 import com.vmware.photon.controller.nsxclient.apis.LogicalSwitchApi;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
@@ -25,6 +27,7 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
@@ -46,6 +49,7 @@ public class NsxClient {
   private final LogicalSwitchApi logicalSwitchApi;
   private final LogicalRouterApi logicalRouterApi;
   private final DhcpServiceApi dhcpServiceApi;
+  private final NsxStatusPoller statusPoller;
 
   /**
    * Constructs a NSX client.
@@ -53,16 +57,28 @@ public class NsxClient {
   public NsxClient(String target,
                    String username,
                    String password) {
-    if (!target.startsWith("https")) {
-      target = "https://" + target;
-    }
+    this(new RestClient(target.startsWith("https") ? target : "https://" + target, username, password));
+  }
 
-    this.restClient = new RestClient(target, username, password);
+  /**
+   * Constructs a NSX client on the given REST client, whatever the scheme of its target.
+   */
+  @VisibleForTesting
+  NsxClient(RestClient restClient) {
+    this.restClient = restClient;
 
     this.fabricApi = new FabricApi(restClient);
     this.logicalSwitchApi = new LogicalSwitchApi(restClient);
     this.logicalRouterApi = new LogicalRouterApi(restClient);
     this.dhcpServiceApi = new DhcpServiceApi(restClient);
+    this.statusPoller = new NsxStatusPoller(this);
+  }
+
+  /**
+   * Closes the connections of the client and stops its I/O threads. The client cannot be used afterwards.
+   */
+  public void close() throws IOException {
+    this.restClient.close();
   }
 
   /**
@@ -93,6 +109,13 @@ public class NsxClient {
     return this.dhcpServiceApi;
   }
 
+  /**
+   * Returns the poller which waits on NSX objects for all the tasks using this client.
+   */
+  public NsxStatusPoller getStatusPoller() {
+    return this.statusPoller;
+  }
+
   /**
    * Returns a poll delay value in milliseconds. The delay is used as the interval to poll
    * the status of a created logical switch before we can claim the creation successful.
@@ -14,11 +14,11 @@
 package com.vmware.photon.controller.nsxclient;
 
 /**
- * Factory for instances of {@link NsxClient}.
+ * Factory for instances of {@link NsxClient}. The clients are shared through {@link NsxClientRegistry}.
  */
 public class NsxClientFactory {
 
   public NsxClient create(String endpoint, String username, String password) {
-    return new NsxClient(endpoint, username, password);
+    return NsxClientRegistry.INSTANCE.getNsxClient(endpoint, username, password);
   }
 }
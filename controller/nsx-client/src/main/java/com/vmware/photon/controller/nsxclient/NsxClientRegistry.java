@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.nsxclient;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The NSX clients of the process, one per NSX endpoint and user. Every client owns an HTTP client with its I/O
+ * threads, TLS context and connection pool, so sharing them lets all the tasks talking to an NSX manager reuse its
+ * connections, stay within its in-flight request limit and wait on its objects through one status poller.
+ *
+ * When the password of a user changes, the client using the old password is replaced and closed, so that its threads
+ * and connections are not left behind.
+ */
+public class NsxClientRegistry {
+
+  public static final NsxClientRegistry INSTANCE = new NsxClientRegistry();
+
+  private final ConcurrentMap<List<String>, Entry> nsxClients = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the client of an NSX endpoint, creating it on first use or when the password changed.
+   */
+  public NsxClient getNsxClient(String endpoint, String username, String password) {
+    HashCode passwordHash = Hashing.sha256().hashString(password, Charsets.UTF_8);
+    Entry[] replaced = new Entry[1];
+    Entry entry = nsxClients.compute(ImmutableList.of(endpoint, username), (key, current) -> {
+      if (current != null && current.passwordHash.equals(passwordHash)) {
+        return current;
+      }
+      replaced[0] = current;
+      return new Entry(passwordHash, createNsxClient(endpoint, username, password));
+    });
+
+    if (replaced[0] != null) {
+      try {
+        replaced[0].nsxClient.close();
+      } catch (IOException e) {
+        // the client is dropped either way
+      }
+    }
+    return entry.nsxClient;
+  }
+
+  @VisibleForTesting
+  protected NsxClient createNsxClient(String endpoint, String username, String password) {
+    return new NsxClient(endpoint, username, password);
+  }
+
+  /**
+   * A client and the hash of the password it was created with.
+   */
+  private static class Entry {
+    private final HashCode passwordHash;
+    private final NsxClient nsxClient;
+
+    private Entry(HashCode passwordHash, NsxClient nsxClient) {
+      this.passwordHash = passwordHash;
+      this.nsxClient = nsxClient;
+    }
+  }
+}
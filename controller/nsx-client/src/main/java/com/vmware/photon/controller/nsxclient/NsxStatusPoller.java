@@ -0,0 +1,299 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.nsxclient;
+
+import com.vmware.photon.controller.nsxclient.datatypes.NsxSwitch;
+import com.vmware.photon.controller.nsxclient.models.LogicalSwitchState;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Polls NSX for the objects tasks are waiting on. Rather than every task polling its own object, the waiting tasks
+ * register with the poller of their NSX client, and each sweep checks all the objects of a kind with a single
+ * listing. A sweep is only scheduled while some task is waiting.
+ *
+ * The callbacks are called on the thread which completed the listing; a failed listing fails every task waiting on
+ * an object of that kind. A task waiting on an object which is missing from {@link #MAX_MISSED_SWEEPS} listings in a
+ * row fails too, as the object was deleted or never made it to NSX.
+ */
+public class NsxStatusPoller {
+
+  /**
+   * The number of listings in a row an object may be missing from before the tasks waiting on it fail. NSX may not
+   * list an object right after it is created, so a single miss is not enough.
+   */
+  public static final int MAX_MISSED_SWEEPS = 3;
+
+  /**
+   * Sweeps only send requests and never block, so one thread serves the pollers of all the NSX clients.
+   */
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("NsxStatusPoller-%d").setDaemon(true).build());
+
+  private final Sweep<LogicalSwitchState> logicalSwitchConfigurations;
+  private final Sweep<Void> logicalPortDeletions;
+  private final Sweep<Void> logicalRouterPortDeletions;
+
+  /**
+   * Constructs a poller which reaches NSX through the given client.
+   */
+  public NsxStatusPoller(NsxClient nsxClient) {
+    this.logicalSwitchConfigurations = new Sweep<>(
+        "Logical switch",
+        nsxClient::getCreateLogicalSwitchPollDelay,
+        (ids, callback) -> nsxClient.getLogicalSwitchApi().getLogicalSwitchStates(ids,
+            new FutureCallback<Map<String, LogicalSwitchState>>() {
+              @Override
+              public void onSuccess(Map<String, LogicalSwitchState> states) {
+                Result<LogicalSwitchState> result = new Result<>();
+                for (String id : ids) {
+                  LogicalSwitchState state = states.get(id);
+                  if (state == null) {
+                    result.missing.add(id);
+                  } else if (state.getState() != NsxSwitch.State.PENDING
+                      && state.getState() != NsxSwitch.State.IN_PROGRESS) {
+                    result.done.put(id, state);
+                  }
+                }
+                callback.onSuccess(result);
+              }
+
+              @Override
+              public void onFailure(Throwable t) {
+                callback.onFailure(t);
+              }
+            }));
+
+    this.logicalPortDeletions = new Sweep<>(
+        "Logical port",
+        nsxClient::getDeleteLogicalPortPollDelay,
+        (ids, callback) -> nsxClient.getLogicalSwitchApi().checkLogicalSwitchPortsExistence(ids,
+            new DeletedCallback(ids, callback)));
+
+    this.logicalRouterPortDeletions = new Sweep<>(
+        "Logical router port",
+        nsxClient::getDeleteLogicalPortPollDelay,
+        (ids, callback) -> nsxClient.getLogicalRouterApi().checkLogicalRouterPortsExistence(ids,
+            new DeletedCallback(ids, callback)));
+  }
+
+  /**
+   * Waits until NSX has finished configuring a logical switch. The callback gets the final configuration state,
+   * which may be a failure state.
+   */
+  public void waitForLogicalSwitchConfiguration(String id, FutureCallback<LogicalSwitchState> responseCallback) {
+    logicalSwitchConfigurations.add(id, responseCallback);
+  }
+
+  /**
+   * Waits until a logical switch port is gone.
+   */
+  public void waitForLogicalPortDeletion(String id, FutureCallback<Void> responseCallback) {
+    logicalPortDeletions.add(id, responseCallback);
+  }
+
+  /**
+   * Waits until a logical router port is gone.
+   */
+  public void waitForLogicalRouterPortDeletion(String id, FutureCallback<Void> responseCallback) {
+    logicalRouterPortDeletions.add(id, responseCallback);
+  }
+
+  /**
+   * Checks a set of objects with one request to NSX.
+   *
+   * @param <T> the result type
+   */
+  private interface Check<T> {
+    void check(Set<String> ids, FutureCallback<Result<T>> responseCallback) throws IOException;
+  }
+
+  /**
+   * The outcome of a check: the results of the objects which are done, and the objects NSX did not list.
+   *
+   * @param <T> the result type
+   */
+  private static class Result<T> {
+    private final Map<String, T> done = new HashMap<>();
+    private final Set<String> missing = new HashSet<>();
+  }
+
+  /**
+   * Turns the ports which still exist into the ports which are done, that is deleted.
+   */
+  private static class DeletedCallback implements FutureCallback<Set<String>> {
+    private final Set<String> ids;
+    private final FutureCallback<Result<Void>> responseCallback;
+
+    private DeletedCallback(Set<String> ids, FutureCallback<Result<Void>> responseCallback) {
+      this.ids = ids;
+      this.responseCallback = responseCallback;
+    }
+
+    @Override
+    public void onSuccess(Set<String> existingIds) {
+      Result<Void> deleted = new Result<>();
+      for (String id : ids) {
+        if (!existingIds.contains(id)) {
+          deleted.done.put(id, null);
+        }
+      }
+      responseCallback.onSuccess(deleted);
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+      responseCallback.onFailure(t);
+    }
+  }
+
+  /**
+   * The objects of one kind which tasks are waiting on, and the sweeps checking them.
+   *
+   * @param <T> the result type
+   */
+  private static class Sweep<T> {
+    private final String kind;
+    private final IntSupplier pollDelay;
+    private final Check<T> check;
+    private final Map<String, List<FutureCallback<T>>> waiters = new HashMap<>();
+    private final Map<String, Integer> misses = new HashMap<>();
+    private boolean scheduled;
+
+    private Sweep(String kind, IntSupplier pollDelay, Check<T> check) {
+      this.kind = kind;
+      this.pollDelay = pollDelay;
+      this.check = check;
+    }
+
+    private void add(String id, FutureCallback<T> responseCallback) {
+      synchronized (this) {
+        waiters.computeIfAbsent(id, key -> new ArrayList<>()).add(responseCallback);
+        if (!scheduled) {
+          scheduled = true;
+          schedule();
+        }
+      }
+    }
+
+    private void schedule() {
+      scheduler.schedule(this::sweep, pollDelay.getAsInt(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks the objects waited on when the sweep started; objects added meanwhile are left to the next sweep.
+     */
+    private void sweep() {
+      Set<String> ids;
+      synchronized (this) {
+        ids = new HashSet<>(waiters.keySet());
+      }
+
+      try {
+        check.check(ids, new FutureCallback<Result<T>>() {
+          @Override
+          public void onSuccess(Result<T> result) {
+            try {
+              for (Map.Entry<String, T> done : result.done.entrySet()) {
+                for (FutureCallback<T> responseCallback : remove(done.getKey())) {
+                  responseCallback.onSuccess(done.getValue());
+                }
+              }
+              for (String id : ids) {
+                if (!result.missing.contains(id)) {
+                  clearMisses(id);
+                } else if (miss(id) >= MAX_MISSED_SWEEPS) {
+                  RuntimeException notFound = new RuntimeException(String.format("%s %s not found", kind, id));
+                  for (FutureCallback<T> responseCallback : remove(id)) {
+                    responseCallback.onFailure(notFound);
+                  }
+                }
+              }
+            } finally {
+              reschedule();
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            fail(ids, t);
+          }
+        });
+      } catch (Throwable t) {
+        fail(ids, t);
+      }
+    }
+
+    private void fail(Set<String> ids, Throwable t) {
+      try {
+        for (String id : ids) {
+          for (FutureCallback<T> responseCallback : remove(id)) {
+            responseCallback.onFailure(t);
+          }
+        }
+      } finally {
+        reschedule();
+      }
+    }
+
+    /**
+     * Counts a listing the object was missing from, and returns the number of such listings in a row.
+     */
+    private int miss(String id) {
+      synchronized (this) {
+        if (!waiters.containsKey(id)) {
+          return 0;
+        }
+        return misses.merge(id, 1, Integer::sum);
+      }
+    }
+
+    private void clearMisses(String id) {
+      synchronized (this) {
+        misses.remove(id);
+      }
+    }
+
+    private List<FutureCallback<T>> remove(String id) {
+      synchronized (this) {
+        misses.remove(id);
+        List<FutureCallback<T>> responseCallbacks = waiters.remove(id);
+        return responseCallbacks == null ? new ArrayList<>() : responseCallbacks;
+      }
+    }
+
+    private void reschedule() {
+      synchronized (this) {
+        if (waiters.isEmpty()) {
+          scheduled = false;
+        } else {
+          schedule();
+        }
+      }
+    }
+  }
+}
@@ -58,6 +58,13 @@ public class RestClient {
     DELETE
   }
 
+  /**
+   * The most requests sent to NSX at a time by one client. The client opens a connection per request in flight, and
+   * requests beyond this wait in the client for a connection to be released, so a burst of tasks cannot open an
+   * unbounded number of connections to NSX.
+   */
+  public static final int MAX_IN_FLIGHT_REQUESTS = 16;
+
   private final String target;
   private final HttpClientContext clientContext;
   private final CloseableHttpAsyncClient asyncClient;
@@ -102,6 +109,13 @@ public class RestClient {
     return this.asyncClient.execute(request, this.clientContext, responseHandler);
   }
 
+  /**
+   * Closes the HTTP client, which stops its I/O threads and closes its connections. Requests in flight fail.
+   */
+  public void close() throws IOException {
+    this.asyncClient.close();
+  }
+
   /**
    * Performs sanity check on the HTTP response code.
    */
@@ -188,6 +202,8 @@ public class RestClient {
       CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClientBuilder.create()
           .setHostnameVerifier(SSLIOSessionStrategy.ALLOW_ALL_HOSTNAME_VERIFIER)
           .setSSLContext(sslcontext)
+          .setMaxConnPerRoute(MAX_IN_FLIGHT_REQUESTS)
+          .setMaxConnTotal(MAX_IN_FLIGHT_REQUESTS)
           .build();
       httpAsyncClient.start();
       return httpAsyncClient;
@@ -22,6 +22,7 @@ import com.vmware.photon.controller.nsxclient.models.LogicalRouterLinkPortOnTier
 import com.vmware.photon.controller.nsxclient.models.LogicalRouterLinkPortOnTier0CreateSpec;
 import com.vmware.photon.controller.nsxclient.models.LogicalRouterLinkPortOnTier1;
 import com.vmware.photon.controller.nsxclient.models.LogicalRouterLinkPortOnTier1CreateSpec;
+import com.vmware.photon.controller.nsxclient.models.LogicalRouterPort;
 import com.vmware.photon.controller.nsxclient.models.LogicalRouterPortListResult;
 import com.vmware.photon.controller.nsxclient.models.NatRule;
 import com.vmware.photon.controller.nsxclient.models.NatRuleCreateSpec;
@@ -33,6 +34,8 @@ import com.google.common.util.concurrent.FutureCallback;
 import org.apache.http.HttpStatus;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * This is the class of the NSX Logical Router API implementation.
@@ -179,6 +182,40 @@ public class LogicalRouterApi extends NsxClientApi {
         responseCallback);
   }
 
+  /**
+   * Checks the existence of the given logical router ports with one listing of all the router ports, and returns the
+   * ones which still exist.
+   */
+  public void checkLogicalRouterPortsExistence(Set<String> ids,
+                                               FutureCallback<Set<String>> responseCallback)
+      throws IOException {
+    Set<String> existingIds = new HashSet<>();
+    getAllPagesAsync(LOGICAL_ROUTER_PORTS_BASE_PATH,
+        new TypeReference<LogicalRouterPortListResult>() {
+        },
+        LogicalRouterPortListResult::getCursor,
+        page -> {
+          if (page.getLogicalRouterPorts() != null) {
+            page.getLogicalRouterPorts().stream()
+                .map(LogicalRouterPort::getId)
+                .filter(ids::contains)
+                .forEach(existingIds::add);
+          }
+        },
+        new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void result) {
+            responseCallback.onSuccess(existingIds);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            responseCallback.onFailure(t);
+          }
+        }
+    );
+  }
+
   /**
    * Creates a NAT rule on the associated logical router.
    */
@@ -20,12 +20,17 @@ import com.vmware.photon.controller.nsxclient.models.LogicalPortListResult;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitch;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitchCreateSpec;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitchState;
+import com.vmware.photon.controller.nsxclient.models.LogicalSwitchStateListResult;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.util.concurrent.FutureCallback;
 import org.apache.http.HttpStatus;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This is the class of the NSX Logical Switch API implementation.
@@ -71,6 +76,39 @@ public class LogicalSwitchApi extends NsxClientApi {
     );
   }
 
+  /**
+   * Gets the states of the given logical switches with one listing of the states of all logical switches. Switches
+   * NSX does not report a state for are left out of the result.
+   */
+  public void getLogicalSwitchStates(Set<String> ids,
+                                     FutureCallback<Map<String, LogicalSwitchState>> responseCallback)
+      throws IOException {
+    Map<String, LogicalSwitchState> states = new HashMap<>();
+    getAllPagesAsync(LOGICAL_SWITCHS_BASE_PATH + "/state",
+        new TypeReference<LogicalSwitchStateListResult>() {
+        },
+        LogicalSwitchStateListResult::getCursor,
+        page -> {
+          if (page.getLogicalSwitchStates() != null) {
+            page.getLogicalSwitchStates().stream()
+                .filter(state -> ids.contains(state.getId()))
+                .forEach(state -> states.put(state.getId(), state));
+          }
+        },
+        new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void result) {
+            responseCallback.onSuccess(states);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            responseCallback.onFailure(t);
+          }
+        }
+    );
+  }
+
   /**
    * Gets list of ports associated with the switch.
    */
@@ -148,6 +186,40 @@ public class LogicalSwitchApi extends NsxClientApi {
         responseCallback);
   }
 
+  /**
+   * Checks the existence of the given logical switch ports with one listing of all the ports, and returns the ones
+   * which still exist.
+   */
+  public void checkLogicalSwitchPortsExistence(Set<String> ids,
+                                               FutureCallback<Set<String>> responseCallback)
+      throws IOException {
+    Set<String> existingIds = new HashSet<>();
+    getAllPagesAsync(LOGICAL_PORTS_BASE_PATH,
+        new TypeReference<LogicalPortListResult>() {
+        },
+        LogicalPortListResult::getCursor,
+        page -> {
+          if (page.getLogicalPorts() != null) {
+            page.getLogicalPorts().stream()
+                .map(LogicalPort::getId)
+                .filter(ids::contains)
+                .forEach(existingIds::add);
+          }
+        },
+        new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void result) {
+            responseCallback.onSuccess(existingIds);
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            responseCallback.onFailure(t);
+          }
+        }
+    );
+  }
+
   /**
    * Check the existence of a logical switch port.
    */
@@ -28,6 +28,9 @@ import org.apache.http.entity.StringEntity;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * This is the base class of the NSX client API implementations, and
@@ -311,6 +314,57 @@ public class NsxClientApi {
     );
   }
 
+  /**
+   * Performs GET HTTP requests to NSX for all the pages of a list. NSX returns a cursor with every page but the
+   * last, and the next page is requested with it once the current page has been consumed.
+   */
+  protected <T> void getAllPagesAsync(final String path,
+                                      final TypeReference<T> typeReference,
+                                      final Function<T, String> cursorGetter,
+                                      final Consumer<T> pageConsumer,
+                                      final FutureCallback<Void> responseCallback) throws IOException {
+    getPageAsync(path, null, typeReference, cursorGetter, pageConsumer, responseCallback);
+  }
+
+  private <T> void getPageAsync(final String path,
+                                final String cursor,
+                                final TypeReference<T> typeReference,
+                                final Function<T, String> cursorGetter,
+                                final Consumer<T> pageConsumer,
+                                final FutureCallback<Void> responseCallback) throws IOException {
+    String pagePath = cursor == null ? path
+        : path + (path.contains("?") ? "&" : "?") + "cursor=" + URLEncoder.encode(cursor, "UTF-8");
+    getAsync(pagePath,
+        HttpStatus.SC_OK,
+        typeReference,
+        new FutureCallback<T>() {
+          @Override
+          public void onSuccess(T page) {
+            String nextCursor;
+            try {
+              pageConsumer.accept(page);
+              nextCursor = cursorGetter.apply(page);
+              if (nextCursor != null && !nextCursor.isEmpty()) {
+                getPageAsync(path, nextCursor, typeReference, cursorGetter, pageConsumer, responseCallback);
+              }
+            } catch (Throwable t) {
+              responseCallback.onFailure(t);
+              return;
+            }
+
+            if (nextCursor == null || nextCursor.isEmpty()) {
+              responseCallback.onSuccess(null);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            responseCallback.onFailure(t);
+          }
+        }
+    );
+  }
+
   /**
    * Serializes HTTP request to JSON string.
    */
@@ -27,6 +27,9 @@ public class LogicalPortListResult {
   @JsonProperty(value = "result_count", required = true)
   private Integer resultCount;
 
+  @JsonProperty(value = "cursor", required = false)
+  private String cursor;
+
   @JsonProperty(value = "results", required = true)
   private List<LogicalPort> logicalPorts;
 
@@ -38,6 +41,14 @@ public class LogicalPortListResult {
     this.resultCount = resultCount;
   }
 
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
   public List<LogicalPort> getLogicalPorts() {
     return logicalPorts;
   }
@@ -58,12 +69,13 @@ public class LogicalPortListResult {
 
     LogicalPortListResult other = (LogicalPortListResult) o;
     return Objects.equals(this.resultCount, other.resultCount)
+        && Objects.equals(this.cursor, other.cursor)
         && Objects.equals(this.logicalPorts, other.logicalPorts);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), resultCount, logicalPorts);
+    return Objects.hash(super.hashCode(), resultCount, cursor, logicalPorts);
   }
 
   @Override
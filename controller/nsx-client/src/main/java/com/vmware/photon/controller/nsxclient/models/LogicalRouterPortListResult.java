@@ -27,6 +27,9 @@ public class LogicalRouterPortListResult {
   @JsonProperty(value = "result_count", required = true)
   private Integer resultCount;
 
+  @JsonProperty(value = "cursor", required = false)
+  private String cursor;
+
   @JsonProperty(value = "results", required = true)
   private List<LogicalRouterPort> logicalRouterPorts;
 
@@ -38,6 +41,14 @@ public class LogicalRouterPortListResult {
     this.resultCount = resultCount;
   }
 
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(String cursor) {
+    this.cursor = cursor;
+  }
+
   public List<LogicalRouterPort> getLogicalRouterPorts() {
     return logicalRouterPorts;
   }
@@ -58,12 +69,13 @@ public class LogicalRouterPortListResult {
 
     LogicalRouterPortListResult other = (LogicalRouterPortListResult) o;
     return Objects.equals(this.resultCount, other.resultCount)
+        && Objects.equals(this.cursor, other.cursor)
         && Objects.equals(this.logicalRouterPorts, other.logicalRouterPorts);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), resultCount, logicalRouterPorts);
+    return Objects.hash(super.hashCode(), resultCount, cursor, logicalRouterPorts);
   }
 
   @Override
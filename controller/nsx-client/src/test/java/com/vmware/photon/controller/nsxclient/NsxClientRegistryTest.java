@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.nsxclient;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link NsxClientRegistry}.
+ */
+public class NsxClientRegistryTest {
+
+  private NsxClientRegistry registry;
+
+  @BeforeMethod
+  public void setUp() {
+    registry = new NsxClientRegistry() {
+      @Override
+      protected NsxClient createNsxClient(String endpoint, String username, String password) {
+        return mock(NsxClient.class);
+      }
+    };
+  }
+
+  @Test
+  public void testSharesClientOfSameCredentials() throws Throwable {
+    NsxClient first = registry.getNsxClient("1.2.3.4", "username", "password");
+    NsxClient second = registry.getNsxClient("1.2.3.4", "username", "password");
+
+    assertThat(second, is(sameInstance(first)));
+    verify(first, never()).close();
+  }
+
+  @Test
+  public void testSeparatesClientsOfDifferentEndpointsAndUsers() throws Throwable {
+    NsxClient client = registry.getNsxClient("1.2.3.4", "username", "password");
+
+    assertThat(registry.getNsxClient("1.2.3.5", "username", "password"), is(not(sameInstance(client))));
+    assertThat(registry.getNsxClient("1.2.3.4", "other-username", "password"), is(not(sameInstance(client))));
+    verify(client, never()).close();
+  }
+
+  @Test
+  public void testReplacesAndClosesClientWhenPasswordChanges() throws Throwable {
+    NsxClient oldClient = registry.getNsxClient("1.2.3.4", "username", "old-password");
+    NsxClient newClient = registry.getNsxClient("1.2.3.4", "username", "new-password");
+
+    assertThat(newClient, is(not(sameInstance(oldClient))));
+    verify(oldClient).close();
+    assertThat(registry.getNsxClient("1.2.3.4", "username", "new-password"), is(sameInstance(newClient)));
+    verify(newClient, never()).close();
+  }
+}
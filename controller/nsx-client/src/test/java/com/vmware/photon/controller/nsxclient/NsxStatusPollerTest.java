@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 VMware, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.vmware.photon.controller.nsxclient;
+
+import com.vmware.photon.controller.nsxclient.apis.LogicalRouterApi;
+import com.vmware.photon.controller.nsxclient.apis.LogicalSwitchApi;
+import com.vmware.photon.controller.nsxclient.datatypes.NsxSwitch;
+import com.vmware.photon.controller.nsxclient.models.LogicalSwitchState;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.FutureCallback;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link NsxStatusPoller}.
+ */
+public class NsxStatusPollerTest {
+
+  private static final int POLL_DELAY = 100;
+
+  private LogicalSwitchApi logicalSwitchApi;
+  private LogicalRouterApi logicalRouterApi;
+  private NsxStatusPoller statusPoller;
+
+  @BeforeMethod
+  public void setUp() {
+    logicalSwitchApi = mock(LogicalSwitchApi.class);
+    logicalRouterApi = mock(LogicalRouterApi.class);
+
+    NsxClient nsxClient = mock(NsxClient.class);
+    when(nsxClient.getLogicalSwitchApi()).thenReturn(logicalSwitchApi);
+    when(nsxClient.getLogicalRouterApi()).thenReturn(logicalRouterApi);
+    when(nsxClient.getCreateLogicalSwitchPollDelay()).thenReturn(POLL_DELAY);
+    when(nsxClient.getDeleteLogicalPortPollDelay()).thenReturn(POLL_DELAY);
+
+    statusPoller = new NsxStatusPoller(nsxClient);
+  }
+
+  @Test
+  public void testBatchesLogicalPortDeletions() throws Throwable {
+    List<Set<String>> existingIds = new ArrayList<>();
+    existingIds.add(ImmutableSet.of("port-2"));
+    existingIds.add(Collections.emptySet());
+    doAnswer(invocation -> {
+      ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onSuccess(existingIds.remove(0));
+      return null;
+    }).when(logicalSwitchApi).checkLogicalSwitchPortsExistence(anySetOf(String.class), any(FutureCallback.class));
+
+    CountDownLatch latch = new CountDownLatch(3);
+    statusPoller.waitForLogicalPortDeletion("port-1", new DeletionCallback(latch));
+    statusPoller.waitForLogicalPortDeletion("port-2", new DeletionCallback(latch));
+    statusPoller.waitForLogicalPortDeletion("port-2", new DeletionCallback(latch));
+    assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+
+    ArgumentCaptor<Set> ids = ArgumentCaptor.forClass(Set.class);
+    verify(logicalSwitchApi, times(2)).checkLogicalSwitchPortsExistence(ids.capture(), any(FutureCallback.class));
+    assertThat((Set<String>) ids.getAllValues().get(0), containsInAnyOrder("port-1", "port-2"));
+    assertThat((Set<String>) ids.getAllValues().get(1), containsInAnyOrder("port-2"));
+  }
+
+  @Test
+  public void testFailedCheckFailsAllWaiters() throws Throwable {
+    doAnswer(invocation -> {
+      ((FutureCallback<Set<String>>) invocation.getArguments()[1]).onFailure(new RuntimeException("failed"));
+      return null;
+    }).when(logicalRouterApi).checkLogicalRouterPortsExistence(anySetOf(String.class), any(FutureCallback.class));
+
+    CountDownLatch latch = new CountDownLatch(2);
+    FutureCallback<Void> callback = new FutureCallback<Void>() {
+      @Override
+      public void onSuccess(Void result) {
+        fail("Should not have succeeded");
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        assertThat(t.getMessage(), is("failed"));
+        latch.countDown();
+      }
+    };
+    statusPoller.waitForLogicalRouterPortDeletion("port-1", callback);
+    statusPoller.waitForLogicalRouterPortDeletion("port-2", callback);
+    assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+
+    verify(logicalRouterApi).checkLogicalRouterPortsExistence(anySetOf(String.class), any(FutureCallback.class));
+  }
+
+  @Test
+  public void testWaitsForLogicalSwitchConfiguration() throws Throwable {
+    List<NsxSwitch.State> states = new ArrayList<>();
+    states.add(NsxSwitch.State.IN_PROGRESS);
+    states.add(NsxSwitch.State.SUCCESS);
+    doAnswer(invocation -> {
+      LogicalSwitchState state = new LogicalSwitchState();
+      state.setId("switch-1");
+      state.setState(states.remove(0));
+      ((FutureCallback<Map<String, LogicalSwitchState>>) invocation.getArguments()[1])
+          .onSuccess(ImmutableMap.of(state.getId(), state));
+      return null;
+    }).when(logicalSwitchApi).getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
+
+    CountDownLatch latch = new CountDownLatch(1);
+    statusPoller.waitForLogicalSwitchConfiguration("switch-1", new FutureCallback<LogicalSwitchState>() {
+      @Override
+      public void onSuccess(LogicalSwitchState result) {
+        assertThat(result.getState(), is(NsxSwitch.State.SUCCESS));
+        latch.countDown();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        fail("Should not have failed");
+      }
+    });
+    assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+
+    verify(logicalSwitchApi, times(2)).getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
+  }
+
+  @Test
+  public void testFailsLogicalSwitchMissingFromListings() throws Throwable {
+    doAnswer(invocation -> {
+      ((FutureCallback<Map<String, LogicalSwitchState>>) invocation.getArguments()[1])
+          .onSuccess(Collections.emptyMap());
+      return null;
+    }).when(logicalSwitchApi).getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
+
+    CountDownLatch latch = new CountDownLatch(1);
+    statusPoller.waitForLogicalSwitchConfiguration("switch-1", new FutureCallback<LogicalSwitchState>() {
+      @Override
+      public void onSuccess(LogicalSwitchState result) {
+        fail("Should not have succeeded");
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        assertThat(t.getMessage(), is("Logical switch switch-1 not found"));
+        latch.countDown();
+      }
+    });
+    assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+
+    verify(logicalSwitchApi, times(NsxStatusPoller.MAX_MISSED_SWEEPS))
+        .getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
+  }
+
+  @Test
+  public void testWaitsForLogicalSwitchNotListedYet() throws Throwable {
+    List<Map<String, LogicalSwitchState>> listings = new ArrayList<>();
+    for (int i = 0; i < NsxStatusPoller.MAX_MISSED_SWEEPS - 1; i++) {
+      listings.add(Collections.emptyMap());
+    }
+    LogicalSwitchState state = new LogicalSwitchState();
+    state.setId("switch-1");
+    state.setState(NsxSwitch.State.SUCCESS);
+    listings.add(ImmutableMap.of(state.getId(), state));
+    doAnswer(invocation -> {
+      ((FutureCallback<Map<String, LogicalSwitchState>>) invocation.getArguments()[1]).onSuccess(listings.remove(0));
+      return null;
+    }).when(logicalSwitchApi).getLogicalSwitchStates(anySetOf(String.class), any(FutureCallback.class));
+
+    CountDownLatch latch = new CountDownLatch(1);
+    statusPoller.waitForLogicalSwitchConfiguration("switch-1", new FutureCallback<LogicalSwitchState>() {
+      @Override
+      public void onSuccess(LogicalSwitchState result) {
+        assertThat(result.getState(), is(NsxSwitch.State.SUCCESS));
+        latch.countDown();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        fail("Should not have failed");
+      }
+    });
+    assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+  }
+
+  /**
+   * Counts down when the port is deleted.
+   */
+  private static class DeletionCallback implements FutureCallback<Void> {
+    private final CountDownLatch latch;
+
+    private DeletionCallback(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void onSuccess(Void result) {
+      latch.countDown();
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+      fail("Should not have failed");
+    }
+  }
+}
@@ -56,7 +56,11 @@ import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -552,6 +556,54 @@ public class LogicalRouterApiTest extends NsxClientApiTest {
       latch.await();
     }
 
+    @Test
+    public void testCheckLogicalRouterPortsExistenceOverPages() throws Exception {
+      LogicalRouterPort firstPort = new LogicalRouterPort();
+      firstPort.setId("port-1");
+      LogicalRouterPort secondPort = new LogicalRouterPort();
+      secondPort.setId("port-2");
+
+      LogicalRouterPortListResult firstPage = new LogicalRouterPortListResult();
+      firstPage.setCursor("cursor-1");
+      firstPage.setLogicalRouterPorts(Collections.singletonList(firstPort));
+      LogicalRouterPortListResult secondPage = new LogicalRouterPortListResult();
+      secondPage.setLogicalRouterPorts(Collections.singletonList(secondPort));
+
+      doAnswer(invocation -> {
+        ((FutureCallback<LogicalRouterPortListResult>) invocation.getArguments()[3]).onSuccess(firstPage);
+        return null;
+      }).when(logicalRouterApi)
+          .getAsync(eq(LogicalRouterApi.LOGICAL_ROUTER_PORTS_BASE_PATH),
+              eq(HttpStatus.SC_OK),
+              any(TypeReference.class),
+              any(FutureCallback.class));
+      doAnswer(invocation -> {
+        ((FutureCallback<LogicalRouterPortListResult>) invocation.getArguments()[3]).onSuccess(secondPage);
+        return null;
+      }).when(logicalRouterApi)
+          .getAsync(eq(LogicalRouterApi.LOGICAL_ROUTER_PORTS_BASE_PATH + "?cursor=cursor-1"),
+              eq(HttpStatus.SC_OK),
+              any(TypeReference.class),
+              any(FutureCallback.class));
+
+      logicalRouterApi.checkLogicalRouterPortsExistence(new HashSet<>(Arrays.asList("port-2", "port-3")),
+          new FutureCallback<Set<String>>() {
+            @Override
+            public void onSuccess(Set<String> result) {
+              assertThat(result, is(Collections.singleton("port-2")));
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              fail("Should not have failed");
+              latch.countDown();
+            }
+          }
+      );
+      latch.await();
+    }
+
     @Test
     public void testSuccessfullyDeleted() throws Exception {
       final String portId = UUID.randomUUID().toString();
@@ -22,8 +22,11 @@ import com.vmware.photon.controller.nsxclient.models.LogicalPortListResult;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitch;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitchCreateSpec;
 import com.vmware.photon.controller.nsxclient.models.LogicalSwitchState;
+import com.vmware.photon.controller.nsxclient.models.LogicalSwitchStateListResult;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.FutureCallback;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
@@ -32,6 +35,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -42,6 +46,8 @@ import static org.testng.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 
@@ -238,6 +244,166 @@ public class LogicalSwitchApiTest {
     }
   }
 
+  /**
+   * Tests for checking many logical switches and ports with one listing.
+   */
+  public static class NsxSwitchBatchCheckTest {
+    private static final int CALLBACK_ARG_INDEX = 3;
+
+    private LogicalSwitchApi logicalSwitchApi;
+    private CountDownLatch latch;
+
+    @BeforeMethod
+    public void setup() {
+      logicalSwitchApi = spy(new LogicalSwitchApi(mock(RestClient.class)));
+      latch = new CountDownLatch(1);
+    }
+
+    @Test
+    public void testGetStatesOverPages() throws Exception {
+      LogicalSwitchStateListResult firstPage = new LogicalSwitchStateListResult();
+      firstPage.setCursor("cursor-1");
+      firstPage.setLogicalSwitchStates(ImmutableList.of(buildState("switch-1"), buildState("switch-2")));
+      LogicalSwitchStateListResult secondPage = new LogicalSwitchStateListResult();
+      secondPage.setLogicalSwitchStates(ImmutableList.of(buildState("switch-3")));
+      answerGet(LogicalSwitchApi.LOGICAL_SWITCHS_BASE_PATH + "/state", firstPage);
+      answerGet(LogicalSwitchApi.LOGICAL_SWITCHS_BASE_PATH + "/state?cursor=cursor-1", secondPage);
+
+      logicalSwitchApi.getLogicalSwitchStates(ImmutableSet.of("switch-1", "switch-3", "switch-4"),
+          new FutureCallback<Map<String, LogicalSwitchState>>() {
+            @Override
+            public void onSuccess(Map<String, LogicalSwitchState> result) {
+              assertThat(result.keySet(), containsInAnyOrder("switch-1", "switch-3"));
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              fail("Should not have failed");
+              latch.countDown();
+            }
+          }
+      );
+
+      latch.await();
+    }
+
+    @Test
+    public void testCheckLogicalPortsExistenceOverPages() throws Exception {
+      LogicalPortListResult firstPage = new LogicalPortListResult();
+      firstPage.setCursor("cursor-1");
+      firstPage.setLogicalPorts(ImmutableList.of(buildPort("port-1")));
+      LogicalPortListResult secondPage = new LogicalPortListResult();
+      secondPage.setLogicalPorts(ImmutableList.of(buildPort("port-2"), buildPort("port-3")));
+      answerGet(LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH, firstPage);
+      answerGet(LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH + "?cursor=cursor-1", secondPage);
+
+      logicalSwitchApi.checkLogicalSwitchPortsExistence(ImmutableSet.of("port-1", "port-3", "port-4"),
+          new FutureCallback<Set<String>>() {
+            @Override
+            public void onSuccess(Set<String> result) {
+              assertThat(result, containsInAnyOrder("port-1", "port-3"));
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              fail("Should not have failed");
+              latch.countDown();
+            }
+          }
+      );
+
+      latch.await();
+    }
+
+    @Test
+    public void testCheckLogicalPortsExistenceEncodesCursor() throws Exception {
+      LogicalPortListResult firstPage = new LogicalPortListResult();
+      firstPage.setCursor("00+1/2=&3");
+      firstPage.setLogicalPorts(ImmutableList.of(buildPort("port-1")));
+      LogicalPortListResult secondPage = new LogicalPortListResult();
+      secondPage.setLogicalPorts(ImmutableList.of(buildPort("port-2")));
+      answerGet(LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH, firstPage);
+      answerGet(LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH + "?cursor=00%2B1%2F2%3D%263", secondPage);
+
+      logicalSwitchApi.checkLogicalSwitchPortsExistence(ImmutableSet.of("port-1", "port-2"),
+          new FutureCallback<Set<String>>() {
+            @Override
+            public void onSuccess(Set<String> result) {
+              assertThat(result, containsInAnyOrder("port-1", "port-2"));
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              fail("Should not have failed");
+              latch.countDown();
+            }
+          }
+      );
+
+      latch.await();
+    }
+
+    @Test
+    public void testFailedToListLogicalPorts() throws Exception {
+      final String errorMsg = "Service is not available";
+
+      doAnswer(invocation -> {
+        ((FutureCallback<LogicalPortListResult>) invocation.getArguments()[CALLBACK_ARG_INDEX])
+            .onFailure(new RuntimeException(errorMsg));
+        return null;
+      }).when(logicalSwitchApi)
+          .getAsync(eq(LogicalSwitchApi.LOGICAL_PORTS_BASE_PATH),
+              eq(HttpStatus.SC_OK),
+              any(TypeReference.class),
+              any(FutureCallback.class));
+
+      logicalSwitchApi.checkLogicalSwitchPortsExistence(ImmutableSet.of("port-1"),
+          new FutureCallback<Set<String>>() {
+            @Override
+            public void onSuccess(Set<String> result) {
+              fail("Should not have succeeded");
+              latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              assertThat(t.getMessage(), is(errorMsg));
+              latch.countDown();
+            }
+          }
+      );
+
+      latch.await();
+    }
+
+    private <T> void answerGet(String path, T page) throws Exception {
+      doAnswer(invocation -> {
+        ((FutureCallback<T>) invocation.getArguments()[CALLBACK_ARG_INDEX]).onSuccess(page);
+        return null;
+      }).when(logicalSwitchApi)
+          .getAsync(eq(path),
+              eq(HttpStatus.SC_OK),
+              any(TypeReference.class),
+              any(FutureCallback.class));
+    }
+
+    private static LogicalSwitchState buildState(String switchId) {
+      LogicalSwitchState state = new LogicalSwitchState();
+      state.setId(switchId);
+      state.setState(NsxSwitch.State.SUCCESS);
+      return state;
+    }
+
+    private static LogicalPort buildPort(String portId) {
+      LogicalPort port = new LogicalPort();
+      port.setId(portId);
+      return port;
+    }
+  }
+
   /**
    * Tests for deleting logical switches.
    */
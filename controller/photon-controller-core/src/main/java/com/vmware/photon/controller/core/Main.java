@@ -54,6 +54,8 @@ import com.vmware.photon.controller.nsxclient.NsxClientFactory;
 import com.vmware.photon.controller.scheduler.SchedulingConfig;
 import com.vmware.photon.controller.scheduler.service.CloudStoreConstraintChecker;
 import com.vmware.photon.controller.scheduler.service.ConstraintChecker;
+import com.vmware.photon.controller.scheduler.service.HostIndex;
+import com.vmware.photon.controller.scheduler.service.InMemoryConstraintChecker;
 import com.vmware.photon.controller.scheduler.xenon.SchedulerServiceGroup;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceClient;
@@ -265,7 +267,8 @@ public class Main {
     // update their /etc/hosts file.
     cloudStoreHelper.setRefererUri(photonControllerXenonHost.getUri());
 
-    final ConstraintChecker checker = new CloudStoreConstraintChecker(cloudStoreHelper, photonControllerXenonHost);
+    final ConstraintChecker checker = createConstraintChecker(photonControllerConfig.getRoot(), cloudStoreHelper,
+        photonControllerXenonHost);
 
     logger.info("Creating Cloud Store Xenon Service Group");
     CloudStoreServiceGroup cloudStoreServiceGroup = createCloudStoreServiceGroup(deployerConfig.isInstaller());
@@ -337,6 +340,11 @@ public class Main {
     photonControllerXenonHost.start();
     logger.info("Started PhotonController Xenon Host");
 
+    if (checker instanceof InMemoryConstraintChecker) {
+      logger.info("Starting in-memory constraint checker");
+      ((InMemoryConstraintChecker) checker).start();
+    }
+
     logger.info("Creating SystemConfig instance");
     SystemConfig.createInstance(photonControllerXenonHost);
     logger.info("Created SystemConfig instance");
@@ -347,6 +355,20 @@ public class Main {
     return new CloudStoreServiceGroup(isInstaller);
   }
 
+  private static ConstraintChecker createConstraintChecker(SchedulingConfig root,
+                                                           CloudStoreHelper cloudStoreHelper,
+                                                           ServiceHost xenonHost) {
+    switch (root.getConstraintChecker()) {
+      case IN_MEMORY:
+        logger.info("Using in-memory constraint checker");
+        return new InMemoryConstraintChecker(cloudStoreHelper, xenonHost, new HostIndex(),
+            root.getConstraintCheckerResyncIntervalMs());
+      case CLOUD_STORE:
+      default:
+        return new CloudStoreConstraintChecker(cloudStoreHelper, xenonHost);
+    }
+  }
+
   private static SchedulerServiceGroup createSchedulerServiceGroup(SchedulingConfig root,
           ConstraintChecker constraintChecker) throws Throwable {
     return new SchedulerServiceGroup(root, constraintChecker);